@@ -0,0 +1,110 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.util.ConfigLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * 基准测试语料
+ * 读取主工程 src/test/resources 下的 *_cases.txt 语料，并可按倍数生成合成的长文档
+ */
+public final class BenchmarkCorpus {
+
+    // 可用的语料名称，与 *_cases.txt 文件名前缀对应
+    public static final String[] CASE_FILES = {
+            "basic_causal", "complex_causal", "financial_term", "temporal_relation"
+    };
+
+    // 合成语料名称前缀，如 scaled_100 表示将全部语料句子随机打乱后重复100倍
+    private static final String SCALED_PREFIX = "scaled_";
+
+    // 语料行首的编号，如 "1. "
+    private static final Pattern LINE_NUMBER = Pattern.compile("^\\d+\\.\\s*");
+
+    private static final long SEED = 20240101L;
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * 加载默认配置，供各基准测试在初始化时调用
+     * 关闭请求追踪和慢请求记录，避免追踪开销和慢请求文件写入计入测量结果
+     */
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+        ConfigLoader.setProperty("trace.enabled", "false");
+        ConfigLoader.setProperty("trace.slow.enabled", "false");
+    }
+
+    /**
+     * 根据名称获取基准测试输入文档
+     *
+     * @param input 语料名称（basic_causal 等）或合成语料名称（scaled_N）
+     * @return 文档文本，句子之间以句号分隔
+     */
+    public static String document(String input) {
+        if (input.startsWith(SCALED_PREFIX)) {
+            return scaledDocument(Integer.parseInt(input.substring(SCALED_PREFIX.length())));
+        }
+        return String.join("。", sentences(input)) + "。";
+    }
+
+    /**
+     * 读取单个语料文件中的句子
+     */
+    public static List<String> sentences(String caseName) {
+        String resource = caseName + "_cases.txt";
+        try (InputStream is = BenchmarkCorpus.class.getClassLoader().getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new IllegalArgumentException("找不到语料文件: " + resource);
+            }
+            List<String> sentences = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = LINE_NUMBER.matcher(line.trim()).replaceFirst("");
+                    if (!line.isEmpty()) {
+                        sentences.add(line);
+                    }
+                }
+            }
+            return sentences;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 读取全部语料文件中的句子
+     */
+    public static List<String> allSentences() {
+        List<String> sentences = new ArrayList<>();
+        for (String caseName : CASE_FILES) {
+            sentences.addAll(sentences(caseName));
+        }
+        return sentences;
+    }
+
+    /**
+     * 生成合成文档：全部语料句子重复scale次，以固定种子打乱顺序，保证每次运行输入一致
+     */
+    public static String scaledDocument(int scale) {
+        List<String> base = allSentences();
+        List<String> sentences = new ArrayList<>(base.size() * scale);
+        for (int i = 0; i < scale; i++) {
+            sentences.addAll(base);
+        }
+        Collections.shuffle(sentences, new Random(SEED));
+        return String.join("。", sentences) + "。";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.model.Document;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.processor.NLPParser;
+import com.fincausal.processor.TextPreprocessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 因果关系提取基准：CausalRelationExtractor.extract
+ * 输入文档在初始化阶段解析一次，只测量提取本身
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class CausalExtractorBenchmark {
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10"})
+    public String input;
+
+    private CausalRelationExtractor extractor;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        extractor = new CausalRelationExtractor();
+        String text = new TextPreprocessor().preprocess(BenchmarkCorpus.document(input));
+        document = new NLPParser().parse(text);
+    }
+
+    @Benchmark
+    public List<CausalTriple> extract() {
+        return extractor.extract(document);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.util.ConfigLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 快速模式吞吐量基准：单线程逐个处理短文档，每次操作处理一个文档
+ * 快速模式的目标是单线程每秒处理不少于10000个文档（ops/s ≥ 10000）。
+ * 与其他基准不同，这里保留 trace.enabled 的默认值，以确认快速模式不产生追踪开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@Threads(1)
+public class FastModeThroughputBenchmark {
+
+    private Pipeline pipeline;
+    private String[] documents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        ConfigLoader.setProperty("trace.enabled", "true");
+        pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode(true)
+                .build();
+        // 每个语料句子作为一个文档，轮流处理，避免只测量同一输入
+        List<String> sentences = new ArrayList<>();
+        for (String caseName : BenchmarkCorpus.CASE_FILES) {
+            sentences.addAll(BenchmarkCorpus.sentences(caseName));
+        }
+        documents = sentences.toArray(new String[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public List<CausalTriple> processDocument() {
+        String document = documents[next];
+        next = next + 1 == documents.length ? 0 : next + 1;
+        return pipeline.process(document);
+    }
+}
\ No newline at end of file
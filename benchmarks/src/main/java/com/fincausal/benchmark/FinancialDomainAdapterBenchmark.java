@@ -0,0 +1,65 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.model.Document;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.processor.FinancialDomainAdapter;
+import com.fincausal.processor.NLPParser;
+import com.fincausal.processor.TemporalProcessor;
+import com.fincausal.processor.TextPreprocessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 金融领域适配基准：FinancialDomainAdapter.adapt 和 processFinancialTerms
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class FinancialDomainAdapterBenchmark {
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10"})
+    public String input;
+
+    private FinancialDomainAdapter adapter;
+    private String text;
+    private Document document;
+    private List<CausalTriple> triples;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        adapter = new FinancialDomainAdapter();
+        text = new TextPreprocessor().preprocess(BenchmarkCorpus.document(input));
+        document = new NLPParser().parse(text);
+        List<CausalTriple> extracted = new CausalRelationExtractor().extract(document);
+        triples = new TemporalProcessor().process(extracted, document);
+    }
+
+    @Benchmark
+    public List<CausalTriple> adapt() {
+        return adapter.adapt(TemporalProcessorBenchmark.copy(triples), document);
+    }
+
+    @Benchmark
+    public Map<String, String> processFinancialTerms() {
+        return adapter.processFinancialTerms(text);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.Document;
+import com.fincausal.processor.NLPParser;
+import com.fincausal.processor.TextPreprocessor;
+import com.fincausal.util.ConfigLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NLP解析基准：NLPParser.parse
+ * 按注释器配置分为若干档：
+ * full（全部注释器）、depparse（去掉成分句法分析）、tagging（仅分词和词性标注）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class ParserBenchmark {
+
+    @Param({"full", "depparse", "tagging"})
+    public String profile;
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10"})
+    public String input;
+
+    private NLPParser parser;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        ConfigLoader.setProperty("nlp.annotators", annotators(profile));
+        parser = new NLPParser();
+        text = new TextPreprocessor().preprocess(BenchmarkCorpus.document(input));
+    }
+
+    @Benchmark
+    public Document parse() {
+        return parser.parse(text);
+    }
+
+    private static String annotators(String profile) {
+        switch (profile) {
+            case "depparse":
+                return "tokenize, ssplit, pos, lemma, ner, depparse";
+            case "tagging":
+                return "tokenize, ssplit, pos";
+            default:
+                return NLPParser.DEFAULT_ANNOTATORS;
+        }
+    }
+}
\ No newline at end of file
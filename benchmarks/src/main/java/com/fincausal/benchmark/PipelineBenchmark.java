@@ -0,0 +1,67 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端流水线基准：DefaultPipeline.process
+ * full 为完整CoreNLP解析，fast 为只做模式匹配的快速模式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class PipelineBenchmark {
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10"})
+    public String input;
+
+    @Param({"full", "fast"})
+    public String mode;
+
+    private Pipeline pipeline;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withParser()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode("fast".equals(mode))
+                .build();
+        text = BenchmarkCorpus.document(input);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public List<CausalTriple> process() {
+        return pipeline.process(text);
+    }
+}
\ No newline at end of file
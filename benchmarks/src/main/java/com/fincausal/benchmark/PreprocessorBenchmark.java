@@ -0,0 +1,47 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.processor.TextPreprocessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文本预处理基准：TextPreprocessor.preprocess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreprocessorBenchmark {
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10", "scaled_100"})
+    public String input;
+
+    private TextPreprocessor preprocessor;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        preprocessor = new TextPreprocessor();
+        text = BenchmarkCorpus.document(input);
+    }
+
+    @Benchmark
+    public String preprocess() {
+        return preprocessor.preprocess(text);
+    }
+}
\ No newline at end of file
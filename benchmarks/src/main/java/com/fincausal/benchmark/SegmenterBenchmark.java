@@ -0,0 +1,56 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.Document;
+import com.fincausal.processor.NLPParser;
+import com.fincausal.processor.TextPreprocessor;
+import com.fincausal.util.ConfigLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分词基准：NLPParser.parse，只运行分词和分句注释器
+ * 按分词方式分为两档：crf（CoreNLP的CRF分词模型）、dictionary（词典双向最大匹配）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class SegmenterBenchmark {
+
+    @Param({"crf", "dictionary"})
+    public String segmenter;
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10"})
+    public String input;
+
+    private NLPParser parser;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        ConfigLoader.setProperty("nlp.annotators", "tokenize, ssplit");
+        ConfigLoader.setProperty("nlp.segmenter", segmenter);
+        parser = new NLPParser();
+        text = new TextPreprocessor().preprocess(BenchmarkCorpus.document(input));
+    }
+
+    @Benchmark
+    public Document parse() {
+        return parser.parse(text);
+    }
+}
\ No newline at end of file
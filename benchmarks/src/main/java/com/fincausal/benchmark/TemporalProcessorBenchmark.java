@@ -0,0 +1,66 @@
+package com.fincausal.benchmark;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.model.Document;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.processor.NLPParser;
+import com.fincausal.processor.TemporalProcessor;
+import com.fincausal.processor.TextPreprocessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时序处理基准：TemporalProcessor.process
+ * 处理器会修改传入的三元组，因此每次调用都基于提取结果的副本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class TemporalProcessorBenchmark {
+
+    @Param({"basic_causal", "complex_causal", "financial_term", "temporal_relation", "scaled_10"})
+    public String input;
+
+    private TemporalProcessor temporalProcessor;
+    private Document document;
+    private List<CausalTriple> triples;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCorpus.loadConfig();
+        temporalProcessor = new TemporalProcessor();
+        String text = new TextPreprocessor().preprocess(BenchmarkCorpus.document(input));
+        document = new NLPParser().parse(text);
+        triples = new CausalRelationExtractor().extract(document);
+    }
+
+    @Benchmark
+    public List<CausalTriple> process() {
+        return temporalProcessor.process(copy(triples), document);
+    }
+
+    static List<CausalTriple> copy(List<CausalTriple> triples) {
+        List<CausalTriple> result = new ArrayList<>(triples.size());
+        for (CausalTriple triple : triples) {
+            result.add(new CausalTriple(triple));
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -1,8 +1,20 @@
 package com.fincausal;
 
+import com.fincausal.aggregate.HeavyHitterAggregator;
+import com.fincausal.batch.BatchJob;
+import com.fincausal.batch.ShardedJob;
+import com.fincausal.dedup.NearDuplicateDetector;
+import com.fincausal.dedup.PhraseClusterer;
+import com.fincausal.graph.CausalGraph;
+import com.fincausal.index.LuceneTripleIndex;
+import com.fincausal.ingest.IngestService;
+import com.fincausal.metrics.MetricsReporter;
+import com.fincausal.metrics.PipelineMetrics;
 import com.fincausal.model.CausalTriple;
 import com.fincausal.pipeline.Pipeline;
 import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.PipelineWarmer;
+import com.fincausal.server.ExtractionServer;
 import com.fincausal.util.ConfigLoader;
 
 import org.slf4j.Logger;
@@ -10,7 +22,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,21 +37,92 @@ public class CausalRelationExtractor {
 
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.out.println("用法: java -jar causal-relation-extraction.jar <输入文件路径> [输出文件路径]");
+            System.out.println("用法: java -jar causal-relation-extraction.jar [--warmup] <输入文件路径> [输出文件路径]");
+            System.out.println("      java -jar causal-relation-extraction.jar --server [端口] [--warmup]");
+            System.out.println("      java -jar causal-relation-extraction.jar --watch <输入目录> <输出目录> [--warmup]");
+            System.out.println("      java -jar causal-relation-extraction.jar --tail <NDJSON文件> <输出目录> [--warmup]");
+            System.out.println("      java -jar causal-relation-extraction.jar --batch <输入NDJSON文件或目录> <输出文件> [--warmup]");
+            System.out.println("      java -jar causal-relation-extraction.jar --coordinator <输入NDJSON文件或目录> <工作目录> <输出文件> [分片数]");
+            System.out.println("      java -jar causal-relation-extraction.jar --worker <工作目录> [--warmup]");
+            System.out.println("      java -jar causal-relation-extraction.jar --heavy-hitters <统计文件>... [--limit 个数]");
+            System.out.println("      java -jar causal-relation-extraction.jar --graph <结果文件>... "
+                    + "(--effects 短语 | --causes 短语 | --top [分类] | --find 关键词) [--hops 跳数] [--limit 个数]");
+            System.exit(1);
+        }
+        
+        // 服务模式：常驻进程，通过HTTP接口处理请求
+        if ("--server".equals(args[0])) {
+            ExtractionServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        // 持续处理模式：常驻进程，处理输入目录中新出现的文件或不断追加的NDJSON文件
+        if ("--watch".equals(args[0]) || "--tail".equals(args[0])) {
+            IngestService.main(args);
+            return;
+        }
+        
+        // 批处理作业：记录检查点，中断后重新运行同一命令从最后一个检查点继续
+        if ("--batch".equals(args[0])) {
+            BatchJob.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        // 分片处理：协调者切分输入并合并输出，多个工作进程通过共享工作目录中的租约领取分片
+        if ("--coordinator".equals(args[0]) || "--worker".equals(args[0])) {
+            ShardedJob.main(args);
+            return;
+        }
+        
+        // 查询批处理作业或分片处理保存的高频因果对统计，多个文件合并后输出
+        if ("--heavy-hitters".equals(args[0])) {
+            HeavyHitterAggregator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        // 从抽取结果构建因果图，查询因果链、置信度最高的边或包含关键词的短语
+        if ("--graph".equals(args[0])) {
+            CausalGraph.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        // --warmup：处理输入前先预热管道
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean warmup = arguments.remove("--warmup");
+        if (arguments.isEmpty()) {
+            System.out.println("用法: java -jar causal-relation-extraction.jar [--warmup] <输入文件路径> [输出文件路径]");
             System.exit(1);
         }
 
-        String inputFilePath = args[0];
-        String outputFilePath = args.length > 1 ? args[1] : "output.json";
+        String inputFilePath = arguments.get(0);
+        String outputFilePath = arguments.size() > 1 ? arguments.get(1) : "output.json";
 
         try {
             // 加载配置
             ConfigLoader configLoader = new ConfigLoader();
             configLoader.loadConfig("config.properties");
+            if (warmup) {
+                ConfigLoader.setProperty("warmup.enabled", "true");
+            }
 
             // 读取输入文本
             String text = new String(Files.readAllBytes(Paths.get(inputFilePath)));
             
+            // 近似重复检测（可选），索引在多次运行之间持久化
+            NearDuplicateDetector duplicateDetector = ConfigLoader.getBooleanProperty("dedup.enabled", false)
+                    ? new NearDuplicateDetector() : null;
+            
+            // 短语聚类（可选），为原因和结果设置簇编号，索引在多次运行之间持久化以保持簇编号不变
+            PhraseClusterer phraseClusterer = ConfigLoader.getBooleanProperty("cluster.enabled", false)
+                    ? new PhraseClusterer() : null;
+            
+            // 各阶段运行指标，可通过JMX查看，并定时写入日志/CSV
+            PipelineMetrics metrics = PipelineMetrics.fromConfig();
+            if (ConfigLoader.getBooleanProperty("metrics.jmx.enabled", false)) {
+                metrics.registerMBeans();
+            }
+            MetricsReporter metricsReporter = MetricsReporter.start(metrics);
+            
             // 构建处理管道
             Pipeline pipeline = new PipelineBuilder()
                     .withPreprocessor()
@@ -44,13 +130,40 @@ public class CausalRelationExtractor {
                     .withCausalExtractor()
                     .withTemporalProcessor()
                     .withFinancialDomainAdapter()
+                    .withNearDuplicateDetector(duplicateDetector)
+                    .withPhraseClusterer(phraseClusterer)
+                    .withMetrics(metrics)
                     .build();
             
+            // 预热管道（可选），预热完成后才开始处理输入
+            if (ConfigLoader.getBooleanProperty("warmup.enabled", false)) {
+                PipelineWarmer.fromConfig().warmUp(pipeline);
+                logger.info("管道已就绪");
+            }
+            
             // 处理文本并提取因果关系
             List<CausalTriple> causalTriples = pipeline.process(text);
             
             // 输出结果
             pipeline.outputResults(causalTriples, outputFilePath);
+            pipeline.close();
+            
+            if (duplicateDetector != null) {
+                duplicateDetector.save();
+            }
+            if (phraseClusterer != null) {
+                phraseClusterer.save();
+            }
+            
+            // 写入三元组检索索引（可选），以输入文件名作为文档编号
+            if (ConfigLoader.getBooleanProperty("index.lucene.enabled", false)) {
+                Path inputPath = Paths.get(inputFilePath);
+                try (LuceneTripleIndex tripleIndex = new LuceneTripleIndex()) {
+                    tripleIndex.index(inputPath.getFileName().toString(), causalTriples);
+                }
+            }
+            
+            metricsReporter.close();
             
             logger.info("处理完成，共提取 {} 个因果关系，结果已保存至 {}", causalTriples.size(), outputFilePath);
             
@@ -0,0 +1,184 @@
+package com.fincausal.aggregate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Count-Min计数草图
+ * depth 行、每行 width 个计数器，每个键在每行按独立的哈希落入一个计数器，估计值取各行计数器的最小值。
+ * 估计值不小于真实计数，以 1 - delta 的概率高估不超过 epsilon * 总数，其中 width = ⌈e/epsilon⌉，depth = ⌈ln(1/delta)⌉。
+ * 占用内存只取决于 width 和 depth，与键的数量无关；尺寸相同的草图逐个计数器相加即可合并。
+ * 非线程安全，由调用方同步
+ */
+public class CountMinSketch {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 计数器总数上限（128MB），防止过小的误差参数或损坏的文件导致分配过大的内存
+    static final int MAX_CELLS = 1 << 24;
+
+    private final int depth;
+    private final int width;
+    private final long[] table;
+    private long total;
+
+    /**
+     * 构造函数
+     *
+     * @param depth 行数（哈希函数个数）
+     * @param width 每行计数器个数
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0 || (long) depth * width > MAX_CELLS) {
+            throw new IllegalArgumentException("草图尺寸不正确: " + depth + " x " + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.table = new long[depth * width];
+    }
+
+    /**
+     * 按误差上界创建：以 1 - delta 的概率高估不超过 epsilon * 总数
+     *
+     * @param epsilon 相对误差上界，0到1之间
+     * @param delta 超出误差上界的概率，0到1之间
+     */
+    public static CountMinSketch withErrorBound(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("误差上界和概率必须在0到1之间: " + epsilon + ", " + delta);
+        }
+        return new CountMinSketch((int) Math.ceil(Math.log(1 / delta)), (int) Math.ceil(Math.E / epsilon));
+    }
+
+    /**
+     * 记录键出现 count 次
+     *
+     * @param key 键
+     * @param count 次数，不大于0时忽略
+     */
+    public void add(String key, long count) {
+        if (count <= 0) {
+            return;
+        }
+        total += count;
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            table[row * width + bucket(h1, h2, row)] += count;
+        }
+    }
+
+    /**
+     * 键的计数估计，不小于真实计数
+     */
+    public long estimate(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, table[row * width + bucket(h1, h2, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * 合并尺寸相同的另一个草图
+     *
+     * @param other 另一个草图，不会被修改
+     * @throws IllegalArgumentException 尺寸不同
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("草图尺寸不同，无法合并: " + depth + " x " + width
+                    + " 与 " + other.depth + " x " + other.width);
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * 记录的总次数
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 将草图写入输出流
+     *
+     * @param out 输出流
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(width);
+        out.writeLong(total);
+        for (long value : table) {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * 从输入流读取草图
+     *
+     * @param in 输入流
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public static CountMinSketch readFrom(DataInputStream in) throws IOException {
+        int depth = in.readInt();
+        int width = in.readInt();
+        if (depth <= 0 || width <= 0 || (long) depth * width > MAX_CELLS) {
+            throw new IOException("计数草图格式不正确: " + depth + " x " + width);
+        }
+        CountMinSketch sketch = new CountMinSketch(depth, width);
+        sketch.total = in.readLong();
+        for (int i = 0; i < sketch.table.length; i++) {
+            long value = in.readLong();
+            if (value < 0 || value > sketch.total) {
+                throw new IOException("计数草图格式不正确: 计数器 " + value + " 超出总数 " + sketch.total);
+            }
+            sketch.table[i] = value;
+        }
+        return sketch;
+    }
+
+    /**
+     * 由两个32位哈希组合出第 row 行的哈希（Kirsch-Mitzenmacher），避免为每行单独计算哈希
+     */
+    private int bucket(int h1, int h2, int row) {
+        int combined = h1 + row * h2;
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+
+    /**
+     * 键的UTF-8字节的64位哈希（FNV-1a后再做一次比特混合）
+     */
+    private static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
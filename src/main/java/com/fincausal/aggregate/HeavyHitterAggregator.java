@@ -0,0 +1,413 @@
+package com.fincausal.aggregate;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSink;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.JsonMappers;
+import com.fincausal.util.PhraseNormalizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 高频因果对统计
+ * 作为结果输出接在管道之后，以固定内存流式统计规范化后出现最多的（原因, 结果）对，以及每个领域分类下出现最多的原因：
+ * 高频项列表由Space-Saving统计维护，任意因果对的次数由Count-Min草图估计。
+ * 分类数有上限，超出的分类合并计入“其他”。各统计可随时查询，多个工作进程的统计可以合并。线程安全
+ */
+public class HeavyHitterAggregator implements ResultSink {
+
+    private static final int FILE_MAGIC = 0x48485354; // "HHST"
+    private static final int FILE_VERSION = 1;
+
+    static final String UNCATEGORIZED = "未分类";
+    static final String OTHER_CATEGORIES = "其他";
+
+    // 因果对的键：规范化后的原因和结果，中间以不会出现在短语中的字符分隔
+    private static final char PAIR_SEPARATOR = '\u0001';
+
+    private final int capacity;
+    private final int maxCategories;
+    private final SpaceSaving pairs;
+    private final CountMinSketch pairSketch;
+    private final SpaceSaving causes;
+    private final Map<String, SpaceSaving> causesByCategory = new TreeMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 每个高频项列表最多监视的键数，计数高估不超过 总数/capacity
+     * @param sketchDepth Count-Min草图行数
+     * @param sketchWidth Count-Min草图每行计数器个数
+     * @param maxCategories 单独统计的领域分类数上限
+     */
+    public HeavyHitterAggregator(int capacity, int sketchDepth, int sketchWidth, int maxCategories) {
+        this.capacity = capacity;
+        this.maxCategories = Math.max(1, maxCategories);
+        this.pairs = new SpaceSaving(capacity);
+        this.pairSketch = new CountMinSketch(sketchDepth, sketchWidth);
+        this.causes = new SpaceSaving(capacity);
+    }
+
+    /**
+     * 根据配置创建
+     */
+    public static HeavyHitterAggregator fromConfig() {
+        double epsilon = ConfigLoader.getDoubleProperty("heavyhitters.error", 0.001);
+        CountMinSketch sketch = CountMinSketch.withErrorBound(
+                ConfigLoader.getDoubleProperty("heavyhitters.sketch.error", 0.0001),
+                1 - ConfigLoader.getDoubleProperty("heavyhitters.sketch.confidence", 0.999));
+        return new HeavyHitterAggregator(SpaceSaving.withErrorBound(epsilon).getCapacity(),
+                sketch.getDepth(), sketch.getWidth(), ConfigLoader.getIntProperty("heavyhitters.categories.max", 32));
+    }
+
+    /**
+     * 统计一个因果三元组，原因或结果规范化后为空时忽略
+     */
+    @Override
+    public synchronized void write(CausalTriple triple) {
+        String cause = PhraseNormalizer.normalize(triple.getCause());
+        String effect = PhraseNormalizer.normalize(triple.getEffect());
+        if (cause.isEmpty() || effect.isEmpty()) {
+            return;
+        }
+        String pair = cause + PAIR_SEPARATOR + effect;
+        pairs.offer(pair);
+        pairSketch.add(pair, 1);
+        causes.offer(cause);
+        categorySummary(triple.getDomainCategory()).offer(cause);
+    }
+
+    @Override
+    public synchronized void writeAll(List<CausalTriple> triples) {
+        for (CausalTriple triple : triples) {
+            write(triple);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // 统计只保存在内存中
+    }
+
+    @Override
+    public void close() {
+        // 没有需要释放的资源
+    }
+
+    private SpaceSaving categorySummary(String category) {
+        String key = category == null || category.trim().isEmpty() ? UNCATEGORIZED : category.trim();
+        SpaceSaving summary = causesByCategory.get(key);
+        if (summary == null) {
+            // 超出上限的分类合并计入“其他”
+            if (causesByCategory.size() >= maxCategories) {
+                key = OTHER_CATEGORIES;
+            }
+            summary = causesByCategory.computeIfAbsent(key, k -> new SpaceSaving(capacity));
+        }
+        return summary;
+    }
+
+    /**
+     * 出现最多的因果对
+     *
+     * @param n 返回的个数
+     */
+    public synchronized List<PairCount> topPairs(int n) {
+        List<PairCount> result = new ArrayList<>();
+        for (SpaceSaving.Counter counter : pairs.top(n)) {
+            int separator = counter.getKey().indexOf(PAIR_SEPARATOR);
+            result.add(new PairCount(counter.getKey().substring(0, separator),
+                    counter.getKey().substring(separator + 1), counter.getCount(), counter.getError()));
+        }
+        return result;
+    }
+
+    /**
+     * 出现最多的原因
+     *
+     * @param category 领域分类，为null时统计全部分类
+     * @param n 返回的个数
+     * @return 高频原因，分类不存在时为空列表
+     */
+    public synchronized List<SpaceSaving.Counter> topCauses(String category, int n) {
+        if (category == null) {
+            return causes.top(n);
+        }
+        SpaceSaving summary = causesByCategory.get(category);
+        return summary != null ? summary.top(n) : new ArrayList<>();
+    }
+
+    /**
+     * 已统计的领域分类
+     */
+    public synchronized List<String> getCategories() {
+        return new ArrayList<>(causesByCategory.keySet());
+    }
+
+    /**
+     * 因果对出现次数的估计（规范化后比较），不小于真实次数
+     */
+    public synchronized long estimatePairCount(String cause, String effect) {
+        String pair = PhraseNormalizer.normalize(cause) + PAIR_SEPARATOR + PhraseNormalizer.normalize(effect);
+        return Math.min(pairs.estimate(pair), pairSketch.estimate(pair));
+    }
+
+    /**
+     * 已统计的因果对总数
+     */
+    public synchronized long getTotal() {
+        return pairs.getTotal();
+    }
+
+    /**
+     * 高频项列表计数高估量的上界：总数/capacity
+     */
+    public synchronized long getErrorBound() {
+        return pairs.getTotal() / capacity;
+    }
+
+    /**
+     * 合并另一个统计，用于汇总多个工作进程的结果
+     *
+     * @param other 另一个统计，Count-Min草图尺寸必须相同
+     */
+    public void merge(HeavyHitterAggregator other) {
+        if (other == this) {
+            throw new IllegalArgumentException("不能与自身合并");
+        }
+        // 按固定顺序加锁，两个统计同时相互合并时不会死锁
+        boolean thisFirst = System.identityHashCode(this) <= System.identityHashCode(other);
+        synchronized (thisFirst ? this : other) {
+            synchronized (thisFirst ? other : this) {
+                pairSketch.merge(other.pairSketch);
+                pairs.merge(other.pairs);
+                causes.merge(other.causes);
+                for (Map.Entry<String, SpaceSaving> entry : other.causesByCategory.entrySet()) {
+                    SpaceSaving summary = causesByCategory.get(entry.getKey());
+                    if (summary == null) {
+                        summary = categorySummary(entry.getKey());
+                    }
+                    summary.merge(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 统计摘要，用于输出为JSON
+     *
+     * @param n 每个高频项列表返回的个数
+     */
+    public synchronized Map<String, Object> summary(int n) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total", pairs.getTotal());
+        body.put("error_bound", getErrorBound());
+        List<Map<String, Object>> topPairs = new ArrayList<>();
+        for (PairCount pair : topPairs(n)) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("cause", pair.getCause());
+            values.put("effect", pair.getEffect());
+            values.put("count", pair.getCount());
+            values.put("error", pair.getError());
+            topPairs.add(values);
+        }
+        body.put("pairs", topPairs);
+        body.put("causes", counters(causes.top(n)));
+        Map<String, Object> categories = new LinkedHashMap<>();
+        for (Map.Entry<String, SpaceSaving> entry : causesByCategory.entrySet()) {
+            categories.put(entry.getKey(), counters(entry.getValue().top(n)));
+        }
+        body.put("causes_by_category", categories);
+        return body;
+    }
+
+    private static List<Map<String, Object>> counters(List<SpaceSaving.Counter> counters) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (SpaceSaving.Counter counter : counters) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("key", counter.getKey());
+            values.put("count", counter.getCount());
+            values.put("error", counter.getError());
+            result.add(values);
+        }
+        return result;
+    }
+
+    /**
+     * 将统计写入输出流
+     *
+     * @param out 输出流
+     * @throws IOException 写入失败时抛出
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        pairs.writeTo(out);
+        pairSketch.writeTo(out);
+        causes.writeTo(out);
+        out.writeInt(causesByCategory.size());
+        for (Map.Entry<String, SpaceSaving> entry : causesByCategory.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * 从输入流读取统计，合并到当前统计中
+     *
+     * @param in 输入流
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        merge(readSnapshot(in));
+    }
+
+    private static HeavyHitterAggregator readSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("不是有效的高频因果对统计文件");
+        }
+        int version = in.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("不支持的高频因果对统计文件版本: " + version);
+        }
+        SpaceSaving pairs = SpaceSaving.readFrom(in);
+        CountMinSketch pairSketch = CountMinSketch.readFrom(in);
+        HeavyHitterAggregator other = new HeavyHitterAggregator(pairs.getCapacity(), pairSketch.getDepth(),
+                pairSketch.getWidth(), Integer.MAX_VALUE);
+        other.pairs.merge(pairs);
+        other.pairSketch.merge(pairSketch);
+        other.causes.merge(SpaceSaving.readFrom(in));
+        int categories = in.readInt();
+        for (int i = 0; i < categories; i++) {
+            String category = in.readUTF();
+            other.causesByCategory.put(category, SpaceSaving.readFrom(in));
+        }
+        return other;
+    }
+
+    /**
+     * 保存到文件，先写入临时文件再原子替换
+     *
+     * @param path 文件路径
+     * @throws IOException 写入失败时抛出
+     */
+    public void save(Path path) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            writeTo(out);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 从文件读取统计，统计尺寸与文件中的相同
+     *
+     * @param path 文件路径
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public static HeavyHitterAggregator read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return readSnapshot(in);
+        }
+    }
+
+    /**
+     * 从文件读取统计，合并到当前统计中
+     *
+     * @param path 文件路径
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public void load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            readFrom(in);
+        }
+    }
+
+    /**
+     * 合并并查询保存的高频统计，以JSON输出到标准输出
+     *
+     * @param args 一个或多个高频统计文件，可加 --limit &lt;个数&gt; 指定每个列表返回的个数
+     */
+    public static void main(String[] args) {
+        List<String> files = new ArrayList<>();
+        int limit = -1;
+        for (int i = 0; i < args.length; i++) {
+            if ("--limit".equals(args[i]) && i + 1 < args.length) {
+                limit = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.out.println("用法: java -jar causal-relation-extraction.jar --heavy-hitters <统计文件>... [--limit 个数]");
+            System.exit(1);
+        }
+        try {
+            new ConfigLoader().loadConfig("config.properties");
+            if (limit < 0) {
+                limit = ConfigLoader.getIntProperty("heavyhitters.top", 20);
+            }
+            HeavyHitterAggregator heavyHitters = read(Paths.get(files.get(0)));
+            for (String file : files.subList(1, files.size())) {
+                heavyHitters.load(Paths.get(file));
+            }
+            System.out.println(JsonMappers.writer(true).writeValueAsString(heavyHitters.summary(limit)));
+        } catch (Exception e) {
+            System.err.println("读取高频统计时发生错误: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 一个因果对的次数估计
+     */
+    public static final class PairCount {
+        private final String cause;
+        private final String effect;
+        private final long count;
+        private final long error;
+
+        PairCount(String cause, String effect, long count, long error) {
+            this.cause = cause;
+            this.effect = effect;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getCause() {
+            return cause;
+        }
+
+        public String getEffect() {
+            return effect;
+        }
+
+        /**
+         * 次数估计，不小于真实次数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 次数估计的最大高估量
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
\ No newline at end of file
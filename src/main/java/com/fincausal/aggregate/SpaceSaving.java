@@ -0,0 +1,334 @@
+package com.fincausal.aggregate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving高频项统计
+ * 最多监视 capacity 个键，计数以最小堆组织；未被监视的新键替换计数最小的键，并继承其计数作为误差上界。
+ * 任一键的计数估计不小于真实值，且高估不超过 总数/capacity，因此真实频率超过 总数/capacity 的键一定在监视范围内。
+ * 两个统计可以合并（一方未监视的键按该方的最小计数补足），合并后的误差上界为两者总数之和除以 capacity。
+ * 非线程安全，由调用方同步
+ */
+public class SpaceSaving {
+
+    // 按计数从高到低、计数相同时按键排序
+    private static final Comparator<Counter> ORDER = Comparator.comparingLong((Counter counter) -> counter.count)
+            .reversed().thenComparing(counter -> counter.key);
+
+    // 读取文件时允许的最大监视键数和键的最大字节数，防止损坏的文件导致分配过大的内存
+    static final int MAX_CAPACITY = 1 << 22;
+    static final int MAX_KEY_BYTES = 1 << 16;
+
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    // 键 -> 在堆中的位置
+    private final Map<String, Integer> positions;
+    private int size;
+    private long total;
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 最多监视的键数
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("监视的键数必须在1到" + MAX_CAPACITY + "之间: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 按误差上界创建：计数高估不超过 epsilon * 总数
+     *
+     * @param epsilon 相对误差上界，0到1之间
+     */
+    public static SpaceSaving withErrorBound(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("误差上界必须在0到1之间: " + epsilon);
+        }
+        return new SpaceSaving((int) Math.ceil(1 / epsilon));
+    }
+
+    /**
+     * 记录键出现一次
+     */
+    public void offer(String key) {
+        offer(key, 1);
+    }
+
+    /**
+     * 记录键出现 weight 次
+     *
+     * @param key 键
+     * @param weight 次数，不大于0时忽略
+     */
+    public void offer(String key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+        } else if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+        } else {
+            // 替换计数最小的键，新键继承其计数作为误差
+            positions.remove(keys[0]);
+            keys[0] = key;
+            errors[0] = counts[0];
+            counts[0] += weight;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 合并另一个统计，合并后监视数仍为本统计的 capacity
+     *
+     * @param other 另一个统计，不会被修改
+     */
+    public void merge(SpaceSaving other) {
+        long minCount = getMinCount();
+        long otherMinCount = other.getMinCount();
+        Map<String, Counter> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            merged.put(keys[i], new Counter(keys[i], counts[i] + otherMinCount, errors[i] + otherMinCount));
+        }
+        for (int i = 0; i < other.size; i++) {
+            Counter counter = merged.get(other.keys[i]);
+            if (counter == null) {
+                merged.put(other.keys[i], new Counter(other.keys[i], other.counts[i] + minCount,
+                        other.errors[i] + minCount));
+            } else {
+                // 双方都监视的键：去掉上面按对方最小计数补足的部分，换成对方的实际计数
+                merged.put(other.keys[i], new Counter(other.keys[i],
+                        counter.count - otherMinCount + other.counts[i], counter.error - otherMinCount + other.errors[i]));
+            }
+        }
+        List<Counter> counters = new ArrayList<>(merged.values());
+        counters.sort(ORDER);
+
+        long mergedTotal = total + other.total;
+        positions.clear();
+        size = 0;
+        total = 0;
+        for (int i = 0; i < Math.min(capacity, counters.size()); i++) {
+            Counter counter = counters.get(i);
+            restore(counter.key, counter.count, counter.error);
+        }
+        total = mergedTotal;
+    }
+
+    /**
+     * 计数最高的 n 个键，按计数从高到低排序，计数相同时按键排序
+     */
+    public List<Counter> top(int n) {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter(keys[i], counts[i], errors[i]));
+        }
+        counters.sort(ORDER);
+        return counters.size() > n ? new ArrayList<>(counters.subList(0, Math.max(0, n))) : counters;
+    }
+
+    /**
+     * 键的计数上界：被监视时为其计数，否则为最小计数（未满时为0，即确定未出现）
+     */
+    public long estimate(String key) {
+        Integer position = positions.get(key);
+        return position != null ? counts[position] : getMinCount();
+    }
+
+    /**
+     * 监视的键中最小的计数，未满时为0
+     */
+    public long getMinCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * 记录的总次数
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 当前监视的键数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 将统计写入输出流
+     *
+     * @param out 输出流
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(capacity);
+        out.writeLong(total);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            byte[] key = keys[i].getBytes(StandardCharsets.UTF_8);
+            if (key.length > MAX_KEY_BYTES) {
+                throw new IOException("键过长，无法写入: " + key.length + " 字节");
+            }
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeLong(counts[i]);
+            out.writeLong(errors[i]);
+        }
+    }
+
+    /**
+     * 从输入流读取统计
+     *
+     * @param in 输入流
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public static SpaceSaving readFrom(DataInputStream in) throws IOException {
+        int capacity = in.readInt();
+        long total = in.readLong();
+        int size = in.readInt();
+        if (capacity <= 0 || capacity > MAX_CAPACITY || size < 0 || size > capacity || total < 0) {
+            throw new IOException("高频项统计格式不正确: capacity=" + capacity + ", size=" + size);
+        }
+        SpaceSaving summary = new SpaceSaving(capacity);
+        for (int i = 0; i < size; i++) {
+            int length = in.readInt();
+            if (length < 0 || length > MAX_KEY_BYTES) {
+                throw new IOException("高频项统计格式不正确: 键长度 " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            String key = new String(bytes, StandardCharsets.UTF_8);
+            long count = in.readLong();
+            long error = in.readLong();
+            if (error < 0 || count < error || count > total || summary.positions.containsKey(key)) {
+                throw new IOException("高频项统计格式不正确: 键 " + key + " 的计数 " + count + " 误差 " + error);
+            }
+            summary.restore(key, count, error);
+        }
+        summary.total = total;
+        return summary;
+    }
+
+    private void restore(String key, long count, long error) {
+        keys[size] = key;
+        counts[size] = count;
+        errors[size] = error;
+        positions.put(key, size);
+        siftUp(size++);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[parent] <= counts[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+
+    /**
+     * 一个键的计数估计
+     */
+    public static final class Counter {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 计数估计，不小于真实计数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 计数估计的最大高估量
+         */
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * 确定的计数下界
+         */
+        public long getGuaranteedCount() {
+            return count - error;
+        }
+    }
+}
\ No newline at end of file
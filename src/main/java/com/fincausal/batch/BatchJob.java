@@ -0,0 +1,539 @@
+package com.fincausal.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fincausal.aggregate.HeavyHitterAggregator;
+import com.fincausal.metrics.MetricsReporter;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.PipelineWarmer;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.FileSync;
+import com.fincausal.util.JsonMappers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 可断点续跑的批处理作业
+ * 输入为NDJSON文件（每行 {"id": ..., "text": ...}）或文本文件目录（按文件名排序，每个文件一个文档），
+ * 输出为NDJSON文件，按输入顺序每个文档一行 {"id": ..., "triples": [...]}（失败时为 error）。
+ * 作业目录（输出文件名加 .job）中保存作业清单和检查点日志：按配置的间隔先同步输出文件，
+ * 再追加并同步一条检查点记录。重启时把输出截断到最后一个检查点（输出文件短于该检查点时回退到更早的检查点），
+ * 从对应的输入位置继续，合并后的输出与不中断运行的输出相同。
+ * 启用高频统计时，作业完成后把输出中因果对的高频统计保存到输出文件名加 .heavy-hitters 的文件中
+ */
+public class BatchJob {
+    private static final Logger logger = LoggerFactory.getLogger(BatchJob.class);
+
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String CHECKPOINT_FILE = "checkpoint.log";
+
+    private final Pipeline pipeline;
+    private final PipelineMetrics metrics;
+    private final Path input;
+    private final Path output;
+    private final Path jobDirectory;
+    private final int checkpointDocuments;
+    private final long checkpointMillis;
+    private final int maxPending;
+    private final InputRange range;
+    private final HeavyHitterAggregator heavyHitters;
+
+    // 作业是否仍归本进程所有，由分片租约设置，每次写出文档和记录检查点前同步检查；返回false时停止写出并以异常结束
+    private BooleanSupplier ownership = () -> true;
+
+    /**
+     * 构造函数，检查点间隔和在途文档数按配置设置
+     *
+     * @param pipeline 处理管道
+     * @param metrics 运行指标，记录处理的文档数
+     * @param input 输入NDJSON文件或文本文件目录
+     * @param output 输出NDJSON文件
+     */
+    public BatchJob(Pipeline pipeline, PipelineMetrics metrics, Path input, Path output) {
+        this(pipeline, metrics, input, output, InputRange.ALL);
+    }
+
+    /**
+     * 构造函数，只处理输入的一个区间
+     *
+     * @param range 输入区间
+     */
+    BatchJob(Pipeline pipeline, PipelineMetrics metrics, Path input, Path output, InputRange range) {
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        this.input = input;
+        this.output = output;
+        this.range = range;
+        this.jobDirectory = output.resolveSibling(output.getFileName() + ".job");
+        this.checkpointDocuments = Math.max(1, ConfigLoader.getIntProperty("batch.checkpoint.interval.docs", 1000));
+        this.checkpointMillis = Math.max(0, ConfigLoader.getIntProperty("batch.checkpoint.interval.ms", 10000));
+        this.maxPending = Math.max(1, ConfigLoader.getIntProperty("batch.max.pending", 256));
+        this.heavyHitters = ConfigLoader.getBooleanProperty("heavyhitters.enabled", false)
+                ? HeavyHitterAggregator.fromConfig() : null;
+    }
+
+    /**
+     * 输出对应的高频统计文件
+     */
+    static Path heavyHittersPath(Path output) {
+        return output.resolveSibling(output.getFileName() + ".heavy-hitters");
+    }
+
+    /**
+     * 设置作业归属检查，每写出一个文档和记录检查点前检查一次
+     */
+    void setOwnership(BooleanSupplier ownership) {
+        this.ownership = ownership;
+    }
+
+    /**
+     * 运行作业，已有未完成的同一作业时从最后一个检查点继续
+     *
+     * @return 本次运行处理的文档数
+     * @throws IOException 读写失败，或已有作业的输入与本次不一致
+     */
+    public long run() throws IOException {
+        Files.createDirectories(jobDirectory);
+        Path manifestPath = jobDirectory.resolve(MANIFEST_FILE);
+        JobManifest manifest = JobManifest.describe(input, output, range);
+        JobManifest existing = JobManifest.load(manifestPath);
+        if (existing != null && !existing.sameJob(manifest)) {
+            throw new IOException("作业目录 " + jobDirectory + " 属于另一个作业或输入已变化，请删除后重新运行");
+        }
+        if (existing != null && existing.isCompleted()) {
+            logger.info("作业已完成，无需重新运行: {}", output);
+            return 0;
+        }
+        if (existing == null) {
+            manifest.save(manifestPath);
+        }
+
+        long processed;
+        try (CheckpointLog log = CheckpointLog.open(jobDirectory.resolve(CHECKPOINT_FILE));
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // 新建的输出文件和检查点日志的目录项落盘后，检查点记录才能在崩溃后找到对应的文件
+            FileSync.syncDirectory(jobDirectory);
+            FileSync.syncDirectory(output.toAbsolutePath().getParent());
+            CheckpointLog.Checkpoint start = log.lastWithin(out.size());
+            if (start == CheckpointLog.Checkpoint.START) {
+                start = new CheckpointLog.Checkpoint(0, range.start, range.startLine, 0);
+            }
+            // 丢弃最后一个检查点之后写出的内容，这部分文档重新处理
+            out.truncate(start.outputOffset);
+            out.position(start.outputOffset);
+            if (start.documents > 0) {
+                logger.info("从检查点继续作业: 已完成 {} 个文档，输出位置 {}", start.documents, start.outputOffset);
+                if (heavyHitters != null) {
+                    replayHeavyHitters();
+                }
+            }
+            try (DocumentSource source = JobManifest.TYPE_DIRECTORY.equals(manifest.getInputType())
+                    ? new DirectorySource(input, start, range.end) : new NdjsonSource(input, start, range.end)) {
+                processed = process(source, out, log, start);
+            }
+        }
+
+        if (heavyHitters != null) {
+            heavyHitters.save(heavyHittersPath(output));
+        }
+        manifest.setCompleted(true);
+        manifest.save(manifestPath);
+        logger.info("作业完成，本次处理 {} 个文档，结果已保存至 {}", processed, output);
+        return processed;
+    }
+
+    /**
+     * 高频统计只保存在内存中，继续作业时从已保留的输出中重新统计检查点之前的文档
+     */
+    private void replayHeavyHitters() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(output), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode triples = JsonMappers.mapper().readTree(line).get("triples");
+                if (triples == null) {
+                    continue;
+                }
+                for (JsonNode triple : triples) {
+                    heavyHitters.write(JsonMappers.mapper().treeToValue(triple, CausalTriple.class));
+                }
+            }
+        }
+    }
+
+    /**
+     * 按输入顺序提交文档并写出结果，按间隔记录检查点
+     */
+    private long process(DocumentSource source, FileChannel out, CheckpointLog log, CheckpointLog.Checkpoint start)
+            throws IOException {
+        Deque<PendingDocument> pending = new ArrayDeque<>();
+        long documents = start.documents;
+        long processed = 0;
+        long sinceCheckpoint = 0;
+        long lastCheckpoint = System.currentTimeMillis();
+        CheckpointLog.Checkpoint last = start;
+
+        BatchDocument document;
+        while ((document = source.next()) != null) {
+            pending.add(new PendingDocument(document, submit(document), source.position(), source.lines()));
+            while (!pending.isEmpty() && (pending.size() >= maxPending || pending.peekFirst().future.isDone())) {
+                PendingDocument completed = pending.pollFirst();
+                write(out, completed);
+                documents++;
+                processed++;
+                sinceCheckpoint++;
+                last = new CheckpointLog.Checkpoint(documents, completed.position, completed.lines, out.position());
+                if (sinceCheckpoint >= checkpointDocuments
+                        || System.currentTimeMillis() - lastCheckpoint >= checkpointMillis) {
+                    checkpoint(out, log, last);
+                    sinceCheckpoint = 0;
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            PendingDocument completed = pending.pollFirst();
+            write(out, completed);
+            documents++;
+            processed++;
+            last = new CheckpointLog.Checkpoint(documents, completed.position, completed.lines, out.position());
+        }
+        checkpoint(out, log, last);
+        return processed;
+    }
+
+    private CompletableFuture<List<CausalTriple>> submit(BatchDocument document) {
+        if (document.error != null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(document.error));
+        }
+        try {
+            return pipeline.processAsync(document.text);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void write(FileChannel out, PendingDocument document) throws IOException {
+        checkOwnership();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", document.document.id);
+        try {
+            List<CausalTriple> triples = document.future.join();
+            body.put("triples", triples);
+            if (heavyHitters != null) {
+                heavyHitters.writeAll(triples);
+            }
+            metrics.increment("batch.documents.processed");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            body.put("error", cause.getMessage());
+            metrics.increment("batch.documents.failed");
+        } catch (CancellationException e) {
+            // 被取消的文档记为失败写出，不能中断整个作业
+            body.put("error", "处理已取消");
+            metrics.increment("batch.documents.failed");
+        }
+        byte[] line = JsonMappers.writer(false).writeValueAsBytes(body);
+        ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n');
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * 先把输出和管道状态同步到磁盘，再记录检查点，检查点记录的输出及其引用的簇编号一定已经落盘
+     */
+    private void checkpoint(FileChannel out, CheckpointLog log, CheckpointLog.Checkpoint checkpoint) throws IOException {
+        out.force(false);
+        pipeline.checkpoint();
+        checkOwnership();
+        log.append(checkpoint);
+        logger.debug("已记录检查点: 已完成 {} 个文档，输出位置 {}", checkpoint.documents, checkpoint.outputOffset);
+    }
+
+    private void checkOwnership() throws IOException {
+        if (!ownership.getAsBoolean()) {
+            throw new IOException("作业已不归本进程所有，停止写出: " + output);
+        }
+    }
+
+    /**
+     * 输入区间：NDJSON输入为字节区间（起点位于行首），目录输入为文件序号区间
+     */
+    static final class InputRange {
+        static final InputRange ALL = new InputRange(0, 0, Long.MAX_VALUE);
+
+        final long start;
+        // 起点之前的输入行数，用于为未指定编号的文档生成与整体运行相同的编号
+        final long startLine;
+        final long end;
+
+        InputRange(long start, long startLine, long end) {
+            this.start = start;
+            this.startLine = startLine;
+            this.end = end;
+        }
+
+        String format() {
+            return start + ":" + startLine + ":" + end;
+        }
+    }
+
+    /**
+     * 批处理输入中的一个文档，无法解析时text为null，error为原因
+     */
+    private static final class BatchDocument {
+        private final Object id;
+        private final String text;
+        private final String error;
+
+        BatchDocument(Object id, String text, String error) {
+            this.id = id;
+            this.text = text;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 已提交、等待写出的文档，以及读取该文档后的输入位置
+     */
+    private static final class PendingDocument {
+        private final BatchDocument document;
+        private final CompletableFuture<List<CausalTriple>> future;
+        private final long position;
+        private final long lines;
+
+        PendingDocument(BatchDocument document, CompletableFuture<List<CausalTriple>> future, long position, long lines) {
+            this.document = document;
+            this.future = future;
+            this.position = position;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * 批处理输入，从检查点记录的位置开始读取
+     */
+    private interface DocumentSource extends Closeable {
+        /**
+         * 读取下一个文档，没有更多文档时返回null
+         */
+        BatchDocument next() throws IOException;
+
+        /**
+         * 下一个文档的输入位置
+         */
+        long position();
+
+        /**
+         * 已读取的输入行数
+         */
+        long lines();
+    }
+
+    /**
+     * NDJSON输入：位置为字节偏移，未指定编号的文档以行号为编号，跳过空行
+     */
+    private static final class NdjsonSource implements DocumentSource {
+        private final FileChannel channel;
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final long end;
+        private long position;
+        private long lines;
+
+        NdjsonSource(Path path, CheckpointLog.Checkpoint start, long end) throws IOException {
+            this.end = end;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            channel.position(start.inputPosition);
+            this.in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+            this.position = start.inputPosition;
+            this.lines = start.inputLines;
+        }
+
+        @Override
+        public BatchDocument next() throws IOException {
+            String text;
+            while ((text = readLine()) != null) {
+                if (!text.trim().isEmpty()) {
+                    return parse(text, lines);
+                }
+            }
+            return null;
+        }
+
+        private String readLine() throws IOException {
+            line.reset();
+            int b;
+            boolean read = false;
+            if (position >= end) {
+                return null;
+            }
+            while ((b = in.read()) != -1) {
+                read = true;
+                position++;
+                if (b == '\n') {
+                    break;
+                }
+                line.write(b);
+            }
+            if (!read) {
+                return null;
+            }
+            lines++;
+            return new String(line.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private static BatchDocument parse(String text, long lineNumber) {
+            Object id = lineNumber;
+            try {
+                JsonNode node = JsonMappers.mapper().readTree(text);
+                JsonNode idNode = node.get("id");
+                if (idNode != null && !idNode.isNull()) {
+                    id = idNode.isNumber() ? idNode.numberValue() : idNode.asText();
+                }
+                JsonNode textNode = node.get("text");
+                if (textNode == null || !textNode.isTextual()) {
+                    return new BatchDocument(id, null, "第 " + lineNumber + " 行缺少text字段");
+                }
+                return new BatchDocument(id, textNode.asText(), null);
+            } catch (JsonProcessingException e) {
+                return new BatchDocument(id, null, "第 " + lineNumber + " 行不是有效的JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public long lines() {
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 目录输入：按文件名排序，位置为文件序号，以文件名为文档编号
+     */
+    private static final class DirectorySource implements DocumentSource {
+        private final List<Path> files;
+        private final long end;
+        private int index;
+
+        DirectorySource(Path directory, CheckpointLog.Checkpoint start, long end) throws IOException {
+            this.files = JobManifest.listDocuments(directory);
+            this.end = end;
+            this.index = (int) start.inputPosition;
+        }
+
+        @Override
+        public BatchDocument next() throws IOException {
+            if (index >= files.size() || index >= end) {
+                return null;
+            }
+            Path file = files.get(index++);
+            return new BatchDocument(file.getFileName().toString(),
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8), null);
+        }
+
+        @Override
+        public long position() {
+            return index;
+        }
+
+        @Override
+        public long lines() {
+            return index;
+        }
+
+        @Override
+        public void close() {
+            // 没有需要释放的资源
+        }
+    }
+
+    /**
+     * 批处理作业入口
+     *
+     * @param args &lt;输入NDJSON文件或目录&gt; &lt;输出文件&gt;，可加 --warmup 表示开始处理前预热管道
+     */
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean warmup = arguments.remove("--warmup");
+        if (arguments.size() < 2) {
+            System.out.println("用法: java -jar causal-relation-extraction.jar --batch <输入NDJSON文件或目录> <输出文件> [--warmup]");
+            System.exit(1);
+        }
+        try {
+            new ConfigLoader().loadConfig("config.properties");
+            if (warmup) {
+                ConfigLoader.setProperty("warmup.enabled", "true");
+            }
+
+            PipelineMetrics metrics = PipelineMetrics.fromConfig();
+            if (ConfigLoader.getBooleanProperty("metrics.jmx.enabled", false)) {
+                metrics.registerMBeans();
+            }
+            MetricsReporter metricsReporter = MetricsReporter.start(metrics);
+
+            try (Pipeline pipeline = new PipelineBuilder()
+                    .withPreprocessor()
+                    .withParser()
+                    // 批处理不写入检索索引，输出中不记录来源句子
+                    .withCausalExtractor(new CausalRelationExtractor(false))
+                    .withTemporalProcessor()
+                    .withFinancialDomainAdapter()
+                    .withMetrics(metrics)
+                    .build()) {
+                if (ConfigLoader.getBooleanProperty("warmup.enabled", false)) {
+                    PipelineWarmer.fromConfig().warmUp(pipeline);
+                }
+                new BatchJob(pipeline, metrics, Paths.get(arguments.get(0)), Paths.get(arguments.get(1))).run();
+            }
+            metricsReporter.close();
+        } catch (Exception e) {
+            logger.error("批处理作业执行过程中发生错误: {}", e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
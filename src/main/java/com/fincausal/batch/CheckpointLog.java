@@ -0,0 +1,155 @@
+package com.fincausal.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批处理作业的检查点日志
+ * 每行一条记录：已完成文档数、下一个文档在输入中的位置、已读取的输入行数、输出文件长度。
+ * 只追加写入，进程被中断时最后一行可能不完整，恢复时忽略不完整的记录并截掉；
+ * 输出文件短于最后一条记录时回退到输出仍然完整的最近一条记录
+ */
+class CheckpointLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointLog.class);
+
+    private final FileChannel channel;
+    // 完整的记录及每条记录之后的日志长度，按写入顺序排列
+    private final List<Checkpoint> records;
+    private final List<Long> recordEnds;
+
+    private CheckpointLog(FileChannel channel, List<Checkpoint> records, List<Long> recordEnds) {
+        this.channel = channel;
+        this.records = records;
+        this.recordEnds = recordEnds;
+    }
+
+    /**
+     * 打开检查点日志，读取最后一条完整记录，并截掉其后的不完整内容
+     *
+     * @param path 日志文件路径，不存在时创建
+     * @return 检查点日志
+     * @throws IOException 读写失败
+     */
+    static CheckpointLog open(Path path) throws IOException {
+        List<Checkpoint> records = new ArrayList<>();
+        List<Long> recordEnds = new ArrayList<>();
+        long validLength = 0;
+        if (Files.exists(path)) {
+            byte[] content = Files.readAllBytes(path);
+            int lineStart = 0;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] != '\n') {
+                    continue;
+                }
+                Checkpoint record = Checkpoint.parse(new String(content, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                if (record == null) {
+                    logger.warn("检查点日志中有无法解析的记录，忽略其后的内容: {}", path);
+                    break;
+                }
+                records.add(record);
+                recordEnds.add((long) i + 1);
+                validLength = i + 1;
+                lineStart = i + 1;
+            }
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new CheckpointLog(channel, records, recordEnds);
+    }
+
+    /**
+     * 获取输出仍然完整的最后一条记录，并截掉其后的记录
+     *
+     * @param outputLength 输出文件当前的长度
+     * @return 输出偏移不超过 outputLength 的最后一条记录，没有时为作业起点
+     * @throws IOException 截断日志失败
+     */
+    Checkpoint lastWithin(long outputLength) throws IOException {
+        int index = records.size() - 1;
+        while (index >= 0 && records.get(index).outputOffset > outputLength) {
+            index--;
+        }
+        if (index < records.size() - 1) {
+            logger.warn("输出文件长度 {} 短于检查点记录的输出位置 {}，回退到第 {} 条检查点",
+                    outputLength, records.get(records.size() - 1).outputOffset, index + 1);
+            long length = index >= 0 ? recordEnds.get(index) : 0;
+            channel.truncate(length);
+            channel.position(length);
+            channel.force(false);
+            records.subList(index + 1, records.size()).clear();
+            recordEnds.subList(index + 1, recordEnds.size()).clear();
+        }
+        return index >= 0 ? records.get(index) : Checkpoint.START;
+    }
+
+    /**
+     * 追加一条记录并同步到磁盘
+     *
+     * @param checkpoint 检查点
+     * @throws IOException 写入失败
+     */
+    void append(Checkpoint checkpoint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((checkpoint.format() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 检查点记录
+     */
+    static final class Checkpoint {
+        static final Checkpoint START = new Checkpoint(0, 0, 0, 0);
+
+        // 已完成的文档数
+        final long documents;
+        // 下一个文档在输入中的位置：NDJSON输入为字节偏移，目录输入为文件序号
+        final long inputPosition;
+        // 已读取的输入行数，用于为未指定编号的文档生成与首次运行相同的编号
+        final long inputLines;
+        // 已完成文档的输出长度（字节）
+        final long outputOffset;
+
+        Checkpoint(long documents, long inputPosition, long inputLines, long outputOffset) {
+            this.documents = documents;
+            this.inputPosition = inputPosition;
+            this.inputLines = inputLines;
+            this.outputOffset = outputOffset;
+        }
+
+        String format() {
+            return documents + " " + inputPosition + " " + inputLines + " " + outputOffset;
+        }
+
+        static Checkpoint parse(String line) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length != 4) {
+                return null;
+            }
+            try {
+                return new Checkpoint(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
\ No newline at end of file
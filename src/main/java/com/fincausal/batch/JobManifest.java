@@ -0,0 +1,162 @@
+package com.fincausal.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fincausal.util.JsonMappers;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批处理作业清单
+ * 记录作业的输入、输入指纹、输入区间和输出，重启时用于确认输入没有变化；作业完成后标记为已完成
+ */
+class JobManifest {
+    static final String TYPE_NDJSON = "ndjson";
+    static final String TYPE_DIRECTORY = "directory";
+
+    private final String input;
+    private final String inputType;
+    private final String fingerprint;
+    private final String range;
+    private final String output;
+    private boolean completed;
+
+    private JobManifest(String input, String inputType, String fingerprint, String range, String output,
+                        boolean completed) {
+        this.input = input;
+        this.inputType = inputType;
+        this.fingerprint = fingerprint;
+        this.range = range;
+        this.output = output;
+        this.completed = completed;
+    }
+
+    /**
+     * 描述当前的输入和输出
+     *
+     * @param input 输入文件或目录
+     * @param output 输出文件
+     * @param range 作业处理的输入区间
+     * @throws IOException 读取输入失败
+     */
+    static JobManifest describe(Path input, Path output, BatchJob.InputRange range) throws IOException {
+        return new JobManifest(input.toAbsolutePath().normalize().toString(), inputType(input), fingerprint(input),
+                range.format(), output.toAbsolutePath().normalize().toString(), false);
+    }
+
+    static String inputType(Path input) {
+        return Files.isDirectory(input) ? TYPE_DIRECTORY : TYPE_NDJSON;
+    }
+
+    /**
+     * 输入指纹：NDJSON输入为文件大小和修改时间，目录输入为各文件名和大小的摘要
+     */
+    static String fingerprint(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            return Files.size(input) + ":" + Files.getLastModifiedTime(input).toMillis();
+        }
+        MessageDigest digest = sha256();
+        for (Path file : listDocuments(input)) {
+            digest.update((file.getFileName() + "\t" + Files.size(file) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 目录输入中的文档：按文件名排序的普通文件，跳过隐藏文件
+     */
+    static List<Path> listDocuments(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".")) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+        return files;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 读取作业清单
+     *
+     * @param path 清单文件
+     * @return 作业清单，文件不存在时返回null
+     * @throws IOException 读取失败
+     */
+    static JobManifest load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        JsonNode node = JsonMappers.mapper().readTree(path.toFile());
+        return new JobManifest(node.path("input").asText(), node.path("input_type").asText(),
+                node.path("fingerprint").asText(), node.path("range").asText(), node.path("output").asText(),
+                node.path("completed").asBoolean());
+    }
+
+    /**
+     * 写入作业清单：先写临时文件，同步到磁盘后原子替换
+     *
+     * @param path 清单文件
+     * @throws IOException 写入失败
+     */
+    void save(Path path) throws IOException {
+        ObjectNode node = JsonMappers.mapper().createObjectNode();
+        node.put("input", input);
+        node.put("input_type", inputType);
+        node.put("fingerprint", fingerprint);
+        node.put("range", range);
+        node.put("output", output);
+        node.put("completed", completed);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, JsonMappers.writer(true).writeValueAsBytes(node));
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 是否描述同一个作业：输入、输入指纹、输入区间和输出都相同
+     */
+    boolean sameJob(JobManifest other) {
+        return input.equals(other.input) && inputType.equals(other.inputType)
+                && fingerprint.equals(other.fingerprint) && range.equals(other.range) && output.equals(other.output);
+    }
+
+    String getInputType() {
+        return inputType;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.fincausal.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片租约
+ * 以独占创建租约文件的方式领取分片，文件内容为持有者标识。持有期间定时更新文件修改时间作为心跳，
+ * 修改时间超过有效期未更新的租约视为过期，其他进程可以接管：先独占创建接管标记文件（只有一个进程能成功），
+ * 再次确认租约仍然过期后，以原子重命名把自己的租约替换上去。租约文件始终存在，仍在心跳的持有者不会读不到租约；
+ * 接管过程中崩溃留下的标记超过有效期后被清除。
+ * 心跳发现租约已不属于自己时标记为失效；作业每次写出文档和记录检查点前还会同步调用 isHeld()，
+ * 重新读取持有者和修改时间，避免长时间停顿（如GC、挂起）后心跳尚未运行时继续写出
+ */
+class ShardLease implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardLease.class);
+
+    private final Path file;
+    private final String owner;
+    private final long ttlMillis;
+    private final ScheduledExecutorService heartbeat;
+    private volatile boolean valid = true;
+
+    private ShardLease(Path file, String owner, long ttlMillis, long heartbeatMillis) {
+        this.file = file;
+        this.owner = owner;
+        this.ttlMillis = ttlMillis;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-lease-" + file.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renew, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 尝试领取分片
+     *
+     * @param file 租约文件
+     * @param owner 持有者标识
+     * @param ttlMillis 租约有效期（毫秒），超过该时间没有心跳的租约可被接管
+     * @param heartbeatMillis 心跳间隔（毫秒）
+     * @return 租约，分片已被其他进程持有时返回null
+     * @throws IOException 读写租约文件失败
+     */
+    static ShardLease tryAcquire(Path file, String owner, long ttlMillis, long heartbeatMillis) throws IOException {
+        FileTime modified = lastModified(file);
+        if (modified == null) {
+            try {
+                Files.write(Files.createFile(file), owner.getBytes(StandardCharsets.UTF_8));
+            } catch (FileAlreadyExistsException e) {
+                return null;
+            }
+            return new ShardLease(file, owner, ttlMillis, heartbeatMillis);
+        }
+        if (!isExpired(modified, ttlMillis)) {
+            return null;
+        }
+
+        // 多个进程同时接管时只有一个能创建接管标记
+        Path marker = file.resolveSibling(file.getFileName() + ".takeover");
+        try {
+            Files.createFile(marker);
+        } catch (FileAlreadyExistsException e) {
+            FileTime markerModified = lastModified(marker);
+            if (markerModified != null && isExpired(markerModified, ttlMillis)) {
+                logger.warn("清除遗留的接管标记: {}", marker.getFileName());
+                Files.deleteIfExists(marker);
+            }
+            return null;
+        }
+        try {
+            // 判断过期与创建标记之间持有者可能恢复了心跳，或租约已被其他进程接管
+            modified = lastModified(file);
+            if (modified == null || !isExpired(modified, ttlMillis)) {
+                return null;
+            }
+            String previous = readOwner(file);
+            Path tmp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                Files.write(tmp, owner.getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            logger.warn("租约已过期，接管分片: {}，原持有者: {}", file.getFileName(), previous);
+            return new ShardLease(file, owner, ttlMillis, heartbeatMillis);
+        } finally {
+            Files.deleteIfExists(marker);
+        }
+    }
+
+    private static FileTime lastModified(Path file) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static boolean isExpired(FileTime modified, long ttlMillis) {
+        return System.currentTimeMillis() - modified.toMillis() >= ttlMillis;
+    }
+
+    private static String readOwner(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "未知";
+        }
+    }
+
+    /**
+     * 心跳：确认租约仍属于自己后更新修改时间
+     */
+    private void renew() {
+        if (!valid) {
+            return;
+        }
+        try {
+            if (!owner.equals(readOwner(file))) {
+                lose("租约已被其他进程接管");
+                return;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            lose("更新租约失败: " + e.getMessage());
+        }
+    }
+
+    private void lose(String reason) {
+        valid = false;
+        logger.error("{}: {}", reason, file.getFileName());
+        heartbeat.shutdown();
+    }
+
+    /**
+     * 租约是否仍然有效（只反映最近一次心跳的结果）
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * 同步确认租约仍属于自己：重新读取租约文件的持有者和修改时间，已被接管或已过期时标记为失效
+     * 每次写出前调用，不依赖心跳线程是否及时运行
+     *
+     * @return 租约是否仍属于自己
+     */
+    boolean isHeld() {
+        if (!valid) {
+            return false;
+        }
+        try {
+            FileTime modified = lastModified(file);
+            if (modified == null || !owner.equals(readOwner(file))) {
+                lose("租约已被其他进程接管");
+                return false;
+            }
+            if (isExpired(modified, ttlMillis)) {
+                lose("租约已过期");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            lose("读取租约失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 停止心跳并删除租约文件（仍属于自己时）
+     */
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+        if (valid && owner.equals(readOwner(file))) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("删除租约文件失败: {}, {}", file, e.getMessage());
+            }
+        }
+        valid = false;
+    }
+}
\ No newline at end of file
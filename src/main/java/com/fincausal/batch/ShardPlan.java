@@ -0,0 +1,149 @@
+package com.fincausal.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fincausal.util.JsonMappers;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分片计划
+ * 把输入切分为若干个连续的区间：NDJSON输入按字节大致均分并对齐到行首，目录输入按文件数均分。
+ * 各分片的输出按分片顺序拼接后与整体运行的输出相同
+ */
+class ShardPlan {
+    private final String input;
+    private final String fingerprint;
+    private final List<BatchJob.InputRange> shards;
+
+    private ShardPlan(String input, String fingerprint, List<BatchJob.InputRange> shards) {
+        this.input = input;
+        this.fingerprint = fingerprint;
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * 切分输入
+     *
+     * @param input 输入NDJSON文件或文本文件目录
+     * @param shardCount 分片数，输入较小时实际分片数可能更少
+     * @return 分片计划
+     * @throws IOException 读取输入失败
+     */
+    static ShardPlan create(Path input, int shardCount) throws IOException {
+        List<BatchJob.InputRange> shards = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            int files = JobManifest.listDocuments(input).size();
+            int count = Math.max(1, Math.min(shardCount, files));
+            for (int i = 0; i < count; i++) {
+                long start = (long) files * i / count;
+                long end = (long) files * (i + 1) / count;
+                shards.add(new BatchJob.InputRange(start, start, end));
+            }
+        } else {
+            // 顺序扫描一遍，在每个目标字节位置之后的第一个行首处切分，同时记录切分点之前的行数
+            long size = Files.size(input);
+            int count = (int) Math.max(1, Math.min(shardCount, size));
+            long start = 0;
+            long startLine = 0;
+            long position = 0;
+            long lines = 0;
+            int next = 1;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(input), 64 * 1024)) {
+                int b;
+                while (next < count && (b = in.read()) != -1) {
+                    position++;
+                    if (b != '\n') {
+                        continue;
+                    }
+                    lines++;
+                    if (position >= size * next / count) {
+                        shards.add(new BatchJob.InputRange(start, startLine, position));
+                        start = position;
+                        startLine = lines;
+                        while (next < count && position >= size * next / count) {
+                            next++;
+                        }
+                    }
+                }
+            }
+            shards.add(new BatchJob.InputRange(start, startLine, Long.MAX_VALUE));
+        }
+        return new ShardPlan(input.toAbsolutePath().normalize().toString(), JobManifest.fingerprint(input), shards);
+    }
+
+    /**
+     * 读取分片计划
+     *
+     * @param path 计划文件
+     * @return 分片计划，文件不存在时返回null
+     * @throws IOException 读取失败
+     */
+    static ShardPlan load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        JsonNode node = JsonMappers.mapper().readTree(path.toFile());
+        List<BatchJob.InputRange> shards = new ArrayList<>();
+        for (JsonNode shard : node.path("shards")) {
+            shards.add(new BatchJob.InputRange(shard.path("start").asLong(), shard.path("start_line").asLong(),
+                    shard.path("end").asLong()));
+        }
+        return new ShardPlan(node.path("input").asText(), node.path("fingerprint").asText(), shards);
+    }
+
+    /**
+     * 写入分片计划：先写临时文件再原子替换，其他进程不会读到写了一半的计划
+     *
+     * @param path 计划文件
+     * @throws IOException 写入失败
+     */
+    void save(Path path) throws IOException {
+        ObjectNode node = JsonMappers.mapper().createObjectNode();
+        node.put("input", input);
+        node.put("fingerprint", fingerprint);
+        ArrayNode array = node.putArray("shards");
+        for (BatchJob.InputRange shard : shards) {
+            ObjectNode item = array.addObject();
+            item.put("start", shard.start);
+            item.put("start_line", shard.startLine);
+            item.put("end", shard.end);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, JsonMappers.writer(true).writeValueAsBytes(node));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 输入是否与计划一致
+     */
+    boolean matches(Path input) throws IOException {
+        return this.input.equals(input.toAbsolutePath().normalize().toString())
+                && fingerprint.equals(JobManifest.fingerprint(input));
+    }
+
+    Path getInput() {
+        return Paths.get(input);
+    }
+
+    List<BatchJob.InputRange> getShards() {
+        return shards;
+    }
+
+    /**
+     * 分片名称，用于输出、租约和完成标记的文件名
+     */
+    static String shardName(int index) {
+        return String.format("shard-%05d", index);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.fincausal.batch;
+
+import com.fincausal.aggregate.HeavyHitterAggregator;
+import com.fincausal.metrics.MetricsReporter;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.PipelineWarmer;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 多进程分片处理
+ * 协调者把输入切分为分片并写入共享工作目录，各工作进程（可在共享文件系统的不同主机上）通过租约文件领取分片，
+ * 每个分片作为一个可续跑的批处理作业运行；持有者停止心跳后租约过期，其他工作进程接管并从该分片的检查点继续。
+ * 全部分片完成后，协调者按分片顺序合并输出，结果与单进程批处理作业相同。
+ * 工作目录结构：plan.json（分片计划）、leases/（租约）、output/（各分片输出及作业目录）、done/（完成标记）
+ */
+public class ShardedJob {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedJob.class);
+
+    private static final String PLAN_FILE = "plan.json";
+
+    private final Path workDirectory;
+    private final Path leaseDirectory;
+    private final Path outputDirectory;
+    private final Path doneDirectory;
+    private final long leaseTtlMillis;
+    private final long heartbeatMillis;
+    private final long pollMillis;
+
+    /**
+     * 构造函数，租约有效期、心跳间隔和轮询间隔按配置设置
+     *
+     * @param workDirectory 共享工作目录
+     * @throws IOException 无法创建目录
+     */
+    public ShardedJob(Path workDirectory) throws IOException {
+        this.workDirectory = Files.createDirectories(workDirectory);
+        this.leaseDirectory = Files.createDirectories(workDirectory.resolve("leases"));
+        this.outputDirectory = Files.createDirectories(workDirectory.resolve("output"));
+        this.doneDirectory = Files.createDirectories(workDirectory.resolve("done"));
+        this.leaseTtlMillis = ConfigLoader.getIntProperty("shard.lease.ttl.sec", 60) * 1000L;
+        this.heartbeatMillis = Math.max(100, ConfigLoader.getIntProperty("shard.heartbeat.sec", 10) * 1000L);
+        this.pollMillis = Math.max(10, ConfigLoader.getIntProperty("shard.poll.ms", 5000));
+    }
+
+    /**
+     * 切分输入并写入分片计划，已有计划时确认输入一致后沿用
+     *
+     * @param input 输入NDJSON文件或文本文件目录
+     * @param shardCount 分片数
+     * @return 实际分片数
+     * @throws IOException 读取输入失败，或已有计划的输入与本次不一致
+     */
+    public int plan(Path input, int shardCount) throws IOException {
+        Path planPath = workDirectory.resolve(PLAN_FILE);
+        ShardPlan existing = ShardPlan.load(planPath);
+        if (existing != null) {
+            if (!existing.matches(input)) {
+                throw new IOException("工作目录 " + workDirectory + " 中已有其他输入的分片计划，请删除后重新运行");
+            }
+            logger.info("沿用已有的分片计划，共 {} 个分片", existing.getShards().size());
+            return existing.getShards().size();
+        }
+        ShardPlan plan = ShardPlan.create(input, shardCount);
+        plan.save(planPath);
+        logger.info("已切分输入 {}，共 {} 个分片", input, plan.getShards().size());
+        return plan.getShards().size();
+    }
+
+    /**
+     * 作为工作进程领取并处理分片，直到全部分片完成
+     * 没有可领取的分片时等待，以便接管过期的租约
+     *
+     * @param pipeline 处理管道
+     * @param metrics 运行指标
+     * @return 本进程完成的分片数
+     * @throws IOException 读取分片计划失败
+     * @throws InterruptedException 等待时被中断
+     */
+    public int work(Pipeline pipeline, PipelineMetrics metrics) throws IOException, InterruptedException {
+        ShardPlan plan = awaitPlan();
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+        logger.info("工作进程 {} 开始领取分片", owner);
+        int completed = 0;
+        while (true) {
+            List<Integer> remaining = remaining(plan);
+            if (remaining.isEmpty()) {
+                break;
+            }
+            boolean claimed = false;
+            boolean failed = false;
+            for (int index : remaining) {
+                String name = ShardPlan.shardName(index);
+                ShardLease lease = ShardLease.tryAcquire(leaseDirectory.resolve(name + ".lease"), owner,
+                        leaseTtlMillis, heartbeatMillis);
+                if (lease == null) {
+                    continue;
+                }
+                claimed = true;
+                try (ShardLease held = lease) {
+                    if (Files.exists(doneDirectory.resolve(name))) {
+                        break;
+                    }
+                    logger.info("已领取分片 {}", name);
+                    BatchJob job = new BatchJob(pipeline, metrics, plan.getInput(),
+                            outputDirectory.resolve(name + ".ndjson"), plan.getShards().get(index));
+                    job.setOwnership(held::isHeld);
+                    job.run();
+                    if (held.isHeld()) {
+                        Files.write(doneDirectory.resolve(name), owner.getBytes(StandardCharsets.UTF_8));
+                        metrics.increment("shard.completed");
+                        completed++;
+                        logger.info("分片 {} 已完成", name);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // 释放租约后继续领取，分片稍后由本进程或其他进程从检查点重试
+                    metrics.increment("shard.failed");
+                    logger.error("处理分片 {} 时发生错误: {}", name, e.getMessage(), e);
+                    failed = true;
+                }
+                break;
+            }
+            if (!claimed || failed) {
+                Thread.sleep(pollMillis);
+            }
+        }
+        logger.info("全部分片已完成，本进程完成 {} 个分片", completed);
+        return completed;
+    }
+
+    /**
+     * 等待全部分片完成
+     *
+     * @throws IOException 读取分片计划失败
+     * @throws InterruptedException 等待时被中断
+     */
+    public void awaitCompletion() throws IOException, InterruptedException {
+        ShardPlan plan = awaitPlan();
+        int lastRemaining = -1;
+        List<Integer> remaining;
+        while (!(remaining = remaining(plan)).isEmpty()) {
+            if (remaining.size() != lastRemaining) {
+                logger.info("已完成 {}/{} 个分片", plan.getShards().size() - remaining.size(), plan.getShards().size());
+                lastRemaining = remaining.size();
+            }
+            Thread.sleep(pollMillis);
+        }
+    }
+
+    /**
+     * 按分片顺序合并各分片的输出，先写临时文件再原子重命名；启用高频统计时同时合并各分片的高频统计
+     *
+     * @param output 合并后的输出文件
+     * @throws IOException 存在未完成的分片，或读写失败
+     */
+    public void merge(Path output) throws IOException {
+        ShardPlan plan = ShardPlan.load(workDirectory.resolve(PLAN_FILE));
+        if (plan == null || !remaining(plan).isEmpty()) {
+            throw new IOException("存在未完成的分片，无法合并输出");
+        }
+        Path tmp = output.resolveSibling("." + output.getFileName() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (int i = 0; i < plan.getShards().size(); i++) {
+                    try (FileChannel in = FileChannel.open(outputDirectory.resolve(ShardPlan.shardName(i) + ".ndjson"),
+                            StandardOpenOption.READ)) {
+                        long size = in.size();
+                        long transferred = 0;
+                        while (transferred < size) {
+                            transferred += in.transferTo(transferred, size - transferred, out);
+                        }
+                    }
+                }
+                out.force(false);
+            }
+            Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.info("已合并 {} 个分片的输出至 {}", plan.getShards().size(), output);
+
+        if (ConfigLoader.getBooleanProperty("heavyhitters.enabled", false)) {
+            HeavyHitterAggregator heavyHitters = HeavyHitterAggregator.fromConfig();
+            for (int i = 0; i < plan.getShards().size(); i++) {
+                Path shardHeavyHitters = BatchJob.heavyHittersPath(
+                        outputDirectory.resolve(ShardPlan.shardName(i) + ".ndjson"));
+                if (Files.exists(shardHeavyHitters)) {
+                    heavyHitters.load(shardHeavyHitters);
+                } else {
+                    logger.warn("分片 {} 没有高频统计，合并结果不包含该分片", ShardPlan.shardName(i));
+                }
+            }
+            heavyHitters.save(BatchJob.heavyHittersPath(output));
+            logger.info("已合并各分片的高频统计，共 {} 个因果对", heavyHitters.getTotal());
+        }
+    }
+
+    private ShardPlan awaitPlan() throws IOException, InterruptedException {
+        ShardPlan plan;
+        while ((plan = ShardPlan.load(workDirectory.resolve(PLAN_FILE))) == null) {
+            logger.info("等待协调者写入分片计划: {}", workDirectory);
+            Thread.sleep(pollMillis);
+        }
+        return plan;
+    }
+
+    private List<Integer> remaining(ShardPlan plan) {
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < plan.getShards().size(); i++) {
+            if (!Files.exists(doneDirectory.resolve(ShardPlan.shardName(i)))) {
+                remaining.add(i);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * 分片处理入口
+     *
+     * @param args --coordinator &lt;输入NDJSON文件或目录&gt; &lt;工作目录&gt; &lt;输出文件&gt; [分片数]
+     *             或 --worker &lt;工作目录&gt;，工作进程可加 --warmup 表示开始处理前预热管道
+     */
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean warmup = arguments.remove("--warmup");
+        boolean coordinator = !arguments.isEmpty() && "--coordinator".equals(arguments.get(0));
+        boolean worker = !arguments.isEmpty() && "--worker".equals(arguments.get(0));
+        if (!(coordinator && arguments.size() >= 4) && !(worker && arguments.size() >= 2)) {
+            System.out.println("用法: java -jar causal-relation-extraction.jar --coordinator <输入NDJSON文件或目录> <工作目录> <输出文件> [分片数]");
+            System.out.println("      java -jar causal-relation-extraction.jar --worker <工作目录> [--warmup]");
+            System.exit(1);
+        }
+        try {
+            new ConfigLoader().loadConfig("config.properties");
+            if (warmup) {
+                ConfigLoader.setProperty("warmup.enabled", "true");
+            }
+            ShardedJob job = new ShardedJob(Paths.get(arguments.get(coordinator ? 2 : 1)));
+
+            if (coordinator) {
+                int shards = arguments.size() > 4 ? Integer.parseInt(arguments.get(4))
+                        : ConfigLoader.getIntProperty("shard.count", 16);
+                job.plan(Paths.get(arguments.get(1)), shards);
+                job.awaitCompletion();
+                job.merge(Paths.get(arguments.get(3)));
+                return;
+            }
+
+            PipelineMetrics metrics = PipelineMetrics.fromConfig();
+            if (ConfigLoader.getBooleanProperty("metrics.jmx.enabled", false)) {
+                metrics.registerMBeans();
+            }
+            MetricsReporter metricsReporter = MetricsReporter.start(metrics);
+            try (Pipeline pipeline = new PipelineBuilder()
+                    .withPreprocessor()
+                    .withParser()
+                    // 批处理不写入检索索引，输出中不记录来源句子
+                    .withCausalExtractor(new CausalRelationExtractor(false))
+                    .withTemporalProcessor()
+                    .withFinancialDomainAdapter()
+                    .withMetrics(metrics)
+                    .build()) {
+                if (ConfigLoader.getBooleanProperty("warmup.enabled", false)) {
+                    PipelineWarmer.fromConfig().warmUp(pipeline);
+                }
+                job.work(pipeline, metrics);
+            }
+            metricsReporter.close();
+        } catch (Exception e) {
+            logger.error("分片处理过程中发生错误: {}", e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
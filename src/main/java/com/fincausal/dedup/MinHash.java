@@ -0,0 +1,106 @@
+package com.fincausal.dedup;
+
+import java.util.Arrays;
+
+/**
+ * MinHash签名计算
+ * 以长度为 shingleSize 的字符n-gram为特征集合（文本更短时以整个文本为唯一特征），对每个哈希函数取特征哈希的最小值，
+ * 两个签名中相同位置取值相等的比例是两个特征集合Jaccard相似度的无偏估计。
+ * 不使用单字特征：“市场”“上涨”等常用字在不相关的短语中普遍出现，会使不相关短语的相似度偏高
+ */
+public final class MinHash {
+
+    // 默认的字符n-gram长度
+    public static final int DEFAULT_SHINGLE_SIZE = 2;
+
+    // 签名的最大长度
+    public static final int MAX_HASHES = 1024;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // 第j个哈希函数为乘法移位哈希 (MULTIPLIERS[j] * 特征哈希 + ADDENDS[j]) 的高31位，系数由固定种子生成
+    private static final long[] MULTIPLIERS = new long[MAX_HASHES];
+    private static final long[] ADDENDS = new long[MAX_HASHES];
+
+    static {
+        for (int j = 0; j < MAX_HASHES; j++) {
+            // 乘数必须为奇数
+            MULTIPLIERS[j] = SimHash.mix((2L * j + 1) * GOLDEN_GAMMA) | 1L;
+            ADDENDS[j] = SimHash.mix((2L * j + 2) * GOLDEN_GAMMA);
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * 计算文本的MinHash签名，忽略空白字符
+     *
+     * @param text 输入文本
+     * @param numHashes 签名长度（哈希函数个数），不超过 MAX_HASHES
+     * @param shingleSize 字符n-gram长度
+     * @return 签名，文本为空时返回null
+     */
+    public static int[] signature(String text, int numHashes, int shingleSize) {
+        if (numHashes <= 0 || numHashes > MAX_HASHES) {
+            throw new IllegalArgumentException("签名长度必须在1到" + MAX_HASHES + "之间: " + numHashes);
+        }
+        if (text == null) {
+            return null;
+        }
+        int[] codePoints = text.codePoints()
+                .filter(cp -> !Character.isWhitespace(cp))
+                .toArray();
+        if (codePoints.length == 0) {
+            return null;
+        }
+
+        int[] signature = new int[numHashes];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int size = Math.max(1, Math.min(shingleSize, codePoints.length));
+        for (int i = 0; i + size <= codePoints.length; i++) {
+            long shingle = hashShingle(codePoints, i, size);
+            for (int j = 0; j < numHashes; j++) {
+                // 取无符号右移后的31位，便于直接比较大小
+                int value = (int) ((MULTIPLIERS[j] * shingle + ADDENDS[j]) >>> 33);
+                if (value < signature[j]) {
+                    signature[j] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 由两个签名估计Jaccard相似度
+     *
+     * @return 相同位置取值相等的比例，签名长度不同时返回0
+     */
+    public static double similarity(int[] a, int[] b) {
+        if (a == null || b == null || a.length != b.length || a.length == 0) {
+            return 0.0;
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * 计算n-gram的64位哈希，n-gram长度参与哈希，不同长度的n-gram不会相同
+     */
+    private static long hashShingle(int[] codePoints, int offset, int length) {
+        long hash = FNV_OFFSET_BASIS ^ length;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= codePoints[i];
+            hash *= FNV_PRIME;
+        }
+        return SimHash.mix(hash);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.fincausal.dedup;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 近似重复文档检测器
+ * 在NLP解析之前对预处理后的文本计算SimHash指纹，若索引中存在近似重复的文档，
+ * 则直接复用其处理结果，跳过CoreNLP解析等开销较大的步骤
+ */
+public class NearDuplicateDetector {
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateDetector.class);
+
+    private final SimHashIndex index;
+
+    // 指纹的字符n-gram长度
+    private final int shingleSize;
+
+    // 索引持久化路径，为空时不持久化
+    private final Path indexPath;
+
+    /**
+     * 构造函数
+     */
+    public NearDuplicateDetector() {
+        this(ConfigLoader.getIntProperty("dedup.simhash.max.distance", 5),
+                ConfigLoader.getIntProperty("dedup.index.capacity", 100000),
+                ConfigLoader.getIntProperty("dedup.simhash.shingle.size", SimHash.DEFAULT_SHINGLE_SIZE),
+                ConfigLoader.getStringProperty("dedup.index.path", ""));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param maxDistance 视为近似重复的最大汉明距离
+     * @param capacity 索引容量上限
+     * @param shingleSize 字符n-gram长度
+     * @param indexPath 索引持久化路径，为空时不持久化
+     */
+    public NearDuplicateDetector(int maxDistance, int capacity, int shingleSize, String indexPath) {
+        this.index = new SimHashIndex(maxDistance, capacity);
+        this.shingleSize = shingleSize;
+        this.indexPath = indexPath == null || indexPath.isEmpty() ? null : Paths.get(indexPath);
+        load();
+    }
+
+    /**
+     * 计算预处理后文本的SimHash指纹
+     * 空文本或只含空白字符的文本没有任何特征，指纹恒为0，不参与近似重复检测
+     *
+     * @param preprocessedText 预处理后的文本
+     * @return 指纹，文本为空或只含空白字符时返回null
+     */
+    public Long fingerprint(String preprocessedText) {
+        if (SimHash.isBlank(preprocessedText)) {
+            return null;
+        }
+        return SimHash.fingerprint(preprocessedText, shingleSize);
+    }
+
+    /**
+     * 查找近似重复文档的处理结果
+     *
+     * @param fingerprint 由 {@link #fingerprint(String)} 计算的指纹
+     * @return 近似重复文档的因果三元组副本，未命中或指纹为null时返回null
+     */
+    public List<CausalTriple> lookup(Long fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        SimHashIndex.Entry entry = index.findNearest(fingerprint);
+        if (entry == null) {
+            return null;
+        }
+
+        logger.debug("命中近似重复文档，汉明距离: {}",
+                SimHash.hammingDistance(fingerprint, entry.getFingerprint()));
+        return copyOf(entry.getTriples());
+    }
+
+    /**
+     * 记录文档的处理结果
+     * 并发处理相似文档时，只有第一个完成的文档被写入索引
+     *
+     * @param fingerprint 由 {@link #fingerprint(String)} 计算的指纹，为null时不记录
+     * @param causalTriples 因果三元组列表
+     */
+    public void record(Long fingerprint, List<CausalTriple> causalTriples) {
+        if (fingerprint == null) {
+            return;
+        }
+        if (index.putIfAbsent(fingerprint, copyOf(causalTriples)) != null) {
+            logger.debug("索引中已存在近似重复文档，不再记录");
+        }
+    }
+
+    /**
+     * 获取索引中的文档数量
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 将索引保存到配置的持久化路径
+     * 先写入临时文件再原子替换，避免中途失败损坏已有索引
+     */
+    public void save() {
+        if (indexPath == null) {
+            return;
+        }
+
+        try {
+            Path parent = indexPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                index.writeTo(out);
+            }
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("已保存近似重复索引，共 {} 个文档: {}", index.size(), indexPath);
+        } catch (IOException e) {
+            logger.error("保存近似重复索引时发生错误: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从配置的持久化路径加载索引
+     */
+    private void load() {
+        if (indexPath == null || !Files.exists(indexPath)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            index.readFrom(in);
+            logger.info("已加载近似重复索引，共 {} 个文档: {}", index.size(), indexPath);
+        } catch (IOException e) {
+            logger.error("加载近似重复索引时发生错误: {}", e.getMessage());
+        }
+    }
+
+    private static List<CausalTriple> copyOf(List<CausalTriple> triples) {
+        List<CausalTriple> copies = new ArrayList<>(triples.size());
+        for (CausalTriple triple : triples) {
+            copies.add(new CausalTriple(triple));
+        }
+        return copies;
+    }
+}
\ No newline at end of file
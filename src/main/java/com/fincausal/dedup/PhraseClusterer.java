@@ -0,0 +1,497 @@
+package com.fincausal.dedup;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.FileSync;
+import com.fincausal.util.PhraseNormalizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 原因/结果短语的增量聚类
+ * 对规范化后的短语计算MinHash签名，签名分为 bands 段、每段 rows 个值，任意一段完全相同的簇作为候选
+ * （相似度约超过 (1/bands)^(1/rows) 时大概率成为候选），只与候选比较，不需要两两比较全部短语。
+ * 候选中与短语估计相似度不低于阈值、编号最小的簇即为短语所属的簇；没有时以该短语为代表新建一个簇。
+ * 每个桶最多容纳 bucketCapacity 个簇，桶满后新簇不再加入该桶（仍加入其他段未满的桶），查找时比较的候选数有上限；
+ * 桶中保留的是编号最小的簇，不影响“选择编号最小的簇”。与某个簇的代表短语完全相同的短语直接得到该簇，
+ * 因此同一短语再次出现时总是得到相同的簇编号。
+ * 索引中每个簇只保存代表短语和签名，占用内存与簇数成正比，与处理过的短语数无关。
+ * 簇编号从1开始，按簇的创建顺序分配，可以持久化以在多次运行之间保持不变；
+ * 写出的结果引用了簇编号，调用方应在记录检查点之前调用 {@link #checkpoint()}，使检查点之前的结果在重启后仍然有效。线程安全
+ */
+public class PhraseClusterer {
+    private static final Logger logger = LoggerFactory.getLogger(PhraseClusterer.class);
+
+    private static final int FILE_MAGIC = 0x50434c53; // "PCLS"
+    private static final int FILE_VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int bands;
+    private final int rows;
+    private final int numHashes;
+    private final int shingleSize;
+    private final int bucketCapacity;
+    private final double threshold;
+
+    // 估计相似度达到阈值时允许的最多不相等签名值个数
+    private final int maxMismatches;
+
+    // 索引持久化路径，为空时不持久化
+    private final Path indexPath;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 保存索引时持有，避免并发保存使用同一个临时文件
+    private final Object saveLock = new Object();
+
+    // 已保存到持久化路径的簇数，由 saveLock 保护
+    private int savedClusters;
+
+    // 各簇的代表短语（规范化后）
+    private final List<String> phrases = new ArrayList<>();
+
+    // 代表短语 -> 簇下标
+    private final Map<String, Integer> clustersByPhrase = new HashMap<>();
+
+    // 各簇签名的低16位，按簇编号连续存放，用于估计相似度
+    private short[] signatures;
+
+    // 每段的桶：段哈希 -> 该桶中最新的簇，桶内的其他簇通过 next 按创建顺序倒序相连
+    private final BandTable[] bandTables;
+    private final int[][] next;
+
+    /**
+     * 构造函数，参数按配置设置，配置了持久化路径时加载已有索引
+     */
+    public PhraseClusterer() {
+        this(ConfigLoader.getIntProperty("cluster.minhash.bands", 20),
+                ConfigLoader.getIntProperty("cluster.minhash.rows", 3),
+                ConfigLoader.getIntProperty("cluster.minhash.shingle.size", MinHash.DEFAULT_SHINGLE_SIZE),
+                ConfigLoader.getIntProperty("cluster.minhash.bucket.capacity", 32),
+                ConfigLoader.getDoubleProperty("cluster.similarity.threshold", 0.5),
+                ConfigLoader.getStringProperty("cluster.index.path", ""));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param bands 签名的段数
+     * @param rows 每段的签名值个数
+     * @param shingleSize 字符n-gram长度
+     * @param bucketCapacity 每个桶最多容纳的簇数，即每段最多比较的候选数
+     * @param threshold 归入同一簇的最低估计相似度
+     * @param indexPath 索引持久化路径，为空时不持久化
+     */
+    public PhraseClusterer(int bands, int rows, int shingleSize, int bucketCapacity, double threshold,
+            String indexPath) {
+        if (bands <= 0 || rows <= 0 || bucketCapacity <= 0) {
+            throw new IllegalArgumentException("签名的段数、每段的值个数和桶容量必须大于0: " + bands + ", " + rows
+                    + ", " + bucketCapacity);
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.numHashes = bands * rows;
+        this.shingleSize = Math.max(1, shingleSize);
+        this.bucketCapacity = bucketCapacity;
+        this.threshold = threshold;
+        this.maxMismatches = numHashes - (int) Math.ceil(threshold * numHashes);
+        this.indexPath = indexPath == null || indexPath.isEmpty() ? null : Paths.get(indexPath);
+        this.signatures = new short[INITIAL_CAPACITY * numHashes];
+        this.bandTables = new BandTable[bands];
+        this.next = new int[bands][INITIAL_CAPACITY];
+        for (int band = 0; band < bands; band++) {
+            bandTables[band] = new BandTable();
+        }
+        load();
+        savedClusters = phrases.size();
+    }
+
+    /**
+     * 获取短语所属的簇，没有足够相似的簇时新建
+     *
+     * @param phrase 原因或结果短语
+     * @return 簇编号，短语规范化后为空时返回0
+     */
+    public int assign(String phrase) {
+        String normalized = PhraseNormalizer.normalize(phrase);
+        int[] signature = MinHash.signature(normalized, numHashes, shingleSize);
+        if (signature == null) {
+            return 0;
+        }
+        long[] bandKeys = bandKeys(signature);
+
+        lock.readLock().lock();
+        try {
+            int cluster = find(normalized, signature, bandKeys);
+            if (cluster >= 0) {
+                return cluster + 1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            // 释放读锁后可能已有其他线程创建了相似的簇
+            int cluster = find(normalized, signature, bandKeys);
+            if (cluster < 0) {
+                cluster = add(normalized, signature, bandKeys);
+            }
+            return cluster + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 为因果三元组的原因和结果设置簇编号
+     *
+     * @param triples 因果三元组列表
+     */
+    public void assign(List<CausalTriple> triples) {
+        for (CausalTriple triple : triples) {
+            int causeCluster = assign(triple.getCause());
+            int effectCluster = assign(triple.getEffect());
+            triple.setCauseCluster(causeCluster > 0 ? causeCluster : null);
+            triple.setEffectCluster(effectCluster > 0 ? effectCluster : null);
+        }
+    }
+
+    /**
+     * 获取簇的代表短语（创建该簇的短语，规范化后）
+     *
+     * @param cluster 簇编号
+     * @return 代表短语，簇不存在时返回null
+     */
+    public String getCanonicalPhrase(int cluster) {
+        lock.readLock().lock();
+        try {
+            return cluster >= 1 && cluster <= phrases.size() ? phrases.get(cluster - 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取簇的数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return phrases.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查找短语所属的簇：代表短语与其相同的簇，否则在与签名至少有一段相同的簇中查找估计相似度不低于阈值、编号最小的簇
+     *
+     * @return 簇的下标，没有时返回-1
+     */
+    private int find(String phrase, int[] signature, long[] bandKeys) {
+        Integer exact = clustersByPhrase.get(phrase);
+        if (exact != null) {
+            return exact;
+        }
+        int best = -1;
+        for (int band = 0; band < bands; band++) {
+            int cluster = bandTables[band].get(bandKeys[band]);
+            // 桶内按编号从大到小排列，最多 bucketCapacity 个，只需检查比当前结果更小的编号
+            while (cluster >= 0) {
+                if ((best < 0 || cluster < best) && isSimilar(signature, cluster)) {
+                    best = cluster;
+                }
+                cluster = next[band][cluster];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 估计相似度是否达到阈值，不相等的签名值超过允许个数时提前结束
+     */
+    private boolean isSimilar(int[] signature, int cluster) {
+        int offset = cluster * numHashes;
+        int mismatches = 0;
+        for (int i = 0; i < numHashes; i++) {
+            if ((short) signature[i] != signatures[offset + i] && ++mismatches > maxMismatches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(String phrase, int[] signature, long[] bandKeys) {
+        int cluster = phrases.size();
+        if ((cluster + 1) * numHashes > signatures.length) {
+            signatures = Arrays.copyOf(signatures, signatures.length * 2);
+        }
+        if (cluster >= next[0].length) {
+            for (int band = 0; band < bands; band++) {
+                next[band] = Arrays.copyOf(next[band], next[band].length * 2);
+            }
+        }
+        phrases.add(phrase);
+        clustersByPhrase.putIfAbsent(phrase, cluster);
+        for (int i = 0; i < numHashes; i++) {
+            signatures[cluster * numHashes + i] = (short) signature[i];
+        }
+        for (int band = 0; band < bands; band++) {
+            // 桶已满时不加入，该段的候选只保留编号较小的簇
+            next[band][cluster] = bandTables[band].count(bandKeys[band]) < bucketCapacity
+                    ? bandTables[band].put(bandKeys[band], cluster) : -1;
+        }
+        return cluster;
+    }
+
+    /**
+     * 每段签名值的64位哈希，作为该段的桶键
+     */
+    private long[] bandKeys(int[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long hash = band;
+            for (int i = band * rows; i < (band + 1) * rows; i++) {
+                hash = hash * 0x100000001b3L + signature[i];
+            }
+            keys[band] = SimHash.mix(hash);
+        }
+        return keys;
+    }
+
+    /**
+     * 将索引保存到配置的持久化路径，用于退出时保存，失败时只记录日志
+     */
+    public void save() {
+        try {
+            if (checkpoint()) {
+                logger.info("已保存短语聚类索引，共 {} 个簇: {}", size(), indexPath);
+            }
+        } catch (IOException e) {
+            logger.error("保存短语聚类索引时发生错误: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 有新簇时将索引保存到配置的持久化路径并同步到磁盘，返回后此前分配的簇编号在重启后保持不变
+     * 只保存各簇的代表短语，加载时重新计算签名；先写入临时文件再原子替换
+     *
+     * @return 是否写入了索引文件，未配置持久化路径或没有新簇时返回false
+     * @throws IOException 写入失败时抛出
+     */
+    public boolean checkpoint() throws IOException {
+        if (indexPath == null) {
+            return false;
+        }
+
+        synchronized (saveLock) {
+            if (size() == savedClusters) {
+                return false;
+            }
+            Path parent = indexPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+            int clusters;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                clusters = write(out);
+            }
+            FileSync.force(tempPath);
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileSync.syncDirectory(indexPath.toAbsolutePath().getParent());
+            savedClusters = clusters;
+            logger.debug("已保存短语聚类索引，共 {} 个簇: {}", clusters, indexPath);
+            return true;
+        }
+    }
+
+    /**
+     * 从配置的持久化路径加载索引
+     */
+    private void load() {
+        if (indexPath == null || !Files.exists(indexPath)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            readFrom(in);
+            logger.info("已加载短语聚类索引，共 {} 个簇: {}", size(), indexPath);
+        } catch (IOException e) {
+            logger.error("加载短语聚类索引时发生错误: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将各簇的代表短语按簇编号顺序写入输出流
+     *
+     * @param out 输出流
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        write(out);
+    }
+
+    /**
+     * @return 写入的簇数
+     */
+    private int write(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(phrases.size());
+            for (String phrase : phrases) {
+                byte[] bytes = phrase.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+            return phrases.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从输入流读取各簇的代表短语，按顺序追加为新的簇，保持原有的簇编号
+     *
+     * @param in 输入流
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("不是有效的短语聚类索引文件");
+        }
+        int version = in.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("不支持的短语聚类索引文件版本: " + version);
+        }
+
+        int count = in.readInt();
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                String phrase = new String(bytes, StandardCharsets.UTF_8);
+                int[] signature = MinHash.signature(phrase, numHashes, shingleSize);
+                if (signature == null) {
+                    throw new IOException("短语聚类索引中存在空短语");
+                }
+                add(phrase, signature, bandKeys(signature));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 段哈希 -> 簇下标的开放寻址哈希表（线性探测），避免为每个桶创建对象
+     */
+    private static final class BandTable {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        // 簇下标加1，0表示空位
+        private int[] values = new int[INITIAL_CAPACITY];
+        // 桶中的簇数
+        private int[] counts = new int[INITIAL_CAPACITY];
+        private int size;
+
+        /**
+         * @return 桶中最新的簇下标，桶不存在时返回-1
+         */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) key & mask; values[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return 桶中的簇数
+         */
+        int count(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) key & mask; values[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return counts[i];
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 把簇设为桶中最新的簇
+         *
+         * @return 桶中原来最新的簇下标，桶不存在时返回-1
+         */
+        int put(long key, int cluster) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = (int) key & mask;
+            while (values[i] != 0) {
+                if (keys[i] == key) {
+                    int previous = values[i] - 1;
+                    values[i] = cluster + 1;
+                    counts[i]++;
+                    return previous;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = cluster + 1;
+            counts[i] = 1;
+            size++;
+            return -1;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            counts = new int[oldCounts.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != 0) {
+                    int i = (int) oldKeys[j] & mask;
+                    while (values[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                    counts[i] = oldCounts[j];
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.fincausal.dedup;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SimHash指纹计算
+ * 以字符n-gram为特征计算64位局部敏感指纹，相似文本的指纹汉明距离较小
+ */
+public final class SimHash {
+
+    // 默认的字符n-gram长度
+    public static final int DEFAULT_SHINGLE_SIZE = 3;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    /**
+     * 判断文本是否为空或只含空白字符，这类文本没有特征，指纹恒为0
+     *
+     * @param text 输入文本
+     * @return 是否没有可用的特征
+     */
+    public static boolean isBlank(String text) {
+        return text == null || text.codePoints().allMatch(Character::isWhitespace);
+    }
+
+    /**
+     * 计算文本的SimHash指纹（使用默认n-gram长度）
+     *
+     * @param text 输入文本
+     * @return 64位指纹
+     */
+    public static long fingerprint(String text) {
+        return fingerprint(text, DEFAULT_SHINGLE_SIZE);
+    }
+
+    /**
+     * 计算文本的SimHash指纹
+     *
+     * @param text 输入文本
+     * @param shingleSize 字符n-gram长度
+     * @return 64位指纹
+     */
+    public static long fingerprint(String text, int shingleSize) {
+        if (text == null || text.isEmpty()) {
+            return 0L;
+        }
+
+        // 去除空白字符，避免排版差异影响指纹
+        int[] codePoints = text.codePoints()
+                .filter(cp -> !Character.isWhitespace(cp))
+                .toArray();
+        if (codePoints.length == 0) {
+            return 0L;
+        }
+
+        // 统计每个n-gram特征的权重（出现次数）
+        Map<Long, Integer> features = new HashMap<>();
+        int size = Math.min(shingleSize, codePoints.length);
+        for (int i = 0; i + size <= codePoints.length; i++) {
+            features.merge(hashShingle(codePoints, i, size), 1, Integer::sum);
+        }
+
+        // 按位累加权重
+        int[] vector = new int[64];
+        for (Map.Entry<Long, Integer> entry : features.entrySet()) {
+            long hash = entry.getKey();
+            int weight = entry.getValue();
+            for (int bit = 0; bit < 64; bit++) {
+                if (((hash >>> bit) & 1L) != 0) {
+                    vector[bit] += weight;
+                } else {
+                    vector[bit] -= weight;
+                }
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (vector[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 计算两个指纹之间的汉明距离
+     */
+    public static int hammingDistance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 计算n-gram的64位哈希（FNV-1a后再做一次比特混合）
+     */
+    private static long hashShingle(int[] codePoints, int offset, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= codePoints[i];
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3的fmix64，使各比特分布更均匀
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,315 @@
+package com.fincausal.dedup;
+
+import com.fincausal.model.CausalTriple;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SimHash分段索引
+ * 将64位指纹切分为 maxDistance + 1 段，任意一段完全相同的指纹作为候选，
+ * 由鸽巢原理保证汉明距离不超过 maxDistance 的指纹一定能被找到。
+ * 索引容量有上限，超出时淘汰最早写入的条目。
+ */
+public class SimHashIndex {
+
+    private static final int FILE_MAGIC = 0x53484958; // "SHIX"
+    private static final int FILE_VERSION = 2;
+
+    // 版本1只保存三元组的前6个字段
+    private static final int FILE_VERSION_BASIC = 1;
+
+    // 单个字符串的长度上限，防止损坏的文件导致超大内存分配
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+
+    // 单个条目（一篇文档）的三元组数上限，同样用于拒绝损坏的文件
+    private static final int MAX_TRIPLES_PER_ENTRY = 1 << 16;
+
+    // 最大汉明距离
+    private final int maxDistance;
+
+    // 索引容量上限
+    private final int capacity;
+
+    // 分段数量及每段的位移和掩码
+    private final int bandCount;
+    private final int[] bandShifts;
+    private final long[] bandMasks;
+
+    // 各分段的桶：分段值 -> 条目列表
+    private final List<Map<Long, List<Entry>>> bands;
+
+    // 按写入顺序保存的条目，用于容量淘汰
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+
+    private long nextId = 0;
+
+    /**
+     * 构造函数
+     *
+     * @param maxDistance 视为近似重复的最大汉明距离
+     * @param capacity 索引容量上限
+     */
+    public SimHashIndex(int maxDistance, int capacity) {
+        if (maxDistance < 0 || maxDistance > 63) {
+            throw new IllegalArgumentException("最大汉明距离必须在0到63之间: " + maxDistance);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("索引容量必须为正数: " + capacity);
+        }
+        this.maxDistance = maxDistance;
+        this.capacity = capacity;
+        this.bandCount = maxDistance + 1;
+        this.bandShifts = new int[bandCount];
+        this.bandMasks = new long[bandCount];
+        this.bands = new ArrayList<>(bandCount);
+
+        // 将64位尽量均匀地分配到各分段
+        int shift = 0;
+        for (int band = 0; band < bandCount; band++) {
+            int width = 64 / bandCount + (band < 64 % bandCount ? 1 : 0);
+            bandShifts[band] = shift;
+            bandMasks[band] = width == 64 ? -1L : (1L << width) - 1;
+            shift += width;
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * 查找与给定指纹最接近的近似重复条目
+     *
+     * @param fingerprint SimHash指纹
+     * @return 最接近的条目，不存在时返回null
+     */
+    public synchronized Entry findNearest(long fingerprint) {
+        Entry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (int band = 0; band < bandCount; band++) {
+            List<Entry> bucket = bands.get(band).get(bandValue(fingerprint, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry candidate : bucket) {
+                int distance = SimHash.hammingDistance(fingerprint, candidate.fingerprint);
+                if (distance <= maxDistance && distance < bestDistance) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * 写入指纹及其对应的因果三元组
+     *
+     * @param fingerprint SimHash指纹
+     * @param triples 文档的处理结果
+     */
+    public synchronized void put(long fingerprint, List<CausalTriple> triples) {
+        Entry entry = new Entry(nextId++, fingerprint, triples);
+        entries.put(entry.id, entry);
+        for (int band = 0; band < bandCount; band++) {
+            bands.get(band)
+                    .computeIfAbsent(bandValue(fingerprint, band), k -> new ArrayList<>(1))
+                    .add(entry);
+        }
+
+        // 超出容量时淘汰最早的条目
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            removeFromBands(eldest);
+        }
+    }
+
+    /**
+     * 若索引中不存在近似重复的条目则写入，查找与写入在同一把锁内完成
+     *
+     * @param fingerprint SimHash指纹
+     * @param triples 文档的处理结果
+     * @return 已存在的近似重复条目，写入成功时返回null
+     */
+    public synchronized Entry putIfAbsent(long fingerprint, List<CausalTriple> triples) {
+        Entry existing = findNearest(fingerprint);
+        if (existing == null) {
+            put(fingerprint, triples);
+        }
+        return existing;
+    }
+
+    /**
+     * 获取当前条目数量
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 将索引写入输出流
+     *
+     * @param out 输出流
+     * @throws IOException 写入失败时抛出
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries.values()) {
+            out.writeLong(entry.fingerprint);
+            out.writeInt(entry.triples.size());
+            for (CausalTriple triple : entry.triples) {
+                writeString(out, triple.getCause());
+                writeString(out, triple.getEffect());
+                writeString(out, triple.getRelationType());
+                out.writeDouble(triple.getConfidence());
+                writeString(out, triple.getTemporalRelation());
+                writeString(out, triple.getDomainCategory());
+                writeString(out, triple.getExtractionMode());
+                writeString(out, triple.getSourceSentence());
+                writeNullableInt(out, triple.getSentenceIndex());
+                writeNullableInt(out, triple.getCauseCluster());
+                writeNullableInt(out, triple.getEffectCluster());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 从输入流读取索引条目，追加到当前索引中
+     *
+     * @param in 输入流
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public synchronized void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("不是有效的SimHash索引文件");
+        }
+        int version = in.readInt();
+        if (version != FILE_VERSION && version != FILE_VERSION_BASIC) {
+            throw new IOException("不支持的SimHash索引文件版本: " + version);
+        }
+
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("SimHash索引文件已损坏，条目数异常: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            long fingerprint = in.readLong();
+            int tripleCount = in.readInt();
+            if (tripleCount < 0 || tripleCount > MAX_TRIPLES_PER_ENTRY) {
+                throw new IOException("SimHash索引文件已损坏，三元组数异常: " + tripleCount);
+            }
+            List<CausalTriple> triples = new ArrayList<>(tripleCount);
+            for (int j = 0; j < tripleCount; j++) {
+                CausalTriple triple = new CausalTriple(readString(in), readString(in), readString(in), in.readDouble());
+                triple.setTemporalRelation(readString(in));
+                triple.setDomainCategory(readString(in));
+                if (version >= FILE_VERSION) {
+                    triple.setExtractionMode(readString(in));
+                    triple.setSourceSentence(readString(in));
+                    triple.setSentenceIndex(readNullableInt(in));
+                    triple.setCauseCluster(readNullableInt(in));
+                    triple.setEffectCluster(readNullableInt(in));
+                }
+                triples.add(triple);
+            }
+            put(fingerprint, triples);
+        }
+    }
+
+    private long bandValue(long fingerprint, int band) {
+        return (fingerprint >>> bandShifts[band]) & bandMasks[band];
+    }
+
+    private void removeFromBands(Entry entry) {
+        for (int band = 0; band < bandCount; band++) {
+            Map<Long, List<Entry>> buckets = bands.get(band);
+            long key = bandValue(entry.fingerprint, band);
+            List<Entry> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_STRING_BYTES) {
+            throw new IOException("SimHash索引文件已损坏，字符串长度异常: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 索引条目
+     */
+    public static final class Entry {
+        private final long id;
+        private final long fingerprint;
+        private final List<CausalTriple> triples;
+
+        Entry(long id, long fingerprint, List<CausalTriple> triples) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.triples = Collections.unmodifiableList(triples);
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public List<CausalTriple> getTriples() {
+            return triples;
+        }
+    }
+}
\ No newline at end of file
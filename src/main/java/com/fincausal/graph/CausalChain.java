@@ -0,0 +1,49 @@
+package com.fincausal.graph;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 因果链
+ * 由若干首尾相接的因果边组成，置信度为各边置信度的乘积
+ */
+public class CausalChain {
+    private final List<CausalEdge> edges;
+    private final double confidence;
+
+    public CausalChain(List<CausalEdge> edges) {
+        this.edges = Collections.unmodifiableList(edges);
+        double product = 1.0;
+        for (CausalEdge edge : edges) {
+            product *= edge.getConfidence();
+        }
+        this.confidence = product;
+    }
+
+    public List<CausalEdge> getEdges() {
+        return edges;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * 获取链的跳数
+     */
+    public int getLength() {
+        return edges.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (CausalEdge edge : edges) {
+            if (sb.length() == 0) {
+                sb.append(edge.getCause());
+            }
+            sb.append(" -> ").append(edge.getEffect());
+        }
+        return String.format("CausalChain{%s, confidence=%.3f}", sb, confidence);
+    }
+}
\ No newline at end of file
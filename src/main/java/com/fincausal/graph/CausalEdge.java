@@ -0,0 +1,56 @@
+package com.fincausal.graph;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 因果图中的边
+ * 查询结果的只读视图，同一对原因/结果多次出现时合并为一条边
+ */
+public class CausalEdge {
+    private final String cause;
+    private final String effect;
+    private final double confidence;
+    private final String domainCategory;
+    private final int support;
+
+    public CausalEdge(String cause, String effect, double confidence, String domainCategory, int support) {
+        this.cause = cause;
+        this.effect = effect;
+        this.confidence = confidence;
+        this.domainCategory = domainCategory;
+        this.support = support;
+    }
+
+    public String getCause() {
+        return cause;
+    }
+
+    public String getEffect() {
+        return effect;
+    }
+
+    /**
+     * 获取合并后的置信度（各次出现中的最大值）
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    @JsonProperty("domain_category")
+    public String getDomainCategory() {
+        return domainCategory;
+    }
+
+    /**
+     * 获取该边被抽取到的次数
+     */
+    public int getSupport() {
+        return support;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CausalEdge{cause='%s', effect='%s', confidence=%.2f, domainCategory='%s', support=%d}",
+                cause, effect, confidence, domainCategory, support);
+    }
+}
\ No newline at end of file
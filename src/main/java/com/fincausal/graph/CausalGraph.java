@@ -0,0 +1,545 @@
+package com.fincausal.graph;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultFileReader;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.JsonMappers;
+import com.fincausal.util.PhraseNormalizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存因果图
+ * 将规范化后的原因/结果短语映射为整数节点编号，边的端点、置信度和领域分类
+ * 保存在基本类型数组中，邻接表同样以int数组存储，支持增量插入和以下查询：
+ * 直接原因/直接结果、k跳因果链、按置信度取前N条边。
+ * 读写通过读写锁保护，可在插入的同时并发查询。
+ * 边的置信度限制在 [0, 1] 内，保证因果链置信度随跳数单调不增。
+ */
+public class CausalGraph {
+    private static final Logger logger = LoggerFactory.getLogger(CausalGraph.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_CATEGORY = -1;
+
+    /**
+     * 因果链的查询方向
+     */
+    public enum Direction {
+        // 沿原因 -> 结果方向查找后续影响
+        EFFECTS,
+        // 沿结果 -> 原因方向追溯驱动因素
+        CAUSES
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 节点：规范化短语 <-> 节点编号
+    private final Map<String, Integer> nodeIds = new HashMap<>();
+    private final List<String> nodeNames = new ArrayList<>();
+
+    // 领域分类：分类名 <-> 分类编号
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+
+    // 邻接表：每个节点的出边/入边编号
+    private int[][] outEdges = new int[INITIAL_CAPACITY][];
+    private int[] outDegree = new int[INITIAL_CAPACITY];
+    private int[][] inEdges = new int[INITIAL_CAPACITY][];
+    private int[] inDegree = new int[INITIAL_CAPACITY];
+
+    // 边属性（按边编号存储）
+    private int edgeCount = 0;
+    private int[] edgeSource = new int[INITIAL_CAPACITY];
+    private int[] edgeTarget = new int[INITIAL_CAPACITY];
+    private float[] edgeConfidence = new float[INITIAL_CAPACITY];
+    private int[] edgeCategory = new int[INITIAL_CAPACITY];
+    private int[] edgeSupport = new int[INITIAL_CAPACITY];
+
+    // (原因, 结果) -> 边编号，用于合并重复边
+    private final Map<Long, Integer> edgeIndex = new HashMap<>();
+
+    /**
+     * 插入一个因果三元组
+     * 同一对原因/结果重复出现时合并为一条边：置信度取最大值，出现次数累加，
+     * 领域分类保留首个非空值。置信度超出 [0, 1] 时截断到边界，无效值按0处理
+     *
+     * @param triple 因果三元组
+     * @return 是否插入（原因或结果为空时忽略）
+     */
+    public boolean add(CausalTriple triple) {
+        String cause = PhraseNormalizer.normalize(triple.getCause());
+        String effect = PhraseNormalizer.normalize(triple.getEffect());
+        if (cause.isEmpty() || effect.isEmpty()) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int source = internNode(cause);
+            int target = internNode(effect);
+            int category = internCategory(triple.getDomainCategory());
+            float confidence = clampConfidence(triple.getConfidence());
+
+            long key = ((long) source << 32) | (target & 0xFFFFFFFFL);
+            Integer existing = edgeIndex.get(key);
+            if (existing != null) {
+                int edge = existing;
+                edgeConfidence[edge] = Math.max(edgeConfidence[edge], confidence);
+                edgeSupport[edge]++;
+                if (edgeCategory[edge] == NO_CATEGORY) {
+                    edgeCategory[edge] = category;
+                }
+                return true;
+            }
+
+            int edge = edgeCount++;
+            ensureEdgeCapacity(edgeCount);
+            edgeSource[edge] = source;
+            edgeTarget[edge] = target;
+            edgeConfidence[edge] = confidence;
+            edgeCategory[edge] = category;
+            edgeSupport[edge] = 1;
+            edgeIndex.put(key, edge);
+
+            appendOutEdge(source, edge);
+            appendInEdge(target, edge);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 批量插入因果三元组
+     *
+     * @param triples 因果三元组列表
+     * @return 实际插入的数量
+     */
+    public int addAll(List<CausalTriple> triples) {
+        int added = 0;
+        for (CausalTriple triple : triples) {
+            if (add(triple)) {
+                added++;
+            }
+        }
+        logger.debug("因果图插入 {} 个三元组，当前节点数: {}，边数: {}", added, getNodeCount(), getEdgeCount());
+        return added;
+    }
+
+    /**
+     * 读取抽取结果文件，将其中的三元组插入因果图
+     * 支持JSON数组、NDJSON（包括批处理输出的每行一个文档）、列式格式以及压缩的JSON/NDJSON
+     *
+     * @param path 结果文件路径
+     * @return 实际插入的数量
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public long load(Path path) throws IOException {
+        long[] added = new long[1];
+        long read = ResultFileReader.scan(path, triple -> {
+            if (add(triple)) {
+                added[0]++;
+            }
+        });
+        logger.info("从 {} 读取 {} 个三元组，当前节点数: {}，边数: {}", path, read, getNodeCount(), getEdgeCount());
+        return added[0];
+    }
+
+    /**
+     * 查询直接原因（按置信度降序）
+     *
+     * @param effect 结果短语
+     * @param limit 最多返回的数量
+     */
+    public List<CausalEdge> directCauses(String effect, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeIds.get(PhraseNormalizer.normalize(effect));
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            return topOf(inEdges[node], inDegree[node], limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询直接结果（按置信度降序）
+     *
+     * @param cause 原因短语
+     * @param limit 最多返回的数量
+     */
+    public List<CausalEdge> directEffects(String cause, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeIds.get(PhraseNormalizer.normalize(cause));
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            return topOf(outEdges[node], outDegree[node], limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询不超过k跳的因果链（按链置信度降序）
+     * 链置信度为各边置信度的乘积，随跳数增加单调不增，因此按置信度优先扩展即可
+     * 精确得到前limit条链，而无需枚举全部路径。链中不包含重复节点。
+     *
+     * @param phrase 起点短语
+     * @param direction 查询方向
+     * @param maxHops 最大跳数
+     * @param limit 最多返回的链数量
+     */
+    public List<CausalChain> chains(String phrase, Direction direction, int maxHops, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer start = nodeIds.get(PhraseNormalizer.normalize(phrase));
+            if (start == null || maxHops <= 0 || limit <= 0) {
+                return Collections.emptyList();
+            }
+
+            List<CausalChain> result = new ArrayList<>();
+            PriorityQueue<PathStep> frontier = new PriorityQueue<>(
+                    Comparator.comparingDouble((PathStep step) -> step.confidence).reversed());
+            expand(frontier, null, start, start, direction);
+
+            while (!frontier.isEmpty() && result.size() < limit) {
+                PathStep step = frontier.poll();
+                result.add(toChain(step, direction));
+                if (step.length < maxHops) {
+                    expand(frontier, step, start, step.endNode, direction);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按置信度取前N条边
+     *
+     * @param n 返回数量
+     * @param domainCategory 领域分类，为null时不限制
+     */
+    public List<CausalEdge> topEdges(int n, String domainCategory) {
+        lock.readLock().lock();
+        try {
+            int category = NO_CATEGORY;
+            if (domainCategory != null) {
+                Integer id = categoryIds.get(domainCategory);
+                if (id == null) {
+                    return Collections.emptyList();
+                }
+                category = id;
+            }
+
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.comparingDouble(e -> edgeConfidence[e]));
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (domainCategory != null && edgeCategory[edge] != category) {
+                    continue;
+                }
+                if (heap.size() < n) {
+                    heap.add(edge);
+                } else if (n > 0 && edgeConfidence[edge] > edgeConfidence[heap.peek()]) {
+                    heap.poll();
+                    heap.add(edge);
+                }
+            }
+
+            List<CausalEdge> result = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                result.add(toEdge(heap.poll()));
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查找包含关键词的节点短语，用于定位查询起点
+     *
+     * @param keyword 关键词
+     * @param limit 最多返回的数量
+     */
+    public List<String> findPhrases(String keyword, int limit) {
+        String normalized = PhraseNormalizer.normalize(keyword);
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>();
+            for (int node = 0; node < nodeNames.size() && result.size() < limit; node++) {
+                if (nodeNames.get(node).contains(normalized)) {
+                    result.add(nodeNames.get(node));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeNames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static float clampConfidence(double confidence) {
+        if (!(confidence > 0)) {
+            return 0f;
+        }
+        return (float) Math.min(confidence, 1.0);
+    }
+
+    private int internNode(String phrase) {
+        Integer id = nodeIds.get(phrase);
+        if (id != null) {
+            return id;
+        }
+        int node = nodeNames.size();
+        nodeNames.add(phrase);
+        nodeIds.put(phrase, node);
+
+        if (node >= outDegree.length) {
+            int capacity = outDegree.length * 2;
+            outEdges = Arrays.copyOf(outEdges, capacity);
+            outDegree = Arrays.copyOf(outDegree, capacity);
+            inEdges = Arrays.copyOf(inEdges, capacity);
+            inDegree = Arrays.copyOf(inDegree, capacity);
+        }
+        return node;
+    }
+
+    private int internCategory(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        return categoryIds.computeIfAbsent(category, c -> {
+            categoryNames.add(c);
+            return categoryNames.size() - 1;
+        });
+    }
+
+    private void ensureEdgeCapacity(int required) {
+        if (required <= edgeSource.length) {
+            return;
+        }
+        int capacity = Math.max(required, edgeSource.length * 2);
+        edgeSource = Arrays.copyOf(edgeSource, capacity);
+        edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+        edgeConfidence = Arrays.copyOf(edgeConfidence, capacity);
+        edgeCategory = Arrays.copyOf(edgeCategory, capacity);
+        edgeSupport = Arrays.copyOf(edgeSupport, capacity);
+    }
+
+    private void appendOutEdge(int node, int edge) {
+        outEdges[node] = append(outEdges[node], outDegree[node], edge);
+        outDegree[node]++;
+    }
+
+    private void appendInEdge(int node, int edge) {
+        inEdges[node] = append(inEdges[node], inDegree[node], edge);
+        inDegree[node]++;
+    }
+
+    private static int[] append(int[] array, int size, int value) {
+        if (array == null) {
+            array = new int[4];
+        } else if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+
+    private List<CausalEdge> topOf(int[] edges, int degree, int limit) {
+        Integer[] sorted = new Integer[degree];
+        for (int i = 0; i < degree; i++) {
+            sorted[i] = edges[i];
+        }
+        Arrays.sort(sorted, Comparator.comparingDouble((Integer e) -> edgeConfidence[e]).reversed());
+
+        int count = Math.min(limit, degree);
+        List<CausalEdge> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(toEdge(sorted[i]));
+        }
+        return result;
+    }
+
+    private void expand(PriorityQueue<PathStep> frontier, PathStep parent, int start, int node, Direction direction) {
+        int[] edges = direction == Direction.EFFECTS ? outEdges[node] : inEdges[node];
+        int degree = direction == Direction.EFFECTS ? outDegree[node] : inDegree[node];
+        for (int i = 0; i < degree; i++) {
+            int edge = edges[i];
+            int next = direction == Direction.EFFECTS ? edgeTarget[edge] : edgeSource[edge];
+            if (!onPath(parent, start, next)) {
+                frontier.add(new PathStep(parent, edge, next, edgeConfidence[edge]));
+            }
+        }
+    }
+
+    /**
+     * 判断节点是否已在路径上，避免出现环
+     */
+    private static boolean onPath(PathStep step, int start, int node) {
+        if (node == start) {
+            return true;
+        }
+        for (PathStep s = step; s != null; s = s.parent) {
+            if (s.endNode == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CausalChain toChain(PathStep step, Direction direction) {
+        List<CausalEdge> edges = new ArrayList<>(step.length);
+        for (PathStep s = step; s != null; s = s.parent) {
+            edges.add(toEdge(s.edge));
+        }
+        // 路径按扩展顺序倒序保存；沿结果方向时需要翻转成 起点 -> 终点 的顺序
+        if (direction == Direction.EFFECTS) {
+            Collections.reverse(edges);
+        }
+        return new CausalChain(edges);
+    }
+
+    private CausalEdge toEdge(int edge) {
+        int category = edgeCategory[edge];
+        return new CausalEdge(
+                nodeNames.get(edgeSource[edge]),
+                nodeNames.get(edgeTarget[edge]),
+                edgeConfidence[edge],
+                category == NO_CATEGORY ? null : categoryNames.get(category),
+                edgeSupport[edge]);
+    }
+
+    /**
+     * 从抽取结果文件构建因果图并查询，以JSON输出到标准输出
+     *
+     * @param args 一个或多个结果文件，加上查询参数：--effects &lt;短语&gt; 或 --causes &lt;短语&gt; 查询因果链，
+     *             --top [分类] 查询置信度最高的边，--find &lt;关键词&gt; 查找包含关键词的短语；
+     *             --hops &lt;跳数&gt; 和 --limit &lt;个数&gt; 可选
+     */
+    public static void main(String[] args) {
+        List<String> files = new ArrayList<>();
+        String query = null;
+        String argument = null;
+        int hops = -1;
+        int limit = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--effects":
+                case "--causes":
+                case "--find":
+                    query = args[i];
+                    argument = i + 1 < args.length ? args[++i] : null;
+                    break;
+                case "--top":
+                    query = args[i];
+                    argument = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : null;
+                    break;
+                case "--hops":
+                    hops = Integer.parseInt(args[++i]);
+                    break;
+                case "--limit":
+                    limit = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+        if (files.isEmpty() || query == null || (argument == null && !"--top".equals(query))) {
+            System.out.println("用法: java -jar causal-relation-extraction.jar --graph <结果文件>... "
+                    + "(--effects 短语 | --causes 短语 | --top [分类] | --find 关键词) [--hops 跳数] [--limit 个数]");
+            System.exit(1);
+        }
+        try {
+            new ConfigLoader().loadConfig("config.properties");
+            if (hops < 0) {
+                hops = ConfigLoader.getIntProperty("graph.max.hops", 3);
+            }
+            if (limit < 0) {
+                limit = ConfigLoader.getIntProperty("graph.query.limit", 20);
+            }
+            CausalGraph graph = new CausalGraph();
+            for (String file : files) {
+                graph.load(Paths.get(file));
+            }
+
+            Object result;
+            if ("--effects".equals(query)) {
+                result = graph.chains(argument, Direction.EFFECTS, hops, limit);
+            } else if ("--causes".equals(query)) {
+                result = graph.chains(argument, Direction.CAUSES, hops, limit);
+            } else if ("--find".equals(query)) {
+                result = graph.findPhrases(argument, limit);
+            } else {
+                result = graph.topEdges(limit, argument);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("nodes", graph.getNodeCount());
+            body.put("edges", graph.getEdgeCount());
+            body.put("result", result);
+            System.out.println(JsonMappers.writer(true).writeValueAsString(body));
+        } catch (Exception e) {
+            System.err.println("查询因果图时发生错误: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 最优优先搜索中的部分路径，以父指针链表示
+     */
+    private static final class PathStep {
+        final PathStep parent;
+        final int edge;
+        final int endNode;
+        final int length;
+        final double confidence;
+
+        PathStep(PathStep parent, int edge, int endNode, float edgeConfidence) {
+            this.parent = parent;
+            this.edge = edge;
+            this.endNode = endNode;
+            this.length = parent == null ? 1 : parent.length + 1;
+            this.confidence = parent == null ? edgeConfidence : parent.confidence * edgeConfidence;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,346 @@
+package com.fincausal.index;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSink;
+import com.fincausal.util.ConfigLoader;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于Lucene的因果三元组索引
+ * 每个三元组连同来源句子、文档编号、关系类型、时序关系和领域分类写入本地索引：
+ * 原因、结果和来源句子使用CJK二元分词建立全文索引，其余属性作为精确匹配字段，
+ * 置信度同时写入点索引（范围过滤）和DocValues（排序）。
+ * 通过近实时刷新线程，新写入的文档在数秒内即可被检索，无需重建索引。
+ */
+public class LuceneTripleIndex implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LuceneTripleIndex.class);
+
+    // 字段名
+    static final String FIELD_DOC_ID = "doc_id";
+    static final String FIELD_CAUSE = "cause";
+    static final String FIELD_EFFECT = "effect";
+    static final String FIELD_SENTENCE = "sentence";
+    static final String FIELD_SENTENCE_INDEX = "sentence_index";
+    static final String FIELD_RELATION_TYPE = "relation_type";
+    static final String FIELD_TEMPORAL_RELATION = "temporal_relation";
+    static final String FIELD_DOMAIN_CATEGORY = "domain_category";
+    static final String FIELD_CONFIDENCE = "confidence";
+
+    private final Directory directory;
+    private final Analyzer analyzer;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    /**
+     * 构造函数，索引路径和刷新参数从配置中读取
+     *
+     * @throws IOException 打开索引失败时抛出
+     */
+    public LuceneTripleIndex() throws IOException {
+        this(Paths.get(ConfigLoader.getStringProperty("index.lucene.path", "index/triples")),
+                ConfigLoader.getDoubleProperty("index.lucene.refresh.max.stale.sec", 1.0),
+                ConfigLoader.getDoubleProperty("index.lucene.refresh.min.stale.sec", 0.1),
+                ConfigLoader.getDoubleProperty("index.lucene.ram.buffer.mb", 64.0));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param indexPath 索引目录
+     * @param maxStaleSec 新写入文档最长多久后可被检索
+     * @param minStaleSec 有调用方等待时的最短刷新间隔
+     * @param ramBufferMb 写入缓冲区大小（MB）
+     * @throws IOException 打开索引失败时抛出
+     */
+    public LuceneTripleIndex(Path indexPath, double maxStaleSec, double minStaleSec, double ramBufferMb)
+            throws IOException {
+        this.directory = FSDirectory.open(indexPath);
+        this.analyzer = new CJKAnalyzer();
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, new SearcherFactory());
+
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, maxStaleSec, minStaleSec);
+        this.reopenThread.setName("lucene-triple-index-reopen");
+        this.reopenThread.setDaemon(true);
+        this.reopenThread.start();
+
+        logger.info("已打开三元组索引: {}，现有文档数: {}", indexPath, writer.numDocs());
+    }
+
+    /**
+     * 写入一个文档的全部三元组
+     * 同一文档编号已有的三元组会被原子替换，重复处理同一文档不会产生重复记录
+     *
+     * @param documentId 文档编号
+     * @param triples 因果三元组列表
+     * @return 写入操作的序列号，可传给 {@link #waitForSearchable(long)}
+     * @throws IOException 写入失败时抛出
+     */
+    public long index(String documentId, List<CausalTriple> triples) throws IOException {
+        List<Document> documents = new ArrayList<>(triples.size());
+        for (CausalTriple triple : triples) {
+            documents.add(toDocument(documentId, triple));
+        }
+        return writer.updateDocuments(new Term(FIELD_DOC_ID, documentId), documents);
+    }
+
+    /**
+     * 删除一个文档的全部三元组
+     *
+     * @param documentId 文档编号
+     * @return 删除操作的序列号
+     * @throws IOException 删除失败时抛出
+     */
+    public long delete(String documentId) throws IOException {
+        return writer.deleteDocuments(new Term(FIELD_DOC_ID, documentId));
+    }
+
+    /**
+     * 等待指定写入操作可被检索
+     *
+     * @param sequenceNumber 写入操作的序列号
+     * @throws InterruptedException 等待被中断时抛出
+     */
+    public void waitForSearchable(long sequenceNumber) throws InterruptedException {
+        reopenThread.waitForGeneration(sequenceNumber);
+    }
+
+    /**
+     * 创建写入指定文档的结果输出，关闭时将累积的三元组写入索引
+     *
+     * @param documentId 文档编号
+     */
+    public ResultSink sink(String documentId) {
+        return new ResultSink() {
+            private final List<CausalTriple> buffer = new ArrayList<>();
+
+            @Override
+            public void write(CausalTriple triple) {
+                buffer.add(triple);
+            }
+
+            @Override
+            public void flush() {
+                // 写入在关闭时统一提交，保证同一文档的三元组原子替换
+            }
+
+            @Override
+            public void close() throws IOException {
+                index(documentId, buffer);
+            }
+        };
+    }
+
+    /**
+     * 检索三元组
+     *
+     * @param query 检索条件
+     * @return 检索结果
+     * @throws IOException 检索失败时抛出
+     */
+    public List<TripleSearchHit> search(TripleQuery query) throws IOException {
+        Query luceneQuery = buildQuery(query);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            int limit = Math.max(1, query.getLimit());
+            TopDocs topDocs = query.isSortByConfidence()
+                    ? searcher.search(luceneQuery, limit,
+                            new Sort(new SortField(FIELD_CONFIDENCE, SortField.Type.DOUBLE, true)))
+                    : searcher.search(luceneQuery, limit);
+
+            List<TripleSearchHit> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document document = searcher.doc(scoreDoc.doc);
+                hits.add(new TripleSearchHit(document.get(FIELD_DOC_ID), toTriple(document), scoreDoc.score));
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 统计满足条件的三元组数量
+     *
+     * @param query 检索条件
+     * @return 数量
+     * @throws IOException 检索失败时抛出
+     */
+    public int count(TripleQuery query) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.count(buildQuery(query));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 持久化已写入的数据
+     *
+     * @throws IOException 提交失败时抛出
+     */
+    public void commit() throws IOException {
+        writer.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reopenThread.close();
+        try {
+            searcherManager.close();
+            writer.commit();
+        } finally {
+            writer.close();
+            analyzer.close();
+            directory.close();
+        }
+        logger.info("已关闭三元组索引");
+    }
+
+    private Query buildQuery(TripleQuery query) throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        boolean hasClause = false;
+
+        String keyword = query.getKeyword();
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            Map<String, Float> boosts = new HashMap<>();
+            boosts.put(FIELD_CAUSE, 2.0f);
+            boosts.put(FIELD_EFFECT, 2.0f);
+            boosts.put(FIELD_SENTENCE, 1.0f);
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                    new String[]{FIELD_CAUSE, FIELD_EFFECT, FIELD_SENTENCE}, analyzer, boosts);
+            parser.setDefaultOperator(QueryParser.Operator.AND);
+            // CJK二元分词后按短语匹配，避免“股价”与“价格”等片段误匹配
+            parser.setSplitOnWhitespace(true);
+            parser.setAutoGeneratePhraseQueries(true);
+            try {
+                builder.add(parser.parse(QueryParser.escape(keyword.trim())), BooleanClause.Occur.MUST);
+                hasClause = true;
+            } catch (ParseException e) {
+                throw new IOException("无法解析检索关键词: " + keyword, e);
+            }
+        }
+
+        hasClause |= addTermFilter(builder, FIELD_DOC_ID, query.getDocumentId());
+        hasClause |= addTermFilter(builder, FIELD_RELATION_TYPE, query.getRelationType());
+        hasClause |= addTermFilter(builder, FIELD_TEMPORAL_RELATION, query.getTemporalRelation());
+        hasClause |= addTermFilter(builder, FIELD_DOMAIN_CATEGORY, query.getDomainCategory());
+
+        if (query.getMinConfidence() > Double.NEGATIVE_INFINITY) {
+            builder.add(DoublePoint.newRangeQuery(FIELD_CONFIDENCE, query.getMinConfidence(), Double.POSITIVE_INFINITY),
+                    BooleanClause.Occur.FILTER);
+            hasClause = true;
+        }
+
+        if (!hasClause) {
+            return new MatchAllDocsQuery();
+        }
+        return builder.build();
+    }
+
+    private static boolean addTermFilter(BooleanQuery.Builder builder, String field, String value) {
+        if (value == null) {
+            return false;
+        }
+        builder.add(new TermQuery(new Term(field, value)), BooleanClause.Occur.FILTER);
+        return true;
+    }
+
+    private static Document toDocument(String documentId, CausalTriple triple) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_DOC_ID, documentId, Field.Store.YES));
+        addText(document, FIELD_CAUSE, triple.getCause());
+        addText(document, FIELD_EFFECT, triple.getEffect());
+        addText(document, FIELD_SENTENCE, triple.getSourceSentence());
+        if (triple.getSentenceIndex() != null) {
+            document.add(new StoredField(FIELD_SENTENCE_INDEX, triple.getSentenceIndex()));
+        }
+        addKeyword(document, FIELD_RELATION_TYPE, triple.getRelationType());
+        addKeyword(document, FIELD_TEMPORAL_RELATION, triple.getTemporalRelation());
+        addKeyword(document, FIELD_DOMAIN_CATEGORY, triple.getDomainCategory());
+
+        double confidence = triple.getConfidence();
+        document.add(new DoublePoint(FIELD_CONFIDENCE, confidence));
+        document.add(new DoubleDocValuesField(FIELD_CONFIDENCE, confidence));
+        document.add(new StoredField(FIELD_CONFIDENCE, confidence));
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+
+    private static void addKeyword(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new StringField(field, value, Field.Store.YES));
+        }
+    }
+
+    private static CausalTriple toTriple(Document document) {
+        IndexableField confidence = document.getField(FIELD_CONFIDENCE);
+        CausalTriple triple = new CausalTriple(
+                document.get(FIELD_CAUSE),
+                document.get(FIELD_EFFECT),
+                document.get(FIELD_RELATION_TYPE),
+                confidence != null ? confidence.numericValue().doubleValue() : 0.0);
+        triple.setTemporalRelation(document.get(FIELD_TEMPORAL_RELATION));
+        triple.setDomainCategory(document.get(FIELD_DOMAIN_CATEGORY));
+        triple.setSourceSentence(document.get(FIELD_SENTENCE));
+        IndexableField sentenceIndex = document.getField(FIELD_SENTENCE_INDEX);
+        if (sentenceIndex != null) {
+            triple.setSentenceIndex(sentenceIndex.numericValue().intValue());
+        }
+        return triple;
+    }
+}
\ No newline at end of file
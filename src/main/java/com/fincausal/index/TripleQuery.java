@@ -0,0 +1,98 @@
+package com.fincausal.index;
+
+/**
+ * 三元组检索条件
+ * 关键词在原因、结果和来源句子中检索，其余条件作为精确过滤
+ */
+public class TripleQuery {
+    private String keyword;
+    private String documentId;
+    private String relationType;
+    private String temporalRelation;
+    private String domainCategory;
+    private double minConfidence = Double.NEGATIVE_INFINITY;
+    private boolean sortByConfidence = false;
+    private int limit = 20;
+
+    public TripleQuery() {
+        // 默认构造函数
+    }
+
+    /**
+     * 设置关键词，为空时只按过滤条件检索
+     */
+    public TripleQuery withKeyword(String keyword) {
+        this.keyword = keyword;
+        return this;
+    }
+
+    public TripleQuery withDocumentId(String documentId) {
+        this.documentId = documentId;
+        return this;
+    }
+
+    public TripleQuery withRelationType(String relationType) {
+        this.relationType = relationType;
+        return this;
+    }
+
+    public TripleQuery withTemporalRelation(String temporalRelation) {
+        this.temporalRelation = temporalRelation;
+        return this;
+    }
+
+    public TripleQuery withDomainCategory(String domainCategory) {
+        this.domainCategory = domainCategory;
+        return this;
+    }
+
+    public TripleQuery withMinConfidence(double minConfidence) {
+        this.minConfidence = minConfidence;
+        return this;
+    }
+
+    /**
+     * 按置信度降序排序，默认按相关度排序
+     */
+    public TripleQuery sortByConfidence() {
+        this.sortByConfidence = true;
+        return this;
+    }
+
+    public TripleQuery withLimit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public String getRelationType() {
+        return relationType;
+    }
+
+    public String getTemporalRelation() {
+        return temporalRelation;
+    }
+
+    public String getDomainCategory() {
+        return domainCategory;
+    }
+
+    public double getMinConfidence() {
+        return minConfidence;
+    }
+
+    public boolean isSortByConfidence() {
+        return sortByConfidence;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
\ No newline at end of file
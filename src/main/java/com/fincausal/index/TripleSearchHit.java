@@ -0,0 +1,43 @@
+package com.fincausal.index;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fincausal.model.CausalTriple;
+
+/**
+ * 三元组检索结果
+ */
+public class TripleSearchHit {
+    private final String documentId;
+    private final CausalTriple triple;
+    private final float score;
+
+    public TripleSearchHit(String documentId, CausalTriple triple, float score) {
+        this.documentId = documentId;
+        this.triple = triple;
+        this.score = score;
+    }
+
+    @JsonProperty("doc_id")
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * 获取三元组，来源句子可通过 {@link CausalTriple#getSourceSentence()} 获取
+     */
+    public CausalTriple getTriple() {
+        return triple;
+    }
+
+    /**
+     * 获取相关度得分，按置信度排序时为NaN
+     */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TripleSearchHit{documentId='%s', score=%.3f, triple=%s}", documentId, score, triple);
+    }
+}
\ No newline at end of file
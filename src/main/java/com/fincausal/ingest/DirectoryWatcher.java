@@ -0,0 +1,320 @@
+package com.fincausal.ingest;
+
+import com.fincausal.index.LuceneTripleIndex;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSinkBuilder;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入目录监视
+ * 持续处理输入目录中新出现的文件：每个文件作为一个文档送入管道，
+ * 结果以原子重命名的方式写入输出目录并同步到磁盘后，处理完成的输入文件才移入完成目录，失败的移入失败目录；
+ * 完成目录和失败目录中已有同名文件时不覆盖。
+ * 文件在最近一次修改后经过一段稳定时间才处理，避免读到上游仍在写入的文件；
+ * 以.开头或以.tmp、.part结尾的文件视为临时文件，不处理
+ */
+public class DirectoryWatcher implements Runnable, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private final Pipeline pipeline;
+    private final PipelineMetrics metrics;
+    private final Path inputDirectory;
+    private final Path doneDirectory;
+    private final Path failedDirectory;
+    private final IngestOutput output;
+    private final PathMatcher matcher;
+    private final long pollMillis;
+    private final long settleMillis;
+    private final long shutdownGraceMillis;
+
+    // 已提交尚未完成的文件，以及无法移出输入目录、不再重试的文件
+    private final Set<Path> inFlight = new HashSet<>();
+    private final Set<Path> abandoned = new HashSet<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+    private volatile boolean started;
+    private volatile WatchService watchService;
+
+    /**
+     * 构造函数，文件名模式、完成目录、失败目录、轮询间隔等按配置设置
+     *
+     * @param pipeline 处理管道
+     * @param metrics 运行指标，记录处理的文件数
+     * @param inputDirectory 输入目录
+     * @param outputDirectory 输出目录
+     * @throws IOException 无法创建目录
+     */
+    public DirectoryWatcher(Pipeline pipeline, PipelineMetrics metrics, Path inputDirectory, Path outputDirectory)
+            throws IOException {
+        this(pipeline, metrics, inputDirectory, outputDirectory, null);
+    }
+
+    /**
+     * 构造函数，处理结果同时写入三元组检索索引，文档编号与输出文件名（不含扩展名）相同
+     *
+     * @param tripleIndex 三元组检索索引，为null时不写入索引
+     */
+    public DirectoryWatcher(Pipeline pipeline, PipelineMetrics metrics, Path inputDirectory, Path outputDirectory,
+                            LuceneTripleIndex tripleIndex) throws IOException {
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        this.inputDirectory = inputDirectory;
+        this.doneDirectory = Files.createDirectories(directory("ingest.done.dir", inputDirectory.resolve("done")));
+        this.failedDirectory = Files.createDirectories(directory("ingest.failed.dir", inputDirectory.resolve("failed")));
+        this.output = new IngestOutput(outputDirectory, ResultSinkBuilder.fromConfig(), tripleIndex);
+        this.matcher = FileSystems.getDefault().getPathMatcher(
+                "glob:" + ConfigLoader.getStringProperty("ingest.pattern", "*"));
+        this.pollMillis = Math.max(10, ConfigLoader.getIntProperty("ingest.poll.ms", 1000));
+        this.settleMillis = Math.max(0, ConfigLoader.getIntProperty("ingest.settle.ms", 1000));
+        this.shutdownGraceMillis = TimeUnit.SECONDS.toMillis(ConfigLoader.getIntProperty("ingest.shutdown.grace.sec", 30));
+    }
+
+    private static Path directory(String key, Path defaultPath) {
+        String configured = ConfigLoader.getStringProperty(key, "");
+        return configured.isEmpty() ? defaultPath : Paths.get(configured);
+    }
+
+    /**
+     * 持续监视输入目录，直到调用close()
+     * 目录变化事件只用于及时唤醒，每次唤醒和每个轮询间隔都重新扫描目录，不会因事件丢失而漏掉文件
+     */
+    @Override
+    public void run() {
+        started = true;
+        try {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                inputDirectory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                logger.warn("无法监视输入目录，改为定时扫描: {}", e.getMessage());
+            }
+            logger.info("开始监视输入目录: {}", inputDirectory);
+            while (running) {
+                scan();
+                if (!waitForChange()) {
+                    break;
+                }
+            }
+            awaitIdle();
+        } finally {
+            logger.info("已停止监视输入目录: {}", inputDirectory);
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * 等待目录变化或轮询间隔到期
+     *
+     * @return 是否继续监视
+     */
+    private boolean waitForChange() {
+        try {
+            WatchService service = watchService;
+            if (service == null) {
+                Thread.sleep(pollMillis);
+                return running;
+            }
+            WatchKey key = service.poll(pollMillis, TimeUnit.MILLISECONDS);
+            if (key != null) {
+                key.pollEvents();
+                key.reset();
+            }
+            return running;
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 扫描输入目录，按修改时间顺序提交已稳定的新文件
+     */
+    private void scan() {
+        long now = System.currentTimeMillis();
+        List<Path> ready = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDirectory)) {
+            for (Path file : stream) {
+                if (!Files.isRegularFile(file) || isTemporary(file) || !matcher.matches(file.getFileName())) {
+                    continue;
+                }
+                synchronized (inFlight) {
+                    if (inFlight.contains(file) || abandoned.contains(file)) {
+                        continue;
+                    }
+                }
+                if (now - Files.getLastModifiedTime(file).toMillis() >= settleMillis) {
+                    ready.add(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("扫描输入目录时发生错误: {}", e.getMessage());
+            return;
+        }
+        ready.sort(Comparator.comparingLong(DirectoryWatcher::lastModified));
+        for (Path file : ready) {
+            if (!running) {
+                break;
+            }
+            submit(file);
+        }
+    }
+
+    /**
+     * 读取文件并异步处理，在途任务数达到上限时阻塞
+     */
+    private void submit(Path file) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // 文件可能已被移走，下次扫描时再确认
+            logger.warn("读取输入文件失败: {}, {}", file, e.getMessage());
+            return;
+        }
+        synchronized (inFlight) {
+            inFlight.add(file);
+        }
+        try {
+            pipeline.processAsync(text).whenComplete((triples, error) -> finish(file, triples, error));
+        } catch (RuntimeException e) {
+            finish(file, null, e);
+        }
+    }
+
+    /**
+     * 写出结果并移走输入文件：成功时移入完成目录，失败时移入失败目录
+     */
+    private void finish(Path file, List<CausalTriple> triples, Throwable error) {
+        try {
+            if (error == null) {
+                try {
+                    // 结果引用的簇编号先于结果落盘
+                    pipeline.checkpoint();
+                    Path written = output.write(file.getFileName().toString(), triples);
+                    moveAside(file, doneDirectory);
+                    metrics.increment("ingest.files.processed");
+                    logger.info("已处理文件 {}，提取 {} 个因果关系，结果已保存至 {}", file.getFileName(), triples.size(), written);
+                    return;
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            logger.error("处理文件失败: {}, {}", file.getFileName(), error.getMessage());
+            metrics.increment("ingest.files.failed");
+            moveAside(file, failedDirectory);
+        } finally {
+            synchronized (inFlight) {
+                inFlight.remove(file);
+                inFlight.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 移动输入文件，目标目录中已有同名文件时不覆盖，在扩展名前加序号
+     */
+    private void moveAside(Path file, Path directory) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        Path target = dot > 0
+                ? IngestOutput.uniquePath(directory, name.substring(0, dot), name.substring(dot))
+                : IngestOutput.uniquePath(directory, name, "");
+        try {
+            Files.move(file, target);
+        } catch (IOException e) {
+            // 留在输入目录中的文件不再重试，避免反复处理
+            logger.error("移动输入文件失败，不再处理该文件: {}, {}", file, e.getMessage());
+            synchronized (inFlight) {
+                abandoned.add(file);
+            }
+        }
+    }
+
+    /**
+     * 等待已提交的文件处理完成
+     */
+    private void awaitIdle() {
+        long deadline = System.currentTimeMillis() + shutdownGraceMillis;
+        synchronized (inFlight) {
+            while (!inFlight.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    logger.warn("等待处理中的文件超时，剩余 {} 个", inFlight.size());
+                    return;
+                }
+                try {
+                    inFlight.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean isTemporary(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part");
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 停止监视，等待处理中的文件完成
+     */
+    @Override
+    public void close() {
+        running = false;
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                logger.warn("关闭目录监视失败: {}", e.getMessage());
+            }
+        }
+        if (!started) {
+            return;
+        }
+        try {
+            stopped.await(shutdownGraceMillis + pollMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.fincausal.ingest;
+
+import com.fincausal.index.LuceneTripleIndex;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSink;
+import com.fincausal.output.ResultSinkBuilder;
+import com.fincausal.util.FileSync;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持续处理模式的结果输出
+ * 每个文档的结果先写入输出目录中的隐藏临时文件，同步到磁盘后原子重命名为正式文件，再同步输出目录，
+ * 下游读取输出目录时不会读到写了一半的结果，write 返回后结果在崩溃后仍然存在。
+ * 同名的结果文件已存在时不覆盖，在扩展名前加 -1、-2 等序号。
+ * 配置了三元组检索索引时，结果同时以输出文件名（不含扩展名）为编号写入索引
+ */
+class IngestOutput {
+    private final Path directory;
+    private final ResultSinkBuilder sinkBuilder;
+    private final LuceneTripleIndex tripleIndex;
+    private final AtomicLong tmpSequence = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param directory 输出目录，不存在时创建
+     * @param sinkBuilder 结果输出构建器，决定输出格式和压缩方式
+     * @param tripleIndex 三元组检索索引，为null时不写入索引
+     * @throws IOException 无法创建输出目录
+     */
+    IngestOutput(Path directory, ResultSinkBuilder sinkBuilder, LuceneTripleIndex tripleIndex) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.sinkBuilder = sinkBuilder;
+        this.tripleIndex = tripleIndex;
+    }
+
+    /**
+     * 写出一个文档的结果
+     *
+     * @param name 文档名称，作为输出文件名（不含扩展名）
+     * @param triples 因果三元组列表
+     * @return 输出文件路径
+     * @throws IOException 写出失败时抛出，不会留下正式文件
+     */
+    Path write(String name, List<CausalTriple> triples) throws IOException {
+        String baseName = sanitize(name);
+        String extension = sinkBuilder.getExtension();
+        // 同名文档可能同时写出，临时文件名带序号避免互相覆盖
+        Path tmp = directory.resolve("." + baseName + extension + "." + tmpSequence.incrementAndGet() + ".tmp");
+        Path target;
+        try {
+            try (ResultSink sink = sinkBuilder.build(tmp.toString())) {
+                sink.writeAll(triples);
+            }
+            FileSync.force(tmp);
+            // 原子重命名会覆盖已有文件，选择文件名和重命名在同一把锁内完成
+            synchronized (this) {
+                target = uniquePath(directory, baseName, extension);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        FileSync.syncDirectory(directory);
+        if (tripleIndex != null) {
+            String fileName = target.getFileName().toString();
+            tripleIndex.index(fileName.substring(0, fileName.length() - extension.length()), triples);
+        }
+        return target;
+    }
+
+    /**
+     * 在目录中选择不与已有文件重名的路径：名称已存在时在扩展名前加 -1、-2 等序号
+     *
+     * @param directory 目录
+     * @param baseName 文件名（不含扩展名）
+     * @param extension 扩展名（含.），可以为空字符串
+     */
+    static Path uniquePath(Path directory, String baseName, String extension) {
+        Path candidate = directory.resolve(baseName + extension);
+        for (int sequence = 1; Files.exists(candidate); sequence++) {
+            candidate = directory.resolve(baseName + "-" + sequence + extension);
+        }
+        return candidate;
+    }
+
+    /**
+     * 把文档名称转换为可用作文件名的字符串
+     */
+    static String sanitize(String name) {
+        String sanitized = name.replaceAll("[\\\\/:*?\"<>|\\s]", "_");
+        if (sanitized.isEmpty() || sanitized.startsWith(".")) {
+            sanitized = "_" + sanitized;
+        }
+        return sanitized;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.fincausal.ingest;
+
+import com.fincausal.dedup.PhraseClusterer;
+import com.fincausal.index.LuceneTripleIndex;
+import com.fincausal.metrics.MetricsReporter;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.PipelineWarmer;
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 持续处理模式入口
+ * 常驻进程只加载一次模型，持续处理输入目录中新出现的文件（--watch）或不断追加的NDJSON文件（--tail），
+ * 收到终止信号后等待处理中的文档完成再退出。
+ * 启用三元组检索索引时，处理完成的文档在近实时刷新间隔内即可检索
+ */
+public class IngestService {
+    private static final Logger logger = LoggerFactory.getLogger(IngestService.class);
+
+    private IngestService() {
+    }
+
+    /**
+     * 持续处理模式入口
+     *
+     * @param args --watch &lt;输入目录&gt; &lt;输出目录&gt; 或 --tail &lt;NDJSON文件&gt; &lt;输出目录&gt;，
+     *             可加 --warmup 表示开始处理前预热管道
+     */
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean warmup = arguments.remove("--warmup");
+        if (arguments.size() < 3 || !("--watch".equals(arguments.get(0)) || "--tail".equals(arguments.get(0)))) {
+            System.out.println("用法: java -jar causal-relation-extraction.jar --watch <输入目录> <输出目录> [--warmup]");
+            System.out.println("      java -jar causal-relation-extraction.jar --tail <NDJSON文件> <输出目录> [--warmup]");
+            System.exit(1);
+        }
+        try {
+            new ConfigLoader().loadConfig("config.properties");
+            if (warmup) {
+                ConfigLoader.setProperty("warmup.enabled", "true");
+            }
+
+            PipelineMetrics metrics = PipelineMetrics.fromConfig();
+            if (ConfigLoader.getBooleanProperty("metrics.jmx.enabled", false)) {
+                metrics.registerMBeans();
+            }
+            MetricsReporter metricsReporter = MetricsReporter.start(metrics);
+            PhraseClusterer phraseClusterer = ConfigLoader.getBooleanProperty("cluster.enabled", false)
+                    ? new PhraseClusterer() : null;
+
+            Pipeline pipeline = new PipelineBuilder()
+                    .withPreprocessor()
+                    .withParser()
+                    .withCausalExtractor()
+                    .withTemporalProcessor()
+                    .withFinancialDomainAdapter()
+                    .withPhraseClusterer(phraseClusterer)
+                    .withMetrics(metrics)
+                    .build();
+            if (ConfigLoader.getBooleanProperty("warmup.enabled", false)) {
+                PipelineWarmer.fromConfig().warmUp(pipeline);
+            }
+
+            LuceneTripleIndex tripleIndex = ConfigLoader.getBooleanProperty("index.lucene.enabled", false)
+                    ? new LuceneTripleIndex() : null;
+            Runnable ingest = "--watch".equals(arguments.get(0))
+                    ? new DirectoryWatcher(pipeline, metrics, Paths.get(arguments.get(1)), Paths.get(arguments.get(2)),
+                            tripleIndex)
+                    : new NdjsonTailer(pipeline, metrics, Paths.get(arguments.get(1)), Paths.get(arguments.get(2)),
+                            tripleIndex);
+            Thread worker = new Thread(ingest, "ingest");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    ((Closeable) ingest).close();
+                    pipeline.close();
+                    if (tripleIndex != null) {
+                        tripleIndex.close();
+                    }
+                    if (phraseClusterer != null) {
+                        phraseClusterer.save();
+                    }
+                    metricsReporter.close();
+                } catch (IOException e) {
+                    logger.warn("停止持续处理时发生错误: {}", e.getMessage());
+                }
+            }, "ingest-shutdown"));
+            worker.start();
+            worker.join();
+        } catch (Exception e) {
+            logger.error("持续处理时发生错误: {}", e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.fincausal.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fincausal.index.LuceneTripleIndex;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSinkBuilder;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.FileSync;
+import com.fincausal.util.JsonMappers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NDJSON文件追踪
+ * 持续读取不断追加的NDJSON文件，每行 {"id": ..., "text": ...} 作为一个文档送入管道，
+ * 每个文档的结果以原子重命名的方式写入输出目录，文件名为文档编号（未指定时为文件名加行号）。
+ * 只处理以换行符结尾的完整行；无效的行和处理失败的文档原样追加到失败目录中与追踪文件同名的文件，
+ * 每批文档的结果和失败行都同步到磁盘后，才把读取位置原子写入输出目录中的位置文件，重启后从该位置继续。
+ * 文件变短时视为被截断或轮转，从头开始读取
+ */
+public class NdjsonTailer implements Runnable, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonTailer.class);
+
+    private final Pipeline pipeline;
+    private final PipelineMetrics metrics;
+    private final Path file;
+    private final IngestOutput output;
+    private final Path offsetFile;
+    private final Path failedFile;
+    private final long pollMillis;
+    private final int batchLines;
+    private final long shutdownGraceMillis;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+    private volatile boolean started;
+
+    // 已处理到的字节位置和行号
+    private long offset;
+    private long lineNumber;
+
+    /**
+     * 构造函数，轮询间隔、每批行数等按配置设置
+     *
+     * @param pipeline 处理管道
+     * @param metrics 运行指标，记录处理的文档数
+     * @param file 追踪的NDJSON文件
+     * @param outputDirectory 输出目录
+     * @throws IOException 无法创建输出目录
+     */
+    public NdjsonTailer(Pipeline pipeline, PipelineMetrics metrics, Path file, Path outputDirectory) throws IOException {
+        this(pipeline, metrics, file, outputDirectory, null);
+    }
+
+    /**
+     * 构造函数，处理结果同时写入三元组检索索引，文档编号与输出文件名（不含扩展名）相同
+     *
+     * @param tripleIndex 三元组检索索引，为null时不写入索引
+     */
+    public NdjsonTailer(Pipeline pipeline, PipelineMetrics metrics, Path file, Path outputDirectory,
+                        LuceneTripleIndex tripleIndex) throws IOException {
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        this.file = file;
+        this.output = new IngestOutput(outputDirectory, ResultSinkBuilder.fromConfig(), tripleIndex);
+        this.offsetFile = outputDirectory.resolve("." + file.getFileName() + ".offset");
+        String failedDirectory = ConfigLoader.getStringProperty("ingest.failed.dir", "");
+        this.failedFile = (failedDirectory.isEmpty()
+                ? file.toAbsolutePath().resolveSibling("failed") : Paths.get(failedDirectory))
+                .resolve(file.getFileName());
+        this.pollMillis = Math.max(10, ConfigLoader.getIntProperty("ingest.poll.ms", 1000));
+        this.batchLines = Math.max(1, ConfigLoader.getIntProperty("ingest.tail.batch.lines", 256));
+        this.shutdownGraceMillis = TimeUnit.SECONDS.toMillis(ConfigLoader.getIntProperty("ingest.shutdown.grace.sec", 30));
+    }
+
+    /**
+     * 持续读取文件，直到调用close()
+     */
+    @Override
+    public void run() {
+        started = true;
+        try {
+            loadOffset();
+            logger.info("开始追踪文件: {}，起始位置: {}", file, offset);
+            while (running) {
+                boolean progressed = false;
+                try {
+                    progressed = processBatch();
+                } catch (IOException e) {
+                    logger.error("读取追踪文件时发生错误: {}, {}", file, e.getMessage());
+                }
+                if (!progressed) {
+                    Thread.sleep(pollMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            logger.info("已停止追踪文件: {}，位置: {}", file, offset);
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * 读取并处理一批完整行
+     *
+     * @return 是否读到了新的行
+     * @throws IOException 读取文件或保存位置失败
+     */
+    private boolean processBatch() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        long size = Files.size(file);
+        if (size < offset) {
+            logger.warn("追踪文件变短，可能已被截断或轮转，从头开始读取: {}", file);
+            offset = 0;
+            lineNumber = 0;
+        }
+        if (size == offset) {
+            return false;
+        }
+
+        // 读取完整行，末尾没有换行符的行等待上游写完
+        List<String> lines = new ArrayList<>();
+        long consumed = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(offset);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long pending = 0;
+            int b;
+            while (lines.size() < batchLines && (b = in.read()) != -1) {
+                pending++;
+                if (b == '\n') {
+                    lines.add(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                    line.reset();
+                    consumed += pending;
+                    pending = 0;
+                } else {
+                    line.write(b);
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            return false;
+        }
+
+        // 按行提交，完成后按输入顺序写出结果
+        List<String> names = new ArrayList<>();
+        List<String> submitted = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        List<CompletableFuture<List<CausalTriple>>> futures = new ArrayList<>();
+        // 行号与读取位置一起推进，本批失败重试时行号不变
+        long number = lineNumber;
+        for (String line : lines) {
+            number++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = JsonMappers.mapper().readTree(trimmed);
+            } catch (IOException e) {
+                node = null;
+            }
+            JsonNode textNode = node != null ? node.get("text") : null;
+            if (textNode == null || !textNode.isTextual()) {
+                logger.warn("第 {} 行不是有效的文档，已写入失败文件", number);
+                metrics.increment("ingest.lines.invalid");
+                failed.add(line);
+                continue;
+            }
+            JsonNode idNode = node.get("id");
+            names.add(idNode != null && !idNode.isNull() ? idNode.asText() : baseName() + "-" + number);
+            submitted.add(line);
+            futures.add(submit(textNode.asText()));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                List<CausalTriple> triples = futures.get(i).join();
+                output.write(names.get(i), triples);
+                metrics.increment("ingest.documents.processed");
+            } catch (CompletionException | IOException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                logger.error("处理文档失败，已写入失败文件: {}, {}", names.get(i), cause.getMessage());
+                metrics.increment("ingest.documents.failed");
+                failed.add(submitted.get(i));
+            }
+        }
+        if (!failed.isEmpty()) {
+            appendFailed(failed);
+        }
+
+        // 结果引用的簇编号先于读取位置落盘
+        pipeline.checkpoint();
+        offset += consumed;
+        lineNumber = number;
+        saveOffset();
+        return true;
+    }
+
+    /**
+     * 把失败的行追加到失败文件并同步到磁盘，写入失败时不推进读取位置，该批文档会被重新处理
+     */
+    private void appendFailed(List<String> lines) throws IOException {
+        Files.createDirectories(failedFile.getParent());
+        boolean created = !Files.exists(failedFile);
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(failedFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(content));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        if (created) {
+            FileSync.syncDirectory(failedFile.getParent());
+        }
+    }
+
+    private CompletableFuture<List<CausalTriple>> submit(String text) {
+        try {
+            return pipeline.processAsync(text);
+        } catch (RuntimeException e) {
+            CompletableFuture<List<CausalTriple>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private String baseName() {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * 读取位置文件，格式为 “字节位置 行号”
+     */
+    private void loadOffset() {
+        if (!Files.isRegularFile(offsetFile)) {
+            return;
+        }
+        try {
+            String[] parts = new String(Files.readAllBytes(offsetFile), StandardCharsets.UTF_8).trim().split("\\s+");
+            offset = Long.parseLong(parts[0]);
+            lineNumber = parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("读取位置文件失败，从头开始读取: {}, {}", offsetFile, e.getMessage());
+            offset = 0;
+            lineNumber = 0;
+        }
+    }
+
+    private void saveOffset() throws IOException {
+        Path tmp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+        Files.write(tmp, (offset + " " + lineNumber).getBytes(StandardCharsets.UTF_8));
+        FileSync.force(tmp);
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 停止追踪，等待当前一批文档完成
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (!started) {
+            return;
+        }
+        try {
+            stopped.await(shutdownGraceMillis + pollMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.fincausal.metrics;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行指标定时报告器
+ * 按固定间隔输出各阶段在该间隔内的调用次数和耗时分位数，写入日志，并可追加到CSV文件。
+ * 关闭时输出最后一个间隔的数据。报告间隔不大于0时不启动定时任务，关闭时也不输出报告。
+ */
+public class MetricsReporter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private static final String CSV_HEADER =
+            "timestamp,stage,count,errors,inputs,outputs,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    private final PipelineMetrics metrics;
+    private final Path csvPath;
+    private final ScheduledExecutorService scheduler;
+
+    // 上一次报告时各阶段的累计数据，用于计算间隔增量
+    private final Map<String, long[]> lastCounters = new HashMap<>();
+    private final Map<String, LatencyHistogram.Snapshot> lastSnapshots = new HashMap<>();
+    private final Map<String, Long> lastCounterValues = new HashMap<>();
+
+    /**
+     * 按配置创建并启动报告器
+     * 配置项：metrics.report.interval.sec（报告间隔秒数，0表示不报告）、metrics.report.csv.path（为空时不写CSV）
+     */
+    public static MetricsReporter start(PipelineMetrics metrics) {
+        long intervalSeconds = ConfigLoader.getIntProperty("metrics.report.interval.sec", 0);
+        String csv = ConfigLoader.getStringProperty("metrics.report.csv.path", "");
+        return new MetricsReporter(metrics, intervalSeconds, csv.isEmpty() ? null : Paths.get(csv));
+    }
+
+    /**
+     * 构造函数，创建后即开始定时报告
+     *
+     * @param metrics 管道运行指标
+     * @param intervalSeconds 报告间隔（秒），不大于0时不定时报告
+     * @param csvPath CSV文件路径，为null时只写日志
+     */
+    public MetricsReporter(PipelineMetrics metrics, long intervalSeconds, Path csvPath) {
+        this.metrics = metrics;
+        this.csvPath = csvPath;
+        if (intervalSeconds <= 0) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::reportSafely, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 立即输出一次报告
+     */
+    public synchronized void report() throws IOException {
+        String timestamp = Instant.now().toString();
+        StringBuilder csv = new StringBuilder();
+        for (StageMetrics stage : metrics.getStages()) {
+            if (!stage.isEnabled()) {
+                continue;
+            }
+            LatencyHistogram.Snapshot current = stage.snapshot();
+            LatencyHistogram.Snapshot previous = lastSnapshots.put(stage.getStage(), current);
+            LatencyHistogram.Snapshot interval = previous == null ? current : current.minus(previous);
+
+            long[] counters = {stage.getErrorCount(), stage.getInputCount(), stage.getOutputCount()};
+            long[] previousCounters = lastCounters.put(stage.getStage(), counters);
+            long errors = counters[0] - (previousCounters == null ? 0 : previousCounters[0]);
+            long inputs = counters[1] - (previousCounters == null ? 0 : previousCounters[1]);
+            long outputs = counters[2] - (previousCounters == null ? 0 : previousCounters[2]);
+
+            if (interval.getCount() == 0 && errors == 0) {
+                continue;
+            }
+            logger.info("阶段 {}: 调用 {} 次, 错误 {} 次, 输入 {}, 输出 {}, 平均 {} ms, p50 {} ms, p99 {} ms, 最大 {} ms",
+                    stage.getStage(), interval.getCount(), errors, inputs, outputs,
+                    millis(interval.getMeanNanos()), millis(interval.getPercentileNanos(50.0)),
+                    millis(interval.getPercentileNanos(99.0)), millis(interval.getMaxNanos()));
+            csv.append(timestamp).append(',').append(stage.getStage())
+                    .append(',').append(interval.getCount())
+                    .append(',').append(errors)
+                    .append(',').append(inputs)
+                    .append(',').append(outputs)
+                    .append(',').append(millis(interval.getMeanNanos()))
+                    .append(',').append(millis(interval.getPercentileNanos(50.0)))
+                    .append(',').append(millis(interval.getPercentileNanos(90.0)))
+                    .append(',').append(millis(interval.getPercentileNanos(99.0)))
+                    .append(',').append(millis(interval.getPercentileNanos(99.9)))
+                    .append(',').append(millis(interval.getMaxNanos()))
+                    .append('\n');
+        }
+        // 计数器只输出间隔内的增量，CSV中以计数器名称作为stage列
+        for (Map.Entry<String, Long> entry : metrics.getCounters().entrySet()) {
+            Long previous = lastCounterValues.put(entry.getKey(), entry.getValue());
+            long delta = entry.getValue() - (previous == null ? 0 : previous);
+            if (delta == 0) {
+                continue;
+            }
+            logger.info("计数器 {}: {}", entry.getKey(), delta);
+            csv.append(timestamp).append(',').append(entry.getKey()).append(',').append(delta)
+                    .append(",,,,,,,,,\n");
+        }
+        // 仪表输出报告时刻的即时值
+        for (Map.Entry<String, Long> entry : metrics.getGauges().entrySet()) {
+            logger.info("仪表 {}: {}", entry.getKey(), entry.getValue());
+            csv.append(timestamp).append(',').append(entry.getKey()).append(',').append(entry.getValue())
+                    .append(",,,,,,,,,\n");
+        }
+        if (csvPath != null && csv.length() > 0) {
+            appendCsv(csv.toString());
+        }
+    }
+
+    /**
+     * 停止定时报告，并输出最后一次报告
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        report();
+    }
+
+    private void reportSafely() {
+        try {
+            report();
+        } catch (IOException | RuntimeException e) {
+            // 报告失败不能影响定时任务的后续执行
+            logger.warn("输出运行指标报告失败: {}", e.getMessage());
+        }
+    }
+
+    private void appendCsv(String rows) throws IOException {
+        Path parent = csvPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        boolean writeHeader = !Files.exists(csvPath) || Files.size(csvPath) == 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (writeHeader) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            writer.write(rows);
+        }
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,222 @@
+package com.fincausal.metrics;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 处理管道的运行指标集合
+ * 按阶段名称管理 StageMetrics，阶段是否启用由 ConfigLoader.isStageMetricsEnabled 决定；
+ * 另有按名称区分的计数器，用于记录长句拆分等处理决策；以及读取即时值的仪表（如队列深度）。
+ * 可将各阶段注册为JMX MBean（com.fincausal:type=PipelineMetrics,stage=阶段名），
+ * 计数器和仪表注册为 com.fincausal:type=PipelineMetrics,name=counters
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    // 管道各阶段名称
+    public static final String PREPROCESS = "preprocess";
+    public static final String PARSE = "parse";
+    public static final String EXTRACT = "extract";
+    public static final String TEMPORAL = "temporal";
+    public static final String FINANCIAL = "financial";
+    // 整个文档的端到端处理
+    public static final String TOTAL = "total";
+
+    private static final String JMX_DOMAIN = "com.fincausal";
+
+    // 句子解析路径计数器名称前缀，后接 ParseRoute 的小写名称
+    public static final String PARSE_ROUTE_PREFIX = "parse.route.";
+
+    private final Map<String, StageMetrics> stages = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final boolean defaultEnabled;
+    private final boolean useConfig;
+    private final boolean countersEnabled;
+    private volatile boolean jmxRegistered = false;
+
+    private PipelineMetrics(boolean defaultEnabled, boolean useConfig) {
+        this.defaultEnabled = defaultEnabled;
+        this.useConfig = useConfig;
+        this.countersEnabled = useConfig ? ConfigLoader.getBooleanProperty("metrics.enabled", true) : defaultEnabled;
+    }
+
+    /**
+     * 按配置创建，各阶段的开关读取自 metrics.enabled 和 metrics.stage.阶段名.enabled
+     */
+    public static PipelineMetrics fromConfig() {
+        return new PipelineMetrics(true, true);
+    }
+
+    /**
+     * 创建全部阶段均不启用的实例，记录操作为空操作
+     */
+    public static PipelineMetrics disabled() {
+        return new PipelineMetrics(false, false);
+    }
+
+    /**
+     * 获取阶段指标，不存在时创建
+     */
+    public StageMetrics stage(String name) {
+        StageMetrics metrics = stages.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return stages.computeIfAbsent(name, key -> {
+            boolean enabled = useConfig ? ConfigLoader.isStageMetricsEnabled(key) : defaultEnabled;
+            StageMetrics created = new StageMetrics(key, enabled);
+            if (jmxRegistered) {
+                register(created);
+            }
+            return created;
+        });
+    }
+
+    /**
+     * 计数器加1
+     */
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    /**
+     * 计数器增加指定值
+     */
+    public void add(String counter, long delta) {
+        if (countersEnabled) {
+            counters.computeIfAbsent(counter, key -> new LongAdder()).add(delta);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * 注册仪表，读取时调用supplier获取即时值；同名仪表已存在时替换
+     */
+    public void registerGauge(String gauge, LongSupplier supplier) {
+        if (countersEnabled) {
+            gauges.put(gauge, supplier);
+        }
+    }
+
+    /**
+     * 移除仪表
+     */
+    public void removeGauge(String gauge) {
+        gauges.remove(gauge);
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return result;
+    }
+
+    /**
+     * 获取已创建的全部阶段指标
+     */
+    public List<StageMetrics> getStages() {
+        List<StageMetrics> result = new ArrayList<>(stages.values());
+        result.sort((a, b) -> a.getStage().compareTo(b.getStage()));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 将各阶段注册为JMX MBean，之后新建的阶段也会自动注册
+     * 同名MBean已存在时（如同一进程内重建了管道）以当前实例替换
+     */
+    public synchronized void registerMBeans() {
+        if (jmxRegistered) {
+            return;
+        }
+        jmxRegistered = true;
+        for (String name : new String[]{PREPROCESS, PARSE, EXTRACT, TEMPORAL, FINANCIAL, TOTAL}) {
+            stage(name);
+        }
+        for (StageMetrics metrics : stages.values()) {
+            register(metrics);
+        }
+        registerBean(this, countersName());
+        logger.info("运行指标已注册到JMX，域: {}", JMX_DOMAIN);
+    }
+
+    /**
+     * 注销本实例注册的JMX MBean
+     */
+    public synchronized void unregisterMBeans() {
+        if (!jmxRegistered) {
+            return;
+        }
+        jmxRegistered = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        List<String> names = new ArrayList<>();
+        for (StageMetrics metrics : stages.values()) {
+            names.add(stageName(metrics.getStage()));
+        }
+        names.add(countersName());
+        for (String name : names) {
+            try {
+                ObjectName objectName = new ObjectName(name);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                logger.warn("注销JMX MBean失败: {}, {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private static void register(StageMetrics metrics) {
+        registerBean(metrics, stageName(metrics.getStage()));
+    }
+
+    private static void registerBean(Object bean, String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            try {
+                server.registerMBean(bean, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(objectName);
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException e) {
+            logger.warn("注册JMX MBean失败: {}, {}", name, e.getMessage());
+        }
+    }
+
+    private static String stageName(String stage) {
+        return JMX_DOMAIN + ":type=PipelineMetrics,stage=" + stage;
+    }
+
+    private static String countersName() {
+        return JMX_DOMAIN + ":type=PipelineMetrics,name=counters";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.fincausal.metrics;
+
+import java.util.Map;
+
+/**
+ * 管道计数器和仪表的JMX管理接口
+ */
+public interface PipelineMetricsMXBean {
+
+    /**
+     * 获取全部计数器的当前值，按名称排序
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * 获取全部仪表的即时值，按名称排序
+     */
+    Map<String, Long> getGauges();
+}
\ No newline at end of file
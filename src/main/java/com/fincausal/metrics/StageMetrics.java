@@ -0,0 +1,128 @@
+package com.fincausal.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个处理阶段的运行指标：耗时直方图、输入/输出数量和错误次数
+ * 耗时由调用方计时后通过 record 记录；未启用时 record/error 均为空操作
+ */
+public class StageMetrics implements StageMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String stage;
+    private final boolean enabled;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder outputs = new LongAdder();
+
+    public StageMetrics(String stage, boolean enabled) {
+        this.stage = stage;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 记录一次已完成调用的耗时
+     *
+     * @param durationNanos 耗时（纳秒）
+     * @param inputCount 本次输入数量（字符数、句子数或三元组数，视阶段而定）
+     * @param outputCount 本次输出数量
+     */
+    public void record(long durationNanos, long inputCount, long outputCount) {
+        if (!enabled) {
+            return;
+        }
+        histogram.record(durationNanos);
+        inputs.add(inputCount);
+        outputs.add(outputCount);
+    }
+
+    /**
+     * 记录一次失败的调用
+     */
+    public void error() {
+        if (enabled) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 获取耗时直方图快照
+     */
+    public LatencyHistogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+
+    @Override
+    public String getStage() {
+        return stage;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.snapshot().getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getInputCount() {
+        return inputs.sum();
+    }
+
+    @Override
+    public long getOutputCount() {
+        return outputs.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return histogram.snapshot().getMeanNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(50.0);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentileMillis(90.0);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(99.0);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return percentileMillis(99.9);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return histogram.snapshot().getMaxNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        errors.reset();
+        inputs.reset();
+        outputs.reset();
+    }
+
+    private double percentileMillis(double percentile) {
+        return histogram.snapshot().getPercentileNanos(percentile) / NANOS_PER_MILLI;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.fincausal.metrics;
+
+/**
+ * 处理阶段运行指标的JMX管理接口
+ * 耗时类属性单位均为毫秒，统计范围为启动（或上次重置）以来的全部调用
+ */
+public interface StageMetricsMBean {
+
+    String getStage();
+
+    boolean isEnabled();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getInputCount();
+
+    long getOutputCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /**
+     * 清空该阶段的全部统计
+     */
+    void reset();
+}
\ No newline at end of file
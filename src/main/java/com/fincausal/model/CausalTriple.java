@@ -1,5 +1,6 @@
 package com.fincausal.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -7,6 +8,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * 表示一个因果关系，包含原因、结果和关系类型
  */
 public class CausalTriple {
+    // 快速模式（不经CoreNLP解析，只做模式匹配）抽取的三元组的抽取模式标记
+    public static final String EXTRACTION_MODE_FAST = "fast";
+    
     @JsonProperty("cause")
     private String cause; // 原因
     
@@ -25,6 +29,26 @@ public class CausalTriple {
     @JsonProperty("domain_category")
     private String domainCategory; // 领域分类（如金融领域分类）
     
+    @JsonProperty("source_sentence")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sourceSentence; // 来源句子文本
+    
+    @JsonProperty("sentence_index")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer sentenceIndex; // 来源句子在文档中的索引
+    
+    @JsonProperty("extraction_mode")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String extractionMode; // 抽取模式，快速模式为 fast，完整解析时为空
+    
+    @JsonProperty("cause_cluster")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer causeCluster; // 原因短语所属的簇编号，未启用短语聚类时为空
+    
+    @JsonProperty("effect_cluster")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer effectCluster; // 结果短语所属的簇编号，未启用短语聚类时为空
+    
     // 默认构造函数（用于Jackson反序列化）
     public CausalTriple() {
     }
@@ -49,6 +73,23 @@ public class CausalTriple {
         this.confidence = confidence;
     }
     
+    /**
+     * 复制构造函数
+     */
+    public CausalTriple(CausalTriple other) {
+        this.cause = other.cause;
+        this.effect = other.effect;
+        this.relationType = other.relationType;
+        this.confidence = other.confidence;
+        this.temporalRelation = other.temporalRelation;
+        this.domainCategory = other.domainCategory;
+        this.sourceSentence = other.sourceSentence;
+        this.sentenceIndex = other.sentenceIndex;
+        this.extractionMode = other.extractionMode;
+        this.causeCluster = other.causeCluster;
+        this.effectCluster = other.effectCluster;
+    }
+    
     // Getters and Setters
     public String getCause() {
         return cause;
@@ -98,6 +139,46 @@ public class CausalTriple {
         this.domainCategory = domainCategory;
     }
     
+    public String getSourceSentence() {
+        return sourceSentence;
+    }
+    
+    public void setSourceSentence(String sourceSentence) {
+        this.sourceSentence = sourceSentence;
+    }
+    
+    public Integer getSentenceIndex() {
+        return sentenceIndex;
+    }
+    
+    public void setSentenceIndex(Integer sentenceIndex) {
+        this.sentenceIndex = sentenceIndex;
+    }
+    
+    public String getExtractionMode() {
+        return extractionMode;
+    }
+    
+    public void setExtractionMode(String extractionMode) {
+        this.extractionMode = extractionMode;
+    }
+    
+    public Integer getCauseCluster() {
+        return causeCluster;
+    }
+    
+    public void setCauseCluster(Integer causeCluster) {
+        this.causeCluster = causeCluster;
+    }
+    
+    public Integer getEffectCluster() {
+        return effectCluster;
+    }
+    
+    public void setEffectCluster(Integer effectCluster) {
+        this.effectCluster = effectCluster;
+    }
+    
     @Override
     public String toString() {
         return String.format("CausalTriple{cause='%s', effect='%s', relationType='%s', confidence=%.2f, temporalRelation='%s', domainCategory='%s'}",
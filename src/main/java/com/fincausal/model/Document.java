@@ -10,6 +10,7 @@ import java.util.List;
 public class Document {
     private String text; // 文档文本
     private List<Sentence> sentences; // 句子列表
+    private boolean truncated; // 是否因超时或取消而未解析全部句子
     
     /**
      * 构造函数
@@ -63,6 +64,14 @@ public class Document {
         return sentences.size();
     }
     
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+    
     @Override
     public String toString() {
         return String.format("Document{sentences=%d}", sentences.size());
@@ -0,0 +1,14 @@
+package com.fincausal.model;
+
+/**
+ * 句子的解析路径
+ * 超过长度上限的句子不做完整的句法分析，以避免句法分析耗时随句长急剧增长
+ */
+public enum ParseRoute {
+    // 完整解析：运行全部注释器
+    FULL,
+    // 超长句在分句标点处拆分出的子句，子句单独完整解析
+    SPLIT,
+    // 只保留分词结果，不做句法和依存分析，仅用于模式匹配抽取
+    PATTERN_ONLY
+}
\ No newline at end of file
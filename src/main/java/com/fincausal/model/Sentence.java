@@ -19,6 +19,7 @@ public class Sentence {
     private List<String> nerTags; // 命名实体识别标注
     private Tree parseTree; // 句法分析树
     private SemanticGraph dependencyParse; // 依存句法分析图
+    private ParseRoute parseRoute = ParseRoute.FULL; // 解析路径
     
     /**
      * 构造函数
@@ -139,6 +140,14 @@ public class Sentence {
         this.dependencyParse = dependencyParse;
     }
     
+    public ParseRoute getParseRoute() {
+        return parseRoute;
+    }
+    
+    public void setParseRoute(ParseRoute parseRoute) {
+        this.parseRoute = parseRoute;
+    }
+    
     @Override
     public String toString() {
         return String.format("Sentence{index=%d, text='%s', tokens=%d}", index, text, tokens.size());
@@ -0,0 +1,79 @@
+package com.fincausal.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 输出压缩方式
+ * 仅使用JDK自带的编解码器，不引入额外依赖
+ */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    // zlib格式，压缩级别可调，速度优先时比GZIP更灵活
+    DEFLATE(".zz");
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * 获取该压缩方式的常用文件扩展名
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 在输出流外包装压缩流
+     *
+     * @param out 底层输出流
+     * @param bufferSize 压缩缓冲区大小
+     * @param level 压缩级别（0-9，-1为默认）
+     * @return 压缩后的输出流
+     * @throws IOException 创建失败时抛出
+     */
+    public OutputStream wrap(OutputStream out, int bufferSize, int level) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, bufferSize) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            case DEFLATE:
+                return new DeflaterOutputStream(out, new Deflater(level), bufferSize) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            def.end();
+                        }
+                    }
+                };
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * 解析配置中的压缩方式，无法识别时返回NONE
+     */
+    public static Compression fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NONE;
+        }
+        for (Compression compression : values()) {
+            if (compression.name().equalsIgnoreCase(value.trim())) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
\ No newline at end of file
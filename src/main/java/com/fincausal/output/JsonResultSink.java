@@ -0,0 +1,74 @@
+package com.fincausal.output;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.util.JsonMappers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 基于JsonGenerator的流式结果输出
+ * 逐条序列化因果三元组，不在内存中构建完整的JSON树或字符串
+ */
+public class JsonResultSink implements ResultSink {
+
+    private final JsonGenerator generator;
+    private final OutputFormat format;
+    private long written = 0;
+    private boolean closed = false;
+
+    /**
+     * 构造函数
+     *
+     * @param out 输出流，关闭本对象时一并关闭
+     * @param format 输出格式
+     * @param prettyPrint 是否缩进输出（仅对JSON格式有效）
+     * @throws IOException 创建生成器失败时抛出
+     */
+    public JsonResultSink(OutputStream out, OutputFormat format, boolean prettyPrint) throws IOException {
+        this.format = format;
+        this.generator = JsonMappers.factory().createGenerator(out);
+        this.generator.setCodec(JsonMappers.mapper());
+
+        if (format == OutputFormat.NDJSON) {
+            // 每个对象之间以换行分隔
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        } else {
+            if (prettyPrint) {
+                this.generator.setPrettyPrinter(new DefaultPrettyPrinter());
+            }
+            this.generator.writeStartArray();
+        }
+    }
+
+    @Override
+    public void write(CausalTriple triple) throws IOException {
+        generator.writeObject(triple);
+        written++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (format == OutputFormat.JSON) {
+                generator.writeEndArray();
+            } else if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        } finally {
+            generator.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.fincausal.output;
+
+/**
+ * 结果输出格式
+ */
+public enum OutputFormat {
+    // 单个JSON数组
+    JSON(".json"),
+    // 每行一个JSON对象（NDJSON）
+    NDJSON(".ndjson"),
+    // 字典编码的二进制列式格式
+    COLUMNAR(".fctc");
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * 输出文件的扩展名
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 解析配置中的输出格式，无法识别时返回JSON
+     */
+    public static OutputFormat fromString(String value) {
+        if (value != null) {
+            for (OutputFormat format : values()) {
+                if (format.name().equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+}
\ No newline at end of file
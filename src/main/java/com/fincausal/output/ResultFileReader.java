@@ -0,0 +1,157 @@
+package com.fincausal.output;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.storage.ColumnarTripleReader;
+import com.fincausal.storage.TripleFilter;
+import com.fincausal.util.JsonMappers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 抽取结果文件读取
+ * 按文件开头的魔数识别列式格式和压缩方式（输出路径由调用方指定，扩展名不一定与格式一致），
+ * 其余按内容区分JSON数组和NDJSON：
+ * NDJSON的每行可以是一个三元组，也可以是批处理/持续处理输出的 {"id": ..., "triples": [...]} 记录
+ */
+public final class ResultFileReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 列式格式的魔数 "FCTC"
+    private static final byte[] COLUMNAR_MAGIC = {'F', 'C', 'T', 'C'};
+
+    private ResultFileReader() {
+    }
+
+    /**
+     * 逐个读取结果文件中的三元组
+     *
+     * @param path 结果文件路径
+     * @param consumer 三元组消费者
+     * @return 读取的三元组数量
+     * @throws IOException 读取失败或格式不正确时抛出
+     */
+    public static long scan(Path path, Consumer<CausalTriple> consumer) throws IOException {
+        BufferedInputStream raw = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        byte[] head;
+        try {
+            head = peek(raw, COLUMNAR_MAGIC.length);
+        } catch (IOException e) {
+            raw.close();
+            throw e;
+        }
+        if (Arrays.equals(head, COLUMNAR_MAGIC)) {
+            raw.close();
+            try (ColumnarTripleReader reader = new ColumnarTripleReader(path)) {
+                return reader.scan(TripleFilter.all(), consumer);
+            }
+        }
+
+        try (InputStream in = decompress(head, raw)) {
+            BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+            return isJsonArray(buffered) ? scanArray(buffered, consumer) : scanLines(buffered, consumer);
+        }
+    }
+
+    /**
+     * 根据开头的字节识别压缩方式：gzip以 1f 8b 开头；zlib的第一个字节低4位为8（deflate），且前两个字节按大端构成31的倍数
+     */
+    private static InputStream decompress(byte[] head, InputStream in) throws IOException {
+        if (head.length >= 2 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        if (head.length >= 2 && (head[0] & 0x0f) == 8 && ((head[0] & 0xff) << 8 | (head[1] & 0xff)) % 31 == 0) {
+            return new InflaterInputStream(in);
+        }
+        return in;
+    }
+
+    /**
+     * 读取开头的至多 length 个字节，不改变流的位置
+     */
+    private static byte[] peek(BufferedInputStream in, int length) throws IOException {
+        in.mark(length);
+        try {
+            byte[] head = new byte[length];
+            int read = 0;
+            int n;
+            while (read < length && (n = in.read(head, read, length - read)) != -1) {
+                read += n;
+            }
+            return read == length ? head : Arrays.copyOf(head, read);
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * 根据第一个非空白字符判断是否为JSON数组
+     */
+    private static boolean isJsonArray(BufferedInputStream in) throws IOException {
+        in.mark(BUFFER_SIZE);
+        try {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (!Character.isWhitespace(b)) {
+                    return b == '[';
+                }
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static long scanArray(InputStream in, Consumer<CausalTriple> consumer) throws IOException {
+        long count = 0;
+        try (JsonParser parser = JsonMappers.factory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("结果文件不是JSON数组");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(JsonMappers.mapper().readValue(parser, CausalTriple.class));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long scanLines(InputStream in, Consumer<CausalTriple> consumer) throws IOException {
+        long count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JsonNode node = JsonMappers.mapper().readTree(line);
+            JsonNode triples = node.get("triples");
+            if (triples == null) {
+                if (node.has("cause")) {
+                    consumer.accept(JsonMappers.mapper().treeToValue(node, CausalTriple.class));
+                    count++;
+                }
+                continue;
+            }
+            for (JsonNode triple : triples) {
+                consumer.accept(JsonMappers.mapper().treeToValue(triple, CausalTriple.class));
+                count++;
+            }
+        }
+        return count;
+    }
+}
\ No newline at end of file
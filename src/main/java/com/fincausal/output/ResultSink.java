@@ -0,0 +1,41 @@
+package com.fincausal.output;
+
+import com.fincausal.model.CausalTriple;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 结果输出接口
+ * 以流式方式逐条写出因果三元组，关闭时完成输出并释放底层资源
+ */
+public interface ResultSink extends Closeable {
+
+    /**
+     * 写出一个因果三元组
+     *
+     * @param triple 因果三元组
+     * @throws IOException 写出失败时抛出
+     */
+    void write(CausalTriple triple) throws IOException;
+
+    /**
+     * 写出一批因果三元组
+     *
+     * @param triples 因果三元组列表
+     * @throws IOException 写出失败时抛出
+     */
+    default void writeAll(List<CausalTriple> triples) throws IOException {
+        for (CausalTriple triple : triples) {
+            write(triple);
+        }
+    }
+
+    /**
+     * 将缓冲区中的数据刷新到底层输出
+     *
+     * @throws IOException 刷新失败时抛出
+     */
+    void flush() throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.fincausal.output;
+
+import com.fincausal.storage.ColumnarTripleWriter;
+import com.fincausal.util.ConfigLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+
+/**
+ * 结果输出构建器
+ * 组合输出格式、缩进、压缩方式和缓冲区大小，创建对应的结果输出
+ */
+public class ResultSinkBuilder {
+    private OutputFormat format = OutputFormat.JSON;
+    private boolean prettyPrint = true;
+    private Compression compression = Compression.NONE;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int bufferSize = 64 * 1024;
+    private int columnarBlockSize = ColumnarTripleWriter.DEFAULT_BLOCK_SIZE;
+
+    public ResultSinkBuilder() {
+        // 默认构造函数
+    }
+
+    /**
+     * 根据配置创建构建器
+     */
+    public static ResultSinkBuilder fromConfig() {
+        return new ResultSinkBuilder()
+                .withFormat(OutputFormat.fromString(ConfigLoader.getStringProperty("output.format", "json")))
+                .withPrettyPrint(ConfigLoader.getBooleanProperty("output.pretty.print", true))
+                .withCompression(Compression.fromString(ConfigLoader.getStringProperty("output.compression", "none")))
+                .withCompressionLevel(ConfigLoader.getIntProperty("output.compression.level", Deflater.DEFAULT_COMPRESSION))
+                .withBufferSize(ConfigLoader.getIntProperty("output.buffer.size", 64 * 1024))
+                .withColumnarBlockSize(ConfigLoader.getIntProperty("output.columnar.block.size",
+                        ColumnarTripleWriter.DEFAULT_BLOCK_SIZE));
+    }
+
+    /**
+     * 设置输出格式
+     */
+    public ResultSinkBuilder withFormat(OutputFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * 设置是否缩进输出，关闭后输出紧凑格式
+     */
+    public ResultSinkBuilder withPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+        return this;
+    }
+
+    /**
+     * 设置压缩方式
+     */
+    public ResultSinkBuilder withCompression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * 设置压缩级别（0-9，-1为默认）
+     */
+    public ResultSinkBuilder withCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * 设置缓冲区大小
+     */
+    public ResultSinkBuilder withBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(512, bufferSize);
+        return this;
+    }
+
+    /**
+     * 设置列式格式每块的记录数
+     */
+    public ResultSinkBuilder withColumnarBlockSize(int columnarBlockSize) {
+        this.columnarBlockSize = columnarBlockSize;
+        return this;
+    }
+
+    /**
+     * 输出文件的扩展名：输出格式的扩展名，加上压缩方式的扩展名（列式格式不压缩）
+     */
+    public String getExtension() {
+        if (format == OutputFormat.COLUMNAR) {
+            return format.getExtension();
+        }
+        return format.getExtension() + compression.getExtension();
+    }
+
+    /**
+     * 创建写入文件的结果输出
+     * 通过FileChannel打开文件，并在其上使用较大的写缓冲区
+     *
+     * @param outputPath 输出文件路径
+     * @throws IOException 打开文件失败时抛出
+     */
+    public ResultSink build(String outputPath) throws IOException {
+        Path path = Paths.get(outputPath);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            return build(Channels.newOutputStream(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 创建写入输出流的结果输出，关闭结果输出时会关闭该输出流
+     *
+     * @param out 输出流
+     * @throws IOException 创建失败时抛出
+     */
+    public ResultSink build(OutputStream out) throws IOException {
+        if (format == OutputFormat.COLUMNAR) {
+            // 列式格式自带字典编码，不再叠加通用压缩
+            return new ColumnarTripleWriter(out, columnarBlockSize);
+        }
+        OutputStream stream = new BufferedOutputStream(out, bufferSize);
+        stream = compression.wrap(stream, bufferSize, compressionLevel);
+        return new JsonResultSink(stream, format, prettyPrint);
+    }
+}
\ No newline at end of file
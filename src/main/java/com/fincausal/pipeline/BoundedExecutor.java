@@ -0,0 +1,162 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 限制在途任务数的执行器
+ * 提交任务前先获取许可，在途（排队中和执行中）的任务数达到上限时阻塞提交线程，
+ * 由此把背压传递给调用方，而不是在线程池队列中无限堆积。许可在任务执行结束时释放，
+ * 调用方取消返回的future不会提前释放许可。
+ */
+final class BoundedExecutor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final int threads;
+    private final int maxInFlight;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+    private final boolean ownsExecutor;
+    private volatile ExecutorService executor;
+
+    /**
+     * 构造函数
+     *
+     * @param executor 自定义执行器，为null时在首次提交时按配置创建内部线程池
+     * @param maxInFlight 在途任务上限，小于等于0时按配置
+     */
+    BoundedExecutor(ExecutorService executor, int maxInFlight) {
+        int configuredThreads = ConfigLoader.getIntProperty("pipeline.async.threads", 0);
+        this.threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        if (maxInFlight <= 0) {
+            maxInFlight = ConfigLoader.getIntProperty("pipeline.async.max.inflight", 0);
+        }
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : threads * 2;
+        this.acquireTimeoutMillis = ConfigLoader.getIntProperty("pipeline.async.acquire.timeout.ms", 0);
+        this.permits = new Semaphore(this.maxInFlight, true);
+        this.ownsExecutor = executor == null;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取在途任务上限
+     */
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * 获取当前在途任务数
+     */
+    int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * 提交任务
+     * 在途任务数已达上限时阻塞当前线程；配置了等待上限且超时、或等待时被中断时，
+     * 返回以 {@link RejectedExecutionException} 失败的future
+     *
+     * @param task 任务
+     * @return 任务结果
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            if (!acquire()) {
+                result.completeExceptionally(new RejectedExecutionException(
+                        "在途任务数已达上限 " + maxInFlight + "，等待 " + acquireTimeoutMillis + " 毫秒后超时"));
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(new RejectedExecutionException("等待提交许可时被中断", e));
+            return result;
+        }
+
+        try {
+            executor().execute(() -> {
+                try {
+                    if (!result.isDone()) {
+                        result.complete(task.get());
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private boolean acquire() throws InterruptedException {
+        if (acquireTimeoutMillis <= 0) {
+            permits.acquire();
+            return true;
+        }
+        return permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private ExecutorService executor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    current = createExecutor();
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private ExecutorService createExecutor() {
+        int pool = POOL_COUNTER.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger();
+        logger.info("创建异步处理线程池，线程数: {}，在途任务上限: {}", threads, maxInFlight);
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pipeline-async-" + pool + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 关闭内部线程池并等待在途任务完成，自定义执行器由调用方负责关闭
+     */
+    @Override
+    public void close() {
+        ExecutorService current = executor;
+        if (!ownsExecutor || current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("异步处理线程池未在时限内结束，剩余任务将被中断");
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理时限配置
+ * 在创建管道时读取一次，逐文档创建时限和看门狗时不再读取配置
+ */
+final class DeadlinePolicy {
+
+    private final long timeoutMillis;
+    private final boolean interrupt;
+    private final long interruptGraceNanos;
+
+    /**
+     * 构造函数
+     *
+     * @param timeoutMillis 默认处理时限（毫秒），0表示不限时
+     * @param interrupt 超过时限后是否中断卡住的解析线程
+     * @param interruptGraceMillis 时限之后再等待多久才中断（毫秒）
+     */
+    DeadlinePolicy(long timeoutMillis, boolean interrupt, long interruptGraceMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.interrupt = interrupt;
+        this.interruptGraceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, interruptGraceMillis));
+    }
+
+    /**
+     * 按配置创建：pipeline.timeout.ms、pipeline.timeout.interrupt、pipeline.timeout.interrupt.grace.ms
+     */
+    static DeadlinePolicy fromConfig() {
+        return new DeadlinePolicy(
+                ConfigLoader.getIntProperty("pipeline.timeout.ms", 0),
+                ConfigLoader.getBooleanProperty("pipeline.timeout.interrupt", true),
+                ConfigLoader.getIntProperty("pipeline.timeout.interrupt.grace.ms", 200));
+    }
+
+    /**
+     * 创建从现在起按默认时限到期的实例
+     */
+    Deadline newDeadline() {
+        return Deadline.after(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为当前线程设置看门狗
+     *
+     * @param deadline 处理时限
+     * @return 看门狗，未设置时限或未启用中断时返回null
+     */
+    DeadlineWatchdog arm(Deadline deadline) {
+        if (!interrupt) {
+            return null;
+        }
+        return DeadlineWatchdog.arm(deadline, interruptGraceNanos);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.util.Deadline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理时限看门狗
+ * 协作式检查无法打断卡在单个注释器中的线程，因此在时限加上宽限时间后仍未完成时中断工作线程，
+ * CoreNLP的句法分析器会响应中断并放弃当前句子。并行解析时调用线程只在等待句子任务，
+ * 同时中断登记在时限上的并行解析线程。处理结束时撤销计划并清除残留的中断标记，
+ * 保证线程归还线程池时状态干净。
+ */
+final class DeadlineWatchdog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineWatchdog.class);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "deadline-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int RUNNING = 0;
+    private static final int FINISHED = 1;
+    private static final int INTERRUPTED = 2;
+
+    private final Thread worker;
+    private final Deadline deadline;
+    private final ScheduledFuture<?> future;
+    private int state = RUNNING;
+
+    private DeadlineWatchdog(Thread worker, Deadline deadline, long delayNanos) {
+        this.worker = worker;
+        this.deadline = deadline;
+        this.future = SCHEDULER.schedule(this::interruptWorker, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为当前线程设置看门狗
+     *
+     * @param deadline 处理时限
+     * @param graceNanos 时限之后再等待多久才中断（纳秒）
+     * @return 看门狗，处理结束时必须关闭；未设置时限时返回null
+     */
+    static DeadlineWatchdog arm(Deadline deadline, long graceNanos) {
+        if (!deadline.hasTimeLimit()) {
+            return null;
+        }
+        return new DeadlineWatchdog(Thread.currentThread(), deadline, deadline.remainingNanos() + graceNanos);
+    }
+
+    private synchronized void interruptWorker() {
+        if (state == RUNNING) {
+            state = INTERRUPTED;
+            logger.warn("处理超过时限，中断工作线程: {}", worker.getName());
+            worker.interrupt();
+            deadline.interruptWorkers();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        future.cancel(false);
+        if (state == INTERRUPTED) {
+            // 清除看门狗设置的中断标记
+            Thread.interrupted();
+        }
+        state = FINISHED;
+    }
+}
\ No newline at end of file
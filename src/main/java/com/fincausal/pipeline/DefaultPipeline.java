@@ -1,17 +1,31 @@
 package com.fincausal.pipeline;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fincausal.dedup.NearDuplicateDetector;
+import com.fincausal.dedup.PhraseClusterer;
+import com.fincausal.metrics.PipelineMetrics;
 import com.fincausal.model.CausalTriple;
 import com.fincausal.model.Document;
+import com.fincausal.model.Sentence;
+import com.fincausal.output.ResultSink;
+import com.fincausal.output.ResultSinkBuilder;
 import com.fincausal.processor.*;
+import com.fincausal.trace.Trace;
+import com.fincausal.trace.Tracer;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 默认管道实现
@@ -20,11 +34,33 @@ import java.util.List;
 public class DefaultPipeline implements Pipeline {
     private static final Logger logger = LoggerFactory.getLogger(DefaultPipeline.class);
     
+    // 截断计数器名称前缀，后接截断原因
+    private static final String TRUNCATED_PREFIX = "pipeline.truncated.";
+    
+    // 异步提交被拒绝（等待许可超时或被中断）的计数器名称
+    private static final String ASYNC_REJECTED = "pipeline.async.rejected";
+    
+    // 各处理阶段，按执行顺序排列
+    static final String[] STAGES = {
+            PipelineMetrics.PREPROCESS,
+            PipelineMetrics.PARSE,
+            PipelineMetrics.EXTRACT,
+            PipelineMetrics.TEMPORAL,
+            PipelineMetrics.FINANCIAL
+    };
+    
     private final TextPreprocessor preprocessor;
     private final NLPParser parser;
     private final CausalRelationExtractor causalExtractor;
     private final TemporalProcessor temporalProcessor;
     private final FinancialDomainAdapter financialDomainAdapter;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final PhraseClusterer phraseClusterer;
+    private final PipelineMetrics metrics;
+    private final BoundedExecutor asyncExecutor;
+    private final SentenceSplitter sentenceSplitter;
+    private final Tracer tracer;
+    private final DeadlinePolicy deadlinePolicy;
     
     /**
      * 构造函数
@@ -35,50 +71,400 @@ public class DefaultPipeline implements Pipeline {
             CausalRelationExtractor causalExtractor,
             TemporalProcessor temporalProcessor,
             FinancialDomainAdapter financialDomainAdapter) {
+        this(preprocessor, parser, causalExtractor, temporalProcessor, financialDomainAdapter, null);
+    }
+    
+    /**
+     * 构造函数（带近似重复检测）
+     * 
+     * @param nearDuplicateDetector 近似重复检测器，为null时不进行检测
+     */
+    public DefaultPipeline(
+            TextPreprocessor preprocessor,
+            NLPParser parser,
+            CausalRelationExtractor causalExtractor,
+            TemporalProcessor temporalProcessor,
+            FinancialDomainAdapter financialDomainAdapter,
+            NearDuplicateDetector nearDuplicateDetector) {
+        this(preprocessor, parser, causalExtractor, temporalProcessor, financialDomainAdapter,
+                nearDuplicateDetector, PipelineMetrics.fromConfig());
+    }
+    
+    /**
+     * 构造函数（带近似重复检测和运行指标）
+     * 
+     * @param nearDuplicateDetector 近似重复检测器，为null时不进行检测
+     * @param metrics 各阶段运行指标
+     */
+    public DefaultPipeline(
+            TextPreprocessor preprocessor,
+            NLPParser parser,
+            CausalRelationExtractor causalExtractor,
+            TemporalProcessor temporalProcessor,
+            FinancialDomainAdapter financialDomainAdapter,
+            NearDuplicateDetector nearDuplicateDetector,
+            PipelineMetrics metrics) {
+        this(preprocessor, parser, causalExtractor, temporalProcessor, financialDomainAdapter,
+                nearDuplicateDetector, null, metrics, new BoundedExecutor(null, 0), null);
+    }
+    
+    /**
+     * 构造函数（带短语聚类、异步执行器和快速模式分句器）
+     * 
+     * @param phraseClusterer 短语聚类，为null时不设置簇编号
+     * @param asyncExecutor 异步处理使用的执行器
+     * @param sentenceSplitter 快速模式的分句器，不为null时以标点分句代替NLP解析，只做模式匹配抽取
+     */
+    DefaultPipeline(
+            TextPreprocessor preprocessor,
+            NLPParser parser,
+            CausalRelationExtractor causalExtractor,
+            TemporalProcessor temporalProcessor,
+            FinancialDomainAdapter financialDomainAdapter,
+            NearDuplicateDetector nearDuplicateDetector,
+            PhraseClusterer phraseClusterer,
+            PipelineMetrics metrics,
+            BoundedExecutor asyncExecutor,
+            SentenceSplitter sentenceSplitter) {
+        this(preprocessor, parser, causalExtractor, temporalProcessor, financialDomainAdapter,
+                nearDuplicateDetector, phraseClusterer, metrics, asyncExecutor, sentenceSplitter, Tracer.fromConfig(),
+                DeadlinePolicy.fromConfig());
+    }
+    
+    private DefaultPipeline(
+            TextPreprocessor preprocessor,
+            NLPParser parser,
+            CausalRelationExtractor causalExtractor,
+            TemporalProcessor temporalProcessor,
+            FinancialDomainAdapter financialDomainAdapter,
+            NearDuplicateDetector nearDuplicateDetector,
+            PhraseClusterer phraseClusterer,
+            PipelineMetrics metrics,
+            BoundedExecutor asyncExecutor,
+            SentenceSplitter sentenceSplitter,
+            Tracer tracer,
+            DeadlinePolicy deadlinePolicy) {
         this.preprocessor = preprocessor;
         this.parser = parser;
         this.causalExtractor = causalExtractor;
         this.temporalProcessor = temporalProcessor;
         this.financialDomainAdapter = financialDomainAdapter;
+        this.nearDuplicateDetector = nearDuplicateDetector;
+        this.phraseClusterer = phraseClusterer;
+        this.metrics = metrics;
+        this.asyncExecutor = asyncExecutor;
+        this.sentenceSplitter = sentenceSplitter;
+        this.tracer = tracer;
+        this.deadlinePolicy = deadlinePolicy;
+    }
+    
+    /**
+     * 创建用于预热的副本：共享各处理器，不做近似重复检测和短语聚类，不记录运行指标和慢文档
+     * 副本拥有独立的异步执行器，使用完毕后由调用方关闭
+     */
+    DefaultPipeline warmupCopy() {
+        return new DefaultPipeline(preprocessor, parser, causalExtractor, temporalProcessor, financialDomainAdapter,
+                null, null, PipelineMetrics.disabled(), new BoundedExecutor(null, 0), sentenceSplitter,
+                new Tracer(ConfigLoader.getBooleanProperty("trace.enabled", true), null), deadlinePolicy);
+    }
+    
+    /**
+     * 获取各阶段运行指标
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * 按创建管道时读取的 pipeline.timeout.ms 创建处理时限
+     */
+    Deadline newDeadline() {
+        return deadlinePolicy.newDeadline();
     }
     
     @Override
     public List<CausalTriple> process(String text) {
-        logger.info("开始处理文本，长度: {} 字符", text.length());
-        
-        // 1. 文本预处理
+        return process(text, newDeadline()).getTriples();
+    }
+    
+    /**
+     * 在时限内处理文本
+     * 时限主要约束NLP解析：解析在每个句子之前检查时限，到期后停止解析剩余句子。
+     * 之后各阶段的开销与已解析的句子数成正比，仍对已解析的句子执行，以返回完整标注的部分结果。
+     * 取消标记在各阶段之间检查，被取消时立即返回已得到的结果。
+     */
+    @Override
+    public ProcessingResult process(String text, Deadline deadline) {
+        DocumentJob job = begin(text, deadline);
+        try {
+            for (String stage : STAGES) {
+                if (!runStage(job, stage)) {
+                    break;
+                }
+            }
+            return job.getResult();
+        } finally {
+            end(job);
+        }
+    }
+    
+    @Override
+    public CompletableFuture<List<CausalTriple>> processAsync(String text) {
+        CompletableFuture<List<CausalTriple>> future = asyncExecutor.submit(() -> process(text));
+        // 拒绝可能在提交时同步发生，也可能在线程池关闭后异步发生，两种情况都要计数
+        future.whenComplete((triples, e) -> {
+            if (e instanceof RejectedExecutionException) {
+                metrics.increment(ASYNC_REJECTED);
+                logger.warn("异步处理请求被拒绝: {}", e.getMessage());
+            }
+        });
+        return future;
+    }
+    
+    @Override
+    public CompletableFuture<List<List<CausalTriple>>> processAll(Iterable<String> texts) {
+        return collectAll(texts, this::processAsync);
+    }
+    
+    /**
+     * 逐个提交文本并按输入顺序汇总结果，某个文本的提交已失败时不再提交剩余文本
+     */
+    static CompletableFuture<List<List<CausalTriple>>> collectAll(
+            Iterable<String> texts, Function<String, CompletableFuture<List<CausalTriple>>> submitter) {
+        List<CompletableFuture<List<CausalTriple>>> futures = new ArrayList<>();
+        for (String text : texts) {
+            CompletableFuture<List<CausalTriple>> future = submitter.apply(text);
+            futures.add(future);
+            if (future.isCompletedExceptionally()) {
+                break;
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+    
+    /**
+     * 开始处理一个文档，在当前线程上开始追踪
+     * 快速模式每个文档只需几十微秒，不生成追踪ID、不写入日志MDC、不检查慢文档，
+     * 各阶段耗时仍计入运行指标
+     */
+    DocumentJob begin(String text, Deadline deadline) {
+        Trace trace = sentenceSplitter != null ? null : tracer.begin();
+        logger.debug("开始处理文本，长度: {} 字符", text.length());
+        return new DocumentJob(text, deadline, trace);
+    }
+    
+    /**
+     * 结束文档处理，结束追踪并按需写入慢文档日志
+     */
+    void end(DocumentJob job) {
+        tracer.end(job.getTrace(), job.getText());
+    }
+    
+    /**
+     * 执行文档的一个处理阶段
+     * 阶段按 STAGES 的顺序执行；处理提前结束（近似重复命中、截断）或最后一个阶段完成时，
+     * 处理结果写入 job 并返回false
+     * 
+     * @param job 文档处理状态
+     * @param stage 阶段名称
+     * @return 是否需要继续执行后续阶段
+     */
+    boolean runStage(DocumentJob job, String stage) {
+        try {
+            switch (stage) {
+                case PipelineMetrics.PREPROCESS:
+                    preprocess(job);
+                    break;
+                case PipelineMetrics.PARSE:
+                    parse(job);
+                    break;
+                case PipelineMetrics.EXTRACT:
+                    extract(job);
+                    break;
+                case PipelineMetrics.TEMPORAL:
+                    processTemporal(job);
+                    break;
+                case PipelineMetrics.FINANCIAL:
+                    adaptFinancial(job);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的处理阶段: " + stage);
+            }
+            return !job.isFinished();
+        } catch (RuntimeException e) {
+            metrics.stage(stage).error();
+            metrics.stage(PipelineMetrics.TOTAL).error();
+            throw e;
+        }
+    }
+    
+    // 1. 文本预处理
+    private void preprocess(DocumentJob job) {
+        String text = job.getText();
+        long start = System.nanoTime();
         String preprocessedText = preprocessor.preprocess(text);
+        finishStage(job.getTrace(), PipelineMetrics.PREPROCESS, start, text.length(), preprocessedText.length());
+        job.setPreprocessedText(preprocessedText);
         logger.debug("预处理完成，处理后文本长度: {} 字符", preprocessedText.length());
         
-        // 2. NLP解析
-        Document document = parser.parse(preprocessedText);
+        // 近似重复检测：命中时直接复用已有结果，跳过后续处理
+        if (nearDuplicateDetector != null) {
+            Long fingerprint = nearDuplicateDetector.fingerprint(preprocessedText);
+            job.setFingerprint(fingerprint);
+            List<CausalTriple> duplicateTriples = nearDuplicateDetector.lookup(fingerprint);
+            if (duplicateTriples != null) {
+                logger.info("检测到近似重复文档，复用已有结果，共 {} 个因果关系", duplicateTriples.size());
+                if (phraseClusterer != null) {
+                    phraseClusterer.assign(duplicateTriples);
+                }
+                complete(job, duplicateTriples);
+            }
+        }
+    }
+    
+    // 2. NLP解析，看门狗只在这一阶段设置，用于打断卡住的注释器；快速模式下只按标点分句
+    private void parse(DocumentJob job) {
+        Deadline deadline = job.getDeadline();
+        if (deadline.isExpired()) {
+            truncate(job, Collections.emptyList(), PipelineMetrics.PARSE);
+            return;
+        }
+        String preprocessedText = job.getPreprocessedText();
+        Document document;
+        long start = System.nanoTime();
+        if (sentenceSplitter != null) {
+            document = sentenceSplitter.split(preprocessedText);
+        } else {
+            DeadlineWatchdog watchdog = deadlinePolicy.arm(deadline);
+            try {
+                document = parser.parse(preprocessedText, deadline);
+            } finally {
+                // 未启用中断时不设置看门狗
+                if (watchdog != null) {
+                    watchdog.close();
+                }
+            }
+        }
+        finishStage(job.getTrace(), PipelineMetrics.PARSE, start, preprocessedText.length(), document.getSentences().size());
+        for (Sentence sentence : document.getSentences()) {
+            metrics.increment(PipelineMetrics.PARSE_ROUTE_PREFIX + sentence.getParseRoute().name().toLowerCase(Locale.ROOT));
+        }
+        job.setDocument(document);
         logger.debug("NLP解析完成，解析出 {} 个句子", document.getSentences().size());
-        
-        // 3. 提取因果关系
+    }
+    
+    // 3. 提取因果关系
+    private void extract(DocumentJob job) {
+        if (job.getDeadline().isCancelled()) {
+            truncate(job, Collections.emptyList(), PipelineMetrics.EXTRACT);
+            return;
+        }
+        Document document = job.getDocument();
+        long start = System.nanoTime();
         List<CausalTriple> causalTriples = causalExtractor.extract(document);
+        if (sentenceSplitter != null) {
+            for (CausalTriple triple : causalTriples) {
+                triple.setExtractionMode(CausalTriple.EXTRACTION_MODE_FAST);
+            }
+        }
+        finishStage(job.getTrace(), PipelineMetrics.EXTRACT, start, document.getSentences().size(), causalTriples.size());
+        job.setTriples(causalTriples);
         logger.debug("因果关系提取完成，共提取 {} 个因果关系", causalTriples.size());
-        
-        // 4. 时序处理
-        causalTriples = temporalProcessor.process(causalTriples, document);
+    }
+    
+    // 4. 时序处理
+    private void processTemporal(DocumentJob job) {
+        List<CausalTriple> causalTriples = job.getTriples();
+        if (job.getDeadline().isCancelled()) {
+            truncate(job, causalTriples, PipelineMetrics.TEMPORAL);
+            return;
+        }
+        long start = System.nanoTime();
+        causalTriples = temporalProcessor.process(causalTriples, job.getDocument());
+        finishStage(job.getTrace(), PipelineMetrics.TEMPORAL, start, job.getTriples().size(), causalTriples.size());
+        job.setTriples(causalTriples);
         logger.debug("时序处理完成，处理后共 {} 个因果关系", causalTriples.size());
-        
-        // 5. 金融领域适配
+    }
+    
+    // 5. 金融领域适配
+    private void adaptFinancial(DocumentJob job) {
+        List<CausalTriple> causalTriples = job.getTriples();
+        if (job.getDeadline().isCancelled()) {
+            truncate(job, causalTriples, PipelineMetrics.FINANCIAL);
+            return;
+        }
+        Document document = job.getDocument();
+        long start = System.nanoTime();
         causalTriples = financialDomainAdapter.adapt(causalTriples, document);
+        finishStage(job.getTrace(), PipelineMetrics.FINANCIAL, start, job.getTriples().size(), causalTriples.size());
         logger.debug("金融领域适配完成，最终共 {} 个因果关系", causalTriples.size());
         
-        return causalTriples;
+        if (document.isTruncated()) {
+            truncate(job, causalTriples, PipelineMetrics.PARSE);
+            return;
+        }
+        if (phraseClusterer != null) {
+            phraseClusterer.assign(causalTriples);
+        }
+        if (nearDuplicateDetector != null) {
+            nearDuplicateDetector.record(job.getFingerprint(), causalTriples);
+        }
+        complete(job, causalTriples);
+    }
+    
+    /**
+     * 以完整结果结束处理
+     */
+    private void complete(DocumentJob job, List<CausalTriple> causalTriples) {
+        finishStage(job.getTrace(), PipelineMetrics.TOTAL, job.getStartNanos(), 1, causalTriples.size());
+        job.finish(ProcessingResult.complete(causalTriples));
+    }
+    
+    /**
+     * 以截断的结果结束处理
+     */
+    private void truncate(DocumentJob job, List<CausalTriple> causalTriples, String stage) {
+        Deadline deadline = job.getDeadline();
+        ProcessingResult.TruncationReason reason = deadline.isCancelled()
+                ? ProcessingResult.TruncationReason.CANCELLED : ProcessingResult.TruncationReason.TIMEOUT;
+        logger.warn("处理在阶段 {} 被截断（{}），返回 {} 个因果关系", stage, reason, causalTriples.size());
+        metrics.increment(TRUNCATED_PREFIX + reason.name().toLowerCase(Locale.ROOT));
+        finishStage(job.getTrace(), PipelineMetrics.TOTAL, job.getStartNanos(), 1, causalTriples.size());
+        job.finish(ProcessingResult.truncated(causalTriples, reason, stage));
+    }
+    
+    /**
+     * 记录阶段耗时到运行指标和当前追踪
+     */
+    private void finishStage(Trace trace, String stage, long startNanos, long inputCount, long outputCount) {
+        long durationNanos = System.nanoTime() - startNanos;
+        metrics.stage(stage).record(durationNanos, inputCount, outputCount);
+        if (trace != null) {
+            trace.addSpan(stage, startNanos, durationNanos);
+        }
     }
     
     @Override
     public void outputResults(List<CausalTriple> causalTriples, String outputPath) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.enable(SerializationFeature.INDENT_OUTPUT);
-            mapper.writeValue(new File(outputPath), causalTriples);
-            logger.info("结果已保存至: {}", outputPath);
+        try (ResultSink sink = ResultSinkBuilder.fromConfig().build(outputPath)) {
+            sink.writeAll(causalTriples);
         } catch (IOException e) {
             logger.error("保存结果时发生错误: {}", e.getMessage());
             throw new RuntimeException("保存结果失败", e);
         }
+        logger.info("结果已保存至: {}", outputPath);
+    }
+    
+    @Override
+    public void checkpoint() throws IOException {
+        if (phraseClusterer != null) {
+            phraseClusterer.checkpoint();
+        }
+    }
+
+    @Override
+    public void close() {
+        asyncExecutor.close();
     }
 }
\ No newline at end of file
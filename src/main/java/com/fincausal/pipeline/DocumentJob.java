@@ -0,0 +1,101 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.model.Document;
+import com.fincausal.trace.Trace;
+import com.fincausal.util.Deadline;
+
+import java.util.List;
+
+/**
+ * 单个文档在管道各阶段之间传递的处理状态
+ * 同一时刻只由一个线程访问；分阶段执行时通过线程池队列交接，交接本身保证了可见性
+ */
+final class DocumentJob {
+    private final String text;
+    private final Deadline deadline;
+    private final Trace trace;
+    private final long startNanos;
+
+    private String preprocessedText;
+    private Long fingerprint;
+    private Document document;
+    private List<CausalTriple> triples;
+    private ProcessingResult result;
+
+    DocumentJob(String text, Deadline deadline, Trace trace) {
+        this.text = text;
+        this.deadline = deadline;
+        this.trace = trace;
+        this.startNanos = System.nanoTime();
+    }
+
+    String getText() {
+        return text;
+    }
+
+    Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * 获取文档追踪，未启用追踪时为null
+     */
+    Trace getTrace() {
+        return trace;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    String getPreprocessedText() {
+        return preprocessedText;
+    }
+
+    void setPreprocessedText(String preprocessedText) {
+        this.preprocessedText = preprocessedText;
+    }
+
+    /**
+     * 获取预处理后文本的SimHash指纹，未启用近似重复检测或文本为空时为null
+     */
+    Long getFingerprint() {
+        return fingerprint;
+    }
+
+    void setFingerprint(Long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    Document getDocument() {
+        return document;
+    }
+
+    void setDocument(Document document) {
+        this.document = document;
+    }
+
+    List<CausalTriple> getTriples() {
+        return triples;
+    }
+
+    void setTriples(List<CausalTriple> triples) {
+        this.triples = triples;
+    }
+
+    /**
+     * 获取处理结果，处理尚未结束时为null
+     */
+    ProcessingResult getResult() {
+        return result;
+    }
+
+    void finish(ProcessingResult result) {
+        this.result = result;
+    }
+
+    boolean isFinished() {
+        return result != null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 后台补全结果的接收者
+ * 分级处理时，快速模式的结果立即返回，完整解析补全后的结果通过该接口发布。
+ * 回调在后台补全线程中调用，实现需要是线程安全的
+ */
+public interface EnrichmentListener {
+
+    /**
+     * 文档完成完整解析补全
+     *
+     * @param documentId 文档编号
+     * @param triples 补全并去重后的全部因果三元组
+     */
+    void onEnriched(String documentId, List<CausalTriple> triples);
+
+    /**
+     * 文档补全失败，快速模式的结果仍然有效
+     *
+     * @param documentId 文档编号
+     * @param error 失败原因
+     */
+    default void onFailed(String documentId, Exception error) {
+    }
+
+    /**
+     * 将补全结果写入结果输出，每个文档写完后刷新
+     *
+     * @param sink 结果输出，由调用方负责关闭
+     */
+    static EnrichmentListener toSink(ResultSink sink) {
+        return (documentId, triples) -> {
+            synchronized (sink) {
+                try {
+                    sink.writeAll(triples);
+                    sink.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -1,14 +1,17 @@
 package com.fincausal.pipeline;
 
 import com.fincausal.model.CausalTriple;
+import com.fincausal.util.Deadline;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 处理管道接口
  * 定义了文本处理和因果关系提取的基本流程
  */
-public interface Pipeline {
+public interface Pipeline extends AutoCloseable {
     
     /**
      * 处理文本并提取因果关系
@@ -18,6 +21,35 @@ public interface Pipeline {
      */
     List<CausalTriple> process(String text);
     
+    /**
+     * 在时限内处理文本并提取因果关系
+     * 在句子之间和阶段之间检查时限和取消标记，到期时返回已得到的部分结果并标记为截断
+     * 
+     * @param text 输入文本
+     * @param deadline 处理时限，可在其他线程中取消
+     * @return 处理结果
+     */
+    ProcessingResult process(String text, Deadline deadline);
+    
+    /**
+     * 异步处理文本并提取因果关系
+     * 在途任务数达到上限时阻塞调用线程，直到有任务完成
+     * 
+     * @param text 输入文本
+     * @return 提取的因果三元组列表
+     */
+    CompletableFuture<List<CausalTriple>> processAsync(String text);
+    
+    /**
+     * 批量异步处理文本
+     * 在调用线程中逐个提交，在途任务数达到上限时暂停提交，结果顺序与输入顺序一致；
+     * 任一文本处理失败时返回的future以该异常失败
+     * 
+     * @param texts 输入文本
+     * @return 每个文本提取的因果三元组列表
+     */
+    CompletableFuture<List<List<CausalTriple>>> processAll(Iterable<String> texts);
+    
     /**
      * 将提取的因果关系输出到指定文件
      * 
@@ -25,4 +57,20 @@ public interface Pipeline {
      * @param outputPath 输出文件路径
      */
     void outputResults(List<CausalTriple> causalTriples, String outputPath);
+    
+    /**
+     * 持久化处理过程中增长、且被输出结果引用的状态（如短语聚类索引）
+     * 调用方在记录检查点（读取位置、检查点日志等）之前调用，重启后检查点之前写出的结果仍然有效
+     * 
+     * @throws IOException 持久化失败时抛出，调用方不应记录检查点
+     */
+    default void checkpoint() throws IOException {
+    }
+    
+    /**
+     * 释放管道持有的资源（异步处理线程池等）
+     */
+    @Override
+    default void close() {
+    }
 }
\ No newline at end of file
@@ -1,6 +1,12 @@
 package com.fincausal.pipeline;
 
+import com.fincausal.dedup.NearDuplicateDetector;
+import com.fincausal.dedup.PhraseClusterer;
+import com.fincausal.metrics.PipelineMetrics;
 import com.fincausal.processor.*;
+import com.fincausal.util.ConfigLoader;
+
+import java.util.concurrent.ExecutorService;
 
 /**
  * 管道构建器
@@ -12,6 +18,15 @@ public class PipelineBuilder {
     private CausalRelationExtractor causalExtractor;
     private TemporalProcessor temporalProcessor;
     private FinancialDomainAdapter financialDomainAdapter;
+    private NearDuplicateDetector nearDuplicateDetector;
+    private PhraseClusterer phraseClusterer;
+    private PipelineMetrics metrics;
+    private ExecutorService asyncExecutor;
+    private int maxInFlight;
+    private boolean staged = ConfigLoader.getBooleanProperty("pipeline.staged.enabled", false);
+    private boolean fast = ConfigLoader.getBooleanProperty("pipeline.fast.enabled", false);
+    private boolean defaultParser;
+    private EnrichmentListener enrichmentListener;
     
     public PipelineBuilder() {
         // 默认构造函数
@@ -34,10 +49,10 @@ public class PipelineBuilder {
     }
     
     /**
-     * 添加NLP解析器
+     * 添加NLP解析器，解析器在构建时创建，快速模式下不创建
      */
     public PipelineBuilder withParser() {
-        this.parser = new NLPParser();
+        this.defaultParser = true;
         return this;
     }
     
@@ -46,6 +61,16 @@ public class PipelineBuilder {
      */
     public PipelineBuilder withParser(NLPParser parser) {
         this.parser = parser;
+        this.defaultParser = false;
+        return this;
+    }
+    
+    /**
+     * 使用快速模式：不经CoreNLP解析，按标点分句后只做模式匹配抽取，再进行时序处理和金融领域适配；
+     * 抽取的三元组标记为 extraction_mode=fast。未指定时按配置
+     */
+    public PipelineBuilder withFastMode(boolean fast) {
+        this.fast = fast;
         return this;
     }
     
@@ -97,16 +122,136 @@ public class PipelineBuilder {
         return this;
     }
     
+    /**
+     * 添加近似重复检测器
+     */
+    public PipelineBuilder withNearDuplicateDetector() {
+        this.nearDuplicateDetector = new NearDuplicateDetector();
+        return this;
+    }
+    
+    /**
+     * 添加自定义近似重复检测器
+     */
+    public PipelineBuilder withNearDuplicateDetector(NearDuplicateDetector detector) {
+        this.nearDuplicateDetector = detector;
+        return this;
+    }
+    
+    /**
+     * 添加短语聚类，为每个三元组的原因和结果设置簇编号
+     */
+    public PipelineBuilder withPhraseClusterer() {
+        this.phraseClusterer = new PhraseClusterer();
+        return this;
+    }
+    
+    /**
+     * 添加自定义短语聚类
+     */
+    public PipelineBuilder withPhraseClusterer(PhraseClusterer clusterer) {
+        this.phraseClusterer = clusterer;
+        return this;
+    }
+    
+    /**
+     * 使用自定义的运行指标，未指定时按配置创建
+     */
+    public PipelineBuilder withMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+    
+    /**
+     * 使用自定义执行器处理异步请求，执行器由调用方负责关闭；未指定时按配置创建内部线程池
+     */
+    public PipelineBuilder withAsyncExecutor(ExecutorService executor) {
+        this.asyncExecutor = executor;
+        return this;
+    }
+    
+    /**
+     * 设置异步处理的在途任务上限，未指定时按配置
+     */
+    public PipelineBuilder withMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+    
+    /**
+     * 使用分阶段执行：各阶段拥有独立的工作线程池，以有界队列相连，未指定时按配置
+     */
+    public PipelineBuilder withStagedExecution(boolean staged) {
+        this.staged = staged;
+        return this;
+    }
+    
+    /**
+     * 使用分级处理：快速模式的结果立即返回，完整解析补全后的结果在后台完成后发布给listener
+     * 分级处理自带后台补全线程池，不能与分阶段执行同时使用
+     */
+    public PipelineBuilder withEnrichment(EnrichmentListener listener) {
+        this.enrichmentListener = listener;
+        return this;
+    }
+    
     /**
      * 构建处理管道
+     *
+     * @throws IllegalStateException 同时启用了分级处理和分阶段执行
      */
     public Pipeline build() {
-        return new DefaultPipeline(
+        if (enrichmentListener != null && staged) {
+            throw new IllegalStateException(
+                    "分级处理不支持分阶段执行，请调用 withStagedExecution(false) 或关闭 pipeline.staged.enabled");
+        }
+        PipelineMetrics pipelineMetrics = metrics != null ? metrics : PipelineMetrics.fromConfig();
+        
+        // 分级处理：快速管道的指标由分级管道统一记录，避免与完整解析的各阶段指标混在一起
+        if (enrichmentListener != null) {
+            DefaultPipeline fastPipeline = new DefaultPipeline(
+                    preprocessor,
+                    null,
+                    causalExtractor,
+                    temporalProcessor,
+                    financialDomainAdapter,
+                    null,
+                    phraseClusterer,
+                    PipelineMetrics.disabled(),
+                    new BoundedExecutor(asyncExecutor, maxInFlight),
+                    new SentenceSplitter()
+            );
+            DefaultPipeline fullPipeline = new DefaultPipeline(
+                    preprocessor,
+                    parser != null ? parser : new NLPParser(),
+                    causalExtractor,
+                    temporalProcessor,
+                    financialDomainAdapter,
+                    nearDuplicateDetector,
+                    phraseClusterer,
+                    pipelineMetrics,
+                    new BoundedExecutor(null, 0),
+                    null
+            );
+            return new TieredPipeline(fastPipeline, fullPipeline, enrichmentListener);
+        }
+        
+        NLPParser nlpParser = parser;
+        if (nlpParser == null && defaultParser && !fast) {
+            nlpParser = new NLPParser();
+        }
+        DefaultPipeline pipeline = new DefaultPipeline(
                 preprocessor,
-                parser,
+                fast ? null : nlpParser,
                 causalExtractor,
                 temporalProcessor,
-                financialDomainAdapter
+                financialDomainAdapter,
+                nearDuplicateDetector,
+                phraseClusterer,
+                pipelineMetrics,
+                new BoundedExecutor(asyncExecutor, maxInFlight),
+                fast ? new SentenceSplitter() : null
         );
+        return staged ? new StagedPipeline(pipeline) : pipeline;
     }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 管道预热
+ * 启动后按轮次把预热语料送入管道的全部阶段，直到每个文档的平均耗时趋于稳定，
+ * 使JIT在接收请求之前完成热点路径的编译。
+ * 预热使用与原管道共享处理器的副本，不做近似重复检测，不记录运行指标和慢文档
+ */
+public class PipelineWarmer {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineWarmer.class);
+
+    // 默认预热语料（类路径资源）
+    public static final String DEFAULT_CORPUS = "warmup/financial_corpus.txt";
+
+    private final List<String> corpus;
+    private final int minRounds;
+    private final int maxRounds;
+    private final long maxMillis;
+    private final double tolerance;
+    private final int stableRounds;
+    private volatile boolean ready;
+
+    /**
+     * 构造函数
+     *
+     * @param corpus 预热文档
+     * @param minRounds 最少轮数
+     * @param maxRounds 最多轮数，达到后即使耗时未稳定也结束预热
+     * @param maxMillis 预热的最长时间（毫秒），0表示不限制
+     * @param tolerance 一轮的平均耗时比此前最快一轮降低不超过该比例时视为稳定
+     * @param stableRounds 连续稳定的轮数达到该值时结束预热
+     */
+    public PipelineWarmer(List<String> corpus, int minRounds, int maxRounds, long maxMillis,
+                          double tolerance, int stableRounds) {
+        this.corpus = new ArrayList<>(corpus);
+        this.minRounds = Math.max(1, minRounds);
+        this.maxRounds = Math.max(this.minRounds, maxRounds);
+        this.maxMillis = maxMillis;
+        this.tolerance = tolerance;
+        this.stableRounds = Math.max(1, stableRounds);
+    }
+
+    /**
+     * 按配置创建：warmup.corpus、warmup.rounds.min、warmup.rounds.max、warmup.max.time.ms、
+     * warmup.stable.tolerance、warmup.stable.rounds
+     */
+    public static PipelineWarmer fromConfig() {
+        return new PipelineWarmer(
+                loadCorpus(ConfigLoader.getStringProperty("warmup.corpus", DEFAULT_CORPUS)),
+                ConfigLoader.getIntProperty("warmup.rounds.min", 5),
+                ConfigLoader.getIntProperty("warmup.rounds.max", 50),
+                ConfigLoader.getIntProperty("warmup.max.time.ms", 120000),
+                ConfigLoader.getDoubleProperty("warmup.stable.tolerance", 0.1),
+                ConfigLoader.getIntProperty("warmup.stable.rounds", 5));
+    }
+
+    /**
+     * 加载预热语料，每行一个文档，#开头的行为注释
+     * 首先尝试从文件系统加载，不存在时从类路径加载
+     *
+     * @param path 语料路径
+     * @return 预热文档，加载失败时为空
+     */
+    public static List<String> loadCorpus(String path) {
+        List<String> documents = new ArrayList<>();
+        try {
+            BufferedReader reader;
+            if (Files.exists(Paths.get(path))) {
+                reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+            } else {
+                InputStream is = PipelineWarmer.class.getClassLoader().getResourceAsStream(path);
+                if (is == null) {
+                    logger.warn("预热语料不存在: {}", path);
+                    return documents;
+                }
+                reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            }
+            try (BufferedReader in = reader) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        documents.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("加载预热语料时发生错误: {}, {}", path, e.getMessage());
+        }
+        return documents;
+    }
+
+    /**
+     * 预热管道，结束后标记为就绪
+     * 预热中的异常只记录日志，不影响就绪状态
+     *
+     * @param pipeline 待预热的管道
+     * @return 预热结果
+     */
+    public Result warmUp(Pipeline pipeline) {
+        List<Pipeline> targets = targets(pipeline);
+        long start = System.nanoTime();
+        List<Double> roundMillis = new ArrayList<>();
+        double best = Double.MAX_VALUE;
+        int stable = 0;
+        boolean converged = false;
+        try {
+            while (!corpus.isEmpty() && roundMillis.size() < maxRounds) {
+                double perDocument = runRound(targets);
+                // 比历史最快一轮明显更快说明编译仍在进行，否则（包括GC等造成的偶发变慢）计为一轮稳定
+                if (!roundMillis.isEmpty()) {
+                    stable = perDocument < best * (1 - tolerance) ? 0 : stable + 1;
+                }
+                best = Math.min(best, perDocument);
+                roundMillis.add(perDocument);
+                logger.debug("预热第 {} 轮，平均每文档 {} ms", roundMillis.size(), String.format("%.2f", perDocument));
+                if (roundMillis.size() >= minRounds && stable >= stableRounds) {
+                    converged = true;
+                    break;
+                }
+                if (maxMillis > 0 && (System.nanoTime() - start) / 1_000_000 >= maxMillis) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("预热管道时发生错误: {}", e.getMessage());
+        } finally {
+            // 关闭预热副本，原管道由调用方管理
+            for (Pipeline target : targets) {
+                if (target != pipeline) {
+                    target.close();
+                }
+            }
+        }
+        Result result = new Result(roundMillis, roundMillis.size() * corpus.size() * targets.size(),
+                (System.nanoTime() - start) / 1_000_000, converged);
+        if (converged || corpus.isEmpty()) {
+            logger.info("管道预热完成: {}", result);
+        } else {
+            logger.warn("管道预热结束但耗时未稳定: {}", result);
+        }
+        ready = true;
+        return result;
+    }
+
+    /**
+     * 是否已完成预热
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 运行一轮预热，返回平均每文档耗时（毫秒）
+     */
+    private double runRound(List<Pipeline> targets) {
+        long start = System.nanoTime();
+        for (Pipeline target : targets) {
+            for (String document : corpus) {
+                target.process(document, Deadline.none());
+            }
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / (corpus.size() * targets.size());
+    }
+
+    /**
+     * 预热使用的管道：内置管道换成不产生副作用的副本，其他实现直接使用原管道
+     */
+    private static List<Pipeline> targets(Pipeline pipeline) {
+        if (pipeline instanceof DefaultPipeline) {
+            return Collections.singletonList(((DefaultPipeline) pipeline).warmupCopy());
+        }
+        if (pipeline instanceof StagedPipeline) {
+            return Collections.singletonList(((StagedPipeline) pipeline).getPipeline().warmupCopy());
+        }
+        if (pipeline instanceof TieredPipeline) {
+            TieredPipeline tiered = (TieredPipeline) pipeline;
+            List<Pipeline> targets = new ArrayList<>();
+            targets.add(tiered.getFastPipeline().warmupCopy());
+            targets.add(tiered.getFullPipeline().warmupCopy());
+            return targets;
+        }
+        return Collections.singletonList(pipeline);
+    }
+
+    /**
+     * 预热结果
+     */
+    public static final class Result {
+        private final List<Double> roundMillis;
+        private final int documents;
+        private final long elapsedMillis;
+        private final boolean converged;
+
+        Result(List<Double> roundMillis, int documents, long elapsedMillis, boolean converged) {
+            this.roundMillis = Collections.unmodifiableList(new ArrayList<>(roundMillis));
+            this.documents = documents;
+            this.elapsedMillis = elapsedMillis;
+            this.converged = converged;
+        }
+
+        /**
+         * 每轮的平均每文档耗时（毫秒）
+         */
+        public List<Double> getRoundMillis() {
+            return roundMillis;
+        }
+
+        public int getRounds() {
+            return roundMillis.size();
+        }
+
+        public int getDocuments() {
+            return documents;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 每文档耗时是否在结束前趋于稳定
+         */
+        public boolean isConverged() {
+            return converged;
+        }
+
+        @Override
+        public String toString() {
+            String first = roundMillis.isEmpty() ? "-" : String.format("%.2f", roundMillis.get(0));
+            String last = roundMillis.isEmpty() ? "-" : String.format("%.2f", roundMillis.get(roundMillis.size() - 1));
+            return getRounds() + " 轮，" + documents + " 个文档，耗时 " + elapsedMillis
+                    + " ms，每文档耗时 " + first + " ms -> " + last + " ms";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.model.CausalTriple;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 带时限处理的结果
+ * 超时或被取消时 truncated 为true，triples 为截止时已得到的部分结果
+ */
+public class ProcessingResult {
+
+    /**
+     * 处理被截断的原因
+     */
+    public enum TruncationReason {
+        TIMEOUT,
+        CANCELLED
+    }
+
+    private final List<CausalTriple> triples;
+    private final TruncationReason truncationReason;
+    private final String truncatedStage;
+
+    private ProcessingResult(List<CausalTriple> triples, TruncationReason truncationReason, String truncatedStage) {
+        this.triples = triples != null ? triples : Collections.emptyList();
+        this.truncationReason = truncationReason;
+        this.truncatedStage = truncatedStage;
+    }
+
+    /**
+     * 创建完整处理的结果
+     */
+    public static ProcessingResult complete(List<CausalTriple> triples) {
+        return new ProcessingResult(triples, null, null);
+    }
+
+    /**
+     * 创建被截断的部分结果
+     *
+     * @param triples 已得到的三元组
+     * @param reason 截断原因
+     * @param stage 截断发生的阶段
+     */
+    public static ProcessingResult truncated(List<CausalTriple> triples, TruncationReason reason, String stage) {
+        return new ProcessingResult(triples, reason, stage);
+    }
+
+    public List<CausalTriple> getTriples() {
+        return triples;
+    }
+
+    public boolean isTruncated() {
+        return truncationReason != null;
+    }
+
+    /**
+     * 获取截断原因，未截断时返回null
+     */
+    public TruncationReason getTruncationReason() {
+        return truncationReason;
+    }
+
+    /**
+     * 获取截断发生的阶段名称，未截断时返回null
+     */
+    public String getTruncatedStage() {
+        return truncatedStage;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProcessingResult{triples=%d, truncated=%s, reason=%s, stage=%s}",
+                triples.size(), isTruncated(), truncationReason, truncatedStage);
+    }
+}
\ No newline at end of file
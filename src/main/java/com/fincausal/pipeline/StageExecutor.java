@@ -0,0 +1,200 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段执行中单个阶段的工作线程池
+ * 固定数量的工作线程从有界队列中取任务，队列满时提交线程阻塞等待，
+ * 下游阶段处理不过来时由此逐级把背压传递到调用方。
+ * 任务放入队列后再次检查是否已关闭，关闭后放入的任务从队列中取回并拒绝，不会滞留在无人处理的队列中
+ */
+final class StageExecutor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StageExecutor.class);
+
+    // 仪表和计数器名称前缀，后接阶段名称
+    static final String METRIC_PREFIX = "pipeline.stage.";
+
+    private final String stage;
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final PipelineMetrics metrics;
+    private final String queueFullCounter;
+
+    /**
+     * 构造函数
+     *
+     * @param stage 阶段名称
+     * @param threads 工作线程数
+     * @param queueCapacity 队列容量
+     * @param metrics 运行指标，注册队列深度和活动线程数仪表
+     */
+    StageExecutor(String stage, int threads, int queueCapacity, PipelineMetrics metrics) {
+        this(stage, threads, queueCapacity, Thread.NORM_PRIORITY, metrics);
+    }
+
+    /**
+     * 构造函数（指定工作线程优先级）
+     *
+     * @param threadPriority 工作线程优先级
+     */
+    StageExecutor(String stage, int threads, int queueCapacity, int threadPriority, PipelineMetrics metrics) {
+        this.stage = stage;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread thread = new Thread(r, "stage-" + stage + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(threadPriority);
+            return thread;
+        });
+        // 任务直接放入队列，由预先启动的工作线程取出执行
+        this.executor.prestartAllCoreThreads();
+        this.metrics = metrics;
+        this.queueFullCounter = METRIC_PREFIX + stage + ".queue.full";
+        metrics.registerGauge(METRIC_PREFIX + stage + ".queue.depth", queue::size);
+        metrics.registerGauge(METRIC_PREFIX + stage + ".active", executor::getActiveCount);
+        logger.info("阶段 {} 的工作线程数: {}，队列容量: {}", stage, threads, queueCapacity);
+    }
+
+    /**
+     * 按配置创建
+     * 配置项：pipeline.stage.阶段名.threads（0表示默认：解析阶段为CPU核数，其余阶段为核数的1/8且至少为1）、
+     * pipeline.stage.阶段名.queue.capacity（未配置时使用 pipeline.stage.queue.capacity）
+     */
+    static StageExecutor fromConfig(String stage, PipelineMetrics metrics) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int defaultThreads = PipelineMetrics.PARSE.equals(stage) ? processors : Math.max(1, processors / 8);
+        return fromConfig(stage, metrics, defaultThreads, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * 按配置创建，线程数未配置时使用给定的默认值
+     */
+    static StageExecutor fromConfig(String stage, PipelineMetrics metrics, int defaultThreads, int threadPriority) {
+        int threads = ConfigLoader.getIntProperty(METRIC_PREFIX + stage + ".threads", 0);
+        int defaultCapacity = ConfigLoader.getIntProperty(METRIC_PREFIX + "queue.capacity", 64);
+        int capacity = ConfigLoader.getIntProperty(METRIC_PREFIX + stage + ".queue.capacity", defaultCapacity);
+        return new StageExecutor(stage, threads > 0 ? threads : defaultThreads, Math.max(1, capacity),
+                threadPriority, metrics);
+    }
+
+    String getStage() {
+        return stage;
+    }
+
+    /**
+     * 获取队列中等待的任务数
+     */
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 提交任务，队列已满时阻塞直到有空位
+     *
+     * @throws RejectedExecutionException 阶段已关闭或等待时被中断
+     */
+    void execute(Runnable task) {
+        if (executor.isShutdown()) {
+            throw closed();
+        }
+        if (!queue.offer(task)) {
+            metrics.increment(queueFullCounter);
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("等待阶段 " + stage + " 的队列空位时被中断", e);
+            }
+        }
+        if (withdrawIfShutdown(task)) {
+            throw closed();
+        }
+    }
+
+    /**
+     * 尝试提交任务，队列已满或阶段已关闭时不阻塞，直接返回false
+     */
+    boolean tryExecute(Runnable task) {
+        if (executor.isShutdown()) {
+            return false;
+        }
+        if (!queue.offer(task)) {
+            metrics.increment(queueFullCounter);
+            return false;
+        }
+        return !withdrawIfShutdown(task);
+    }
+
+    /**
+     * 任务放入队列期间阶段被关闭时，从队列中取回任务
+     * 取回失败说明工作线程已取走任务，任务仍会执行
+     *
+     * @return 是否已取回（即任务被拒绝）
+     */
+    private boolean withdrawIfShutdown(Runnable task) {
+        return executor.isShutdown() && queue.remove(task);
+    }
+
+    private RejectedExecutionException closed() {
+        return new RejectedExecutionException("阶段 " + stage + " 已关闭");
+    }
+
+    /**
+     * 停止接收任务，等待队列中的任务执行完毕
+     * 超时后中断工作线程，仍在队列中的任务按 {@link Rejectable} 通知拒绝
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("阶段 {} 未在时限内结束，剩余任务将被中断", stage);
+                rejectAll(executor.shutdownNow());
+            }
+        } catch (InterruptedException e) {
+            rejectAll(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+        metrics.removeGauge(METRIC_PREFIX + stage + ".queue.depth");
+        metrics.removeGauge(METRIC_PREFIX + stage + ".active");
+    }
+
+    private void rejectAll(List<Runnable> dropped) {
+        if (dropped.isEmpty()) {
+            return;
+        }
+        logger.warn("阶段 {} 关闭时丢弃 {} 个未执行的任务", stage, dropped.size());
+        RejectedExecutionException cause = closed();
+        for (Runnable task : dropped) {
+            if (task instanceof Rejectable) {
+                ((Rejectable) task).reject(cause);
+            }
+        }
+    }
+
+    /**
+     * 关闭时未执行即被丢弃需要得到通知的任务，例如需要以失败结束对应future的任务
+     */
+    interface Rejectable extends Runnable {
+
+        /**
+         * 任务不会再执行
+         *
+         * @param cause 拒绝原因
+         */
+        void reject(RejectedExecutionException cause);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.trace.Trace;
+import com.fincausal.util.Deadline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 分阶段执行的管道
+ * 预处理、解析、提取、时序处理、金融领域适配各自拥有独立的工作线程池，阶段之间以有界队列相连。
+ * 文档在各阶段之间流水式传递：解析线程持续处理解析任务，其他阶段的工作与之重叠进行。
+ * 每个阶段的处理逻辑与 DefaultPipeline 相同，追踪在切换线程时随文档一起传递。
+ * 处理时限从提交时开始计算，包含在队列中等待的时间。
+ */
+public class StagedPipeline implements Pipeline {
+    private static final Logger logger = LoggerFactory.getLogger(StagedPipeline.class);
+
+    private final DefaultPipeline pipeline;
+    private final List<StageExecutor> stages;
+
+    /**
+     * 构造函数，各阶段的线程数和队列容量按配置创建
+     *
+     * @param pipeline 执行各阶段处理逻辑的管道
+     */
+    public StagedPipeline(DefaultPipeline pipeline) {
+        this.pipeline = pipeline;
+        List<StageExecutor> executors = new ArrayList<>();
+        for (String stage : DefaultPipeline.STAGES) {
+            executors.add(StageExecutor.fromConfig(stage, pipeline.getMetrics()));
+        }
+        this.stages = Collections.unmodifiableList(executors);
+        logger.info("已创建分阶段执行管道，共 {} 个阶段", stages.size());
+    }
+
+    /**
+     * 获取执行各阶段处理逻辑的管道
+     */
+    DefaultPipeline getPipeline() {
+        return pipeline;
+    }
+
+    @Override
+    public List<CausalTriple> process(String text) {
+        return process(text, pipeline.newDeadline()).getTriples();
+    }
+
+    @Override
+    public ProcessingResult process(String text, Deadline deadline) {
+        try {
+            return submit(text, deadline).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<CausalTriple>> processAsync(String text) {
+        return submit(text, pipeline.newDeadline()).thenApply(ProcessingResult::getTriples);
+    }
+
+    @Override
+    public CompletableFuture<List<List<CausalTriple>>> processAll(Iterable<String> texts) {
+        return DefaultPipeline.collectAll(texts, this::processAsync);
+    }
+
+    /**
+     * 提交文档到第一个阶段
+     * 第一个阶段的队列已满时阻塞调用线程
+     *
+     * @param text 输入文本
+     * @param deadline 处理时限
+     * @return 处理结果
+     */
+    public CompletableFuture<ProcessingResult> submit(String text, Deadline deadline) {
+        CompletableFuture<ProcessingResult> future = new CompletableFuture<>();
+        DocumentJob job = pipeline.begin(text, deadline);
+        if (job.getTrace() != null) {
+            // 追踪随文档传递给各阶段的工作线程，不留在提交线程上
+            Trace.detach();
+        }
+        try {
+            dispatch(job, 0, future);
+        } catch (RejectedExecutionException e) {
+            pipeline.end(job);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void dispatch(DocumentJob job, int index, CompletableFuture<ProcessingResult> future) {
+        stages.get(index).execute(new StageExecutor.Rejectable() {
+            @Override
+            public void run() {
+                runStage(job, index, future);
+            }
+
+            @Override
+            public void reject(RejectedExecutionException cause) {
+                // 关闭时被丢弃，以失败结束文档，避免调用方一直等待
+                pipeline.end(job);
+                future.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private void runStage(DocumentJob job, int index, CompletableFuture<ProcessingResult> future) {
+        Trace trace = job.getTrace();
+        if (trace != null) {
+            Trace.attach(trace);
+        }
+        try {
+            if (pipeline.runStage(job, DefaultPipeline.STAGES[index]) && index + 1 < stages.size()) {
+                dispatch(job, index + 1, future);
+                return;
+            }
+            pipeline.end(job);
+            future.complete(job.getResult());
+        } catch (Throwable t) {
+            pipeline.end(job);
+            future.completeExceptionally(t);
+        } finally {
+            if (trace != null) {
+                Trace.detach();
+            }
+        }
+    }
+
+    @Override
+    public void outputResults(List<CausalTriple> causalTriples, String outputPath) {
+        pipeline.outputResults(causalTriples, outputPath);
+    }
+
+    @Override
+    public void checkpoint() throws IOException {
+        pipeline.checkpoint();
+    }
+
+    /**
+     * 按阶段顺序依次关闭，上游阶段的任务全部交给下游后再关闭下游阶段
+     */
+    @Override
+    public void close() {
+        for (StageExecutor stage : stages) {
+            stage.close();
+        }
+        pipeline.close();
+    }
+}
\ No newline at end of file
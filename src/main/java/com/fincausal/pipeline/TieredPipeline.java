@@ -0,0 +1,214 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+import com.fincausal.util.PhraseNormalizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分级处理管道
+ * 先以快速模式（标点分句、模式匹配）处理文档并立即返回结果，同时把文档放入有界队列，
+ * 由低优先级的后台线程池执行完整的CoreNLP解析和依存句法抽取，补全后的结果去重后通过 EnrichmentListener 发布。
+ * <p>
+ * 队列已满时默认丢弃补全请求（快速结果不受影响），配置 pipeline.tiered.queue.full.policy=block 时等待队列空位。
+ * 队列深度、活动线程数以 pipeline.stage.enrich.* 仪表输出，补全耗时（含排队时间）记录在 enrich 阶段。
+ */
+public class TieredPipeline implements Pipeline {
+    private static final Logger logger = LoggerFactory.getLogger(TieredPipeline.class);
+
+    // 后台补全的阶段名称，用于运行指标和线程池配置
+    public static final String ENRICH_STAGE = "enrich";
+    // 快速处理的阶段名称
+    public static final String FAST_STAGE = "fast";
+
+    private static final String COUNTER_PREFIX = "pipeline.tiered.enrich.";
+
+    private final DefaultPipeline fastPipeline;
+    private final DefaultPipeline fullPipeline;
+    private final EnrichmentListener listener;
+    private final PipelineMetrics metrics;
+    private final StageExecutor enrichExecutor;
+    private final boolean blockWhenFull;
+    private final AtomicLong documentSequence = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param fastPipeline 快速模式管道
+     * @param fullPipeline 完整解析管道，其运行指标同时用于记录分级处理的指标
+     * @param listener 补全结果的接收者
+     */
+    public TieredPipeline(DefaultPipeline fastPipeline, DefaultPipeline fullPipeline, EnrichmentListener listener) {
+        this.fastPipeline = fastPipeline;
+        this.fullPipeline = fullPipeline;
+        this.listener = listener;
+        this.metrics = fullPipeline.getMetrics();
+        int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.enrichExecutor = StageExecutor.fromConfig(ENRICH_STAGE, metrics, defaultThreads, Thread.MIN_PRIORITY);
+        this.blockWhenFull = "block".equalsIgnoreCase(
+                ConfigLoader.getStringProperty("pipeline.tiered.queue.full.policy", "drop"));
+    }
+
+    DefaultPipeline getFastPipeline() {
+        return fastPipeline;
+    }
+
+    DefaultPipeline getFullPipeline() {
+        return fullPipeline;
+    }
+
+    @Override
+    public List<CausalTriple> process(String text) {
+        return process(text, fastPipeline.newDeadline()).getTriples();
+    }
+
+    /**
+     * 以自动生成的文档编号处理文档
+     */
+    @Override
+    public ProcessingResult process(String text, Deadline deadline) {
+        return process(nextDocumentId(), text, deadline);
+    }
+
+    /**
+     * 快速处理文档并提交后台补全
+     *
+     * @param documentId 文档编号，补全结果以该编号发布
+     * @param text 输入文本
+     * @param deadline 快速处理的时限
+     * @return 快速模式的处理结果
+     */
+    public ProcessingResult process(String documentId, String text, Deadline deadline) {
+        long start = System.nanoTime();
+        ProcessingResult result = fastPipeline.process(text, deadline);
+        metrics.stage(FAST_STAGE).record(System.nanoTime() - start, 1, result.getTriples().size());
+        submitEnrichment(documentId, text);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<List<CausalTriple>> processAsync(String text) {
+        String documentId = nextDocumentId();
+        long start = System.nanoTime();
+        return fastPipeline.processAsync(text).thenApply(triples -> {
+            metrics.stage(FAST_STAGE).record(System.nanoTime() - start, 1, triples.size());
+            submitEnrichment(documentId, text);
+            return triples;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<List<CausalTriple>>> processAll(Iterable<String> texts) {
+        return DefaultPipeline.collectAll(texts, this::processAsync);
+    }
+
+    private String nextDocumentId() {
+        return String.valueOf(documentSequence.incrementAndGet());
+    }
+
+    /**
+     * 提交后台补全
+     *
+     * @return 是否已放入队列
+     */
+    private boolean submitEnrichment(String documentId, String text) {
+        long submitNanos = System.nanoTime();
+        Runnable task = () -> enrich(documentId, text, submitNanos);
+        boolean accepted;
+        if (blockWhenFull) {
+            try {
+                enrichExecutor.execute(task);
+                accepted = true;
+            } catch (RejectedExecutionException e) {
+                accepted = false;
+            }
+        } else {
+            accepted = enrichExecutor.tryExecute(task);
+        }
+        metrics.increment(COUNTER_PREFIX + (accepted ? "submitted" : "dropped"));
+        if (!accepted) {
+            logger.warn("补全队列已满或已关闭，文档 {} 只返回快速模式结果", documentId);
+        }
+        return accepted;
+    }
+
+    private void enrich(String documentId, String text, long submitNanos) {
+        List<CausalTriple> triples;
+        try {
+            triples = deduplicate(fullPipeline.process(text, fullPipeline.newDeadline()).getTriples());
+        } catch (Exception e) {
+            logger.error("文档 {} 补全失败: {}", documentId, e.getMessage());
+            metrics.increment(COUNTER_PREFIX + "failed");
+            metrics.stage(ENRICH_STAGE).error();
+            notifyFailed(documentId, e);
+            return;
+        }
+        metrics.stage(ENRICH_STAGE).record(System.nanoTime() - submitNanos, 1, triples.size());
+        metrics.increment(COUNTER_PREFIX + "completed");
+        try {
+            listener.onEnriched(documentId, triples);
+        } catch (RuntimeException e) {
+            logger.error("发布文档 {} 的补全结果失败: {}", documentId, e.getMessage());
+        }
+    }
+
+    private void notifyFailed(String documentId, Exception error) {
+        try {
+            listener.onFailed(documentId, error);
+        } catch (RuntimeException e) {
+            logger.error("通知文档 {} 补全失败时发生错误: {}", documentId, e.getMessage());
+        }
+    }
+
+    /**
+     * 去除重复的三元组：规范化后的原因、结果和关系类型相同时只保留置信度最高的一个，保持首次出现的顺序
+     */
+    static List<CausalTriple> deduplicate(List<CausalTriple> triples) {
+        Map<String, CausalTriple> unique = new LinkedHashMap<>();
+        for (CausalTriple triple : triples) {
+            String key = PhraseNormalizer.normalize(triple.getCause()) + '\u0001'
+                    + PhraseNormalizer.normalize(triple.getEffect()) + '\u0001' + triple.getRelationType();
+            CausalTriple existing = unique.get(key);
+            if (existing == null) {
+                unique.put(key, triple);
+            } else if (triple.getConfidence() > existing.getConfidence()) {
+                unique.replace(key, triple);
+            }
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    @Override
+    public void outputResults(List<CausalTriple> causalTriples, String outputPath) {
+        fastPipeline.outputResults(causalTriples, outputPath);
+    }
+
+    @Override
+    public void checkpoint() throws IOException {
+        fastPipeline.checkpoint();
+        fullPipeline.checkpoint();
+    }
+
+    /**
+     * 关闭快速管道后等待队列中的补全任务完成，再关闭完整解析管道
+     */
+    @Override
+    public void close() {
+        fastPipeline.close();
+        enrichExecutor.close();
+        fullPipeline.close();
+    }
+}
\ No newline at end of file
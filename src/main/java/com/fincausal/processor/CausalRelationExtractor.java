@@ -2,6 +2,7 @@ package com.fincausal.processor;
 
 import com.fincausal.model.CausalTriple;
 import com.fincausal.model.Document;
+import com.fincausal.model.ParseRoute;
 import com.fincausal.model.Sentence;
 import com.fincausal.util.ConfigLoader;
 
@@ -53,12 +54,26 @@ public class CausalRelationExtractor {
     // 置信度阈值
     private final double confidenceThreshold;
     
+    // 是否记录来源句子，只在写入三元组检索索引时需要，默认输出中不包含来源句子
+    private final boolean recordProvenance;
+    
     /**
      * 构造函数
+     * 启用三元组检索索引（index.lucene.enabled）时记录来源句子
      */
     public CausalRelationExtractor() {
+        this(ConfigLoader.getBooleanProperty("index.lucene.enabled", false));
+    }
+    
+    /**
+     * 构造函数
+     * 
+     * @param recordProvenance 是否为三元组设置 source_sentence 和 sentence_index
+     */
+    public CausalRelationExtractor(boolean recordProvenance) {
         // 从配置中获取置信度阈值
         this.confidenceThreshold = ConfigLoader.getDoubleProperty("causal.confidence.threshold", 0.5);
+        this.recordProvenance = recordProvenance;
     }
     
     /**
@@ -79,17 +94,21 @@ public class CausalRelationExtractor {
         for (Sentence sentence : document.getSentences()) {
             // 1. 基于模式匹配提取因果关系
             List<CausalTriple> patternTriples = extractByPatterns(sentence);
+            markSource(patternTriples, sentence);
             causalTriples.addAll(patternTriples);
             
-            // 2. 基于依存句法分析提取因果关系
-            List<CausalTriple> dependencyTriples = extractByDependencyParse(sentence);
-            causalTriples.addAll(dependencyTriples);
+            // 2. 基于依存句法分析提取因果关系，只做模式匹配的句子跳过
+            if (sentence.getParseRoute() != ParseRoute.PATTERN_ONLY) {
+                List<CausalTriple> dependencyTriples = extractByDependencyParse(sentence);
+                markSource(dependencyTriples, sentence);
+                causalTriples.addAll(dependencyTriples);
+            }
         }
         
         // 过滤低置信度的因果关系
         causalTriples = filterByConfidence(causalTriples);
         
-        logger.info("共提取 {} 个因果关系", causalTriples.size());
+        logger.debug("共提取 {} 个因果关系", causalTriples.size());
         return causalTriples;
     }
     
@@ -199,6 +218,19 @@ public class CausalRelationExtractor {
         return root.word();
     }
     
+    /**
+     * 记录因果关系的来源句子
+     */
+    private void markSource(List<CausalTriple> triples, Sentence sentence) {
+        if (!recordProvenance) {
+            return;
+        }
+        for (CausalTriple triple : triples) {
+            triple.setSourceSentence(sentence.getText());
+            triple.setSentenceIndex(sentence.getIndex());
+        }
+    }
+    
     /**
      * 过滤低置信度的因果关系
      */
@@ -0,0 +1,334 @@
+package com.fincausal.processor;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于词典的双向最大匹配分词器
+ * 词典由金融领域词典（与领域适配共用 financial.dictionary.path）和通用词典组成，分别做正向和逆向最大匹配，取词数较少的结果；
+ * 词数相同时取单字词较少的结果，仍相同时取逆向匹配的结果。
+ * 连续的字母、数字（含小数点、百分号）作为一个词，标点符号单独成词，空白字符不产生词。
+ * 构造完成后只读，可被多个线程同时使用
+ */
+public class DictionarySegmenter {
+    private static final Logger logger = LoggerFactory.getLogger(DictionarySegmenter.class);
+
+    // 默认的金融领域词典
+    public static final String DEFAULT_FINANCIAL_DICTIONARY = "dictionary/financial_terms.txt";
+    // 默认的其余词典
+    public static final String DEFAULT_DICTIONARIES = "dictionary/general_words.txt";
+
+    // 正向匹配使用的词典树
+    private final TrieNode forwardRoot;
+    // 逆向匹配使用的词典树（词条逆序插入）
+    private final TrieNode backwardRoot;
+    private final int wordCount;
+
+    /**
+     * 构造函数，加载配置 financial.dictionary.path 指定的金融领域词典，
+     * 以及 nlp.segmenter.dictionaries 中的其余词典（逗号分隔的文件路径或类路径资源）
+     */
+    public DictionarySegmenter() {
+        this(loadWords(ConfigLoader.getStringProperty("financial.dictionary.path", DEFAULT_FINANCIAL_DICTIONARY)
+                + "," + ConfigLoader.getStringProperty("nlp.segmenter.dictionaries", DEFAULT_DICTIONARIES)));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param words 词条
+     */
+    public DictionarySegmenter(Collection<String> words) {
+        TrieNode forward = new TrieNode();
+        TrieNode backward = new TrieNode();
+        int count = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            forward.insert(word);
+            backward.insert(new StringBuilder(word).reverse().toString());
+            count++;
+        }
+        this.forwardRoot = forward;
+        this.backwardRoot = backward;
+        this.wordCount = count;
+        logger.info("已初始化词典分词器，共 {} 个词条", count);
+    }
+
+    /**
+     * 获取词条数
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * 分词
+     *
+     * @param text 输入文本
+     * @return 词及其在原文中的位置，按出现顺序排列
+     */
+    public List<Token> segment(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (isWordChar(c)) {
+                // 连续的文字和字母数字片段一起做双向最大匹配
+                int end = i + 1;
+                while (end < length && isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                segmentRun(text, i, end, tokens);
+                i = end;
+            } else {
+                tokens.add(new Token(text.substring(i, i + 1), i, i + 1));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 对一个不含空白和标点的片段做双向最大匹配
+     */
+    private void segmentRun(String text, int start, int end, List<Token> tokens) {
+        List<int[]> forward = forwardMatch(text, start, end);
+        List<int[]> backward = backwardMatch(text, start, end);
+        List<int[]> chosen;
+        if (forward.size() != backward.size()) {
+            chosen = forward.size() < backward.size() ? forward : backward;
+        } else {
+            chosen = singleCharCount(forward) < singleCharCount(backward) ? forward : backward;
+        }
+        for (int[] span : chosen) {
+            tokens.add(new Token(text.substring(span[0], span[1]), span[0], span[1]));
+        }
+    }
+
+    private List<int[]> forwardMatch(String text, int start, int end) {
+        List<int[]> spans = new ArrayList<>();
+        int i = start;
+        while (i < end) {
+            int length = forwardRoot.longestMatch(text, i, end, 1);
+            if (length == 0) {
+                length = unmatchedLength(text, i, end, 1);
+            }
+            spans.add(new int[]{i, i + length});
+            i += length;
+        }
+        return spans;
+    }
+
+    private List<int[]> backwardMatch(String text, int start, int end) {
+        List<int[]> spans = new ArrayList<>();
+        int i = end;
+        while (i > start) {
+            int length = backwardRoot.longestMatch(text, i - 1, start - 1, -1);
+            if (length == 0) {
+                length = unmatchedLength(text, i - 1, start - 1, -1);
+            }
+            spans.add(new int[]{i - length, i});
+            i -= length;
+        }
+        List<int[]> ordered = new ArrayList<>(spans.size());
+        for (int k = spans.size() - 1; k >= 0; k--) {
+            ordered.add(spans.get(k));
+        }
+        return ordered;
+    }
+
+    /**
+     * 词典中没有匹配时的词长：字母数字取连续的最长片段，其余字符单独成词
+     */
+    private static int unmatchedLength(String text, int from, int limit, int step) {
+        if (!isAlphanumeric(text.charAt(from))) {
+            return 1;
+        }
+        int length = 0;
+        for (int i = from; i != limit && isAlphanumeric(text.charAt(i)); i += step) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int singleCharCount(List<int[]> spans) {
+        int count = 0;
+        for (int[] span : spans) {
+            if (span[1] - span[0] == 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '%';
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return c == '.' || c == '%'
+                || (Character.isLetterOrDigit(c) && Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN);
+    }
+
+    /**
+     * 加载词典，每行第一列为词条，#开头的行为注释
+     */
+    private static Set<String> loadWords(String paths) {
+        Set<String> words = new HashSet<>();
+        for (String path : paths.split(",")) {
+            path = path.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            try {
+                // 首先尝试从文件系统加载，不存在时从类路径加载
+                if (Files.exists(Paths.get(path))) {
+                    try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+                        readWords(reader, words);
+                    }
+                } else {
+                    try (InputStream is = DictionarySegmenter.class.getClassLoader().getResourceAsStream(path)) {
+                        if (is == null) {
+                            logger.warn("分词词典文件不存在: {}", path);
+                            continue;
+                        }
+                        readWords(new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)), words);
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("加载分词词典时发生错误: {}, {}", path, e.getMessage());
+            }
+        }
+        return words;
+    }
+
+    private static void readWords(BufferedReader reader, Set<String> words) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            words.add(line.split("\\s+", 2)[0]);
+        }
+    }
+
+    /**
+     * 分词结果中的一个词
+     */
+    public static final class Token {
+        private final String word;
+        private final int begin;
+        private final int end;
+
+        Token(String word, int begin, int end) {
+            this.word = word;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * 词在原文中的起始位置
+         */
+        public int getBegin() {
+            return begin;
+        }
+
+        /**
+         * 词在原文中的结束位置（不含）
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return word;
+        }
+    }
+
+    /**
+     * 词典树节点，子节点按字符排序存放，以二分查找匹配
+     */
+    private static final class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private boolean word;
+
+        void insert(String value) {
+            TrieNode node = this;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.childOrCreate(value.charAt(i));
+            }
+            node.word = true;
+        }
+
+        private TrieNode childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = new TrieNode();
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        /**
+         * 从from开始沿step方向匹配，返回最长词条的长度，没有匹配时返回0
+         */
+        int longestMatch(String text, int from, int limit, int step) {
+            TrieNode node = this;
+            int longest = 0;
+            int length = 0;
+            for (int i = from; i != limit; i += step) {
+                int index = Arrays.binarySearch(node.keys, text.charAt(i));
+                if (index < 0) {
+                    break;
+                }
+                node = node.children[index];
+                length++;
+                if (node.word) {
+                    longest = length;
+                }
+            }
+            return longest;
+        }
+    }
+}
\ No newline at end of file
@@ -47,22 +47,20 @@ public class FinancialDomainAdapter {
             adaptedTriples.add(triple);
         }
 
-        logger.info("金融领域适配完成，适配后三元组数量: {}", adaptedTriples.size());
+        logger.debug("金融领域适配完成，适配后三元组数量: {}", adaptedTriples.size());
         return adaptedTriples;
     }
     // 金融领域词典
     private final Map<String, String> financialTerms = new HashMap<>();
     
-    // 金融领域分类
-    private static final Map<String, List<String>> FINANCIAL_CATEGORIES = new HashMap<>();
+    // 金融领域分类（类加载时初始化，之后只读）
+    private static final Map<String, List<String>> FINANCIAL_CATEGORIES = initFinancialCategories();
     
     /**
      * 构造函数
+     * 词典在构造时加载完成，之后只读，同一实例可被多个线程同时使用
      */
     public FinancialDomainAdapter() {
-        // 初始化金融领域分类
-        initFinancialCategories();
-        
         // 加载金融领域词典
         loadFinancialDictionary();
     }
@@ -70,35 +68,38 @@ public class FinancialDomainAdapter {
     /**
      * 初始化金融领域分类
      */
-    private void initFinancialCategories() {
+    private static Map<String, List<String>> initFinancialCategories() {
+        Map<String, List<String>> categories = new HashMap<>();
         // 市场表现类
-        FINANCIAL_CATEGORIES.put("MARKET_PERFORMANCE", Arrays.asList(
+        categories.put("MARKET_PERFORMANCE", Arrays.asList(
                 "股价", "市值", "涨幅", "跌幅", "波动", "行情", "指数", "大盘", "牛市", "熊市"
         ));
         
         // 财务指标类
-        FINANCIAL_CATEGORIES.put("FINANCIAL_METRICS", Arrays.asList(
+        categories.put("FINANCIAL_METRICS", Arrays.asList(
                 "营收", "利润", "净利", "毛利", "收入", "成本", "费用", "资产", "负债", "现金流",
                 "ROE", "ROA", "EPS", "PE", "PB", "市盈率", "市净率", "资产负债率"
         ));
         
         // 公司运营类
-        FINANCIAL_CATEGORIES.put("COMPANY_OPERATION", Arrays.asList(
+        categories.put("COMPANY_OPERATION", Arrays.asList(
                 "销售", "产能", "产量", "库存", "研发", "投资", "并购", "重组", "扩张", "收缩",
                 "转型", "升级", "创新", "效率", "产业链", "供应链"
         ));
         
         // 宏观经济类
-        FINANCIAL_CATEGORIES.put("MACRO_ECONOMY", Arrays.asList(
+        categories.put("MACRO_ECONOMY", Arrays.asList(
                 "GDP", "CPI", "PPI", "PMI", "利率", "汇率", "通胀", "通缩", "货币政策", "财政政策",
                 "经济增长", "经济衰退", "经济复苏", "贸易战", "贸易摩擦"
         ));
         
         // 政策监管类
-        FINANCIAL_CATEGORIES.put("POLICY_REGULATION", Arrays.asList(
+        categories.put("POLICY_REGULATION", Arrays.asList(
                 "政策", "监管", "法规", "条例", "规定", "措施", "整改", "处罚", "合规", "违规",
                 "审批", "备案", "许可", "禁止", "限制", "准入", "退出", "监督"
         ));
+        
+        return Collections.unmodifiableMap(categories);
     }
     
     /**
@@ -0,0 +1,194 @@
+package com.fincausal.processor;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 模型启动缓存
+ * CoreNLP按文件扩展名判断模型是否为gzip压缩，每次启动都要先解压再反序列化。
+ * 首次启动时把压缩模型解压到本地缓存目录，之后的启动直接读取未压缩的文件，
+ * 反复启动时文件内容由操作系统页缓存提供，省去解压开销。
+ * 每个缓存文件旁有一个记录来源（文件路径或类路径资源URL、大小、修改时间）的 .source 文件，
+ * 来源变化（如升级模型jar、替换压缩模型文件）时重新解压
+ */
+public class ModelCache {
+    private static final Logger logger = LoggerFactory.getLogger(ModelCache.class);
+
+    // 指向单个模型文件的配置项
+    private static final String[] MODEL_KEYS = {
+            "segment.model", "segment.serDictionary", "pos.model", "ner.model", "parse.model", "depparse.model"
+    };
+
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String SOURCE_SUFFIX = ".source";
+
+    private final Path directory;
+
+    // 每个模型的准备耗时（毫秒），首次启动为解压耗时，之后为查找耗时
+    private final Map<String, Long> prepareTimes = new LinkedHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param directory 缓存目录
+     */
+    public ModelCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 按配置创建模型缓存
+     *
+     * @return 模型缓存，未启用时返回null
+     */
+    public static ModelCache fromConfig() {
+        if (!ConfigLoader.getBooleanProperty("nlp.model.cache.enabled", false)) {
+            return null;
+        }
+        return new ModelCache(Paths.get(ConfigLoader.getStringProperty("nlp.model.cache.dir", "cache/models")));
+    }
+
+    /**
+     * 把配置中的压缩模型替换为缓存中的未压缩文件
+     * 缓存中没有的模型先解压写入缓存；解压失败时保留原配置
+     *
+     * @param props CoreNLP配置
+     */
+    public void apply(Properties props) {
+        for (String key : MODEL_KEYS) {
+            String model = props.getProperty(key);
+            if (model == null || !model.endsWith(GZIP_SUFFIX)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            String resolved = resolve(model);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            if (resolved != null) {
+                props.setProperty(key, resolved);
+                prepareTimes.put(key, elapsed);
+            }
+        }
+        logger.info("模型缓存目录: {}，各模型准备耗时(ms): {}", directory, prepareTimes);
+    }
+
+    /**
+     * 获取每个模型的准备耗时（毫秒）
+     */
+    public Map<String, Long> getPrepareTimes() {
+        return Collections.unmodifiableMap(prepareTimes);
+    }
+
+    /**
+     * 获取模型在缓存中的未压缩文件，不存在时解压写入
+     *
+     * @param model 模型路径（类路径资源或文件路径）
+     * @return 缓存文件的绝对路径，失败时返回null
+     */
+    String resolve(String model) {
+        // 文件系统中的模型按去掉根目录后的路径存放，类路径资源按资源路径存放
+        Path relative = Paths.get(model.substring(0, model.length() - GZIP_SUFFIX.length()));
+        if (relative.isAbsolute()) {
+            relative = relative.getRoot().relativize(relative);
+        }
+        Path target = directory.resolve(relative).normalize();
+        if (!target.startsWith(directory.normalize())) {
+            logger.warn("模型路径超出缓存目录，不缓存: {}", model);
+            return null;
+        }
+        Path sourceFile = target.resolveSibling(target.getFileName() + SOURCE_SUFFIX);
+        long start = System.nanoTime();
+        try {
+            String fingerprint = fingerprint(model);
+            if (fingerprint == null) {
+                logger.warn("模型文件不存在，不缓存: {}", model);
+                return null;
+            }
+            if (Files.isRegularFile(target) && Files.isRegularFile(sourceFile)
+                    && fingerprint.equals(new String(Files.readAllBytes(sourceFile), StandardCharsets.UTF_8))) {
+                logger.debug("使用缓存的模型: {}", target);
+                return target.toAbsolutePath().toString();
+            }
+            Files.createDirectories(target.getParent());
+            // 先删除来源记录，替换过程中中断时下次启动会重新解压
+            Files.deleteIfExists(sourceFile);
+            try (InputStream source = open(model)) {
+                if (source == null) {
+                    logger.warn("模型文件不存在，不缓存: {}", model);
+                    return null;
+                }
+                // 先写入临时文件再原子替换，多个进程同时启动时不会读到写了一半的模型
+                try (InputStream in = new GZIPInputStream(source, 1 << 16)) {
+                    replace(target, in);
+                }
+            }
+            replace(sourceFile, new ByteArrayInputStream(fingerprint.getBytes(StandardCharsets.UTF_8)));
+            logger.info("已解压模型到缓存: {}，大小: {} 字节，耗时: {} ms", target, Files.size(target),
+                    (System.nanoTime() - start) / 1_000_000);
+            return target.toAbsolutePath().toString();
+        } catch (IOException e) {
+            logger.error("缓存模型时发生错误: {}, {}", model, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 把输入流的内容写入临时文件后原子替换目标文件
+     */
+    private static void replace(Path target, InputStream in) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 压缩模型的来源标识：文件的绝对路径或类路径资源的URL（含jar路径），以及大小和修改时间
+     *
+     * @return 来源标识，模型不存在时返回null
+     */
+    static String fingerprint(String model) throws IOException {
+        Path path = Paths.get(model);
+        if (Files.isRegularFile(path)) {
+            return "file " + path.toAbsolutePath().normalize() + " " + Files.size(path) + " "
+                    + Files.getLastModifiedTime(path).toMillis();
+        }
+        URL url = ModelCache.class.getClassLoader().getResource(model);
+        if (url == null) {
+            return null;
+        }
+        URLConnection connection = url.openConnection();
+        return "resource " + url + " " + connection.getContentLengthLong() + " " + connection.getLastModified();
+    }
+
+    /**
+     * 打开压缩模型，首先尝试文件系统，不存在时从类路径加载
+     */
+    private static InputStream open(String model) throws IOException {
+        Path path = Paths.get(model);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        return ModelCache.class.getClassLoader().getResourceAsStream(model);
+    }
+}
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.fincausal.processor;
 
 import com.fincausal.model.Document;
+import com.fincausal.model.ParseRoute;
 import com.fincausal.model.Sentence;
+import com.fincausal.trace.Trace;
 import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
 
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -17,8 +20,18 @@ import edu.stanford.nlp.util.CoreMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * NLP解析器
@@ -27,22 +40,132 @@ import java.util.Properties;
 public class NLPParser {
     private static final Logger logger = LoggerFactory.getLogger(NLPParser.class);
     
-    // Stanford CoreNLP管道
-    private final StanfordCoreNLP pipeline;
+    // 默认注释器序列
+    public static final String DEFAULT_ANNOTATORS = "tokenize, ssplit, pos, lemma, ner, parse, depparse";
+    
+    // 作用于整个文档的分词、分句注释器，其余注释器逐句运行
+    private static final Set<String> SEGMENT_ANNOTATORS = new HashSet<>(Arrays.asList(
+            "tokenize", "cleanxml", "ssplit", "mwt"
+    ));
+    
+    // 追踪中的阶段名称
+    private static final String SEGMENT_SPAN = "parse.segment";
+    private static final String SENTENCE_SPAN = "parse.sentence";
+    
+    // 分词、分句管道
+    private final StanfordCoreNLP segmentPipeline;
+    
+    // 词典分词器，配置为词典分词时由它预先分词，分词分句管道只做分句；使用CRF分词时为null
+    private final DictionarySegmenter dictionarySegmenter;
+    
+    // 逐句运行的注释器管道（词性、命名实体、句法等），只配置了分词分句时为null
+    private final StanfordCoreNLP sentencePipeline;
+    
+    // 句子长度保护
+    private final SentenceLengthGuard lengthGuard;
+    
+    // 句子并行解析：句子数不少于下限的文档拆分为句子区间，在工作窃取线程池中并行解析
+    private final boolean parallelEnabled;
+    private final int parallelMinSentences;
+    private final int parallelChunkSentences;
+    private final int parallelThreads;
+    private volatile ForkJoinPool parallelPool;
+    
+    // 启用模型缓存时每个注释器的加载耗时（毫秒），按加载顺序排列
+    private final Map<String, Long> startupTimes = new LinkedHashMap<>();
     
     /**
      * 构造函数
      */
     public NLPParser() {
-        // 从配置中获取语言
+        // 从配置中获取语言和注释器序列
         String language = ConfigLoader.getStringProperty("nlp.language", "zh");
+        String annotators = ConfigLoader.getStringProperty("nlp.annotators", DEFAULT_ANNOTATORS);
         
         // 初始化Stanford CoreNLP管道
-        Properties props = new Properties();
+        Properties props = languageProperties(language);
+        
+        // 单个句子成分句法分析的最长时间，超时后句法分析器放弃该句
+        int parseMaxTime = ConfigLoader.getIntProperty("nlp.parse.maxtime.ms", 0);
+        if (parseMaxTime > 0) {
+            props.setProperty("parse.maxtime", String.valueOf(parseMaxTime));
+        }
+        
+        // 模型启动缓存：压缩模型替换为缓存目录中的未压缩文件
+        ModelCache modelCache = ModelCache.fromConfig();
+        if (modelCache != null) {
+            modelCache.apply(props);
+        }
+        
+        // 拆分注释器：分词分句作用于整个文档，其余注释器逐句运行，以便记录每个句子的解析耗时
+        List<String> segmentAnnotators = new ArrayList<>();
+        List<String> sentenceAnnotators = new ArrayList<>();
+        for (String annotator : annotators.split(",")) {
+            String name = annotator.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (SEGMENT_ANNOTATORS.contains(name)) {
+                segmentAnnotators.add(name);
+            } else {
+                sentenceAnnotators.add(name);
+            }
+        }
         
+        // 中文词典分词：跳过CRF分词模型，预先分好的词直接交给分句注释器
+        String segmenter = ConfigLoader.getStringProperty("nlp.segmenter", "crf");
+        if ("zh".equals(language) && "dictionary".equalsIgnoreCase(segmenter)) {
+            segmentAnnotators.remove("tokenize");
+            if (!segmentAnnotators.contains("ssplit")) {
+                segmentAnnotators.add("ssplit");
+            }
+            this.dictionarySegmenter = new DictionarySegmenter();
+        } else {
+            this.dictionarySegmenter = null;
+        }
+        
+        if (modelCache != null) {
+            List<String> all = new ArrayList<>(segmentAnnotators);
+            all.addAll(sentenceAnnotators);
+            preloadAnnotators(props, all);
+        }
+        
+        // 创建管道
+        Properties segmentProps = new Properties();
+        segmentProps.putAll(props);
+        segmentProps.setProperty("annotators", String.join(", ", segmentAnnotators));
+        // 词典分词时没有tokenize注释器，不检查注释器依赖
+        this.segmentPipeline = new StanfordCoreNLP(segmentProps, dictionarySegmenter == null);
+        
+        if (sentenceAnnotators.isEmpty()) {
+            this.sentencePipeline = null;
+        } else {
+            // 逐句管道的输入已完成分词分句，不再检查注释器依赖
+            Properties sentenceProps = new Properties();
+            sentenceProps.putAll(props);
+            sentenceProps.setProperty("annotators", String.join(", ", sentenceAnnotators));
+            this.sentencePipeline = new StanfordCoreNLP(sentenceProps, false);
+        }
+        this.lengthGuard = SentenceLengthGuard.fromConfig();
+        this.parallelEnabled = ConfigLoader.getBooleanProperty("nlp.parallel.enabled", false);
+        this.parallelMinSentences = Math.max(2, ConfigLoader.getIntProperty("nlp.parallel.min.sentences", 32));
+        this.parallelChunkSentences = Math.max(1, ConfigLoader.getIntProperty("nlp.parallel.chunk.sentences", 4));
+        int threads = ConfigLoader.getIntProperty("nlp.parallel.threads", 0);
+        this.parallelThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        logger.info("已初始化NLP解析器，语言: {}，注释器: {}，分词: {}", language, annotators,
+                dictionarySegmenter != null ? "dictionary" : "crf");
+    }
+    
+    /**
+     * 语言相关的CoreNLP模型配置
+     * 
+     * @param language 语言代码
+     * @return 模型配置，不包含注释器序列
+     */
+    static Properties languageProperties(String language) {
+        Properties props = new Properties();
         if ("zh".equals(language)) {
             // 中文处理配置
-            props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, parse, depparse");
             props.setProperty("tokenize.language", "zh");
             props.setProperty("segment.model", "edu/stanford/nlp/models/segmenter/chinese/ctb.gz");
             props.setProperty("segment.sighanCorporaDict", "edu/stanford/nlp/models/segmenter/chinese");
@@ -55,14 +178,34 @@ public class NLPParser {
             props.setProperty("ner.useSUTime", "true");
             props.setProperty("parse.model", "edu/stanford/nlp/models/lexparser/chinesePCFG.ser.gz");
             props.setProperty("depparse.model", "edu/stanford/nlp/models/parser/nndep/UD_Chinese.gz");
-        } else {
-            // 英文处理配置（默认）
-            props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, parse, depparse");
         }
-        
-        // 创建管道
-        this.pipeline = new StanfordCoreNLP(props);
-        logger.info("已初始化NLP解析器，语言: {}", language);
+        return props;
+    }
+    
+    /**
+     * 逐个加载注释器并记录耗时
+     * CoreNLP把加载过的注释器缓存在全局注释器池中，随后创建的管道在配置相同时直接复用
+     */
+    private void preloadAnnotators(Properties props, List<String> annotators) {
+        for (String name : annotators) {
+            Properties single = new Properties();
+            single.putAll(props);
+            single.setProperty("annotators", name);
+            long start = System.nanoTime();
+            new StanfordCoreNLP(single, false);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            startupTimes.put(name, elapsed);
+            logger.info("已加载注释器 {}，耗时: {} ms", name, elapsed);
+        }
+    }
+    
+    /**
+     * 获取每个注释器的加载耗时（毫秒），未启用模型缓存时为空
+     * 
+     * @return 注释器名称到加载耗时的映射
+     */
+    public Map<String, Long> getStartupTimes() {
+        return Collections.unmodifiableMap(startupTimes);
     }
     
     /**
@@ -72,6 +215,18 @@ public class NLPParser {
      * @return 解析后的文档
      */
     public Document parse(String text) {
+        return parse(text, Deadline.none());
+    }
+    
+    /**
+     * 在时限内解析文本
+     * 每个句子解析前检查时限，到期时停止解析，返回已解析的句子并标记文档为截断
+     * 
+     * @param text 输入文本
+     * @param deadline 处理时限
+     * @return 解析后的文档
+     */
+    public Document parse(String text, Deadline deadline) {
         if (text == null || text.isEmpty()) {
             logger.warn("输入文本为空");
             return new Document("");
@@ -83,82 +238,310 @@ public class NLPParser {
             // 创建文档
             Document document = new Document(text);
             
-            // 创建注释
-            Annotation annotation = new Annotation(text);
+            Trace trace = Trace.current();
             
-            // 运行所有注释器
-            pipeline.annotate(annotation);
+            // 创建注释，先对整个文档分词分句
+            Annotation annotation = new Annotation(text);
+            long start = System.nanoTime();
+            if (dictionarySegmenter != null) {
+                annotation.set(CoreAnnotations.TokensAnnotation.class, tokenize(text));
+            }
+            segmentPipeline.annotate(annotation);
+            if (trace != null) {
+                trace.addSpan(SEGMENT_SPAN, start, System.nanoTime() - start);
+            }
             
             // 获取句子注释
             List<CoreMap> sentenceAnnotations = annotation.get(CoreAnnotations.SentencesAnnotation.class);
             
-            // 处理每个句子
+            // 超长句按长度保护策略拆分或只做模式匹配
+            List<SentenceLengthGuard.SentenceUnit> units = new ArrayList<>();
             for (int i = 0; i < sentenceAnnotations.size(); i++) {
+                List<SentenceLengthGuard.SentenceUnit> routed;
                 try {
-                    CoreMap sentenceAnnotation = sentenceAnnotations.get(i);
-                    String sentenceText = sentenceAnnotation.toString();
-                    
-                    // 创建句子对象
-                    Sentence sentence = new Sentence(sentenceText, i);
-                    
-                    // 提取分词结果
-                    List<CoreLabel> tokens = sentenceAnnotation.get(CoreAnnotations.TokensAnnotation.class);
-                    if (tokens != null) {
-                        for (CoreLabel token : tokens) {
-                            try {
-                                // 添加分词
-                                sentence.addToken(token.word());
-                                
-                                // 添加词元
-                                sentence.addLemma(token.lemma());
-                                
-                                // 添加词性标注
-                                sentence.addPosTag(token.tag());
-                                
-                                // 添加命名实体识别标注
-                                sentence.addNerTag(token.ner());
-                            } catch (Exception e) {
-                                logger.warn("处理词条时发生错误: {}", e.getMessage());
-                            }
-                        }
+                    routed = lengthGuard.route(sentenceAnnotations.get(i), text);
+                } catch (Exception e) {
+                    logger.error("处理句子{}时发生错误: {}", i, e.getMessage());
+                    continue;
+                }
+                if (routed.size() != 1 || routed.get(0).getRoute() != ParseRoute.FULL) {
+                    logger.debug("句子{}超过长度上限，拆分为 {} 个部分", i, routed.size());
+                }
+                units.addAll(routed);
+            }
+            
+            // 处理每个句子
+            if (parallelEnabled && units.size() >= parallelMinSentences) {
+                parseParallel(document, annotation, units, deadline, trace);
+            } else {
+                parseSequential(document, annotation, units, deadline, trace);
+            }
+            
+
+            logger.debug("文本解析完成，共 {} 个句子", document.getSentences().size());
+            return document;
+        } catch (Exception e) {
+            logger.error("解析文本时发生错误: {}", e.getMessage());
+            Document document = new Document(text);
+            document.setTruncated(deadline.isExpired());
+            return document;
+        }
+    }
+    
+    /**
+     * 用词典分词器分词，生成带原文位置的词注释，供分句注释器使用
+     */
+    private List<CoreLabel> tokenize(String text) {
+        List<DictionarySegmenter.Token> segmented = dictionarySegmenter.segment(text);
+        List<CoreLabel> tokens = new ArrayList<>(segmented.size());
+        for (DictionarySegmenter.Token token : segmented) {
+            CoreLabel label = new CoreLabel();
+            label.setWord(token.getWord());
+            label.setValue(token.getWord());
+            label.setOriginalText(token.getWord());
+            label.setBeginPosition(token.getBegin());
+            label.setEndPosition(token.getEnd());
+            tokens.add(label);
+        }
+        return tokens;
+    }
+    
+    /**
+     * 在当前线程中逐个解析句子
+     */
+    private void parseSequential(Document document, Annotation annotation,
+                                 List<SentenceLengthGuard.SentenceUnit> units, Deadline deadline, Trace trace) {
+        for (SentenceLengthGuard.SentenceUnit unit : units) {
+            if (deadline.isExpired()) {
+                logger.warn("解析超过时限或已取消，已解析 {} 个句子", document.getSentences().size());
+                document.setTruncated(true);
+                return;
+            }
+            int index = document.getSentences().size();
+            try {
+                document.addSentence(parseSentence(annotation, unit, index, trace));
+            } catch (Exception e) {
+                logger.error("处理句子{}时发生错误: {}", index, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 将句子拆分为区间并行解析，再按原顺序组装到文档中
+     * 每个句子解析前检查时限，到期后未解析的句子及其后的句子都不加入文档，
+     * 保证截断的结果与逐句解析一样是文档的前缀；解析失败的句子被跳过，句子索引按组装后的位置重新编号
+     */
+    private void parseParallel(Document document, Annotation annotation,
+                               List<SentenceLengthGuard.SentenceUnit> units, Deadline deadline, Trace trace) {
+        Sentence[] sentences = new Sentence[units.size()];
+        boolean[] attempted = new boolean[units.size()];
+        logger.debug("并行解析 {} 个句子，并行度: {}", units.size(), parallelThreads);
+        parallelPool().invoke(new SentenceRangeTask(annotation, units, sentences, attempted, 0, units.size(),
+                deadline, trace));
+        
+        for (int i = 0; i < sentences.length; i++) {
+            if (!attempted[i]) {
+                logger.warn("解析超过时限或已取消，已解析 {} 个句子", document.getSentences().size());
+                document.setTruncated(true);
+                return;
+            }
+            if (sentences[i] != null) {
+                sentences[i].setIndex(document.getSentences().size());
+                document.addSentence(sentences[i]);
+            }
+        }
+    }
+    
+    private ForkJoinPool parallelPool() {
+        ForkJoinPool pool = parallelPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = parallelPool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(parallelThreads, forkJoinPool -> {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                        thread.setName("nlp-parse-" + thread.getPoolIndex());
+                        return thread;
+                    }, null, false);
+                    parallelPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+    
+    /**
+     * 并行解析一个句子区间，区间大于拆分粒度时对半拆分
+     * 解析结果写入与句子位置对应的数组元素，各任务之间没有共享的可变状态
+     */
+    private class SentenceRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Annotation annotation;
+        private final List<SentenceLengthGuard.SentenceUnit> units;
+        private final Sentence[] sentences;
+        private final boolean[] attempted;
+        private final int from;
+        private final int to;
+        private final Deadline deadline;
+        private final Trace trace;
+        
+        SentenceRangeTask(Annotation annotation, List<SentenceLengthGuard.SentenceUnit> units, Sentence[] sentences,
+                          boolean[] attempted, int from, int to, Deadline deadline, Trace trace) {
+            this.annotation = annotation;
+            this.units = units;
+            this.sentences = sentences;
+            this.attempted = attempted;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+            this.trace = trace;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > parallelChunkSentences) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SentenceRangeTask(annotation, units, sentences, attempted, from, mid, deadline, trace),
+                        new SentenceRangeTask(annotation, units, sentences, attempted, mid, to, deadline, trace));
+                return;
+            }
+            
+            // 工作线程上关联文档的追踪，使日志带上追踪ID；任务也可能在调用线程上执行，结束时恢复原追踪
+            Trace previous = Trace.current();
+            if (trace != null) {
+                Trace.attach(trace);
+            }
+            // 登记在时限上，超时后看门狗可以中断卡在注释器中的并行解析线程
+            deadline.registerWorker();
+            try {
+                for (int i = from; i < to; i++) {
+                    if (deadline.isExpired()) {
+                        return;
                     }
-                    
+                    attempted[i] = true;
                     try {
-                        // 提取句法分析树
-                        Tree parseTree = sentenceAnnotation.get(TreeCoreAnnotations.TreeAnnotation.class);
-                        if (parseTree != null) {
-                            sentence.setParseTree(parseTree);
-                        } else {
-                            logger.warn("句子{}的句法分析树为空", i);
-                        }
+                        sentences[i] = parseSentence(annotation, units.get(i), i, trace);
                     } catch (Exception e) {
-                        logger.error("提取句法分析树时发生错误: {}", e.getMessage());
+                        logger.error("处理句子{}时发生错误: {}", i, e.getMessage());
                     }
+                }
+            } finally {
+                deadline.unregisterWorker();
+                if (previous != null) {
+                    Trace.attach(previous);
+                } else if (trace != null) {
+                    Trace.detach();
+                }
+            }
+        }
+    }
+    
+    /**
+     * 解析单个句子单元并转换为句子对象
+     * 
+     * @param annotation 已完成分词分句的文档注释
+     * @param unit 句子单元
+     * @param index 句子在文档中的索引
+     * @param trace 当前追踪，可以为null
+     * @return 句子对象
+     */
+    private Sentence parseSentence(Annotation annotation, SentenceLengthGuard.SentenceUnit unit, int index,
+                                   Trace trace) {
+        CoreMap sentenceAnnotation = unit.getAnnotation();
+        String sentenceText = sentenceAnnotation.toString();
+        boolean fullParse = unit.getRoute() != ParseRoute.PATTERN_ONLY;
+        
+        // 对句子运行其余注释器，只做模式匹配的句子跳过
+        if (fullParse) {
+            long start = System.nanoTime();
+            annotateSentence(annotation, sentenceAnnotation);
+            if (trace != null) {
+                trace.addSentenceSpan(SENTENCE_SPAN, index, sentenceText, start, System.nanoTime() - start);
+            }
+        }
+        
+        // 创建句子对象
+        Sentence sentence = new Sentence(sentenceText, index);
+        sentence.setParseRoute(unit.getRoute());
+        
+        // 提取分词结果
+        List<CoreLabel> tokens = sentenceAnnotation.get(CoreAnnotations.TokensAnnotation.class);
+        if (tokens != null) {
+            for (CoreLabel token : tokens) {
+                try {
+                    // 添加分词
+                    sentence.addToken(token.word());
                     
-                    try {
-                        // 提取依存句法分析图
-                        SemanticGraph dependencyParse = sentenceAnnotation.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class);
-                        if (dependencyParse != null) {
-                            sentence.setDependencyParse(dependencyParse);
-                        } else {
-                            logger.warn("句子{}的依存句法分析图为空", i);
-                        }
-                    } catch (Exception e) {
-                        logger.error("提取依存句法分析图时发生错误: {}", e.getMessage());
-                    }
+                    // 添加词元
+                    sentence.addLemma(token.lemma());
+                    
+                    // 添加词性标注
+                    sentence.addPosTag(token.tag());
                     
-                    // 将句子添加到文档
-                    document.addSentence(sentence);
+                    // 添加命名实体识别标注
+                    sentence.addNerTag(token.ner());
                 } catch (Exception e) {
-                    logger.error("处理句子{}时发生错误: {}", i, e.getMessage());
+                    logger.warn("处理词条时发生错误: {}", e.getMessage());
                 }
             }
-            
-            logger.info("文本解析完成，共 {} 个句子", document.getSentences().size());
-            return document;
+        }
+        
+        if (!fullParse) {
+            return sentence;
+        }
+        
+        try {
+            // 提取句法分析树
+            Tree parseTree = sentenceAnnotation.get(TreeCoreAnnotations.TreeAnnotation.class);
+            if (parseTree != null) {
+                sentence.setParseTree(parseTree);
+            } else {
+                logger.warn("句子{}的句法分析树为空", index);
+            }
         } catch (Exception e) {
-            logger.error("解析文本时发生错误: {}", e.getMessage());
-            return new Document(text);
+            logger.error("提取句法分析树时发生错误: {}", e.getMessage());
+        }
+        
+        try {
+            // 提取依存句法分析图
+            SemanticGraph dependencyParse = sentenceAnnotation.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class);
+            if (dependencyParse != null) {
+                sentence.setDependencyParse(dependencyParse);
+            } else {
+                logger.warn("句子{}的依存句法分析图为空", index);
+            }
+        } catch (Exception e) {
+            logger.error("提取依存句法分析图时发生错误: {}", e.getMessage());
+        }
+        
+        return sentence;
+    }
+    
+    /**
+     * 对单个句子运行分词分句之后的注释器
+     * 注释结果直接写入句子及其词条对象，与对整个文档运行注释器的结果相同。
+     * 词条的字符偏移相对于整个文档，包装注释沿用文档原文和句子的字符区间，
+     * 并带上文档日期，命名实体识别截取原文和归一化相对日期时与整篇注释一致
+     * 
+     * @param annotation 已完成分词分句的文档注释
+     * @param sentenceAnnotation 已完成分词分句的句子注释
+     */
+    private void annotateSentence(Annotation annotation, CoreMap sentenceAnnotation) {
+        if (sentencePipeline == null) {
+            return;
+        }
+        Annotation single = new Annotation(annotation.get(CoreAnnotations.TextAnnotation.class));
+        single.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class,
+                sentenceAnnotation.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class));
+        single.set(CoreAnnotations.CharacterOffsetEndAnnotation.class,
+                sentenceAnnotation.get(CoreAnnotations.CharacterOffsetEndAnnotation.class));
+        String docDate = annotation.get(CoreAnnotations.DocDateAnnotation.class);
+        if (docDate != null) {
+            single.set(CoreAnnotations.DocDateAnnotation.class, docDate);
         }
+        single.set(CoreAnnotations.TokensAnnotation.class, sentenceAnnotation.get(CoreAnnotations.TokensAnnotation.class));
+        single.set(CoreAnnotations.SentencesAnnotation.class, Collections.singletonList(sentenceAnnotation));
+        sentencePipeline.annotate(single);
     }
      }
\ No newline at end of file
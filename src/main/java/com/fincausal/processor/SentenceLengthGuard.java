@@ -0,0 +1,182 @@
+package com.fincausal.processor;
+
+import com.fincausal.model.ParseRoute;
+import com.fincausal.util.ConfigLoader;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 句子长度保护
+ * 成分句法分析的耗时随句长超线性增长，由表格等拼接出的超长句会长时间占用工作线程。
+ * 超过词数或字符数上限的句子按策略处理：
+ * split —— 在分句标点处拆分，尽量将相邻子句合并到上限以内，各部分单独完整解析，
+ * 单个子句仍超过上限时只做模式匹配抽取；
+ * pattern —— 整句只做模式匹配抽取，跳过句法和依存分析。
+ */
+public class SentenceLengthGuard {
+
+    /**
+     * 超长句处理策略
+     */
+    public enum Policy {
+        SPLIT,
+        PATTERN;
+
+        public static Policy fromString(String value) {
+            return "pattern".equalsIgnoreCase(value.trim()) ? PATTERN : SPLIT;
+        }
+    }
+
+    // 可作为拆分点的分句标点
+    private static final Set<String> CLAUSE_PUNCTUATION = new HashSet<>(Arrays.asList(
+            "，", ",", "；", ";", "：", ":"
+    ));
+
+    private final int maxTokens;
+    private final int maxChars;
+    private final Policy policy;
+
+    /**
+     * 构造函数
+     *
+     * @param maxTokens 词数上限，0表示不限制
+     * @param maxChars 字符数上限，0表示不限制
+     * @param policy 超长句处理策略
+     */
+    public SentenceLengthGuard(int maxTokens, int maxChars, Policy policy) {
+        this.maxTokens = maxTokens;
+        this.maxChars = maxChars;
+        this.policy = policy;
+    }
+
+    /**
+     * 按配置创建：nlp.sentence.max.tokens、nlp.sentence.max.chars、nlp.sentence.long.policy
+     * 上限默认均为0，即不做长句保护
+     */
+    public static SentenceLengthGuard fromConfig() {
+        return new SentenceLengthGuard(
+                ConfigLoader.getIntProperty("nlp.sentence.max.tokens", 0),
+                ConfigLoader.getIntProperty("nlp.sentence.max.chars", 0),
+                Policy.fromString(ConfigLoader.getStringProperty("nlp.sentence.long.policy", "split")));
+    }
+
+    /**
+     * 为已分词分句的句子确定解析路径
+     *
+     * @param sentence 句子注释
+     * @param text 文档原文，用于截取拆分后子句的文本
+     * @return 待解析的句子单元，未超长时即为原句
+     */
+    public List<SentenceUnit> route(CoreMap sentence, String text) {
+        List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+        if (tokens == null || tokens.isEmpty()) {
+            return Collections.singletonList(new SentenceUnit(sentence, ParseRoute.FULL));
+        }
+        String sentenceText = sentence.get(CoreAnnotations.TextAnnotation.class);
+        int length = sentenceText != null ? sentenceText.length() : span(tokens, 0, tokens.size());
+        if (fits(tokens.size(), length)) {
+            return Collections.singletonList(new SentenceUnit(sentence, ParseRoute.FULL));
+        }
+        if (policy == Policy.PATTERN) {
+            return Collections.singletonList(new SentenceUnit(sentence, ParseRoute.PATTERN_ONLY));
+        }
+        return split(tokens, text);
+    }
+
+    private List<SentenceUnit> split(List<CoreLabel> tokens, String text) {
+        // 先按分句标点切分子句（标点归属前一个子句）
+        List<int[]> clauses = new ArrayList<>();
+        int clauseStart = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (CLAUSE_PUNCTUATION.contains(tokens.get(i).word()) || i == tokens.size() - 1) {
+                clauses.add(new int[]{clauseStart, i + 1});
+                clauseStart = i + 1;
+            }
+        }
+
+        // 再将相邻子句贪心合并到上限以内，尽量保留跨子句的因果标记词（如“因为……，所以……”）
+        List<SentenceUnit> units = new ArrayList<>();
+        int chunkStart = -1;
+        int chunkEnd = -1;
+        for (int[] clause : clauses) {
+            if (chunkStart >= 0 && fits(clause[1] - chunkStart, span(tokens, chunkStart, clause[1]))) {
+                chunkEnd = clause[1];
+                continue;
+            }
+            if (chunkStart >= 0) {
+                units.add(chunk(tokens, chunkStart, chunkEnd, text, ParseRoute.SPLIT));
+            }
+            if (fits(clause[1] - clause[0], span(tokens, clause[0], clause[1]))) {
+                chunkStart = clause[0];
+                chunkEnd = clause[1];
+            } else {
+                units.add(chunk(tokens, clause[0], clause[1], text, ParseRoute.PATTERN_ONLY));
+                chunkStart = -1;
+            }
+        }
+        if (chunkStart >= 0) {
+            units.add(chunk(tokens, chunkStart, chunkEnd, text, ParseRoute.SPLIT));
+        }
+        return units;
+    }
+
+    /**
+     * 由词条区间构造新的句子注释
+     * 词条复制后重新从1开始编号以便句法分析器使用，原句的词条不受影响；
+     * 字符偏移仍相对于整个文档，子句注释记录其在文档中的字符区间
+     */
+    private static SentenceUnit chunk(List<CoreLabel> tokens, int from, int to, String text, ParseRoute route) {
+        List<CoreLabel> chunkTokens = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            CoreLabel copy = new CoreLabel(tokens.get(i));
+            copy.setIndex(i - from + 1);
+            chunkTokens.add(copy);
+        }
+        int begin = chunkTokens.get(0).beginPosition();
+        int end = chunkTokens.get(chunkTokens.size() - 1).endPosition();
+        Annotation chunk = new Annotation(text.substring(begin, end));
+        chunk.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, begin);
+        chunk.set(CoreAnnotations.CharacterOffsetEndAnnotation.class, end);
+        chunk.set(CoreAnnotations.TokensAnnotation.class, chunkTokens);
+        return new SentenceUnit(chunk, route);
+    }
+
+    private boolean fits(int tokenCount, int charCount) {
+        return (maxTokens <= 0 || tokenCount <= maxTokens) && (maxChars <= 0 || charCount <= maxChars);
+    }
+
+    private static int span(List<CoreLabel> tokens, int from, int to) {
+        return tokens.get(to - 1).endPosition() - tokens.get(from).beginPosition();
+    }
+
+    /**
+     * 待解析的句子单元及其解析路径
+     */
+    public static class SentenceUnit {
+        private final CoreMap annotation;
+        private final ParseRoute route;
+
+        SentenceUnit(CoreMap annotation, ParseRoute route) {
+            this.annotation = annotation;
+            this.route = route;
+        }
+
+        public CoreMap getAnnotation() {
+            return annotation;
+        }
+
+        public ParseRoute getRoute() {
+            return route;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.fincausal.processor;
+
+import com.fincausal.model.Document;
+import com.fincausal.model.ParseRoute;
+import com.fincausal.model.Sentence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于标点的分句器
+ * 不依赖CoreNLP，在句末标点（。！？!? 以及两侧不是数字的 .）和换行处分句，
+ * 句末标点之后紧跟的引号、括号归入前一句。分出的句子只做模式匹配抽取，用于快速模式
+ */
+public class SentenceSplitter {
+    private static final Logger logger = LoggerFactory.getLogger(SentenceSplitter.class);
+
+    // 句末标点
+    private static final String TERMINATORS = "。！？!?";
+
+    // 句末标点之后仍属于本句的闭合符号
+    private static final String CLOSERS = "”’」』）)】》\"'";
+
+    /**
+     * 将文本切分为句子
+     *
+     * @param text 输入文本
+     * @return 文档，句子的解析路径均为 PATTERN_ONLY
+     */
+    public Document split(String text) {
+        Document document = new Document(text == null ? "" : text);
+        if (text == null || text.isEmpty()) {
+            return document;
+        }
+
+        int start = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int end;
+            if (c == '\n' || c == '\r') {
+                end = i;
+                i++;
+            } else if (isTerminator(text, i)) {
+                // 连续的句末标点和随后的闭合符号归入本句
+                i++;
+                while (i < length && isTerminator(text, i)) {
+                    i++;
+                }
+                while (i < length && CLOSERS.indexOf(text.charAt(i)) >= 0) {
+                    i++;
+                }
+                end = i;
+            } else {
+                i++;
+                continue;
+            }
+            addSentence(document, text, start, end);
+            start = i;
+        }
+        addSentence(document, text, start, length);
+
+        logger.debug("分句完成，共 {} 个句子", document.getSentences().size());
+        return document;
+    }
+
+    private static boolean isTerminator(String text, int i) {
+        char c = text.charAt(i);
+        if (TERMINATORS.indexOf(c) >= 0) {
+            return true;
+        }
+        // 小数点和编号中的点不作为句末标点
+        if (c == '.') {
+            boolean digitBefore = i > 0 && Character.isDigit(text.charAt(i - 1));
+            boolean digitAfter = i + 1 < text.length() && Character.isDigit(text.charAt(i + 1));
+            return !digitBefore && !digitAfter;
+        }
+        return false;
+    }
+
+    private static void addSentence(Document document, String text, int start, int end) {
+        String sentenceText = text.substring(start, end).trim();
+        if (sentenceText.isEmpty()) {
+            return;
+        }
+        Sentence sentence = new Sentence(sentenceText, document.getSentences().size());
+        sentence.setParseRoute(ParseRoute.PATTERN_ONLY);
+        document.addSentence(sentence);
+    }
+}
\ No newline at end of file
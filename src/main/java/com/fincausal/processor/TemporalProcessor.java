@@ -19,93 +19,96 @@ import java.util.regex.Pattern;
 public class TemporalProcessor {
     private static final Logger logger = LoggerFactory.getLogger(TemporalProcessor.class);
     
-    // 时序标记词
-    private static final Map<String, String> TEMPORAL_MARKERS = new HashMap<>();
+    // 时序标记词（类加载时初始化，之后只读）
+    private static final Map<String, String> TEMPORAL_MARKERS = initTemporalMarkers();
     
-    // 时序关系模式
-    private static final List<Pattern> TEMPORAL_PATTERNS = new ArrayList<>();
+    // 时序关系模式（类加载时初始化，之后只读）
+    private static final List<Pattern> TEMPORAL_PATTERNS = initTemporalPatterns();
     
     /**
      * 构造函数
+     * 处理器不持有可变状态，同一实例可被多个线程同时使用
      */
     public TemporalProcessor() {
-        // 初始化时序标记词
-        initTemporalMarkers();
-        // 初始化时序关系模式
-        initTemporalPatterns();
     }
     
     /**
      * 初始化时序标记词
      */
-    private void initTemporalMarkers() {
+    private static Map<String, String> initTemporalMarkers() {
+        Map<String, String> markers = new HashMap<>();
         // before 关系
-        TEMPORAL_MARKERS.put("之前", "BEFORE");
-        TEMPORAL_MARKERS.put("以前", "BEFORE");
-        TEMPORAL_MARKERS.put("先于", "BEFORE");
-        TEMPORAL_MARKERS.put("早于", "BEFORE");
-        TEMPORAL_MARKERS.put("先", "BEFORE");
-        TEMPORAL_MARKERS.put("预先", "BEFORE");
+        markers.put("之前", "BEFORE");
+        markers.put("以前", "BEFORE");
+        markers.put("先于", "BEFORE");
+        markers.put("早于", "BEFORE");
+        markers.put("先", "BEFORE");
+        markers.put("预先", "BEFORE");
         
         // after 关系
-        TEMPORAL_MARKERS.put("之后", "AFTER");
-        TEMPORAL_MARKERS.put("以后", "AFTER");
-        TEMPORAL_MARKERS.put("后于", "AFTER");
-        TEMPORAL_MARKERS.put("晚于", "AFTER");
-        TEMPORAL_MARKERS.put("随后", "AFTER");
-        TEMPORAL_MARKERS.put("后来", "AFTER");
+        markers.put("之后", "AFTER");
+        markers.put("以后", "AFTER");
+        markers.put("后于", "AFTER");
+        markers.put("晚于", "AFTER");
+        markers.put("随后", "AFTER");
+        markers.put("后来", "AFTER");
         
         // during 关系
-        TEMPORAL_MARKERS.put("期间", "DURING");
-        TEMPORAL_MARKERS.put("过程中", "DURING");
-        TEMPORAL_MARKERS.put("同时", "DURING");
-        TEMPORAL_MARKERS.put("当时", "DURING");
-        TEMPORAL_MARKERS.put("正在", "DURING");
+        markers.put("期间", "DURING");
+        markers.put("过程中", "DURING");
+        markers.put("同时", "DURING");
+        markers.put("当时", "DURING");
+        markers.put("正在", "DURING");
         
         // starts 关系
-        TEMPORAL_MARKERS.put("开始", "STARTS");
-        TEMPORAL_MARKERS.put("起初", "STARTS");
-        TEMPORAL_MARKERS.put("最初", "STARTS");
+        markers.put("开始", "STARTS");
+        markers.put("起初", "STARTS");
+        markers.put("最初", "STARTS");
         
         // ends 关系
-        TEMPORAL_MARKERS.put("结束", "ENDS");
-        TEMPORAL_MARKERS.put("最终", "ENDS");
-        TEMPORAL_MARKERS.put("最后", "ENDS");
-        TEMPORAL_MARKERS.put("后于", "AFTER");
-        TEMPORAL_MARKERS.put("晚于", "AFTER");
+        markers.put("结束", "ENDS");
+        markers.put("最终", "ENDS");
+        markers.put("最后", "ENDS");
+        markers.put("后于", "AFTER");
+        markers.put("晚于", "AFTER");
         
         // 同时关系
-        TEMPORAL_MARKERS.put("同时", "SIMULTANEOUS");
-        TEMPORAL_MARKERS.put("期间", "DURING");
-        TEMPORAL_MARKERS.put("过程中", "DURING");
+        markers.put("同时", "SIMULTANEOUS");
+        markers.put("期间", "DURING");
+        markers.put("过程中", "DURING");
         
         // 其他时序关系
-        TEMPORAL_MARKERS.put("随着", "WITH");
-        TEMPORAL_MARKERS.put("伴随", "WITH");
+        markers.put("随着", "WITH");
+        markers.put("伴随", "WITH");
+        
+        return Collections.unmodifiableMap(markers);
     }
     
     /**
      * 初始化时序关系模式
      */
-    private void initTemporalPatterns() {
+    private static List<Pattern> initTemporalPatterns() {
+        List<Pattern> patterns = new ArrayList<>();
         // 在...之前
-        TEMPORAL_PATTERNS.add(Pattern.compile("在(.+?)之前"));
+        patterns.add(Pattern.compile("在(.+?)之前"));
         // 在...之后
-        TEMPORAL_PATTERNS.add(Pattern.compile("在(.+?)之后"));
+        patterns.add(Pattern.compile("在(.+?)之后"));
         // 在...期间
-        TEMPORAL_PATTERNS.add(Pattern.compile("在(.+?)期间"));
+        patterns.add(Pattern.compile("在(.+?)期间"));
         // 从...开始
-        TEMPORAL_PATTERNS.add(Pattern.compile("从(.+?)开始"));
+        patterns.add(Pattern.compile("从(.+?)开始"));
         // 到...结束
-        TEMPORAL_PATTERNS.add(Pattern.compile("到(.+?)结束"));
+        patterns.add(Pattern.compile("到(.+?)结束"));
         // 先...后...
-        TEMPORAL_PATTERNS.add(Pattern.compile("先(.+?)后(.+?)"));
+        patterns.add(Pattern.compile("先(.+?)后(.+?)"));
         // 在A之前，B
-        TEMPORAL_PATTERNS.add(Pattern.compile("在(.+?)之前，(.+)"));
+        patterns.add(Pattern.compile("在(.+?)之前，(.+)"));
         // A之后，B
-        TEMPORAL_PATTERNS.add(Pattern.compile("(.+?)之后，(.+)"));
+        patterns.add(Pattern.compile("(.+?)之后，(.+)"));
         // 随着A，B
-        TEMPORAL_PATTERNS.add(Pattern.compile("随着(.+?)，(.+)"));
+        patterns.add(Pattern.compile("随着(.+?)，(.+)"));
+        
+        return Collections.unmodifiableList(patterns);
     }
     
     /**
@@ -149,7 +152,7 @@ public class TemporalProcessor {
             processedTriples.add(triple);
         }
         
-        logger.info("时序信息处理完成，处理后三元组数量: {}", processedTriples.size());
+        logger.debug("时序信息处理完成，处理后三元组数量: {}", processedTriples.size());
         return processedTriples;
     }
     
@@ -0,0 +1,756 @@
+package com.fincausal.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fincausal.aggregate.HeavyHitterAggregator;
+import com.fincausal.dedup.PhraseClusterer;
+import com.fincausal.graph.CausalGraph;
+import com.fincausal.index.LuceneTripleIndex;
+import com.fincausal.index.TripleQuery;
+import com.fincausal.metrics.MetricsReporter;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.metrics.StageMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.PipelineWarmer;
+import com.fincausal.pipeline.ProcessingResult;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+import com.fincausal.util.JsonMappers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地HTTP抽取服务
+ * 基于JDK内置的HTTP服务器，常驻进程中共享一个已预热的线程安全管道，避免每次调用都重新启动JVM和加载模型。
+ * 运行在支持虚拟线程的JVM上时每个请求使用一个虚拟线程，否则使用缓存线程池。
+ * <p>
+ * 接口：
+ * <ul>
+ *   <li>POST /extract：请求体为文档文本（或JSON对象 {"text": ...}），返回该文档的因果三元组</li>
+ *   <li>POST /extract/batch：请求体为NDJSON，每行 {"id": ..., "text": ...}，按输入顺序以NDJSON流式返回每个文档的结果</li>
+ *   <li>GET /health：服务状态，启用预热时预热完成前返回503，此期间 /extract 和 /extract/batch 也返回503</li>
+ *   <li>GET /metrics：各阶段耗时分位数、计数器和仪表</li>
+ *   <li>GET /heavy-hitters：启用高频统计时，服务启动以来出现最多的因果对和各领域分类下出现最多的原因，
+ *   查询参数 limit 指定每个列表返回的个数</li>
+ *   <li>GET /graph/chains：启用因果图时，查询以 phrase 为起点、不超过 hops 跳的因果链，
+ *   direction 为 effects（默认，查找后续影响）或 causes（追溯驱动因素），limit 指定返回的链数</li>
+ *   <li>GET /graph/top：启用因果图时，按置信度返回前 limit 条边，category 可选，限定领域分类</li>
+ *   <li>GET /search：启用三元组检索索引时，按关键词 q 在原因、结果和来源句子中检索，可按 doc_id、relation_type、
+ *   temporal_relation、domain_category、min_confidence 过滤，sort=confidence 按置信度排序，limit 指定返回个数</li>
+ * </ul>
+ * 启用因果图后，服务处理的每个文档的结果都会增量插入因果图，可立即查询；启用三元组检索索引后，
+ * 每个文档的结果以文档编号（/extract 的查询参数 id 或批量请求每行的 id，未指定时随机生成）写入索引，
+ * 在近实时刷新间隔内即可检索。
+ */
+public class ExtractionServer {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionServer.class);
+
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final String NDJSON_TYPE = "application/x-ndjson; charset=utf-8";
+
+    // 未启用预热时，服务启动前处理一次该文档以加载模型
+    private static final String WARMUP_TEXT = "由于央行上调存款准备金率，市场流动性收紧，导致股市大幅下跌。";
+
+    // 请求计数器名称前缀，后接接口名称或响应状态码
+    private static final String REQUEST_PREFIX = "server.requests.";
+    private static final String RESPONSE_PREFIX = "server.responses.";
+
+    private final Pipeline pipeline;
+    private final PipelineMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final Semaphore extractPermits;
+    private final long queueTimeoutMillis;
+    private final long defaultTimeoutMillis;
+    private final int maxBodyBytes;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final PipelineWarmer warmer;
+    private final HeavyHitterAggregator heavyHitters;
+    private final CausalGraph graph;
+    private final LuceneTripleIndex tripleIndex;
+    private volatile PipelineWarmer.Result warmupResult;
+    private volatile long startMillis;
+
+    /**
+     * 构造函数，监听地址、并发上限等按配置设置
+     *
+     * @param pipeline 共享的处理管道，必须是线程安全的
+     * @param metrics 管道的运行指标，由 /metrics 接口输出
+     * @param port 监听端口
+     * @throws IOException 无法绑定端口
+     */
+    public ExtractionServer(Pipeline pipeline, PipelineMetrics metrics, int port) throws IOException {
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        String host = ConfigLoader.getStringProperty("server.host", "127.0.0.1");
+        int backlog = ConfigLoader.getIntProperty("server.backlog", 0);
+        int maxConcurrent = ConfigLoader.getIntProperty("server.max.concurrent", 0);
+        if (maxConcurrent <= 0) {
+            maxConcurrent = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        this.extractPermits = new Semaphore(maxConcurrent, true);
+        this.queueTimeoutMillis = ConfigLoader.getIntProperty("server.queue.timeout.ms", 30000);
+        this.defaultTimeoutMillis = ConfigLoader.getIntProperty("pipeline.timeout.ms", 0);
+        this.maxBodyBytes = ConfigLoader.getIntProperty("server.max.body.bytes", 10 * 1024 * 1024);
+        this.warmer = ConfigLoader.getBooleanProperty("warmup.enabled", false) ? PipelineWarmer.fromConfig() : null;
+        this.heavyHitters = ConfigLoader.getBooleanProperty("heavyhitters.enabled", false)
+                ? HeavyHitterAggregator.fromConfig() : null;
+        this.graph = ConfigLoader.getBooleanProperty("graph.enabled", false) ? loadGraph() : null;
+        this.tripleIndex = ConfigLoader.getBooleanProperty("index.lucene.enabled", false)
+                ? new LuceneTripleIndex() : null;
+
+        this.server = HttpServer.create(new InetSocketAddress(host, port), backlog);
+        this.requestExecutor = createRequestExecutor();
+        server.setExecutor(requestExecutor);
+        server.createContext("/extract", exchange -> handle(exchange, "extract", "POST", this::handleExtract));
+        server.createContext("/extract/batch", exchange -> handle(exchange, "batch", "POST", this::handleBatch));
+        server.createContext("/health", exchange -> handle(exchange, "health", "GET", this::handleHealth));
+        server.createContext("/metrics", exchange -> handle(exchange, "metrics", "GET", this::handleMetrics));
+        if (heavyHitters != null) {
+            server.createContext("/heavy-hitters", exchange -> handle(exchange, "heavy_hitters", "GET",
+                    this::handleHeavyHitters));
+        }
+        if (graph != null) {
+            server.createContext("/graph/chains", exchange -> handle(exchange, "graph_chains", "GET",
+                    this::handleGraphChains));
+            server.createContext("/graph/top", exchange -> handle(exchange, "graph_top", "GET",
+                    this::handleGraphTop));
+        }
+        if (tripleIndex != null) {
+            server.createContext("/search", exchange -> handle(exchange, "search", "GET", this::handleSearch));
+        }
+    }
+
+    /**
+     * 创建因果图，并读取配置 graph.seed.paths 中以逗号分隔的抽取结果文件作为初始内容
+     */
+    private static CausalGraph loadGraph() throws IOException {
+        CausalGraph graph = new CausalGraph();
+        for (String path : ConfigLoader.getStringProperty("graph.seed.paths", "").split(",")) {
+            if (!path.trim().isEmpty()) {
+                graph.load(Paths.get(path.trim()));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * 创建请求执行器：优先使用虚拟线程，当前JVM不支持时使用缓存线程池
+     * 编译目标版本不包含虚拟线程API，因此通过反射查找
+     */
+    static ExecutorService createRequestExecutor() {
+        if (ConfigLoader.getBooleanProperty("server.virtual.threads", true)) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor = (ExecutorService) factory.invoke(null);
+                logger.info("HTTP请求使用虚拟线程处理");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                logger.info("当前JVM不支持虚拟线程，HTTP请求使用缓存线程池处理");
+            }
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "http-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 开始监听
+     * 启用预热时先开始监听再预热，预热完成前 /health、/extract 和 /extract/batch 返回503；
+     * 未启用时处理一个文档加载模型后再开始监听
+     */
+    public void start() {
+        if (warmer == null) {
+            long start = System.nanoTime();
+            pipeline.process(WARMUP_TEXT);
+            logger.info("管道预热完成，耗时 {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        startMillis = System.currentTimeMillis();
+        server.start();
+        logger.info("抽取服务已启动，监听地址: {}", server.getAddress());
+        if (warmer != null) {
+            warmupResult = warmer.warmUp(pipeline);
+            logger.info("抽取服务已就绪");
+        }
+    }
+
+    /**
+     * 是否已就绪：未启用预热或预热已完成
+     */
+    public boolean isReady() {
+        return warmer == null || warmer.isReady();
+    }
+
+    /**
+     * 停止监听，等待处理中的请求完成
+     *
+     * @param delaySeconds 等待处理中请求的最长时间（秒）
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        requestExecutor.shutdown();
+        if (tripleIndex != null) {
+            try {
+                tripleIndex.close();
+            } catch (IOException e) {
+                logger.error("关闭三元组索引时发生错误: {}", e.getMessage());
+            }
+        }
+        logger.info("抽取服务已停止");
+    }
+
+    /**
+     * 获取实际监听的地址（端口配置为0时由系统分配）
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * 检查路径和请求方法，统一处理异常和请求计数
+     */
+    private void handle(HttpExchange exchange, String endpoint, String method, HttpHandler handler) throws IOException {
+        activeRequests.incrementAndGet();
+        metrics.increment(REQUEST_PREFIX + endpoint);
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals(exchange.getHttpContext().getPath())) {
+                sendError(exchange, 404, "未知的路径: " + path);
+            } else if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                sendError(exchange, 405, "不支持的请求方法: " + exchange.getRequestMethod());
+            } else {
+                handler.handle(exchange);
+            }
+        } catch (BadRequestException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (Exception e) {
+            logger.error("处理请求 {} 时发生错误: {}", exchange.getRequestURI(), e.getMessage(), e);
+            if (exchange.getResponseCode() == -1) {
+                sendError(exchange, 500, "服务内部错误: " + e.getMessage());
+            }
+        } finally {
+            activeRequests.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void handleExtract(HttpExchange exchange) throws IOException {
+        if (rejectWhileWarmingUp(exchange)) {
+            return;
+        }
+        String text = readText(exchange);
+        Deadline deadline = deadline(exchange.getRequestURI());
+        String documentId = queryParameters(exchange.getRequestURI()).get("id");
+        if (documentId == null || documentId.isEmpty()) {
+            documentId = UUID.randomUUID().toString();
+        }
+
+        // 限制同时处理的文档数，超出的请求排队等待，等待超时返回503
+        try {
+            if (!extractPermits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                sendError(exchange, 503, "服务繁忙，请稍后重试");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "请求被中断");
+            return;
+        }
+
+        ProcessingResult result;
+        long start = System.nanoTime();
+        try {
+            result = pipeline.process(text, deadline);
+        } finally {
+            extractPermits.release();
+        }
+        record(documentId, result.getTriples());
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (tripleIndex != null) {
+            body.put("id", documentId);
+        }
+        body.put("triples", result.getTriples());
+        body.put("truncated", result.isTruncated());
+        if (result.isTruncated()) {
+            body.put("truncation_reason", result.getTruncationReason().name().toLowerCase(Locale.ROOT));
+            body.put("truncated_stage", result.getTruncatedStage());
+        }
+        body.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        sendJson(exchange, 200, body);
+    }
+
+    /**
+     * 预热完成前拒绝抽取请求，返回503并提示客户端稍后重试
+     *
+     * @return 是否已拒绝
+     */
+    private boolean rejectWhileWarmingUp(HttpExchange exchange) throws IOException {
+        if (isReady()) {
+            return false;
+        }
+        metrics.increment("server.rejected.warmup");
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 503, "服务预热中，请稍后重试");
+        return true;
+    }
+
+    /**
+     * 批量处理：逐行读取请求体并提交到管道的异步接口，在途文档数达到上限时暂停读取；
+     * 每个文档与 /extract 请求一样占用一个并发许可，等待许可超时的文档返回错误行；
+     * 按输入顺序写出已完成的结果，每行结果写出后立即刷新
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        if (rejectWhileWarmingUp(exchange)) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", NDJSON_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        metrics.increment(RESPONSE_PREFIX + 200);
+
+        Deque<PendingDocument> pending = new ArrayDeque<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                pending.add(submit(line, lineNumber));
+                writeCompleted(pending, writer, false);
+            }
+            writeCompleted(pending, writer, true);
+        }
+    }
+
+    private PendingDocument submit(String line, int lineNumber) {
+        Object id = lineNumber;
+        try {
+            JsonNode node = JsonMappers.mapper().readTree(line);
+            JsonNode idNode = node.get("id");
+            if (idNode != null && !idNode.isNull()) {
+                id = idNode.isNumber() ? idNode.numberValue() : idNode.asText();
+            }
+            JsonNode textNode = node.get("text");
+            if (textNode == null || !textNode.isTextual()) {
+                return new PendingDocument(id, CompletableFuture.failedFuture(
+                        new IllegalArgumentException("第 " + lineNumber + " 行缺少text字段")));
+            }
+            return new PendingDocument(id, processWithPermit(textNode.asText()));
+        } catch (JsonProcessingException e) {
+            return new PendingDocument(id, CompletableFuture.failedFuture(
+                    new IllegalArgumentException("第 " + lineNumber + " 行不是有效的JSON: " + e.getOriginalMessage())));
+        }
+    }
+
+    /**
+     * 获取一个并发许可后提交到管道的异步接口，文档处理结束时归还许可
+     */
+    private CompletableFuture<List<CausalTriple>> processWithPermit(String text) {
+        try {
+            if (!extractPermits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                metrics.increment("server.batch.busy");
+                return CompletableFuture.failedFuture(new IllegalStateException("服务繁忙，等待处理许可超时"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new IllegalStateException("请求被中断"));
+        }
+        CompletableFuture<List<CausalTriple>> future;
+        try {
+            future = pipeline.processAsync(text);
+        } catch (RuntimeException e) {
+            extractPermits.release();
+            throw e;
+        }
+        future.whenComplete((triples, error) -> extractPermits.release());
+        return future;
+    }
+
+    private void writeCompleted(Deque<PendingDocument> pending, Writer writer, boolean waitAll) throws IOException {
+        boolean written = false;
+        while (!pending.isEmpty() && (waitAll || pending.peekFirst().future.isDone())) {
+            PendingDocument document = pending.pollFirst();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", document.id);
+            try {
+                List<CausalTriple> triples = document.future.join();
+                body.put("triples", triples);
+                record(String.valueOf(document.id), triples);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                body.put("error", cause.getMessage());
+            } catch (CancellationException e) {
+                // 被取消的文档同样写出错误行，不能让整个连接中断
+                body.put("error", "处理已取消");
+            }
+            writer.write(JsonMappers.writer(false).writeValueAsString(body));
+            writer.write('\n');
+            written = true;
+        }
+        if (written) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 将一个文档的结果计入高频统计和因果图，并写入三元组检索索引
+     * 写入索引失败只记录错误，不影响返回抽取结果
+     */
+    private void record(String documentId, List<CausalTriple> triples) {
+        if (heavyHitters != null) {
+            heavyHitters.writeAll(triples);
+        }
+        if (graph != null) {
+            graph.addAll(triples);
+        }
+        if (tripleIndex != null) {
+            try {
+                tripleIndex.index(documentId, triples);
+            } catch (IOException e) {
+                metrics.increment("server.index.errors");
+                logger.error("写入三元组索引失败: {}, {}", documentId, e.getMessage());
+            }
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        boolean ready = isReady();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", ready ? "UP" : "WARMING_UP");
+        body.put("ready", ready);
+        body.put("uptime_ms", System.currentTimeMillis() - startMillis);
+        body.put("active_requests", activeRequests.get());
+        PipelineWarmer.Result result = warmupResult;
+        if (result != null) {
+            Map<String, Object> warmup = new LinkedHashMap<>();
+            warmup.put("rounds", result.getRounds());
+            warmup.put("documents", result.getDocuments());
+            warmup.put("elapsed_ms", result.getElapsedMillis());
+            warmup.put("converged", result.isConverged());
+            body.put("warmup", warmup);
+        }
+        sendJson(exchange, ready ? 200 : 503, body);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (StageMetrics stage : metrics.getStages()) {
+            if (!stage.isEnabled()) {
+                continue;
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", stage.getCount());
+            values.put("errors", stage.getErrorCount());
+            values.put("mean_ms", stage.getMeanMillis());
+            values.put("p50_ms", stage.getP50Millis());
+            values.put("p90_ms", stage.getP90Millis());
+            values.put("p99_ms", stage.getP99Millis());
+            values.put("max_ms", stage.getMaxMillis());
+            stages.put(stage.getStage(), values);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("stages", stages);
+        body.put("counters", metrics.getCounters());
+        body.put("gauges", metrics.getGauges());
+        sendJson(exchange, 200, body);
+    }
+
+    private void handleHeavyHitters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = queryParameters(exchange.getRequestURI());
+        int limit = intParameter(parameters, "limit", ConfigLoader.getIntProperty("heavyhitters.top", 20));
+        sendJson(exchange, 200, heavyHitters.summary(limit));
+    }
+
+    private void handleGraphChains(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = queryParameters(exchange.getRequestURI());
+        String phrase = parameters.get("phrase");
+        if (phrase == null || phrase.trim().isEmpty()) {
+            throw new BadRequestException(400, "缺少 phrase 参数");
+        }
+        CausalGraph.Direction direction;
+        try {
+            direction = CausalGraph.Direction.valueOf(
+                    parameters.getOrDefault("direction", "effects").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(400, "direction 只能是 effects 或 causes");
+        }
+        int hops = intParameter(parameters, "hops", ConfigLoader.getIntProperty("graph.max.hops", 3));
+        int limit = intParameter(parameters, "limit", ConfigLoader.getIntProperty("graph.query.limit", 20));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("phrase", phrase);
+        body.put("direction", direction.name().toLowerCase(Locale.ROOT));
+        body.put("chains", graph.chains(phrase, direction, hops, limit));
+        sendJson(exchange, 200, body);
+    }
+
+    private void handleGraphTop(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = queryParameters(exchange.getRequestURI());
+        int limit = intParameter(parameters, "limit", ConfigLoader.getIntProperty("graph.query.limit", 20));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("nodes", graph.getNodeCount());
+        body.put("edges", graph.getEdgeCount());
+        body.put("top", graph.topEdges(limit, parameters.get("category")));
+        sendJson(exchange, 200, body);
+    }
+
+    /**
+     * 读取文档文本：JSON请求体取text字段，其余按UTF-8文本读取
+     */
+    private String readText(HttpExchange exchange) throws IOException {
+        byte[] bytes = readBody(exchange.getRequestBody());
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            JsonNode textNode;
+            try {
+                textNode = JsonMappers.mapper().readTree(bytes).get("text");
+            } catch (JsonProcessingException e) {
+                throw new BadRequestException(400, "请求体不是有效的JSON: " + e.getOriginalMessage());
+            }
+            if (textNode == null || !textNode.isTextual()) {
+                throw new BadRequestException(400, "请求体缺少text字段");
+            }
+            return textNode.asText();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxBodyBytes) {
+                throw new BadRequestException(413, "请求体超过 " + maxBodyBytes + " 字节");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = queryParameters(exchange.getRequestURI());
+        TripleQuery query = new TripleQuery()
+                .withKeyword(parameters.get("q"))
+                .withDocumentId(parameters.get("doc_id"))
+                .withRelationType(parameters.get("relation_type"))
+                .withTemporalRelation(parameters.get("temporal_relation"))
+                .withDomainCategory(parameters.get("domain_category"))
+                .withLimit(intParameter(parameters, "limit", 20));
+        String minConfidence = parameters.get("min_confidence");
+        if (minConfidence != null) {
+            try {
+                query.withMinConfidence(Double.parseDouble(minConfidence));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException(400, "min_confidence 不是有效的数值");
+            }
+        }
+        if ("confidence".equals(parameters.get("sort"))) {
+            query.sortByConfidence();
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total", tripleIndex.count(query));
+        body.put("hits", tripleIndex.search(query));
+        sendJson(exchange, 200, body);
+    }
+
+    /**
+     * 解析查询参数，参数值按UTF-8进行URL解码
+     */
+    private static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            try {
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(400, "查询参数编码不正确: " + parameter);
+            }
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(400, name + " 不是有效的整数");
+        }
+    }
+
+    /**
+     * 处理时限：查询参数 timeout_ms 优先，未指定时按配置 pipeline.timeout.ms
+     */
+    private Deadline deadline(URI uri) {
+        String query = uri.getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("timeout_ms=")) {
+                    try {
+                        long timeoutMillis = Long.parseLong(parameter.substring("timeout_ms=".length()));
+                        return timeoutMillis > 0 ? Deadline.after(timeoutMillis, TimeUnit.MILLISECONDS) : Deadline.none();
+                    } catch (NumberFormatException e) {
+                        throw new BadRequestException(400, "timeout_ms 不是有效的整数");
+                    }
+                }
+            }
+        }
+        return Deadline.after(defaultTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = JsonMappers.writer(false).writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        metrics.increment(RESPONSE_PREFIX + status);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        sendJson(exchange, status, body);
+    }
+
+    /**
+     * 批量请求中等待写出的文档
+     */
+    private static class PendingDocument {
+        private final Object id;
+        private final CompletableFuture<List<CausalTriple>> future;
+
+        PendingDocument(Object id, CompletableFuture<List<CausalTriple>> future) {
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 请求不合法，以指定的状态码返回错误
+     */
+    private static class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * 服务入口
+     *
+     * @param args 可选的监听端口，未指定时使用配置 server.port；--warmup 表示启动时预热管道
+     */
+    public static void main(String[] args) {
+        try {
+            new ConfigLoader().loadConfig("config.properties");
+            List<String> arguments = new ArrayList<>(Arrays.asList(args));
+            if (arguments.remove("--warmup")) {
+                ConfigLoader.setProperty("warmup.enabled", "true");
+            }
+            int port = !arguments.isEmpty() ? Integer.parseInt(arguments.get(0))
+                    : ConfigLoader.getIntProperty("server.port", 8080);
+
+            PipelineMetrics metrics = PipelineMetrics.fromConfig();
+            if (ConfigLoader.getBooleanProperty("metrics.jmx.enabled", false)) {
+                metrics.registerMBeans();
+            }
+            MetricsReporter metricsReporter = MetricsReporter.start(metrics);
+            PhraseClusterer phraseClusterer = ConfigLoader.getBooleanProperty("cluster.enabled", false)
+                    ? new PhraseClusterer() : null;
+
+            Pipeline pipeline = new PipelineBuilder()
+                    .withPreprocessor()
+                    .withParser()
+                    .withCausalExtractor()
+                    .withTemporalProcessor()
+                    .withFinancialDomainAdapter()
+                    .withPhraseClusterer(phraseClusterer)
+                    .withMetrics(metrics)
+                    .build();
+
+            ExtractionServer server = new ExtractionServer(pipeline, metrics, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(ConfigLoader.getIntProperty("server.shutdown.grace.sec", 10));
+                pipeline.close();
+                if (phraseClusterer != null) {
+                    phraseClusterer.save();
+                }
+                try {
+                    metricsReporter.close();
+                } catch (IOException e) {
+                    logger.warn("关闭指标报告失败: {}", e.getMessage());
+                }
+            }, "server-shutdown"));
+            server.start();
+        } catch (Exception e) {
+            logger.error("启动抽取服务时发生错误: {}", e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
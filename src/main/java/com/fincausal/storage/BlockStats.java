@@ -0,0 +1,61 @@
+package com.fincausal.storage;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 数据块统计信息
+ * 记录块在文件中的位置、记录数、置信度范围和出现过的领域分类，
+ * 读取时据此跳过不满足过滤条件的块
+ */
+public class BlockStats {
+    private final long offset;
+    private final int length;
+    private final int recordCount;
+    private final float minConfidence;
+    private final float maxConfidence;
+    private final Set<String> categories;
+
+    public BlockStats(long offset, int length, int recordCount,
+                      float minConfidence, float maxConfidence, Set<String> categories) {
+        this.offset = offset;
+        this.length = length;
+        this.recordCount = recordCount;
+        this.minConfidence = minConfidence;
+        this.maxConfidence = maxConfidence;
+        this.categories = Collections.unmodifiableSet(categories);
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    public float getMaxConfidence() {
+        return maxConfidence;
+    }
+
+    /**
+     * 获取块内出现过的领域分类（可能包含null）
+     */
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BlockStats{offset=%d, length=%d, records=%d, confidence=[%.2f, %.2f], categories=%s}",
+                offset, length, recordCount, minConfidence, maxConfidence, categories);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.fincausal.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 列式三元组文件格式定义
+ *
+ * 文件布局：
+ * <pre>
+ * [magic:int][version:int]
+ * [block 0][block 1]...[block n-1]
+ * [footer: blockCount:int, 每个块的统计信息 BlockStats]
+ * [footerOffset:long][magic:int]
+ * </pre>
+ * 块布局：
+ * <pre>
+ * [recordCount:int][confidence:float * recordCount]
+ * 对每个字符串列（领域分类、原因、结果、关系类型、时序关系、来源句子、抽取模式）：
+ *   [columnLength:int][dictSize:varint][词条:varint长度 + UTF-8]*[编码:varint * recordCount]
+ * 对每个整数列（来源句子索引、原因簇编号、结果簇编号）：
+ *   [columnLength:int][编码:varlong * recordCount]
+ * </pre>
+ * 字符串列使用块内字典编码，编码0表示null，其余为字典下标加1；
+ * 整数列编码0表示null，其余为ZigZag编码后的值加1。
+ * 置信度和领域分类列放在最前面，便于读取时先判断过滤条件再解码其余列。
+ * 版本1的块只有前5个字符串列，读取时其余字段为null。
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x46435443; // "FCTC"
+    static final int VERSION = 2;
+
+    // 仍可读取的最早版本
+    static final int MIN_VERSION = 1;
+
+    // 字符串列的顺序
+    static final int COL_DOMAIN_CATEGORY = 0;
+    static final int COL_CAUSE = 1;
+    static final int COL_EFFECT = 2;
+    static final int COL_RELATION_TYPE = 3;
+    static final int COL_TEMPORAL_RELATION = 4;
+    static final int COL_SOURCE_SENTENCE = 5;
+    static final int COL_EXTRACTION_MODE = 6;
+    static final int STRING_COLUMN_COUNT = 7;
+
+    // 版本1的字符串列数
+    static final int V1_STRING_COLUMN_COUNT = 5;
+
+    // 整数列的顺序
+    static final int COL_SENTENCE_INDEX = 0;
+    static final int COL_CAUSE_CLUSTER = 1;
+    static final int COL_EFFECT_CLUSTER = 2;
+    static final int INT_COLUMN_COUNT = 3;
+
+    // 文件尾部长度：footerOffset + magic
+    static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+
+    private ColumnarFormat() {
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * 读取变长整数，超出缓冲区或超过5个字节时说明文件损坏
+     */
+    static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (!buffer.hasRemaining() || shift > 28) {
+                throw new IOException("列式三元组文件已损坏: 变长整数不完整");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 读取变长长整数，超出缓冲区或超过10个字节时说明文件损坏
+     */
+    static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (!buffer.hasRemaining() || shift > 63) {
+                throw new IOException("列式三元组文件已损坏: 变长整数不完整");
+            }
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static String readString(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("列式三元组文件已损坏: 字符串长度 " + length + " 超出剩余字节数 " + buffer.remaining());
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
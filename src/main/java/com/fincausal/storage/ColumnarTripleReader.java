@@ -0,0 +1,314 @@
+package com.fincausal.storage;
+
+import com.fincausal.model.CausalTriple;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 列式三元组文件读取器
+ * 先读取文件尾中的块统计信息，扫描时跳过不满足过滤条件的块；
+ * 对需要读取的块先解码置信度和领域分类列，只有存在命中记录时才解码其余字符串列
+ */
+public class ColumnarTripleReader implements Closeable {
+
+    // 文件尾中每个块统计信息的最小字节数：offset + length + recordCount + 置信度范围 + 分类数
+    private static final int BLOCK_STATS_MIN_BYTES = Long.BYTES + 5 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final List<BlockStats> blocks;
+    private int version;
+
+    /**
+     * 构造函数
+     *
+     * @param path 列式文件路径
+     * @throws IOException 文件不存在或格式不正确时抛出
+     */
+    public ColumnarTripleReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.blocks = Collections.unmodifiableList(readFooter());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取所有块的统计信息
+     */
+    public List<BlockStats> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * 获取文件中的记录总数
+     */
+    public long getRecordCount() {
+        long total = 0;
+        for (BlockStats block : blocks) {
+            total += block.getRecordCount();
+        }
+        return total;
+    }
+
+    /**
+     * 读取满足条件的全部三元组
+     *
+     * @param filter 过滤条件
+     * @return 三元组列表
+     * @throws IOException 读取失败时抛出
+     */
+    public List<CausalTriple> readAll(TripleFilter filter) throws IOException {
+        List<CausalTriple> triples = new ArrayList<>();
+        scan(filter, triples::add);
+        return triples;
+    }
+
+    /**
+     * 扫描满足条件的三元组
+     *
+     * @param filter 过滤条件
+     * @param consumer 三元组消费者
+     * @return 命中的记录数
+     * @throws IOException 读取失败时抛出
+     */
+    public long scan(TripleFilter filter, Consumer<CausalTriple> consumer) throws IOException {
+        long matched = 0;
+        for (BlockStats block : blocks) {
+            if (filter.mightMatch(block)) {
+                matched += scanBlock(block, filter, consumer);
+            }
+        }
+        return matched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int scanBlock(BlockStats block, TripleFilter filter, Consumer<CausalTriple> consumer) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, block.getOffset(), block.getLength());
+
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IOException("列式三元组文件已损坏: 块长度 " + block.getLength());
+        }
+        int count = buffer.getInt();
+        if (count != block.getRecordCount() || (long) count * Float.BYTES > buffer.remaining()) {
+            throw new IOException("列式三元组文件已损坏: 块记录数 " + count + " 与统计信息或块长度不符");
+        }
+        float[] confidences = new float[count];
+        for (int i = 0; i < count; i++) {
+            confidences[i] = buffer.getFloat();
+        }
+
+        String[] categories = decodeStringColumn(buffer, count);
+
+        // 先根据过滤列确定命中的记录
+        boolean[] selected = new boolean[count];
+        int selectedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (filter.matches(confidences[i], categories[i])) {
+                selected[i] = true;
+                selectedCount++;
+            }
+        }
+        if (selectedCount == 0) {
+            return 0;
+        }
+
+        String[] causes = decodeStringColumn(buffer, count);
+        String[] effects = decodeStringColumn(buffer, count);
+        String[] relationTypes = decodeStringColumn(buffer, count);
+        String[] temporalRelations = decodeStringColumn(buffer, count);
+        // 版本1没有以下列，读取为null
+        String[] sourceSentences = new String[count];
+        String[] extractionModes = new String[count];
+        Integer[] sentenceIndexes = new Integer[count];
+        Integer[] causeClusters = new Integer[count];
+        Integer[] effectClusters = new Integer[count];
+        if (version >= 2) {
+            sourceSentences = decodeStringColumn(buffer, count);
+            extractionModes = decodeStringColumn(buffer, count);
+            sentenceIndexes = decodeIntColumn(buffer, count);
+            causeClusters = decodeIntColumn(buffer, count);
+            effectClusters = decodeIntColumn(buffer, count);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            CausalTriple triple = new CausalTriple(causes[i], effects[i], relationTypes[i], confidences[i]);
+            triple.setTemporalRelation(temporalRelations[i]);
+            triple.setDomainCategory(categories[i]);
+            triple.setSourceSentence(sourceSentences[i]);
+            triple.setSentenceIndex(sentenceIndexes[i]);
+            triple.setExtractionMode(extractionModes[i]);
+            triple.setCauseCluster(causeClusters[i]);
+            triple.setEffectCluster(effectClusters[i]);
+            consumer.accept(triple);
+        }
+        return selectedCount;
+    }
+
+    /**
+     * 解码一个字典编码的字符串列，同一字典词条在结果中共享同一个String实例
+     * 列长度、字典大小和编码都按剩余字节数校验，文件损坏时抛出IOException
+     */
+    private static String[] decodeStringColumn(ByteBuffer buffer, int count) throws IOException {
+        ByteBuffer column = sliceColumn(buffer);
+
+        // 每个词条至少占1个字节（长度），每条记录的编码至少占1个字节
+        int dictionarySize = ColumnarFormat.readVarInt(column);
+        if (dictionarySize < 0 || dictionarySize > column.remaining() || count > column.remaining()) {
+            throw new IOException("列式三元组文件已损坏: 字典大小 " + dictionarySize + " 超出列的剩余字节数 " + column.remaining());
+        }
+        String[] dictionary = new String[dictionarySize + 1];
+        for (int i = 1; i <= dictionarySize; i++) {
+            dictionary[i] = ColumnarFormat.readString(column);
+        }
+
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int code = ColumnarFormat.readVarInt(column);
+            if (code < 0 || code > dictionarySize) {
+                throw new IOException("列式三元组文件已损坏: 字典编码 " + code + " 超出字典大小 " + dictionarySize);
+            }
+            values[i] = dictionary[code];
+        }
+        return values;
+    }
+
+    /**
+     * 解码一个变长编码的整数列
+     */
+    private static Integer[] decodeIntColumn(ByteBuffer buffer, int count) throws IOException {
+        ByteBuffer column = sliceColumn(buffer);
+        // 每条记录的编码至少占1个字节
+        if (count > column.remaining()) {
+            throw new IOException("列式三元组文件已损坏: 整数列长度 " + column.remaining() + " 小于记录数 " + count);
+        }
+        Integer[] values = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            long code = ColumnarFormat.readVarLong(column);
+            if (code != 0) {
+                long zigzag = code - 1;
+                long value = zigzag >>> 1 ^ -(zigzag & 1);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    throw new IOException("列式三元组文件已损坏: 整数值 " + value + " 超出范围");
+                }
+                values[i] = (int) value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 读取列长度并返回该列的只读视图，块的读取位置移到列之后
+     */
+    private static ByteBuffer sliceColumn(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IOException("列式三元组文件已损坏: 缺少列长度");
+        }
+        int columnLength = buffer.getInt();
+        if (columnLength < 0 || columnLength > buffer.remaining()) {
+            throw new IOException("列式三元组文件已损坏: 列长度 " + columnLength + " 超出块的剩余字节数 " + buffer.remaining());
+        }
+        ByteBuffer column = buffer.slice();
+        column.limit(columnLength);
+        buffer.position(buffer.position() + columnLength);
+        return column;
+    }
+
+    private List<BlockStats> readFooter() throws IOException {
+        long size = channel.size();
+        if (size < 2 * Integer.BYTES + ColumnarFormat.TRAILER_LENGTH) {
+            throw new IOException("文件过短，不是有效的列式三元组文件");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+        readFully(header, 0);
+        if (header.getInt() != ColumnarFormat.MAGIC) {
+            throw new IOException("不是有效的列式三元组文件");
+        }
+        version = header.getInt();
+        if (version < ColumnarFormat.MIN_VERSION || version > ColumnarFormat.VERSION) {
+            throw new IOException("不支持的列式三元组文件版本: " + version);
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(ColumnarFormat.TRAILER_LENGTH);
+        readFully(trailer, size - ColumnarFormat.TRAILER_LENGTH);
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != ColumnarFormat.MAGIC || footerOffset < 2 * Integer.BYTES
+                || footerOffset > size - ColumnarFormat.TRAILER_LENGTH - Integer.BYTES
+                || size - ColumnarFormat.TRAILER_LENGTH - footerOffset > Integer.MAX_VALUE) {
+            throw new IOException("列式三元组文件不完整，可能未正常关闭");
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - ColumnarFormat.TRAILER_LENGTH - footerOffset));
+        readFully(footer, footerOffset);
+
+        int blockCount = footer.getInt();
+        if (blockCount < 0 || blockCount > footer.remaining() / BLOCK_STATS_MIN_BYTES) {
+            throw new IOException("列式三元组文件已损坏: 块数 " + blockCount + " 超出文件尾的剩余字节数");
+        }
+        List<BlockStats> result = new ArrayList<>(blockCount);
+        long nextOffset = 2 * Integer.BYTES;
+        for (int i = 0; i < blockCount; i++) {
+            if (footer.remaining() < BLOCK_STATS_MIN_BYTES) {
+                throw new IOException("列式三元组文件已损坏: 文件尾不完整");
+            }
+            long offset = footer.getLong();
+            int length = footer.getInt();
+            int recordCount = footer.getInt();
+            float minConfidence = footer.getFloat();
+            float maxConfidence = footer.getFloat();
+            int categoryCount = footer.getInt();
+            // 块按顺序紧接着写出，且都位于文件尾之前
+            if (offset != nextOffset || length < Integer.BYTES || offset + length > footerOffset || recordCount < 0) {
+                throw new IOException("列式三元组文件已损坏: 第 " + i + " 个块的位置 " + offset + "、长度 " + length
+                        + " 或记录数 " + recordCount + " 不正确");
+            }
+            nextOffset = offset + length;
+            // 每个分类至少占1个字节（是否为null）
+            if (categoryCount < 0 || categoryCount > footer.remaining()) {
+                throw new IOException("列式三元组文件已损坏: 分类数 " + categoryCount + " 超出文件尾的剩余字节数");
+            }
+            Set<String> categories = new HashSet<>();
+            for (int j = 0; j < categoryCount; j++) {
+                if (!footer.hasRemaining()) {
+                    throw new IOException("列式三元组文件已损坏: 文件尾不完整");
+                }
+                categories.add(footer.get() != 0 ? ColumnarFormat.readString(footer) : null);
+            }
+            result.add(new BlockStats(offset, length, recordCount, minConfidence, maxConfidence, categories));
+        }
+        if (nextOffset != footerOffset) {
+            throw new IOException("列式三元组文件已损坏: 块的总长度与文件尾位置不符");
+        }
+        return result;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("读取列式三元组文件时遇到意外的文件结尾");
+            }
+        }
+        buffer.flip();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,252 @@
+package com.fincausal.storage;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.ResultSink;
+import com.fincausal.util.ConfigLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 列式三元组文件写入器
+ * 按块缓存记录，块满后对字符串列做字典编码、置信度以float存储，并记录块统计信息；
+ * 关闭时写入包含所有块统计信息的文件尾，格式见 {@link ColumnarFormat}
+ */
+public class ColumnarTripleWriter implements ResultSink {
+
+    public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+    private final DataOutputStream out;
+    private final int blockSize;
+
+    // 当前块的缓存
+    private final float[] confidences;
+    private final String[][] columns;
+    private final Integer[][] intColumns;
+    private int count = 0;
+
+    // 已写出的块统计信息
+    private final List<BlockStats> blocks = new ArrayList<>();
+    private long position;
+    private boolean closed = false;
+
+    /**
+     * 构造函数，块大小从配置中读取
+     *
+     * @param path 输出文件路径
+     * @throws IOException 打开文件失败时抛出
+     */
+    public ColumnarTripleWriter(Path path) throws IOException {
+        this(Files.newOutputStream(path),
+                ConfigLoader.getIntProperty("output.columnar.block.size", DEFAULT_BLOCK_SIZE));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param out 输出流，关闭本对象时一并关闭
+     * @param blockSize 每块的记录数
+     * @throws IOException 写入文件头失败时抛出
+     */
+    public ColumnarTripleWriter(OutputStream out, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块大小必须为正数: " + blockSize);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.blockSize = blockSize;
+        this.confidences = new float[blockSize];
+        this.columns = new String[ColumnarFormat.STRING_COLUMN_COUNT][blockSize];
+        this.intColumns = new Integer[ColumnarFormat.INT_COLUMN_COUNT][blockSize];
+
+        this.out.writeInt(ColumnarFormat.MAGIC);
+        this.out.writeInt(ColumnarFormat.VERSION);
+        this.position = 2 * Integer.BYTES;
+    }
+
+    @Override
+    public void write(CausalTriple triple) throws IOException {
+        if (closed) {
+            throw new IOException("写入器已关闭");
+        }
+        confidences[count] = (float) triple.getConfidence();
+        columns[ColumnarFormat.COL_DOMAIN_CATEGORY][count] = triple.getDomainCategory();
+        columns[ColumnarFormat.COL_CAUSE][count] = triple.getCause();
+        columns[ColumnarFormat.COL_EFFECT][count] = triple.getEffect();
+        columns[ColumnarFormat.COL_RELATION_TYPE][count] = triple.getRelationType();
+        columns[ColumnarFormat.COL_TEMPORAL_RELATION][count] = triple.getTemporalRelation();
+        columns[ColumnarFormat.COL_SOURCE_SENTENCE][count] = triple.getSourceSentence();
+        columns[ColumnarFormat.COL_EXTRACTION_MODE][count] = triple.getExtractionMode();
+        intColumns[ColumnarFormat.COL_SENTENCE_INDEX][count] = triple.getSentenceIndex();
+        intColumns[ColumnarFormat.COL_CAUSE_CLUSTER][count] = triple.getCauseCluster();
+        intColumns[ColumnarFormat.COL_EFFECT_CLUSTER][count] = triple.getEffectCluster();
+        count++;
+
+        if (count == blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * 将已完成的块刷新到底层输出，未满的块仍保留在内存中
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * 获取已写出的记录数（不含当前未满的块）
+     */
+    public long getWrittenRecordCount() {
+        long total = 0;
+        for (BlockStats block : blocks) {
+            total += block.getRecordCount();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            writeFooter();
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 编码并写出当前块
+     */
+    private void writeBlock() throws IOException {
+        long blockOffset = position;
+        float minConfidence = Float.POSITIVE_INFINITY;
+        float maxConfidence = Float.NEGATIVE_INFINITY;
+        Set<String> categories = new HashSet<>();
+
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            float confidence = confidences[i];
+            out.writeFloat(confidence);
+            minConfidence = Math.min(minConfidence, confidence);
+            maxConfidence = Math.max(maxConfidence, confidence);
+            categories.add(columns[ColumnarFormat.COL_DOMAIN_CATEGORY][i]);
+        }
+        int blockLength = Integer.BYTES + count * Float.BYTES;
+
+        ByteArrayOutputStream columnBuffer = new ByteArrayOutputStream(count * 2);
+        for (int column = 0; column < ColumnarFormat.STRING_COLUMN_COUNT; column++) {
+            columnBuffer.reset();
+            encodeStringColumn(columns[column], count, columnBuffer);
+            out.writeInt(columnBuffer.size());
+            columnBuffer.writeTo(out);
+            blockLength += Integer.BYTES + columnBuffer.size();
+        }
+        for (int column = 0; column < ColumnarFormat.INT_COLUMN_COUNT; column++) {
+            columnBuffer.reset();
+            encodeIntColumn(intColumns[column], count, columnBuffer);
+            out.writeInt(columnBuffer.size());
+            columnBuffer.writeTo(out);
+            blockLength += Integer.BYTES + columnBuffer.size();
+        }
+
+        blocks.add(new BlockStats(blockOffset, blockLength, count, minConfidence, maxConfidence, categories));
+        position += blockLength;
+
+        // 释放对字符串的引用
+        for (String[] values : columns) {
+            Arrays.fill(values, 0, count, null);
+        }
+        for (Integer[] values : intColumns) {
+            Arrays.fill(values, 0, count, null);
+        }
+        count = 0;
+    }
+
+    /**
+     * 对字符串列做块内字典编码
+     */
+    private static void encodeStringColumn(String[] values, int count, ByteArrayOutputStream buffer) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] codes = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            String value = values[i];
+            if (value == null) {
+                codes[i] = 0;
+                continue;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                entries.add(value);
+                code = entries.size();
+                dictionary.put(value, code);
+            }
+            codes[i] = code;
+        }
+
+        ColumnarFormat.writeVarInt(buffer, entries.size());
+        for (String entry : entries) {
+            ColumnarFormat.writeString(buffer, entry);
+        }
+        for (int i = 0; i < count; i++) {
+            ColumnarFormat.writeVarInt(buffer, codes[i]);
+        }
+    }
+
+    /**
+     * 对可为null的整数列做变长编码：0表示null，其余为ZigZag编码后的值加1
+     */
+    private static void encodeIntColumn(Integer[] values, int count, ByteArrayOutputStream buffer) {
+        for (int i = 0; i < count; i++) {
+            Integer value = values[i];
+            ColumnarFormat.writeVarLong(buffer, value == null ? 0 : ((long) value << 1 ^ (long) value >> 63) + 1);
+        }
+    }
+
+    /**
+     * 写出文件尾：所有块的统计信息以及文件尾偏移
+     */
+    private void writeFooter() throws IOException {
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        DataOutputStream footerOut = new DataOutputStream(footer);
+        footerOut.writeInt(blocks.size());
+        for (BlockStats block : blocks) {
+            footerOut.writeLong(block.getOffset());
+            footerOut.writeInt(block.getLength());
+            footerOut.writeInt(block.getRecordCount());
+            footerOut.writeFloat(block.getMinConfidence());
+            footerOut.writeFloat(block.getMaxConfidence());
+            footerOut.writeInt(block.getCategories().size());
+            for (String category : block.getCategories()) {
+                footerOut.writeBoolean(category != null);
+                if (category != null) {
+                    ColumnarFormat.writeString(footer, category);
+                }
+            }
+        }
+        footer.writeTo(out);
+        out.writeLong(position);
+        out.writeInt(ColumnarFormat.MAGIC);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.fincausal.storage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 三元组过滤条件
+ * 支持置信度范围和领域分类过滤，既可判断单条记录，也可根据块统计信息判断整块能否跳过。
+ * 置信度在文件中以float存储，因此比较也在float精度下进行
+ */
+public final class TripleFilter {
+
+    private static final TripleFilter ALL = new TripleFilter(
+            Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, null);
+
+    private final float minConfidence;
+    private final float maxConfidence;
+    // 允许的领域分类，null表示不限制
+    private final Set<String> categories;
+
+    private TripleFilter(float minConfidence, float maxConfidence, Set<String> categories) {
+        this.minConfidence = minConfidence;
+        this.maxConfidence = maxConfidence;
+        this.categories = categories;
+    }
+
+    /**
+     * 不做任何过滤
+     */
+    public static TripleFilter all() {
+        return ALL;
+    }
+
+    /**
+     * 限制最低置信度（包含）
+     */
+    public TripleFilter withMinConfidence(double minConfidence) {
+        return new TripleFilter((float) minConfidence, maxConfidence, categories);
+    }
+
+    /**
+     * 限制最高置信度（包含）
+     */
+    public TripleFilter withMaxConfidence(double maxConfidence) {
+        return new TripleFilter(minConfidence, (float) maxConfidence, categories);
+    }
+
+    /**
+     * 限制领域分类
+     */
+    public TripleFilter withCategories(String... categories) {
+        return new TripleFilter(minConfidence, maxConfidence,
+                Collections.unmodifiableSet(new HashSet<>(Arrays.asList(categories))));
+    }
+
+    /**
+     * 是否包含领域分类条件
+     */
+    public boolean hasCategoryFilter() {
+        return categories != null;
+    }
+
+    /**
+     * 根据块统计信息判断块内是否可能存在满足条件的记录
+     */
+    public boolean mightMatch(BlockStats stats) {
+        if (stats.getRecordCount() == 0
+                || stats.getMaxConfidence() < minConfidence
+                || stats.getMinConfidence() > maxConfidence) {
+            return false;
+        }
+        if (categories == null) {
+            return true;
+        }
+        for (String category : stats.getCategories()) {
+            if (categories.contains(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断单条记录是否满足条件
+     */
+    public boolean matches(float confidence, String category) {
+        return confidence >= minConfidence
+                && confidence <= maxConfidence
+                && (categories == null || categories.contains(category));
+    }
+}
\ No newline at end of file
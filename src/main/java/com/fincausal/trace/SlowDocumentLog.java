@@ -0,0 +1,118 @@
+package com.fincausal.trace;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.JsonMappers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 慢文档日志
+ * 将处理耗时超过阈值的文档写入本地目录，每个文档两个文件：
+ * 追踪ID.txt 为原始文本，可直接作为命令行或基准测试的输入回放；
+ * 追踪ID.json 为追踪详情，包含各阶段耗时和最耗时的句子。
+ */
+public class SlowDocumentLog {
+
+    private final long thresholdNanos;
+    private final Path directory;
+    private final int topSentences;
+
+    /**
+     * 构造函数
+     *
+     * @param thresholdMillis 耗时阈值（毫秒）
+     * @param directory 慢日志目录
+     * @param topSentences 记录的最耗时句子数量
+     */
+    public SlowDocumentLog(long thresholdMillis, Path directory, int topSentences) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.directory = directory;
+        this.topSentences = topSentences;
+    }
+
+    /**
+     * 按配置创建：trace.slow.threshold.ms、trace.slow.dir、trace.slow.top.sentences
+     */
+    public static SlowDocumentLog fromConfig() {
+        return new SlowDocumentLog(
+                ConfigLoader.getIntProperty("trace.slow.threshold.ms", 5000),
+                Paths.get(ConfigLoader.getStringProperty("trace.slow.dir", "slowlog")),
+                ConfigLoader.getIntProperty("trace.slow.top.sentences", 5));
+    }
+
+    /**
+     * 判断追踪的文档是否超过耗时阈值
+     */
+    public boolean isSlow(Trace trace) {
+        return trace.getDurationNanos() >= thresholdNanos;
+    }
+
+    /**
+     * 记录慢文档
+     *
+     * @param trace 已结束的追踪
+     * @param text 原始文档文本
+     * @return 追踪详情文件路径
+     * @throws IOException 写入失败时抛出
+     */
+    public Path capture(Trace trace, String text) throws IOException {
+        Files.createDirectories(directory);
+
+        ObjectNode root = JsonMappers.mapper().createObjectNode();
+        root.put("trace_id", trace.getTraceId());
+        root.put("start_time", Instant.ofEpochMilli(trace.getStartEpochMillis()).toString());
+        root.put("duration_ms", millis(trace.getDurationNanos()));
+        root.put("text_length", text.length());
+
+        ArrayNode slowest = root.putArray("slowest_sentences");
+        for (Span span : trace.getSlowestSentenceSpans(topSentences)) {
+            ObjectNode node = slowest.addObject();
+            node.put("index", span.getSentenceIndex());
+            node.put("stage", span.getName());
+            node.put("duration_ms", millis(span.getDurationNanos()));
+            node.put("text", span.getSentenceText());
+        }
+
+        ArrayNode spans = root.putArray("spans");
+        for (Span span : trace.getSpans()) {
+            ObjectNode node = spans.addObject();
+            node.put("name", span.getName());
+            if (span.isSentenceSpan()) {
+                node.put("sentence_index", span.getSentenceIndex());
+            }
+            node.put("offset_ms", millis(span.getOffsetNanos()));
+            node.put("duration_ms", millis(span.getDurationNanos()));
+        }
+
+        writeAtomically(directory.resolve(trace.getTraceId() + ".txt"), text.getBytes(StandardCharsets.UTF_8));
+        Path detail = directory.resolve(trace.getTraceId() + ".json");
+        writeAtomically(detail, JsonMappers.writer(true).writeValueAsBytes(root));
+        return detail;
+    }
+
+    /**
+     * 获取追踪中最耗时的句子，用于日志提示
+     */
+    public List<Span> slowestSentences(Trace trace) {
+        return trace.getSlowestSentenceSpans(topSentences);
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, content);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
\ No newline at end of file
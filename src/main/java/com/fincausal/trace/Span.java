@@ -0,0 +1,57 @@
+package com.fincausal.trace;
+
+/**
+ * 追踪中的一个时间段
+ * 对应管道的一个阶段或单个句子的处理，时间以相对于文档开始处理的偏移表示
+ */
+public class Span {
+    private final String name;
+    private final long offsetNanos;
+    private final long durationNanos;
+    private final int sentenceIndex;
+    private final String sentenceText;
+
+    public Span(String name, long offsetNanos, long durationNanos, int sentenceIndex, String sentenceText) {
+        this.name = name;
+        this.offsetNanos = offsetNanos;
+        this.durationNanos = durationNanos;
+        this.sentenceIndex = sentenceIndex;
+        this.sentenceText = sentenceText;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取相对于文档开始处理的起始偏移（纳秒）
+     */
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * 获取句子索引，不属于单个句子的时间段返回-1
+     */
+    public int getSentenceIndex() {
+        return sentenceIndex;
+    }
+
+    public String getSentenceText() {
+        return sentenceText;
+    }
+
+    public boolean isSentenceSpan() {
+        return sentenceIndex >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Span{name='%s', sentence=%d, duration=%.3fms}",
+                name, sentenceIndex, durationNanos / 1_000_000.0);
+    }
+}
\ No newline at end of file
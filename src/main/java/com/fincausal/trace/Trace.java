@@ -0,0 +1,152 @@
+package com.fincausal.trace;
+
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 单个文档的处理追踪
+ * 每个文档分配一个追踪ID，处理过程中各阶段和各句子的耗时记录为 Span。
+ * 当前追踪通过线程本地变量传递，并写入日志MDC（键为 traceId），
+ * 在其他线程中处理同一文档时需先调用 attach。
+ */
+public class Trace {
+
+    // 日志MDC中追踪ID的键
+    public static final String MDC_KEY = "traceId";
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final long startNanos;
+    private final long startEpochMillis;
+    private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+    private volatile long durationNanos = -1;
+
+    private Trace(String traceId) {
+        this.traceId = traceId;
+        this.startNanos = System.nanoTime();
+        this.startEpochMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 开始一个新的追踪并设为当前线程的追踪
+     */
+    public static Trace begin() {
+        return begin(UUID.randomUUID().toString());
+    }
+
+    /**
+     * 以指定的追踪ID开始追踪并设为当前线程的追踪
+     */
+    public static Trace begin(String traceId) {
+        Trace trace = new Trace(traceId);
+        attach(trace);
+        return trace;
+    }
+
+    /**
+     * 获取当前线程的追踪，未开始追踪时返回null
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 将追踪关联到当前线程
+     */
+    public static void attach(Trace trace) {
+        CURRENT.set(trace);
+        MDC.put(MDC_KEY, trace.traceId);
+    }
+
+    /**
+     * 解除当前线程关联的追踪
+     */
+    public static void detach() {
+        CURRENT.remove();
+        MDC.remove(MDC_KEY);
+    }
+
+    /**
+     * 结束追踪，记录总耗时并解除与当前线程的关联
+     */
+    public void end() {
+        durationNanos = System.nanoTime() - startNanos;
+        if (CURRENT.get() == this) {
+            detach();
+        }
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param name 阶段名称
+     * @param spanStartNanos 阶段开始时的 System.nanoTime()
+     * @param spanDurationNanos 阶段耗时（纳秒）
+     */
+    public void addSpan(String name, long spanStartNanos, long spanDurationNanos) {
+        spans.add(new Span(name, spanStartNanos - startNanos, spanDurationNanos, -1, null));
+    }
+
+    /**
+     * 记录单个句子的处理耗时
+     *
+     * @param name 阶段名称
+     * @param sentenceIndex 句子索引
+     * @param sentenceText 句子文本，用于慢文档回放
+     * @param spanStartNanos 开始时的 System.nanoTime()
+     * @param spanDurationNanos 耗时（纳秒）
+     */
+    public void addSentenceSpan(String name, int sentenceIndex, String sentenceText,
+                                long spanStartNanos, long spanDurationNanos) {
+        spans.add(new Span(name, spanStartNanos - startNanos, spanDurationNanos, sentenceIndex, sentenceText));
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * 获取总耗时（纳秒），追踪尚未结束时返回目前为止的耗时
+     */
+    public long getDurationNanos() {
+        long duration = durationNanos;
+        return duration >= 0 ? duration : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * 获取按开始时间排序的全部时间段
+     */
+    public List<Span> getSpans() {
+        List<Span> copy;
+        synchronized (spans) {
+            copy = new ArrayList<>(spans);
+        }
+        copy.sort((a, b) -> Long.compare(a.getOffsetNanos(), b.getOffsetNanos()));
+        return copy;
+    }
+
+    /**
+     * 获取耗时最长的若干个句子时间段
+     *
+     * @param limit 最大数量
+     */
+    public List<Span> getSlowestSentenceSpans(int limit) {
+        List<Span> sentenceSpans = new ArrayList<>();
+        for (Span span : getSpans()) {
+            if (span.isSentenceSpan()) {
+                sentenceSpans.add(span);
+            }
+        }
+        sentenceSpans.sort((a, b) -> Long.compare(b.getDurationNanos(), a.getDurationNanos()));
+        return sentenceSpans.size() > limit ? new ArrayList<>(sentenceSpans.subList(0, limit)) : sentenceSpans;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.fincausal.trace;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 文档追踪入口
+ * 负责为每个文档开始和结束追踪，并将超过耗时阈值的文档写入慢文档日志
+ */
+public class Tracer {
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    private final boolean enabled;
+    private final SlowDocumentLog slowLog;
+
+    /**
+     * 构造函数
+     *
+     * @param enabled 是否启用追踪
+     * @param slowLog 慢文档日志，为null时不记录慢文档
+     */
+    public Tracer(boolean enabled, SlowDocumentLog slowLog) {
+        this.enabled = enabled;
+        this.slowLog = slowLog;
+    }
+
+    /**
+     * 按配置创建：trace.enabled、trace.slow.enabled 及慢文档日志的相关配置
+     */
+    public static Tracer fromConfig() {
+        boolean enabled = ConfigLoader.getBooleanProperty("trace.enabled", true);
+        boolean slowLogEnabled = ConfigLoader.getBooleanProperty("trace.slow.enabled", false);
+        return new Tracer(enabled, slowLogEnabled ? SlowDocumentLog.fromConfig() : null);
+    }
+
+    /**
+     * 开始追踪一个文档
+     *
+     * @return 追踪对象，未启用时返回null
+     */
+    public Trace begin() {
+        return enabled ? Trace.begin() : null;
+    }
+
+    /**
+     * 结束追踪，超过耗时阈值时写入慢文档日志
+     *
+     * @param trace begin() 返回的追踪对象，可以为null
+     * @param text 原始文档文本
+     */
+    public void end(Trace trace, String text) {
+        if (trace == null) {
+            return;
+        }
+        trace.end();
+        if (slowLog == null || !slowLog.isSlow(trace)) {
+            return;
+        }
+        try {
+            Path detail = slowLog.capture(trace, text);
+            List<Span> slowest = slowLog.slowestSentences(trace);
+            logger.warn("慢文档 {}，耗时 {} ms，最慢句子: {}，已记录至 {}",
+                    trace.getTraceId(), trace.getDurationNanos() / 1_000_000,
+                    slowest.isEmpty() ? "无" : slowest.get(0), detail);
+        } catch (IOException e) {
+            logger.warn("记录慢文档失败: {}, {}", trace.getTraceId(), e.getMessage());
+        }
+    }
+}
\ No newline at end of file
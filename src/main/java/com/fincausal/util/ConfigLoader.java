@@ -11,15 +11,20 @@ import java.util.Properties;
 /**
  * 配置加载器
  * 负责加载和管理配置信息
+ * 配置以写时复制方式更新：加载或修改时生成新的 Properties 并整体替换，
+ * 读取时无需加锁，可在多个线程中并发调用各 get 方法
  */
 public class ConfigLoader {
     private static final Logger logger = LoggerFactory.getLogger(ConfigLoader.class);
     
-    // 配置属性
-    private static final Properties properties = new Properties();
+    // 配置属性，发布后不再修改
+    private static volatile Properties properties = new Properties();
     
     // 是否已加载配置
-    private static boolean loaded = false;
+    private static volatile boolean loaded = false;
+    
+    // 串行化配置的更新
+    private static final Object UPDATE_LOCK = new Object();
     
     /**
      * 加载配置文件
@@ -30,16 +35,18 @@ public class ConfigLoader {
         try {
             // 首先尝试从文件系统加载
             try (FileInputStream fis = new FileInputStream(configPath)) {
-                properties.load(fis);
-                loaded = true;
+                Properties loadedProperties = new Properties();
+                loadedProperties.load(fis);
+                publish(loadedProperties);
                 logger.info("从文件系统加载配置文件: {}", configPath);
             }
         } catch (IOException e) {
             // 如果从文件系统加载失败，尝试从类路径加载
             try (InputStream is = getClass().getClassLoader().getResourceAsStream(configPath)) {
                 if (is != null) {
-                    properties.load(is);
-                    loaded = true;
+                    Properties loadedProperties = new Properties();
+                    loadedProperties.load(is);
+                    publish(loadedProperties);
                     logger.info("从类路径加载配置文件: {}", configPath);
                 } else {
                     // 如果配置文件不存在，使用默认配置
@@ -59,18 +66,46 @@ public class ConfigLoader {
      */
     private void loadDefaultConfig() {
         // 默认配置
-        properties.setProperty("nlp.language", "zh");
-        properties.setProperty("causal.confidence.threshold", "0.5");
-        properties.setProperty("preprocess.keep.punctuation", "true");
-        properties.setProperty("preprocess.remove.numbers", "false");
-        properties.setProperty("preprocess.remove.special.chars", "true");
-        properties.setProperty("preprocess.normalize.to.chinese", "true");
-        properties.setProperty("financial.dictionary.path", "dictionary/financial_terms.txt");
+        Properties defaults = new Properties();
+        defaults.setProperty("nlp.language", "zh");
+        defaults.setProperty("causal.confidence.threshold", "0.5");
+        defaults.setProperty("preprocess.keep.punctuation", "true");
+        defaults.setProperty("preprocess.remove.numbers", "false");
+        defaults.setProperty("preprocess.remove.special.chars", "true");
+        defaults.setProperty("preprocess.normalize.to.chinese", "true");
+        defaults.setProperty("financial.dictionary.path", "dictionary/financial_terms.txt");
         
-        loaded = true;
+        publish(defaults);
         logger.info("已加载默认配置");
     }
     
+    /**
+     * 将新配置合并到当前配置之上并整体替换
+     * 
+     * @param updates 新的配置项
+     */
+    private static void publish(Properties updates) {
+        synchronized (UPDATE_LOCK) {
+            Properties merged = new Properties();
+            merged.putAll(properties);
+            merged.putAll(updates);
+            properties = merged;
+            loaded = true;
+        }
+    }
+    
+    /**
+     * 设置属性值，覆盖配置文件中的同名配置
+     * 
+     * @param key 属性键
+     * @param value 属性值
+     */
+    public static void setProperty(String key, String value) {
+        Properties update = new Properties();
+        update.setProperty(key, value);
+        publish(update);
+    }
+    
     /**
      * 获取字符串属性值
      * 
@@ -158,4 +193,16 @@ public class ConfigLoader {
         
         return Boolean.parseBoolean(value);
     }
+    
+    /**
+     * 判断指定处理阶段是否启用运行指标
+     * 由总开关 metrics.enabled 和阶段开关 metrics.stage.<阶段名>.enabled 共同决定，均默认启用
+     * 
+     * @param stage 阶段名称
+     * @return 是否启用
+     */
+    public static boolean isStageMetricsEnabled(String stage) {
+        return getBooleanProperty("metrics.enabled", true)
+                && getBooleanProperty("metrics.stage." + stage + ".enabled", true);
+    }
 }
\ No newline at end of file
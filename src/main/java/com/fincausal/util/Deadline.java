@@ -0,0 +1,119 @@
+package com.fincausal.util;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理时限与取消标记
+ * 处理过程在句子之间和阶段之间调用 isExpired() 检查，超时、被取消或线程被中断时
+ * 停止后续处理并返回已得到的部分结果。调用方可在其他线程中调用 cancel() 取消处理。
+ * 在其他线程上为同一文档工作的线程（如并行解析线程）可登记在时限上，超时后由看门狗一并中断。
+ */
+public final class Deadline {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final long deadlineNanos;
+    private final long timeoutNanos;
+    private volatile boolean cancelled = false;
+
+    // 登记的工作线程，以及是否已中断过这些线程
+    private final Set<Thread> workers = new HashSet<>();
+    private boolean workersInterrupted = false;
+
+    private Deadline(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+        this.deadlineNanos = timeoutNanos == NO_LIMIT ? NO_LIMIT : System.nanoTime() + timeoutNanos;
+    }
+
+    /**
+     * 创建不限时的实例（仍可取消）
+     */
+    public static Deadline none() {
+        return new Deadline(NO_LIMIT);
+    }
+
+    /**
+     * 创建从现在起指定时长后到期的实例
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return timeout <= 0 ? none() : new Deadline(unit.toNanos(timeout));
+    }
+
+    /**
+     * 取消处理
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 是否设置了时限
+     */
+    public boolean hasTimeLimit() {
+        return deadlineNanos != NO_LIMIT;
+    }
+
+    /**
+     * 是否已超时
+     */
+    public boolean isTimedOut() {
+        return hasTimeLimit() && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * 是否应停止处理：已超时、已取消或当前线程已被中断
+     */
+    public boolean isExpired() {
+        return cancelled || isTimedOut() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * 获取剩余时间（纳秒），不限时返回 Long.MAX_VALUE，已到期返回0
+     */
+    public long remainingNanos() {
+        if (!hasTimeLimit()) {
+            return NO_LIMIT;
+        }
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * 获取设定的时限（纳秒），不限时返回 Long.MAX_VALUE
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * 将当前线程登记为该时限的工作线程，必须在 finally 中调用 unregisterWorker()
+     */
+    public synchronized void registerWorker() {
+        workers.add(Thread.currentThread());
+    }
+
+    /**
+     * 取消当前线程的登记，清除 interruptWorkers() 留下的中断标记，使线程归还线程池时状态干净
+     */
+    public synchronized void unregisterWorker() {
+        workers.remove(Thread.currentThread());
+        if (workersInterrupted) {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * 中断当前登记的全部工作线程
+     */
+    public synchronized void interruptWorkers() {
+        workersInterrupted = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.fincausal.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件同步工具
+ * 原子重命名只保证其他进程看不到写了一半的文件，断电后文件内容和目录项是否落盘取决于文件系统；
+ * 重命名前同步文件内容、重命名后同步所在目录，才能保证崩溃恢复后看到的是完整的新文件
+ */
+public final class FileSync {
+    private static final Logger logger = LoggerFactory.getLogger(FileSync.class);
+
+    private FileSync() {
+    }
+
+    /**
+     * 把文件内容和元数据同步到磁盘
+     *
+     * @param file 文件
+     * @throws IOException 同步失败
+     */
+    public static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 把目录项（新建、重命名、删除的文件）同步到磁盘
+     * 部分平台（如Windows）不能以只读方式打开目录，此时忽略
+     *
+     * @param directory 目录
+     * @throws IOException 同步失败
+     */
+    public static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            logger.debug("当前平台不支持同步目录: {}, {}", directory, e.getMessage());
+            return;
+        }
+        try (FileChannel opened = channel) {
+            opened.force(true);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.fincausal.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 共享的JSON映射器
+ * ObjectMapper配置完成后是线程安全的，创建开销和序列化器缓存都较大，
+ * 因此全局只保留一个预先配置好的实例，避免每次输出时重新创建
+ */
+public final class JsonMappers {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final ObjectWriter COMPACT_WRITER = MAPPER.writer();
+
+    private static final ObjectWriter PRETTY_WRITER = MAPPER.writer(SerializationFeature.INDENT_OUTPUT);
+
+    private JsonMappers() {
+    }
+
+    /**
+     * 获取共享的ObjectMapper，调用方不应再修改其配置
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * 获取共享的JsonFactory，用于创建流式生成器和解析器
+     */
+    public static JsonFactory factory() {
+        return MAPPER.getFactory();
+    }
+
+    /**
+     * 获取输出用的ObjectWriter
+     *
+     * @param prettyPrint 是否缩进输出
+     */
+    public static ObjectWriter writer(boolean prettyPrint) {
+        return prettyPrint ? PRETTY_WRITER : COMPACT_WRITER;
+    }
+}
\ No newline at end of file
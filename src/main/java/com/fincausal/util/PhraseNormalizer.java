@@ -0,0 +1,66 @@
+package com.fincausal.util;
+
+/**
+ * 短语规范化工具
+ * 将原因/结果短语转换为统一形式：去除空白、全角ASCII转半角、英文转小写、去除首尾标点，
+ * 使仅在排版上存在差异的短语能够归并为同一个键
+ */
+public final class PhraseNormalizer {
+
+    private PhraseNormalizer() {
+    }
+
+    /**
+     * 规范化短语
+     *
+     * @param phrase 原始短语
+     * @return 规范化后的短语，输入为null时返回空字符串
+     */
+    public static String normalize(String phrase) {
+        if (phrase == null || phrase.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder result = new StringBuilder(phrase.length());
+        for (int i = 0; i < phrase.length(); i++) {
+            char c = phrase.charAt(i);
+            if (Character.isWhitespace(c) || c == '　') {
+                continue;
+            }
+            // 全角ASCII字符转换为半角
+            if (c >= '！' && c <= '～') {
+                c = (char) (c - 0xFEE0);
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            result.append(c);
+        }
+
+        // 去除首尾标点
+        int start = 0;
+        int end = result.length();
+        while (start < end && isPunctuation(result.charAt(start))) {
+            start++;
+        }
+        while (end > start && isPunctuation(result.charAt(end - 1))) {
+            end--;
+        }
+        return result.substring(start, end);
+    }
+
+    private static boolean isPunctuation(char c) {
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.fincausal.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Count-Min计数草图的误差上界、合并和读写测试
+ */
+public class CountMinSketchTest {
+
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.01;
+    private static final int KEYS = 20_000;
+    private static final int EVENTS = 200_000;
+
+    @Test
+    public void testEstimatesStayWithinErrorBound() {
+        CountMinSketch sketch = CountMinSketch.withErrorBound(EPSILON, DELTA);
+        Map<String, Long> truth = new HashMap<>();
+        addSkewed(sketch, truth, new Random(42), EVENTS);
+
+        assertEquals(EVENTS, sketch.getTotal());
+        int exceeded = 0;
+        for (Map.Entry<String, Long> entry : truth.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey() + " 的估计低于真实计数");
+            if (estimate - entry.getValue() > EPSILON * EVENTS) {
+                exceeded++;
+            }
+        }
+        // 每个键超出误差上界的概率不超过 delta，留出余量避免偶然失败
+        assertTrue(exceeded <= 2 * DELTA * truth.size(), "超出误差上界的键过多: " + exceeded + "/" + truth.size());
+    }
+
+    @Test
+    public void testMergeEqualsSketchOfCombinedStream() {
+        CountMinSketch first = CountMinSketch.withErrorBound(EPSILON, DELTA);
+        CountMinSketch second = CountMinSketch.withErrorBound(EPSILON, DELTA);
+        CountMinSketch combined = CountMinSketch.withErrorBound(EPSILON, DELTA);
+        Map<String, Long> truth = new HashMap<>();
+        addSkewed(first, truth, new Random(1), EVENTS / 2);
+        addSkewed(second, truth, new Random(2), EVENTS / 2);
+        addSkewed(combined, new HashMap<>(), new Random(1), EVENTS / 2);
+        addSkewed(combined, new HashMap<>(), new Random(2), EVENTS / 2);
+
+        first.merge(second);
+        assertEquals(combined.getTotal(), first.getTotal());
+        for (Map.Entry<String, Long> entry : truth.entrySet()) {
+            assertEquals(combined.estimate(entry.getKey()), first.estimate(entry.getKey()));
+            assertTrue(first.estimate(entry.getKey()) >= entry.getValue());
+        }
+    }
+
+    @Test
+    public void testMergeRejectsDifferentSize() {
+        CountMinSketch sketch = new CountMinSketch(4, 100);
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(4, 200)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(5, 100)));
+    }
+
+    @Test
+    public void testRoundTripAndCorruptInput() throws IOException {
+        CountMinSketch sketch = new CountMinSketch(4, 100);
+        sketch.add("加息", 5);
+        sketch.add("降准", 2);
+        byte[] bytes = serialize(sketch);
+
+        CountMinSketch copy = CountMinSketch.readFrom(input(bytes));
+        assertEquals(5, copy.estimate("加息"));
+        assertEquals(7, copy.getTotal());
+
+        // 尺寸过大
+        byte[] huge = bytes.clone();
+        huge[4] = 0x7f;
+        assertThrows(IOException.class, () -> CountMinSketch.readFrom(input(huge)));
+        // 计数器超出总数
+        byte[] counter = bytes.clone();
+        counter[16] = 0x7f;
+        assertThrows(IOException.class, () -> CountMinSketch.readFrom(input(counter)));
+        // 截断
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IOException.class, () -> CountMinSketch.readFrom(input(truncated)));
+    }
+
+    private static void addSkewed(CountMinSketch sketch, Map<String, Long> truth, Random random, int events) {
+        for (int i = 0; i < events; i++) {
+            int rank = (int) Math.min(KEYS - 1, Math.floor(Math.exp(random.nextDouble() * Math.log(KEYS)) - 1));
+            String key = "key-" + rank;
+            sketch.add(key, 1);
+            truth.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static byte[] serialize(CountMinSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            sketch.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
\ No newline at end of file
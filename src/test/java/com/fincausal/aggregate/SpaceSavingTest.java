@@ -0,0 +1,165 @@
+package com.fincausal.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Space-Saving高频项统计的误差上界、合并和读写测试
+ */
+public class SpaceSavingTest {
+
+    private static final int CAPACITY = 50;
+    private static final int KEYS = 2000;
+    private static final int EVENTS = 100_000;
+
+    @Test
+    public void testCountsStayWithinErrorBound() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        Map<String, Long> truth = new HashMap<>();
+        offerSkewed(summary, truth, new Random(42), EVENTS, 0);
+
+        assertEquals(EVENTS, summary.getTotal());
+        assertEquals(CAPACITY, summary.size());
+        assertBounds(summary, truth, EVENTS);
+    }
+
+    @Test
+    public void testMergedCountsStayWithinCombinedErrorBound() {
+        SpaceSaving first = new SpaceSaving(CAPACITY);
+        SpaceSaving second = new SpaceSaving(CAPACITY);
+        Map<String, Long> truth = new HashMap<>();
+        // 两部分的高频键不同，合并后两边的高频键都要保留
+        offerSkewed(first, truth, new Random(1), EVENTS, 0);
+        offerSkewed(second, truth, new Random(2), EVENTS / 2, KEYS / 2);
+
+        first.merge(second);
+        assertEquals(EVENTS + EVENTS / 2, first.getTotal());
+        assertTrue(first.size() <= CAPACITY);
+        assertBounds(first, truth, EVENTS + EVENTS / 2);
+    }
+
+    @Test
+    public void testUnfilledSummaryIsExact() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        summary.offer("加息", 3);
+        summary.offer("降准");
+        summary.offer("加息");
+
+        assertEquals(0, summary.getMinCount());
+        assertEquals(4, summary.estimate("加息"));
+        assertEquals(0, summary.estimate("未出现"));
+        List<SpaceSaving.Counter> top = summary.top(1);
+        assertEquals("加息", top.get(0).getKey());
+        assertEquals(4, top.get(0).getGuaranteedCount());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        offerSkewed(summary, new HashMap<>(), new Random(7), 10_000, 0);
+
+        SpaceSaving copy = SpaceSaving.readFrom(input(serialize(summary)));
+        assertEquals(summary.getCapacity(), copy.getCapacity());
+        assertEquals(summary.getTotal(), copy.getTotal());
+        List<SpaceSaving.Counter> expected = summary.top(CAPACITY);
+        List<SpaceSaving.Counter> actual = copy.top(CAPACITY);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            assertEquals(expected.get(i).getCount(), actual.get(i).getCount());
+            assertEquals(expected.get(i).getError(), actual.get(i).getError());
+        }
+    }
+
+    @Test
+    public void testCorruptKeyLengthIsRejected() throws IOException {
+        SpaceSaving summary = new SpaceSaving(4);
+        summary.offer("加息");
+        byte[] bytes = serialize(summary);
+        // capacity(4) + total(8) + size(4) 之后是第一个键的长度
+        overwriteInt(bytes, 16, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> SpaceSaving.readFrom(input(bytes)));
+        overwriteInt(bytes, 16, -1);
+        assertThrows(IOException.class, () -> SpaceSaving.readFrom(input(bytes)));
+    }
+
+    @Test
+    public void testCorruptHeaderAndTruncatedInputAreRejected() throws IOException {
+        SpaceSaving summary = new SpaceSaving(4);
+        summary.offer("加息");
+        byte[] bytes = serialize(summary);
+
+        byte[] hugeCapacity = bytes.clone();
+        overwriteInt(hugeCapacity, 0, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> SpaceSaving.readFrom(input(hugeCapacity)));
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        assertThrows(IOException.class, () -> SpaceSaving.readFrom(input(truncated)));
+    }
+
+    /**
+     * 按近似Zipf分布记录 events 次，键的编号从 offset 开始
+     */
+    static void offerSkewed(SpaceSaving summary, Map<String, Long> truth, Random random, int events, int offset) {
+        for (int i = 0; i < events; i++) {
+            String key = "key-" + (offset + zipf(random));
+            summary.offer(key);
+            truth.merge(key, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * 0到KEYS-1之间的近似Zipf分布随机数，编号越小越频繁
+     */
+    static int zipf(Random random) {
+        return (int) Math.min(KEYS - 1, Math.floor(Math.exp(random.nextDouble() * Math.log(KEYS)) - 1));
+    }
+
+    private static void assertBounds(SpaceSaving summary, Map<String, Long> truth, long total) {
+        long bound = total / summary.getCapacity();
+        for (SpaceSaving.Counter counter : summary.top(summary.getCapacity())) {
+            long actual = truth.getOrDefault(counter.getKey(), 0L);
+            assertTrue(counter.getGuaranteedCount() <= actual, counter.getKey() + " 的计数下界超过真实计数");
+            assertTrue(actual <= counter.getCount(), counter.getKey() + " 的计数低于真实计数");
+            assertTrue(counter.getCount() - actual <= bound, counter.getKey() + " 的高估超过 总数/capacity");
+        }
+        for (Map.Entry<String, Long> entry : truth.entrySet()) {
+            assertTrue(summary.estimate(entry.getKey()) >= entry.getValue());
+            if (entry.getValue() > bound) {
+                // 真实频率超过 总数/capacity 的键一定在监视范围内
+                assertTrue(summary.top(summary.getCapacity()).stream()
+                        .anyMatch(counter -> counter.getKey().equals(entry.getKey())), entry.getKey() + " 未被监视");
+            }
+        }
+    }
+
+    private static byte[] serialize(SpaceSaving summary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            summary.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static void overwriteInt(byte[] bytes, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[offset + i] = (byte) (value >>> (24 - 8 * i));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.fincausal.batch;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.ProcessingResult;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批处理作业断点续跑测试
+ */
+public class BatchJobTest {
+
+    private static final String[] TEXTS = {
+            "因为美联储连续加息，所以新兴市场货币普遍承压。",
+            "油价上涨导致运输成本大幅上升。",
+            "由于央行上调存款准备金率，市场流动性收紧。",
+            "受疫情影响，消费需求明显下降。"
+    };
+    private static final int DOCUMENTS = 10;
+
+    @TempDir
+    Path tempDir;
+
+    private Path input;
+    private Pipeline pipeline;
+
+    @BeforeAll
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // 每2个文档记录一次检查点，不按时间间隔记录
+        ConfigLoader.setProperty("batch.checkpoint.interval.docs", "2");
+        ConfigLoader.setProperty("batch.checkpoint.interval.ms", "600000");
+        ConfigLoader.setProperty("batch.max.pending", "1");
+        input = tempDir.resolve("input.ndjson");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            lines.add("{\"id\": \"doc-" + i + "\", \"text\": \"" + TEXTS[i % TEXTS.length] + "\"}");
+        }
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode(true)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.close();
+        ConfigLoader.setProperty("batch.checkpoint.interval.docs", "1000");
+        ConfigLoader.setProperty("batch.checkpoint.interval.ms", "10000");
+        ConfigLoader.setProperty("batch.max.pending", "256");
+    }
+
+    @Test
+    public void testCompletedJobIsNotRerun() throws IOException {
+        Path output = tempDir.resolve("out.ndjson");
+        assertEquals(DOCUMENTS, job(output).run());
+        assertEquals(0, job(output).run());
+        assertEquals(DOCUMENTS, Files.readAllLines(output).size());
+    }
+
+    @Test
+    public void testResumeAfterInterruptionMatchesUninterruptedRun() throws IOException {
+        byte[] expected = uninterrupted();
+        Path output = tempDir.resolve("out.ndjson");
+        interruptAfter(output, 7);
+
+        // 第7个文档已写出但没有检查点，继续时截掉并重新处理
+        assertEquals(4, job(output).run());
+        assertArrayEquals(expected, Files.readAllBytes(output));
+    }
+
+    @Test
+    public void testResumeIgnoresTruncatedCheckpointRecord() throws IOException {
+        byte[] expected = uninterrupted();
+        Path output = tempDir.resolve("out.ndjson");
+        interruptAfter(output, 7);
+        Path log = checkpointLog(output);
+        List<String> records = Files.readAllLines(log);
+        assertEquals(3, records.size());
+
+        // 模拟写检查点记录时被中断：最后一行不完整
+        Files.write(log, "8 8".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(4, job(output).run());
+        assertArrayEquals(expected, Files.readAllBytes(output));
+    }
+
+    @Test
+    public void testResumeFallsBackWhenOutputIsShorterThanCheckpoint() throws IOException {
+        byte[] expected = uninterrupted();
+        Path output = tempDir.resolve("out.ndjson");
+        interruptAfter(output, 7);
+        List<String> records = Files.readAllLines(checkpointLog(output));
+        long lastOffset = CheckpointLog.Checkpoint.parse(records.get(records.size() - 1)).outputOffset;
+
+        // 输出文件被截断到最后一个检查点之前的一行中间，回退到更早的检查点
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            channel.truncate(lastOffset - 5);
+        }
+        assertEquals(6, job(output).run());
+        assertArrayEquals(expected, Files.readAllBytes(output));
+        records = Files.readAllLines(checkpointLog(output));
+        // 被回退的检查点已从日志中截掉，之后的记录接在第2个检查点后面
+        assertEquals(4, CheckpointLog.Checkpoint.parse(records.get(1)).documents);
+        assertEquals(6, CheckpointLog.Checkpoint.parse(records.get(2)).documents);
+        assertEquals(DOCUMENTS, CheckpointLog.Checkpoint.parse(records.get(records.size() - 1)).documents);
+    }
+
+    @Test
+    public void testResumeFromStartWhenOutputIsEmpty() throws IOException {
+        byte[] expected = uninterrupted();
+        Path output = tempDir.resolve("out.ndjson");
+        interruptAfter(output, 5);
+
+        Files.write(output, new byte[0]);
+        assertEquals(DOCUMENTS, job(output).run());
+        assertArrayEquals(expected, Files.readAllBytes(output));
+    }
+
+    @Test
+    public void testCancelledDocumentIsWrittenAsError() throws IOException {
+        Pipeline cancelling = new Pipeline() {
+            @Override
+            public List<CausalTriple> process(String text) {
+                return pipeline.process(text);
+            }
+
+            @Override
+            public ProcessingResult process(String text, Deadline deadline) {
+                return pipeline.process(text, deadline);
+            }
+
+            @Override
+            public CompletableFuture<List<CausalTriple>> processAsync(String text) {
+                if (TEXTS[1].equals(text)) {
+                    CompletableFuture<List<CausalTriple>> future = new CompletableFuture<>();
+                    future.cancel(false);
+                    return future;
+                }
+                return pipeline.processAsync(text);
+            }
+
+            @Override
+            public CompletableFuture<List<List<CausalTriple>>> processAll(Iterable<String> texts) {
+                return pipeline.processAll(texts);
+            }
+
+            @Override
+            public void outputResults(List<CausalTriple> causalTriples, String outputPath) {
+                pipeline.outputResults(causalTriples, outputPath);
+            }
+        };
+        Path output = tempDir.resolve("out.ndjson");
+        assertEquals(DOCUMENTS, new BatchJob(cancelling, PipelineMetrics.disabled(), input, output).run());
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(DOCUMENTS, lines.size());
+        for (int i = 0; i < DOCUMENTS; i++) {
+            boolean cancelled = i % TEXTS.length == 1;
+            assertTrue(lines.get(i).startsWith("{\"id\":\"doc-" + i + "\""), lines.get(i));
+            assertEquals(cancelled, lines.get(i).contains("\"error\""), lines.get(i));
+        }
+    }
+
+    private BatchJob job(Path output) {
+        return new BatchJob(pipeline, PipelineMetrics.disabled(), input, output);
+    }
+
+    private byte[] uninterrupted() throws IOException {
+        Path output = tempDir.resolve("expected.ndjson");
+        job(output).run();
+        return Files.readAllBytes(output);
+    }
+
+    /**
+     * 运行作业，写出 documents 个文档后模拟失去作业归属而中断
+     */
+    private void interruptAfter(Path output, int documents) {
+        BatchJob job = job(output);
+        // 每写出一个文档和每记录一次检查点（每2个文档）各检查一次归属
+        int checks = documents + documents / 2;
+        AtomicInteger calls = new AtomicInteger();
+        job.setOwnership(() -> calls.incrementAndGet() <= checks);
+        assertThrows(IOException.class, job::run);
+    }
+
+    private static Path checkpointLog(Path output) {
+        return output.resolveSibling(output.getFileName() + ".job").resolve("checkpoint.log");
+    }
+}
\ No newline at end of file
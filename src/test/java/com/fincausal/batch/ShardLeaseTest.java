@@ -0,0 +1,172 @@
+package com.fincausal.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片租约的领取、过期和接管测试
+ */
+public class ShardLeaseTest {
+
+    // 不会在测试期间触发的心跳间隔，用于模拟停止心跳的持有者
+    private static final long NO_HEARTBEAT = 600_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAcquireIsExclusiveWhileLeaseIsFresh() throws IOException {
+        Path file = tempDir.resolve("shard-0.lease");
+        try (ShardLease first = ShardLease.tryAcquire(file, "a", 60_000, NO_HEARTBEAT)) {
+            assertNotNull(first);
+            assertEquals("a", owner(file));
+            assertNull(ShardLease.tryAcquire(file, "b", 60_000, NO_HEARTBEAT));
+            assertTrue(first.isHeld());
+        }
+        // 关闭后删除租约文件，其他进程可以立即领取
+        assertFalse(Files.exists(file));
+        try (ShardLease second = ShardLease.tryAcquire(file, "b", 60_000, NO_HEARTBEAT)) {
+            assertNotNull(second);
+        }
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOverAndOldOwnerStops() throws IOException {
+        Path file = tempDir.resolve("shard-0.lease");
+        ShardLease stale = ShardLease.tryAcquire(file, "a", 1000, NO_HEARTBEAT);
+        assertNotNull(stale);
+        expire(file);
+
+        try (ShardLease taken = ShardLease.tryAcquire(file, "b", 1000, NO_HEARTBEAT)) {
+            assertNotNull(taken);
+            assertEquals("b", owner(file));
+            assertFalse(Files.exists(tempDir.resolve("shard-0.lease.takeover")));
+
+            // 原持有者的心跳尚未运行，同步检查仍能发现租约已被接管
+            assertTrue(stale.isValid());
+            assertFalse(stale.isHeld());
+            assertFalse(stale.isValid());
+
+            // 原持有者关闭时不删除新持有者的租约
+            stale.close();
+            assertEquals("b", owner(file));
+            assertTrue(taken.isHeld());
+        }
+    }
+
+    @Test
+    public void testExpiredLeaseFailsSynchronousCheck() throws IOException {
+        Path file = tempDir.resolve("shard-0.lease");
+        try (ShardLease lease = ShardLease.tryAcquire(file, "a", 1000, NO_HEARTBEAT)) {
+            assertNotNull(lease);
+            expire(file);
+            // 停顿超过有效期后即使还没有被接管也不能继续写出
+            assertFalse(lease.isHeld());
+        }
+    }
+
+    @Test
+    public void testRenewingOwnerIsNotDisplaced() throws Exception {
+        Path file = tempDir.resolve("shard-0.lease");
+        try (ShardLease lease = ShardLease.tryAcquire(file, "a", 300, 50)) {
+            assertNotNull(lease);
+            for (int i = 0; i < 20; i++) {
+                Thread.sleep(30);
+                assertNull(ShardLease.tryAcquire(file, "b", 300, 50));
+            }
+            assertTrue(lease.isHeld());
+            assertEquals("a", owner(file));
+        }
+    }
+
+    @Test
+    public void testOnlyOneProcessTakesOverExpiredLease() throws Exception {
+        Path file = tempDir.resolve("shard-0.lease");
+        ShardLease stale = ShardLease.tryAcquire(file, "stale", 1000, NO_HEARTBEAT);
+        assertNotNull(stale);
+        expire(file);
+
+        int contenders = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger acquired = new AtomicInteger();
+        List<ShardLease> leases = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < contenders; i++) {
+            String owner = "worker-" + i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    ShardLease lease = ShardLease.tryAcquire(file, owner, 1000, NO_HEARTBEAT);
+                    if (lease != null) {
+                        acquired.incrementAndGet();
+                        synchronized (leases) {
+                            leases.add(lease);
+                        }
+                    }
+                } catch (IOException | InterruptedException e) {
+                    fail(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertEquals(1, acquired.get());
+        assertEquals(1, leases.stream().filter(ShardLease::isHeld).count());
+        assertFalse(stale.isHeld());
+        leases.forEach(ShardLease::close);
+        stale.close();
+    }
+
+    @Test
+    public void testStaleTakeoverMarkerIsCleared() throws IOException {
+        Path file = tempDir.resolve("shard-0.lease");
+        Files.write(file, "crashed".getBytes(StandardCharsets.UTF_8));
+        expire(file);
+        // 接管过程中崩溃留下的标记
+        Path marker = Files.createFile(tempDir.resolve("shard-0.lease.takeover"));
+        expire(marker);
+
+        assertNull(ShardLease.tryAcquire(file, "b", 1000, NO_HEARTBEAT));
+        assertFalse(Files.exists(marker));
+        try (ShardLease lease = ShardLease.tryAcquire(file, "b", 1000, NO_HEARTBEAT)) {
+            assertNotNull(lease);
+            assertEquals("b", owner(file));
+        }
+    }
+
+    @Test
+    public void testFreshTakeoverMarkerBlocksOtherContenders() throws IOException {
+        Path file = tempDir.resolve("shard-0.lease");
+        Files.write(file, "crashed".getBytes(StandardCharsets.UTF_8));
+        expire(file);
+        Files.createFile(tempDir.resolve("shard-0.lease.takeover"));
+
+        assertNull(ShardLease.tryAcquire(file, "b", 1000, NO_HEARTBEAT));
+        assertEquals("crashed", owner(file));
+    }
+
+    private static void expire(Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+    }
+
+    private static String owner(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
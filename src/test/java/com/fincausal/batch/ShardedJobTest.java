@@ -0,0 +1,88 @@
+package com.fincausal.batch;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.util.ConfigLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多进程分片处理测试
+ */
+public class ShardedJobTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path input;
+    private Pipeline pipeline;
+
+    @BeforeAll
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ConfigLoader.setProperty("shard.poll.ms", "20");
+        input = tempDir.resolve("input.ndjson");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            lines.add("{\"id\": \"doc-" + i + "\", \"text\": \"因为美联储连续加息，所以新兴市场货币普遍承压。\"}");
+        }
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode(true)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.close();
+        ConfigLoader.setProperty("shard.poll.ms", "5000");
+    }
+
+    @Test
+    public void testShardedOutputMatchesSingleBatchJob() throws Exception {
+        Path expected = tempDir.resolve("expected.ndjson");
+        new BatchJob(pipeline, PipelineMetrics.disabled(), input, expected).run();
+
+        ShardedJob job = new ShardedJob(tempDir.resolve("work"));
+        int shards = job.plan(input, 3);
+        assertEquals(shards, job.work(pipeline, PipelineMetrics.disabled()));
+        Path merged = tempDir.resolve("merged.ndjson");
+        job.merge(merged);
+
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(merged));
+        // 完成后释放全部租约
+        try (Stream<Path> leases = Files.list(tempDir.resolve("work").resolve("leases"))) {
+            assertEquals(0, leases.count());
+        }
+    }
+
+    @Test
+    public void testMergeFailsWhileShardsRemain() throws IOException {
+        ShardedJob job = new ShardedJob(tempDir.resolve("work"));
+        job.plan(input, 3);
+        assertThrows(IOException.class, () -> job.merge(tempDir.resolve("merged.ndjson")));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.fincausal.dedup;
+
+import com.fincausal.batch.BatchJob;
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.util.ConfigLoader;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 短语增量聚类测试
+ */
+public class PhraseClustererTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @Test
+    public void testSimilarPhrasesShareCluster() {
+        PhraseClusterer clusterer = clusterer(32, "");
+        int cluster = clusterer.assign("国际原油价格大幅上涨");
+        assertEquals(1, cluster);
+        assertEquals(cluster, clusterer.assign("国际原油价格大幅上涨"));
+        // 仅在排版上不同
+        assertEquals(cluster, clusterer.assign(" 国际原油价格大幅上涨。"));
+        assertEquals(cluster, clusterer.assign("国际原油价格大幅度上涨"));
+        assertEquals("国际原油价格大幅上涨", clusterer.getCanonicalPhrase(cluster));
+        assertEquals(0, clusterer.assign("  "));
+    }
+
+    @Test
+    public void testPhrasesSharingOnlyCommonCharactersAreSeparate() {
+        PhraseClusterer clusterer = clusterer(32, "");
+        // 单字大量重合，但二元组几乎不同
+        String[] phrases = {"市场需求下降", "市场流动性下降", "需求市场下降", "下降的市场份额", "股票市场价格下降"};
+        List<Integer> clusters = new ArrayList<>();
+        for (String phrase : phrases) {
+            int cluster = clusterer.assign(phrase);
+            assertFalse(clusters.contains(cluster), phrase + " 被归入了不相关短语的簇");
+            clusters.add(cluster);
+        }
+        assertEquals(phrases.length, clusterer.size());
+    }
+
+    @Test
+    public void testClusterIdsStayStableWhenBucketsAreFull() {
+        // 每个桶只容纳一个簇，大量短语的候选都被截断
+        PhraseClusterer clusterer = clusterer(1, "");
+        List<String> phrases = new ArrayList<>();
+        List<Integer> clusters = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String phrase = "第" + i + "季度营业收入同比增长";
+            phrases.add(phrase);
+            clusters.add(clusterer.assign(phrase));
+        }
+        for (int i = 0; i < phrases.size(); i++) {
+            assertEquals(clusters.get(i), clusterer.assign(phrases.get(i)), phrases.get(i));
+        }
+    }
+
+    @Test
+    public void testCheckpointPersistsOnlyNewClusters() throws IOException {
+        Path indexPath = tempDir.resolve("cache").resolve("clusters.idx");
+        PhraseClusterer clusterer = clusterer(32, indexPath.toString());
+        assertFalse(clusterer.checkpoint());
+
+        int oil = clusterer.assign("国际原油价格大幅上涨");
+        int rate = clusterer.assign("美联储宣布加息");
+        assertTrue(clusterer.checkpoint());
+        assertTrue(Files.exists(indexPath));
+        assertFalse(Files.exists(indexPath.resolveSibling("clusters.idx.tmp")));
+        // 没有新簇时不重写索引
+        clusterer.assign("国际原油价格大幅度上涨");
+        assertFalse(clusterer.checkpoint());
+
+        PhraseClusterer reloaded = clusterer(32, indexPath.toString());
+        assertEquals(2, reloaded.size());
+        assertEquals(rate, reloaded.assign("美联储宣布加息"));
+        assertEquals(oil, reloaded.assign("国际原油价格大幅上涨"));
+        assertEquals(3, reloaded.assign("人民币汇率贬值"));
+        assertTrue(reloaded.checkpoint());
+        assertEquals(3, clusterer(32, indexPath.toString()).size());
+    }
+
+    @Test
+    public void testBatchJobPersistsIndexAtCheckpoints() throws IOException {
+        Path indexPath = tempDir.resolve("clusters.idx");
+        PhraseClusterer clusterer = clusterer(32, indexPath.toString());
+        Path input = tempDir.resolve("input.ndjson");
+        List<String> lines = new ArrayList<>();
+        lines.add("{\"id\": \"a\", \"text\": \"因为美联储连续加息，所以新兴市场货币普遍承压。\"}");
+        lines.add("{\"id\": \"b\", \"text\": \"油价上涨导致运输成本大幅上升。\"}");
+        Files.write(input, lines, StandardCharsets.UTF_8);
+
+        try (Pipeline pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withPhraseClusterer(clusterer)
+                .withFastMode(true)
+                .build()) {
+            new BatchJob(pipeline, PipelineMetrics.disabled(), input, tempDir.resolve("out.ndjson")).run();
+        }
+
+        // 未调用 save()，索引已在记录检查点时保存
+        assertTrue(clusterer.size() > 0);
+        assertEquals(clusterer.size(), clusterer(32, indexPath.toString()).size());
+        assertFalse(clusterer.checkpoint());
+    }
+
+    private static PhraseClusterer clusterer(int bucketCapacity, String indexPath) {
+        return new PhraseClusterer(20, 3, 2, bucketCapacity, 0.5, indexPath);
+    }
+}
\ No newline at end of file
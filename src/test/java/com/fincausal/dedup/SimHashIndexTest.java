@@ -0,0 +1,211 @@
+package com.fincausal.dedup;
+
+import com.fincausal.model.CausalTriple;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SimHash分段索引与近似重复检测器测试
+ */
+public class SimHashIndexTest {
+
+    @Test
+    public void testFindsEveryFingerprintWithinMaxDistance() {
+        int maxDistance = 5;
+        SimHashIndex index = new SimHashIndex(maxDistance, 1000);
+        Random random = new Random(7);
+        long base = random.nextLong();
+        index.put(base, Collections.emptyList());
+
+        for (int round = 0; round < 2000; round++) {
+            int flips = random.nextInt(maxDistance + 1);
+            long probe = flipBits(base, flips, random);
+            SimHashIndex.Entry entry = index.findNearest(probe);
+            assertNotNull(entry, "汉明距离 " + flips + " 的指纹未被找到");
+            assertEquals(base, entry.getFingerprint());
+        }
+    }
+
+    @Test
+    public void testIgnoresFingerprintsBeyondMaxDistance() {
+        SimHashIndex index = new SimHashIndex(3, 1000);
+        Random random = new Random(11);
+        long base = random.nextLong();
+        index.put(base, Collections.emptyList());
+
+        for (int round = 0; round < 2000; round++) {
+            long probe = flipBits(base, 4 + random.nextInt(20), random);
+            assertNull(index.findNearest(probe));
+        }
+    }
+
+    @Test
+    public void testReturnsNearestCandidate() {
+        SimHashIndex index = new SimHashIndex(5, 1000);
+        long base = 0x0123456789abcdefL;
+        index.put(base ^ 0b11111L, Collections.emptyList());
+        index.put(base ^ 0b1L, Collections.emptyList());
+
+        assertEquals(base ^ 0b1L, index.findNearest(base).getFingerprint());
+    }
+
+    @Test
+    public void testEvictsEldestEntriesBeyondCapacity() {
+        SimHashIndex index = new SimHashIndex(2, 2);
+        index.put(0x1111111111111111L, Collections.emptyList());
+        index.put(0x2222222222222222L, Collections.emptyList());
+        index.put(0x4444444444444444L, Collections.emptyList());
+
+        assertEquals(2, index.size());
+        assertNull(index.findNearest(0x1111111111111111L));
+        assertNotNull(index.findNearest(0x4444444444444444L));
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsFirstNearDuplicate() {
+        SimHashIndex index = new SimHashIndex(3, 1000);
+        List<CausalTriple> first = Collections.singletonList(new CausalTriple("加息", "股市下跌", "导致", 0.9));
+        List<CausalTriple> second = Collections.singletonList(new CausalTriple("降息", "股市上涨", "导致", 0.8));
+
+        assertNull(index.putIfAbsent(42L, first));
+        SimHashIndex.Entry existing = index.putIfAbsent(43L, second);
+
+        assertNotNull(existing);
+        assertEquals("加息", existing.getTriples().get(0).getCause());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testPersistenceRoundTripKeepsAllTripleFields() throws IOException {
+        CausalTriple triple = new CausalTriple("美联储加息", "美元走强", "导致", 0.87);
+        triple.setTemporalRelation("before");
+        triple.setDomainCategory("货币政策");
+        triple.setExtractionMode(CausalTriple.EXTRACTION_MODE_FAST);
+        triple.setSourceSentence("美联储加息导致美元走强。");
+        triple.setSentenceIndex(3);
+        triple.setCauseCluster(12);
+        triple.setEffectCluster(34);
+        CausalTriple sparse = new CausalTriple("通胀上升", "利率上调", "导致");
+
+        SimHashIndex index = new SimHashIndex(4, 100);
+        index.put(0x5a5a5a5a5a5a5a5aL, List.of(triple, sparse));
+        index.put(-1L, Collections.emptyList());
+
+        SimHashIndex reloaded = new SimHashIndex(4, 100);
+        reloaded.readFrom(roundTrip(index));
+
+        assertEquals(2, reloaded.size());
+        List<CausalTriple> triples = reloaded.findNearest(0x5a5a5a5a5a5a5a5aL).getTriples();
+        assertEquals(triple.toString(), triples.get(0).toString());
+        CausalTriple restored = triples.get(0);
+        assertEquals("before", restored.getTemporalRelation());
+        assertEquals("货币政策", restored.getDomainCategory());
+        assertEquals(CausalTriple.EXTRACTION_MODE_FAST, restored.getExtractionMode());
+        assertEquals("美联储加息导致美元走强。", restored.getSourceSentence());
+        assertEquals(Integer.valueOf(3), restored.getSentenceIndex());
+        assertEquals(Integer.valueOf(12), restored.getCauseCluster());
+        assertEquals(Integer.valueOf(34), restored.getEffectCluster());
+
+        CausalTriple restoredSparse = triples.get(1);
+        assertNull(restoredSparse.getExtractionMode());
+        assertNull(restoredSparse.getSourceSentence());
+        assertNull(restoredSparse.getSentenceIndex());
+        assertNull(restoredSparse.getCauseCluster());
+        assertTrue(reloaded.findNearest(-1L).getTriples().isEmpty());
+    }
+
+    @Test
+    public void testRejectsCorruptStringLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x53484958);
+        out.writeInt(2);
+        out.writeInt(1);
+        out.writeLong(1L);
+        out.writeInt(1);
+        out.writeInt(Integer.MAX_VALUE);
+        out.flush();
+
+        SimHashIndex index = new SimHashIndex(3, 10);
+        assertThrows(IOException.class,
+                () -> index.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test
+    public void testRejectsCorruptTripleCount() throws IOException {
+        for (int tripleCount : new int[]{-1, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0x53484958);
+            out.writeInt(2);
+            out.writeInt(1);
+            out.writeLong(1L);
+            out.writeInt(tripleCount);
+            out.flush();
+
+            SimHashIndex index = new SimHashIndex(3, 10);
+            assertThrows(IOException.class,
+                    () -> index.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    public void testBlankTextsAreNeverDuplicates() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(3, 100, SimHash.DEFAULT_SHINGLE_SIZE, "");
+        List<CausalTriple> triples = Collections.singletonList(new CausalTriple("加息", "股市下跌", "导致"));
+
+        for (String blank : new String[]{"", "   ", "\t\n", "　　"}) {
+            Long fingerprint = detector.fingerprint(blank);
+            assertNull(fingerprint, "空白文本不应计算指纹: [" + blank + "]");
+            detector.record(fingerprint, triples);
+            assertNull(detector.lookup(fingerprint));
+        }
+        assertEquals(0, detector.size());
+    }
+
+    @Test
+    public void testDetectorReturnsCopiesOfRecordedTriples() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(3, 100, SimHash.DEFAULT_SHINGLE_SIZE, "");
+        String text = "受美联储加息影响，美元指数大幅走强，新兴市场货币普遍承压。";
+        List<CausalTriple> triples = new ArrayList<>();
+        triples.add(new CausalTriple("美联储加息", "美元指数大幅走强", "导致", 0.9));
+        detector.record(detector.fingerprint(text), triples);
+
+        List<CausalTriple> hit = detector.lookup(detector.fingerprint(text + " "));
+        assertNotNull(hit);
+        hit.get(0).setCause("已修改");
+        assertEquals("美联储加息", detector.lookup(detector.fingerprint(text)).get(0).getCause());
+    }
+
+    private static DataInputStream roundTrip(SimHashIndex index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static long flipBits(long value, int count, Random random) {
+        long result = value;
+        List<Integer> bits = new ArrayList<>();
+        for (int bit = 0; bit < 64; bit++) {
+            bits.add(bit);
+        }
+        Collections.shuffle(bits, random);
+        for (int i = 0; i < count; i++) {
+            result ^= 1L << bits.get(i);
+        }
+        return result;
+    }
+}
\ No newline at end of file
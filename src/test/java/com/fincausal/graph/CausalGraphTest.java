@@ -0,0 +1,149 @@
+package com.fincausal.graph;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.output.OutputFormat;
+import com.fincausal.output.ResultSink;
+import com.fincausal.output.ResultSinkBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 因果图插入与查询测试
+ */
+public class CausalGraphTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testChainsRespectMaxHopsAndOrderByConfidence() {
+        CausalGraph graph = new CausalGraph();
+        graph.add(triple("加息", "融资成本上升", 0.9, "货币政策"));
+        graph.add(triple("融资成本上升", "投资减少", 0.8, "宏观经济"));
+        graph.add(triple("投资减少", "经济放缓", 0.7, "宏观经济"));
+        graph.add(triple("加息", "美元走强", 0.6, "外汇"));
+
+        List<CausalChain> oneHop = graph.chains("加息", CausalGraph.Direction.EFFECTS, 1, 10);
+        assertEquals(2, oneHop.size());
+        assertTrue(oneHop.stream().allMatch(chain -> chain.getLength() == 1));
+        assertEquals("融资成本上升", oneHop.get(0).getEdges().get(0).getEffect());
+
+        List<CausalChain> threeHops = graph.chains("加息", CausalGraph.Direction.EFFECTS, 3, 10);
+        assertEquals(4, threeHops.size());
+        for (int i = 1; i < threeHops.size(); i++) {
+            assertTrue(threeHops.get(i - 1).getConfidence() >= threeHops.get(i).getConfidence());
+        }
+        CausalChain longest = threeHops.stream().filter(chain -> chain.getLength() == 3).findFirst().orElseThrow();
+        assertEquals("加息", longest.getEdges().get(0).getCause());
+        assertEquals("经济放缓", longest.getEdges().get(2).getEffect());
+        assertEquals(0.9 * 0.8 * 0.7, longest.getConfidence(), 1e-6);
+
+        List<CausalChain> causes = graph.chains("经济放缓", CausalGraph.Direction.CAUSES, 3, 10);
+        assertEquals(3, causes.size());
+        // 追溯方向的链同样按 原因 -> 结果 的顺序排列，以查询起点结束
+        CausalChain root = causes.get(causes.size() - 1);
+        assertEquals("加息", root.getEdges().get(0).getCause());
+        assertEquals("经济放缓", root.getEdges().get(root.getLength() - 1).getEffect());
+    }
+
+    @Test
+    public void testChainsDoNotRevisitNodesOnCycles() {
+        CausalGraph graph = new CausalGraph();
+        graph.add(triple("通胀上升", "加息", 0.9, null));
+        graph.add(triple("加息", "需求下降", 0.9, null));
+        graph.add(triple("需求下降", "通胀上升", 0.9, null));
+        graph.add(triple("需求下降", "需求下降", 0.9, null));
+
+        List<CausalChain> chains = graph.chains("通胀上升", CausalGraph.Direction.EFFECTS, 10, 100);
+        assertEquals(2, chains.size());
+        for (CausalChain chain : chains) {
+            List<String> nodes = chain.getEdges().stream().map(CausalEdge::getEffect).collect(Collectors.toList());
+            nodes.add(chain.getEdges().get(0).getCause());
+            assertEquals(nodes.size(), nodes.stream().distinct().count(), "链中出现重复节点: " + chain);
+        }
+    }
+
+    @Test
+    public void testConfidenceAboveOneIsClamped() {
+        CausalGraph graph = new CausalGraph();
+        graph.add(triple("a", "b", 5.0, null));
+        graph.add(triple("b", "c", 0.5, null));
+        graph.add(triple("a", "d", Double.NaN, null));
+
+        List<CausalChain> chains = graph.chains("a", CausalGraph.Direction.EFFECTS, 2, 10);
+        assertEquals(1.0, chains.get(0).getConfidence(), 1e-9);
+        assertEquals(0.5, chains.get(1).getConfidence(), 1e-9);
+        assertEquals(0.0, graph.directEffects("a", 10).get(1).getConfidence(), 1e-9);
+    }
+
+    @Test
+    public void testTopEdgesByCategory() {
+        CausalGraph graph = new CausalGraph();
+        graph.add(triple("加息", "股市下跌", 0.9, "货币政策"));
+        graph.add(triple("降准", "流动性宽松", 0.7, "货币政策"));
+        graph.add(triple("油价上涨", "通胀上升", 0.95, "大宗商品"));
+        graph.add(triple("汇率波动", "出口下降", 0.6, null));
+
+        List<CausalEdge> all = graph.topEdges(2, null);
+        assertEquals(List.of("油价上涨", "加息"), all.stream().map(CausalEdge::getCause).collect(Collectors.toList()));
+
+        List<CausalEdge> monetary = graph.topEdges(10, "货币政策");
+        assertEquals(List.of("加息", "降准"), monetary.stream().map(CausalEdge::getCause).collect(Collectors.toList()));
+        assertTrue(graph.topEdges(10, "不存在的分类").isEmpty());
+        assertTrue(graph.topEdges(0, null).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalAddMergesDuplicateEdges() {
+        CausalGraph graph = new CausalGraph();
+        graph.add(triple("加息", "股市下跌", 0.6, null));
+        assertEquals(1, graph.chains("加息", CausalGraph.Direction.EFFECTS, 2, 10).size());
+
+        graph.add(triple(" 加息 ", "股市下跌", 0.8, "货币政策"));
+        graph.add(triple("股市下跌", "消费减少", 0.5, null));
+        assertFalse(graph.add(triple("", "股市下跌", 0.9, null)));
+
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(2, graph.getEdgeCount());
+        CausalEdge merged = graph.directEffects("加息", 10).get(0);
+        assertEquals(0.8, merged.getConfidence(), 1e-6);
+        assertEquals(2, merged.getSupport());
+        assertEquals("货币政策", merged.getDomainCategory());
+        assertEquals(2, graph.chains("加息", CausalGraph.Direction.EFFECTS, 2, 10).size());
+    }
+
+    @Test
+    public void testLoadReadsJsonArrayAndBatchOutput() throws IOException {
+        Path json = tempDir.resolve("output.json");
+        try (ResultSink sink = new ResultSinkBuilder().withFormat(OutputFormat.JSON).build(json.toString())) {
+            sink.write(triple("加息", "股市下跌", 0.9, "货币政策"));
+            sink.write(triple("股市下跌", "消费减少", 0.7, null));
+        }
+        Path batch = tempDir.resolve("batch.ndjson");
+        Files.write(batch, ("{\"id\":1,\"triples\":[{\"cause\":\"消费减少\",\"effect\":\"经济放缓\",\"confidence\":0.8}]}\n"
+                + "{\"id\":2,\"triples\":[]}\n").getBytes(StandardCharsets.UTF_8));
+
+        CausalGraph graph = new CausalGraph();
+        assertEquals(2, graph.load(json));
+        assertEquals(1, graph.load(batch));
+
+        List<CausalChain> chains = graph.chains("加息", CausalGraph.Direction.EFFECTS, 3, 10);
+        assertEquals(3, chains.get(chains.size() - 1).getLength());
+    }
+
+    private static CausalTriple triple(String cause, String effect, double confidence, String category) {
+        CausalTriple triple = new CausalTriple(cause, effect, "导致", confidence);
+        triple.setDomainCategory(category);
+        return triple;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.fincausal.index;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.model.Document;
+import com.fincausal.model.Sentence;
+import com.fincausal.processor.CausalRelationExtractor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 三元组检索索引测试
+ */
+public class LuceneTripleIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testKeywordSearchMatchesCauseEffectAndSentence() throws Exception {
+        try (LuceneTripleIndex index = open()) {
+            long sequence = index.index("doc-1", List.of(
+                    triple("美联储加息", "美元走强", 0.9, "货币政策", "美联储加息导致美元走强。"),
+                    triple("油价上涨", "通胀上升", 0.8, "大宗商品", "受地缘冲突影响，油价上涨引起通胀上升。")));
+            index.waitForSearchable(sequence);
+
+            List<TripleSearchHit> byCause = index.search(new TripleQuery().withKeyword("加息"));
+            assertEquals(1, byCause.size());
+            assertEquals("doc-1", byCause.get(0).getDocumentId());
+            assertEquals("美元走强", byCause.get(0).getTriple().getEffect());
+            assertEquals("美联储加息导致美元走强。", byCause.get(0).getTriple().getSourceSentence());
+            assertEquals(Integer.valueOf(0), byCause.get(0).getTriple().getSentenceIndex());
+
+            List<TripleSearchHit> bySentence = index.search(new TripleQuery().withKeyword("地缘冲突"));
+            assertEquals(1, bySentence.size());
+            assertEquals("油价上涨", bySentence.get(0).getTriple().getCause());
+
+            assertTrue(index.search(new TripleQuery().withKeyword("降准")).isEmpty());
+        }
+    }
+
+    @Test
+    public void testFiltersAndSortByConfidence() throws Exception {
+        try (LuceneTripleIndex index = open()) {
+            index.index("doc-1", List.of(
+                    triple("加息", "股市下跌", 0.6, "货币政策", null),
+                    triple("降准", "流动性宽松", 0.95, "货币政策", null)));
+            long sequence = index.index("doc-2", List.of(triple("油价上涨", "通胀上升", 0.8, "大宗商品", null)));
+            index.waitForSearchable(sequence);
+
+            List<TripleSearchHit> monetary = index.search(new TripleQuery()
+                    .withDomainCategory("货币政策").sortByConfidence());
+            assertEquals(List.of("降准", "加息"), causes(monetary));
+
+            List<TripleSearchHit> confident = index.search(new TripleQuery().withMinConfidence(0.7).sortByConfidence());
+            assertEquals(List.of("降准", "油价上涨"), causes(confident));
+
+            assertEquals(1, index.count(new TripleQuery().withDocumentId("doc-2")));
+            assertEquals(3, index.count(new TripleQuery()));
+            assertEquals(1, index.search(new TripleQuery().withLimit(1)).size());
+        }
+    }
+
+    @Test
+    public void testReindexingReplacesDocumentAndIsSearchableWithoutReopen() throws Exception {
+        try (LuceneTripleIndex index = open()) {
+            index.waitForSearchable(index.index("doc-1", List.of(triple("加息", "股市下跌", 0.9, null, null))));
+            assertEquals(1, index.count(new TripleQuery().withKeyword("股市")));
+
+            // 同一文档重新处理后原子替换，新结果无需重新打开索引即可检索
+            index.waitForSearchable(index.index("doc-1", List.of(
+                    triple("加息", "债市下跌", 0.9, null, null),
+                    triple("加息", "汇率上升", 0.8, null, null))));
+            assertEquals(0, index.count(new TripleQuery().withKeyword("股市")));
+            assertEquals(2, index.count(new TripleQuery().withDocumentId("doc-1")));
+
+            index.waitForSearchable(index.delete("doc-1"));
+            assertEquals(0, index.count(new TripleQuery()));
+        }
+    }
+
+    @Test
+    public void testCommittedTriplesSurviveReopen() throws IOException {
+        try (LuceneTripleIndex index = open()) {
+            index.index("doc-1", List.of(triple("加息", "股市下跌", 0.9, "货币政策", "加息导致股市下跌。")));
+        }
+        try (LuceneTripleIndex index = open()) {
+            List<TripleSearchHit> hits = index.search(new TripleQuery().withKeyword("股市下跌"));
+            assertEquals(1, hits.size());
+            assertEquals("货币政策", hits.get(0).getTriple().getDomainCategory());
+        }
+    }
+
+    @Test
+    public void testExtractorRecordsProvenanceOnlyWhenRequested() {
+        Document document = new Document("利率上升导致股市下跌。");
+        document.addSentence(new Sentence("利率上升导致股市下跌。", 0));
+
+        List<CausalTriple> withSource = new CausalRelationExtractor(true).extract(document);
+        assertFalse(withSource.isEmpty());
+        assertEquals("利率上升导致股市下跌。", withSource.get(0).getSourceSentence());
+        assertEquals(Integer.valueOf(0), withSource.get(0).getSentenceIndex());
+
+        List<CausalTriple> withoutSource = new CausalRelationExtractor(false).extract(document);
+        assertFalse(withoutSource.isEmpty());
+        assertNull(withoutSource.get(0).getSourceSentence());
+        assertNull(withoutSource.get(0).getSentenceIndex());
+    }
+
+    private LuceneTripleIndex open() throws IOException {
+        return new LuceneTripleIndex(tempDir.resolve("index"), 0.05, 0.01, 16);
+    }
+
+    private static List<String> causes(List<TripleSearchHit> hits) {
+        return hits.stream().map(hit -> hit.getTriple().getCause()).collect(Collectors.toList());
+    }
+
+    private static CausalTriple triple(String cause, String effect, double confidence, String category,
+                                       String sentence) {
+        CausalTriple triple = new CausalTriple(cause, effect, "CAUSES", confidence);
+        triple.setDomainCategory(category);
+        if (sentence != null) {
+            triple.setSourceSentence(sentence);
+            triple.setSentenceIndex(0);
+        }
+        return triple;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.fincausal.ingest;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.util.ConfigLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 输入目录监视测试
+ */
+public class DirectoryWatcherTest {
+
+    private static final String TEXT = "因为美联储连续加息，所以新兴市场货币普遍承压。";
+
+    @TempDir
+    Path tempDir;
+
+    private Path inputDirectory;
+    private Path outputDirectory;
+    private Pipeline pipeline;
+
+    @BeforeAll
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ConfigLoader.setProperty("ingest.poll.ms", "20");
+        ConfigLoader.setProperty("ingest.settle.ms", "0");
+        inputDirectory = Files.createDirectories(tempDir.resolve("in"));
+        outputDirectory = tempDir.resolve("out");
+        pipeline = NdjsonTailerTest.failingOn("失败", new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode(true)
+                .build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.close();
+        ConfigLoader.setProperty("ingest.poll.ms", "1000");
+        ConfigLoader.setProperty("ingest.settle.ms", "1000");
+    }
+
+    @Test
+    public void testProcessedFileIsWrittenAndMovedToDone() throws Exception {
+        write(inputDirectory.resolve("a.txt"), TEXT);
+        whileRunning(() -> {
+            waitFor(() -> Files.exists(inputDirectory.resolve("done").resolve("a.txt")));
+        });
+        assertEquals(List.of("a.txt.json"), list(outputDirectory));
+        assertFalse(Files.exists(inputDirectory.resolve("a.txt")));
+    }
+
+    @Test
+    public void testExistingOutputsAreNotOverwritten() throws Exception {
+        Files.createDirectories(outputDirectory);
+        write(outputDirectory.resolve("a.txt.json"), "旧结果");
+        write(Files.createDirectories(inputDirectory.resolve("done")).resolve("a.txt"), "旧输入");
+
+        write(inputDirectory.resolve("a.txt"), TEXT);
+        whileRunning(() -> {
+            waitFor(() -> Files.exists(inputDirectory.resolve("done").resolve("a-1.txt")));
+        });
+
+        assertEquals(List.of("a.txt-1.json", "a.txt.json"), list(outputDirectory));
+        assertEquals("旧结果", read(outputDirectory.resolve("a.txt.json")));
+        assertEquals("旧输入", read(inputDirectory.resolve("done").resolve("a.txt")));
+        assertEquals(TEXT, read(inputDirectory.resolve("done").resolve("a-1.txt")));
+    }
+
+    @Test
+    public void testFailedFileIsMovedToFailed() throws Exception {
+        write(inputDirectory.resolve("bad.txt"), "处理失败的文档");
+        whileRunning(() -> {
+            waitFor(() -> Files.exists(inputDirectory.resolve("failed").resolve("bad.txt")));
+        });
+        assertEquals(List.of(), list(outputDirectory));
+    }
+
+    @Test
+    public void testTemporaryFilesAreIgnored() throws Exception {
+        write(inputDirectory.resolve(".hidden.txt"), TEXT);
+        write(inputDirectory.resolve("upload.part"), TEXT);
+        write(inputDirectory.resolve("upload.tmp"), TEXT);
+        write(inputDirectory.resolve("b.txt"), TEXT);
+        whileRunning(() -> {
+            waitFor(() -> Files.exists(inputDirectory.resolve("done").resolve("b.txt")));
+            Thread.sleep(100);
+        });
+        assertEquals(List.of("b.txt.json"), list(outputDirectory));
+        assertTrue(Files.exists(inputDirectory.resolve("upload.part")));
+        assertTrue(Files.exists(inputDirectory.resolve("upload.tmp")));
+        assertTrue(Files.exists(inputDirectory.resolve(".hidden.txt")));
+    }
+
+    /**
+     * 启动监视，执行 action 后停止监视
+     */
+    private void whileRunning(NdjsonTailerTest.Action action) throws Exception {
+        DirectoryWatcher watcher = start();
+        try {
+            action.run();
+        } finally {
+            watcher.close();
+        }
+    }
+
+    private DirectoryWatcher start() throws IOException {
+        DirectoryWatcher watcher = new DirectoryWatcher(pipeline, PipelineMetrics.disabled(),
+                inputDirectory, outputDirectory);
+        Thread thread = new Thread(watcher, "watcher-test");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 目录中的文件名，不含隐藏的临时文件
+     */
+    private static List<String> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
\ No newline at end of file
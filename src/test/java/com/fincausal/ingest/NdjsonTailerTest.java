@@ -0,0 +1,232 @@
+package com.fincausal.ingest;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.pipeline.ProcessingResult;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NDJSON文件追踪测试
+ */
+public class NdjsonTailerTest {
+
+    private static final String TEXT = "因为美联储连续加息，所以新兴市场货币普遍承压。";
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private Path outputDirectory;
+    private Pipeline pipeline;
+
+    @BeforeAll
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @BeforeEach
+    public void setUp() {
+        ConfigLoader.setProperty("ingest.poll.ms", "20");
+        file = tempDir.resolve("news.ndjson");
+        outputDirectory = tempDir.resolve("out");
+        pipeline = failingOn("失败", new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode(true)
+                .build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.close();
+        ConfigLoader.setProperty("ingest.poll.ms", "1000");
+    }
+
+    @Test
+    public void testPartialLastLineWaitsForNewline() throws Exception {
+        append("{\"id\": \"a\", \"text\": \"" + TEXT + "\"}\n{\"id\": \"b\", \"te");
+        whileRunning(() -> {
+            waitFor(() -> outputs().contains("a.json"));
+            Thread.sleep(100);
+            assertEquals(List.of("a.json"), outputs());
+
+            append("xt\": \"" + TEXT + "\"}\n");
+            waitFor(() -> outputs().contains("b.json"));
+        });
+        assertEquals(List.of("a.json", "b.json"), outputs());
+    }
+
+    @Test
+    public void testRestartResumesFromSavedOffset() throws Exception {
+        append(line("a") + line("b"));
+        whileRunning(() -> {
+            waitFor(() -> outputs().size() == 2);
+        });
+
+        append(line("c"));
+        whileRunning(() -> {
+            waitFor(() -> outputs().contains("c.json"));
+            Thread.sleep(100);
+        });
+        // 重启后不重新处理已完成的行，不会出现带序号的重复结果
+        assertEquals(List.of("a.json", "b.json", "c.json"), outputs());
+    }
+
+    @Test
+    public void testTruncatedFileIsReadFromStart() throws Exception {
+        append(line("a") + line("b") + line("c"));
+        whileRunning(() -> {
+            waitFor(() -> outputs().size() == 3);
+
+            // 模拟轮转：文件被替换为更短的新文件
+            Files.write(file, line("d").getBytes(StandardCharsets.UTF_8));
+            waitFor(() -> outputs().contains("d.json"));
+        });
+        assertEquals(List.of("a.json", "b.json", "c.json", "d.json"), outputs());
+    }
+
+    @Test
+    public void testInvalidAndFailedLinesGoToFailedFile() throws Exception {
+        String invalid = "不是JSON";
+        String failing = "{\"id\": \"f\", \"text\": \"处理失败的文档\"}";
+        append(line("a") + invalid + "\n" + failing + "\n" + line("b"));
+        whileRunning(() -> {
+            waitFor(() -> outputs().contains("b.json"));
+        });
+
+        assertEquals(List.of("a.json", "b.json"), outputs());
+        Path failedFile = tempDir.resolve("failed").resolve("news.ndjson");
+        assertEquals(List.of(invalid, failing), Files.readAllLines(failedFile, StandardCharsets.UTF_8));
+
+        // 失败行已写入失败文件，位置已推进，重启后不再重复写入
+        whileRunning(() -> {
+            Thread.sleep(100);
+        });
+        assertEquals(2, Files.readAllLines(failedFile, StandardCharsets.UTF_8).size());
+    }
+
+    private NdjsonTailer start() throws IOException {
+        NdjsonTailer tailer = new NdjsonTailer(pipeline, PipelineMetrics.disabled(), file, outputDirectory);
+        Thread thread = new Thread(tailer, "tailer-test");
+        thread.setDaemon(true);
+        thread.start();
+        return tailer;
+    }
+
+    /**
+     * 启动追踪，执行 action 后停止追踪
+     */
+    private void whileRunning(Action action) throws Exception {
+        NdjsonTailer tailer = start();
+        try {
+            action.run();
+        } finally {
+            tailer.close();
+        }
+    }
+
+    private static String line(String id) {
+        return "{\"id\": \"" + id + "\", \"text\": \"" + TEXT + "\"}\n";
+    }
+
+    private void append(String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 输出目录中的结果文件名，不含隐藏的临时文件和位置文件
+     */
+    private List<String> outputs() {
+        if (!Files.isDirectory(outputDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 在被测对象运行期间执行的操作
+     */
+    interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * 文本包含marker时异步处理失败的管道
+     */
+    static Pipeline failingOn(String marker, Pipeline delegate) {
+        return new Pipeline() {
+            @Override
+            public List<CausalTriple> process(String text) {
+                return delegate.process(text);
+            }
+
+            @Override
+            public ProcessingResult process(String text, Deadline deadline) {
+                return delegate.process(text, deadline);
+            }
+
+            @Override
+            public CompletableFuture<List<CausalTriple>> processAsync(String text) {
+                if (text.contains(marker)) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("模拟处理失败"));
+                }
+                return delegate.processAsync(text);
+            }
+
+            @Override
+            public CompletableFuture<List<List<CausalTriple>>> processAll(Iterable<String> texts) {
+                return delegate.processAll(texts);
+            }
+
+            @Override
+            public void outputResults(List<CausalTriple> causalTriples, String outputPath) {
+                delegate.outputResults(causalTriples, outputPath);
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+        };
+    }
+}
\ No newline at end of file
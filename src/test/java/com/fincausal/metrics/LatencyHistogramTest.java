@@ -0,0 +1,101 @@
+package com.fincausal.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 延迟直方图分位数测试
+ */
+public class LatencyHistogramTest {
+
+    // 对数-线性分桶的相对误差上界
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 64;
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50, snapshot.getPercentileNanos(50.0));
+        assertEquals(90, snapshot.getPercentileNanos(90.0));
+        assertEquals(99, snapshot.getPercentileNanos(99.0));
+        assertEquals(100, snapshot.getPercentileNanos(100.0));
+        assertEquals(1, snapshot.getPercentileNanos(0.0));
+        assertEquals(50.5, snapshot.getMeanNanos(), 1e-9);
+    }
+
+    @Test
+    public void testPercentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // 1微秒到约1秒之间的对数均匀分布
+            values[i] = (long) Math.pow(10, 3 + random.nextDouble() * 6);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        for (double percentile : new double[]{50.0, 90.0, 99.0, 99.9}) {
+            long expected = values[(int) Math.ceil(percentile / 100.0 * values.length) - 1];
+            long actual = snapshot.getPercentileNanos(percentile);
+            assertTrue(actual >= expected, "p" + percentile + " 不应低于真实值");
+            assertTrue(actual - expected <= expected * MAX_RELATIVE_ERROR,
+                    "p" + percentile + " 误差过大: 期望 " + expected + ", 实际 " + actual);
+        }
+        assertEquals(values[values.length - 1], snapshot.getMaxNanos());
+        assertEquals(values[values.length - 1], snapshot.getPercentileNanos(100.0));
+    }
+
+    @Test
+    public void testMinusReturnsIntervalDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(1_000_000L);
+        }
+        LatencyHistogram.Snapshot earlier = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(10_000L);
+        }
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(earlier);
+        assertEquals(10, interval.getCount());
+        assertEquals(10_000L, interval.getMeanNanos(), 1e-9);
+        long p99 = interval.getPercentileNanos(99.0);
+        assertTrue(p99 >= 10_000L && p99 <= 10_000L * (1 + MAX_RELATIVE_ERROR));
+        assertTrue(interval.getMaxNanos() < 1_000_000L);
+    }
+
+    @Test
+    public void testEmptyAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getPercentileNanos(99.0));
+        assertEquals(0.0, histogram.snapshot().getMeanNanos(), 1e-9);
+
+        histogram.record(-5);
+        assertEquals(1, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getPercentileNanos(50.0));
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getMaxNanos());
+    }
+
+    @Test
+    public void testBucketBoundariesAreContiguous() {
+        for (int index = 1; index < LatencyHistogram.indexOf(Long.MAX_VALUE); index++) {
+            long lower = LatencyHistogram.highestValueAt(index - 1) + 1;
+            assertEquals(index, LatencyHistogram.indexOf(lower));
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.highestValueAt(index)));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.fincausal.output;
+
+import com.fincausal.model.CausalTriple;
+import com.fincausal.pipeline.Pipeline;
+import com.fincausal.pipeline.PipelineBuilder;
+import com.fincausal.util.ConfigLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 结果输出与结果文件读取的往返测试
+ */
+public class ResultFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void loadConfig() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ConfigLoader.setProperty("output.format", "json");
+        ConfigLoader.setProperty("output.compression", "none");
+    }
+
+    @Test
+    public void testEveryFormatAndCompressionRoundTrips() throws IOException {
+        List<CausalTriple> triples = triples();
+        for (OutputFormat format : OutputFormat.values()) {
+            for (Compression compression : Compression.values()) {
+                for (boolean prettyPrint : new boolean[]{true, false}) {
+                    String label = format + "/" + compression + "/" + prettyPrint;
+                    ResultSinkBuilder builder = new ResultSinkBuilder()
+                            .withFormat(format)
+                            .withCompression(compression)
+                            .withPrettyPrint(prettyPrint)
+                            .withColumnarBlockSize(2);
+                    // 按格式命名和统一命名为 .json 时都能读回
+                    for (String name : new String[]{"result" + builder.getExtension(), "output.json"}) {
+                        Path path = tempDir.resolve(name);
+                        try (ResultSink sink = builder.build(path.toString())) {
+                            sink.writeAll(triples);
+                        }
+                        assertSameTriples(triples, read(path), label + " " + name);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPipelineOutputWithCompressionIsReadable() throws IOException {
+        ConfigLoader.setProperty("output.compression", "gzip");
+        Path path = tempDir.resolve("output.json");
+        List<CausalTriple> triples = triples();
+        try (Pipeline pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withFastMode(true)
+                .build()) {
+            pipeline.outputResults(triples, path.toString());
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        assertEquals(0x1f, bytes[0] & 0xff);
+        assertEquals(0x8b, bytes[1] & 0xff);
+        assertSameTriples(triples, read(path), "gzip output.json");
+    }
+
+    @Test
+    public void testBatchRecordsAndEmptyFiles() throws IOException {
+        Path path = tempDir.resolve("batch.ndjson");
+        Files.write(path, Arrays.asList(
+                "{\"id\": \"a\", \"triples\": [{\"cause\": \"加息\", \"effect\": \"汇率承压\", \"relationType\": \"导致\"}]}",
+                "",
+                "{\"id\": \"b\", \"triples\": []}",
+                "{\"cause\": \"油价上涨\", \"effect\": \"成本上升\", \"relationType\": \"导致\"}"), StandardCharsets.UTF_8);
+        List<CausalTriple> read = read(path);
+        assertEquals(2, read.size());
+        assertEquals("加息", read.get(0).getCause());
+        assertEquals("成本上升", read.get(1).getEffect());
+
+        Path empty = tempDir.resolve("empty.json");
+        Files.write(empty, new byte[0]);
+        assertTrue(read(empty).isEmpty());
+    }
+
+    private static List<CausalTriple> triples() {
+        CausalTriple full = new CausalTriple("美联储加息", "新兴市场货币承压", "导致", 0.875);
+        full.setTemporalRelation("before");
+        full.setDomainCategory("货币政策");
+        full.setSourceSentence("因为美联储连续加息，所以新兴市场货币普遍承压。");
+        full.setSentenceIndex(0);
+        full.setExtractionMode("fast");
+        full.setCauseCluster(3);
+        full.setEffectCluster(7);
+        CausalTriple sparse = new CausalTriple("油价上涨", "运输成本上升", "因果", 0.5);
+        CausalTriple third = new CausalTriple("降准", "流动性宽松", "导致", 0.625);
+        third.setDomainCategory("货币政策");
+        return Arrays.asList(full, sparse, third);
+    }
+
+    private static List<CausalTriple> read(Path path) throws IOException {
+        List<CausalTriple> triples = new ArrayList<>();
+        ResultFileReader.scan(path, triples::add);
+        return triples;
+    }
+
+    private static void assertSameTriples(List<CausalTriple> expected, List<CausalTriple> actual, String label) {
+        assertEquals(expected.size(), actual.size(), label);
+        for (int i = 0; i < expected.size(); i++) {
+            CausalTriple e = expected.get(i);
+            CausalTriple a = actual.get(i);
+            assertEquals(e.getCause(), a.getCause(), label);
+            assertEquals(e.getEffect(), a.getEffect(), label);
+            assertEquals(e.getRelationType(), a.getRelationType(), label);
+            assertEquals(e.getConfidence(), a.getConfidence(), 1e-6, label);
+            assertEquals(e.getTemporalRelation(), a.getTemporalRelation(), label);
+            assertEquals(e.getDomainCategory(), a.getDomainCategory(), label);
+            assertEquals(e.getSourceSentence(), a.getSourceSentence(), label);
+            assertEquals(e.getSentenceIndex(), a.getSentenceIndex(), label);
+            assertEquals(e.getExtractionMode(), a.getExtractionMode(), label);
+            assertEquals(e.getCauseCluster(), a.getCauseCluster(), label);
+            assertEquals(e.getEffectCluster(), a.getEffectCluster(), label);
+        }
+    }
+}
\ No newline at end of file
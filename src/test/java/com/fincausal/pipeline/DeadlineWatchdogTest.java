@@ -0,0 +1,100 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.util.Deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 处理时限看门狗测试
+ */
+public class DeadlineWatchdogTest {
+
+    @AfterEach
+    public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void testNotArmedWithoutTimeLimitOrWhenDisabled() {
+        assertNull(new DeadlinePolicy(0, true, 0).arm(Deadline.none()));
+        assertNull(new DeadlinePolicy(1000, false, 0).arm(Deadline.after(1, TimeUnit.SECONDS)));
+        assertFalse(new DeadlinePolicy(0, true, 0).newDeadline().hasTimeLimit());
+        assertTrue(new DeadlinePolicy(1000, true, 0).newDeadline().hasTimeLimit());
+    }
+
+    @Test
+    public void testInterruptsStuckThreadAndClearsFlagOnClose() {
+        Deadline deadline = Deadline.after(20, TimeUnit.MILLISECONDS);
+        boolean interrupted = false;
+        try (DeadlineWatchdog watchdog = new DeadlinePolicy(20, true, 10).arm(deadline)) {
+            assertNotNull(watchdog);
+            Thread.sleep(5000);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        assertTrue(interrupted, "卡住的线程应在时限加宽限时间后被中断");
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testClosedBeforeDeadlineNeverInterrupts() throws InterruptedException {
+        Deadline deadline = Deadline.after(30, TimeUnit.MILLISECONDS);
+        DeadlineWatchdog watchdog = new DeadlinePolicy(30, true, 0).arm(deadline);
+        watchdog.close();
+
+        Thread.sleep(80);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testInterruptsRegisteredForkJoinWorkers() throws Exception {
+        Deadline deadline = Deadline.after(20, TimeUnit.MILLISECONDS);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean workerInterrupted = new AtomicBoolean();
+        try {
+            // 调用线程在 invoke 中等待时不响应中断，只有登记的工作线程被中断后任务才能结束
+            RecursiveAction task = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    deadline.registerWorker();
+                    try {
+                        started.countDown();
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        workerInterrupted.set(true);
+                    } finally {
+                        deadline.unregisterWorker();
+                    }
+                }
+            };
+            long start = System.nanoTime();
+            try {
+                DeadlineWatchdog watchdog = new DeadlinePolicy(20, true, 10).arm(deadline);
+                try {
+                    pool.submit(task);
+                    assertTrue(started.await(5, TimeUnit.SECONDS));
+                    task.get(5, TimeUnit.SECONDS);
+                } finally {
+                    watchdog.close();
+                }
+            } catch (InterruptedException e) {
+                // 看门狗同时中断调用线程，等待登记的工作线程结束
+                task.get(5, TimeUnit.SECONDS);
+            }
+            assertTrue(workerInterrupted.get());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.fincausal.pipeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.model.Document;
+import com.fincausal.model.Sentence;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.processor.FinancialDomainAdapter;
+import com.fincausal.processor.TemporalProcessor;
+import com.fincausal.processor.TextPreprocessor;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.JsonMappers;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发压力测试
+ * 多个线程同时使用同一组处理器（或同一个管道），结果必须与单线程运行完全一致
+ */
+public class PipelineConcurrencyTest {
+
+    private static final String[] CASE_FILES = {
+            "basic_causal_cases.txt", "complex_causal_cases.txt",
+            "financial_term_cases.txt", "temporal_relation_cases.txt"
+    };
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20;
+
+    private static List<String> documents;
+
+    @BeforeAll
+    public static void setUp() {
+        new ConfigLoader().loadConfig("config.properties");
+        ConfigLoader.setProperty("trace.slow.enabled", "false");
+        ConfigLoader.setProperty("metrics.jmx.enabled", "false");
+        documents = loadDocuments();
+    }
+
+    @Test
+    public void testProcessorsAreThreadSafe() throws Exception {
+        TextPreprocessor preprocessor = new TextPreprocessor();
+        CausalRelationExtractor extractor = new CausalRelationExtractor();
+        FinancialDomainAdapter adapter = new FinancialDomainAdapter();
+
+        // 每次调用都新建时序处理器，构造过程曾修改共享的静态集合
+        Function<String, String> run = text -> {
+            String preprocessed = preprocessor.preprocess(text);
+            Document document = new Document(preprocessed);
+            document.addSentence(new Sentence(preprocessed, 0));
+            List<CausalTriple> triples = extractor.extract(document);
+            triples = new TemporalProcessor().process(triples, document);
+            triples = adapter.adapt(triples, document);
+            return toJson(triples) + adapter.processFinancialTerms(preprocessed).keySet();
+        };
+
+        assertConcurrentResultsMatch(run);
+    }
+
+    @Test
+    public void testSharedPipelineMatchesSingleThreadedRun() throws Exception {
+        Pipeline pipeline = new PipelineBuilder()
+                .withPreprocessor()
+                .withParser()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .build();
+
+        assertConcurrentResultsMatch(text -> toJson(pipeline.process(text)));
+    }
+
+    /**
+     * 先单线程得到每个文档的期望结果，再由多个线程以各自随机的顺序反复处理全部文档并比对
+     */
+    private static void assertConcurrentResultsMatch(Function<String, String> run) throws Exception {
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (String document : documents) {
+            expected.put(document, run.apply(document));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<String> mismatches = new ConcurrentLinkedQueue<>();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> order = new ArrayList<>(documents);
+                    for (int round = 0; round < ROUNDS; round++) {
+                        Collections.shuffle(order, random);
+                        for (String document : order) {
+                            String actual = run.apply(document);
+                            if (!expected.get(document).equals(actual)) {
+                                mismatches.add(document + " => " + actual);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(mismatches.isEmpty(), "并发结果与单线程结果不一致: " + mismatches);
+    }
+
+    /**
+     * 每个语料句子作为一个文档，每个语料文件的全部句子再拼接为一个多句文档
+     */
+    private static List<String> loadDocuments() {
+        List<String> result = new ArrayList<>();
+        for (String caseFile : CASE_FILES) {
+            List<String> sentences = readCases(caseFile);
+            result.addAll(sentences);
+            result.add(String.join("。", sentences) + "。");
+        }
+        return result;
+    }
+
+    private static List<String> readCases(String resource) {
+        List<String> sentences = new ArrayList<>();
+        try (InputStream is = PipelineConcurrencyTest.class.getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(is, "找不到测试语料: " + resource);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim().replaceFirst("^\\d+\\.\\s*", "");
+                if (!line.isEmpty()) {
+                    sentences.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sentences;
+    }
+
+    private static String toJson(List<CausalTriple> triples) {
+        try {
+            return JsonMappers.writer(false).writeValueAsString(triples);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
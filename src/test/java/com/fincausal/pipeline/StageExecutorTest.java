@@ -0,0 +1,156 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 阶段工作线程池的背压与关闭测试
+ */
+public class StageExecutorTest {
+
+    @BeforeAll
+    public static void setUp() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @Test
+    public void testExecuteBlocksWhenQueueIsFull() throws Exception {
+        PipelineMetrics metrics = PipelineMetrics.fromConfig();
+        StageExecutor executor = new StageExecutor("test", 1, 1, metrics);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                running.countDown();
+                await(release);
+            });
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> { });
+            assertEquals(1, executor.getQueueDepth());
+
+            // 队列已满，提交线程阻塞，直到工作线程取走任务
+            AtomicBoolean submitted = new AtomicBoolean();
+            Thread producer = new Thread(() -> {
+                executor.execute(() -> { });
+                submitted.set(true);
+            });
+            producer.start();
+            producer.join(200);
+            assertTrue(producer.isAlive(), "队列已满时提交应阻塞");
+            assertFalse(submitted.get());
+
+            release.countDown();
+            producer.join(5000);
+            assertTrue(submitted.get());
+            assertTrue(metrics.getCounters().get(StageExecutor.METRIC_PREFIX + "test.queue.full") >= 1);
+        } finally {
+            release.countDown();
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testTryExecuteDoesNotBlock() throws Exception {
+        StageExecutor executor = new StageExecutor("try", 1, 1, PipelineMetrics.fromConfig());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        try {
+            assertTrue(executor.tryExecute(() -> {
+                running.countDown();
+                await(release);
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            assertTrue(executor.tryExecute(() -> { }));
+            assertFalse(executor.tryExecute(() -> { }));
+        } finally {
+            release.countDown();
+            executor.close();
+        }
+        assertFalse(executor.tryExecute(() -> { }));
+    }
+
+    @Test
+    public void testExecuteAfterCloseIsRejected() {
+        StageExecutor executor = new StageExecutor("closed", 1, 4, PipelineMetrics.fromConfig());
+        executor.close();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+
+    @Test
+    public void testTasksSubmittedDuringCloseRunOrAreRejected() throws Exception {
+        StageExecutor executor = new StageExecutor("race", 2, 2, PipelineMetrics.fromConfig());
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        int producers = 4;
+        int perProducer = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < perProducer; i++) {
+                    try {
+                        executor.execute(ran::incrementAndGet);
+                    } catch (RejectedExecutionException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        Thread.sleep(5);
+        executor.close();
+        for (Thread thread : threads) {
+            thread.join(10_000);
+            assertFalse(thread.isAlive(), "提交线程不应在关闭后一直阻塞");
+        }
+        // 每个任务要么执行要么被拒绝，关闭后没有滞留在队列中的任务
+        assertEquals(producers * perProducer, ran.get() + rejected.get());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testStagedPipelineFutureFailsAfterClose() {
+        StagedPipeline pipeline = new StagedPipeline(fastPipeline());
+        pipeline.close();
+
+        CompletableFuture<ProcessingResult> future =
+                pipeline.submit("因为利率上升，所以股市下跌。", Deadline.none());
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    private static DefaultPipeline fastPipeline() {
+        return (DefaultPipeline) new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withTemporalProcessor()
+                .withFinancialDomainAdapter()
+                .withFastMode(true)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.fincausal.pipeline;
+
+import com.fincausal.metrics.PipelineMetrics;
+import com.fincausal.model.CausalTriple;
+import com.fincausal.processor.CausalRelationExtractor;
+import com.fincausal.processor.FinancialDomainAdapter;
+import com.fincausal.processor.SentenceSplitter;
+import com.fincausal.processor.TemporalProcessor;
+import com.fincausal.processor.TextPreprocessor;
+import com.fincausal.util.ConfigLoader;
+import com.fincausal.util.Deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分级处理管道测试
+ * 以两个快速模式管道分别充当快速层和补全层，不加载CoreNLP模型
+ */
+public class TieredPipelineTest {
+
+    private static final String TEXT = "因为美联储连续加息，所以新兴市场货币普遍承压。";
+
+    @BeforeAll
+    public static void setUp() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @AfterEach
+    public void resetConfig() {
+        ConfigLoader.setProperty("pipeline.stage.enrich.threads", "0");
+        ConfigLoader.setProperty("pipeline.stage.enrich.queue.capacity", "64");
+        ConfigLoader.setProperty("pipeline.tiered.queue.full.policy", "drop");
+    }
+
+    @Test
+    public void testFastResultReturnedAndEnrichmentPublished() throws Exception {
+        Map<String, List<CausalTriple>> enriched = new ConcurrentHashMap<>();
+        CountDownLatch published = new CountDownLatch(1);
+        TieredPipeline pipeline = tiered(PipelineMetrics.fromConfig(), (documentId, triples) -> {
+            enriched.put(documentId, triples);
+            published.countDown();
+        });
+        try {
+            ProcessingResult result = pipeline.process("doc-1", TEXT, Deadline.none());
+            assertFalse(result.getTriples().isEmpty());
+
+            assertTrue(published.await(10, TimeUnit.SECONDS));
+            assertEquals(result.getTriples().size(), enriched.get("doc-1").size());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void testDropPolicyDiscardsEnrichmentWhenQueueIsFull() throws Exception {
+        ConfigLoader.setProperty("pipeline.stage.enrich.threads", "1");
+        ConfigLoader.setProperty("pipeline.stage.enrich.queue.capacity", "1");
+        PipelineMetrics metrics = PipelineMetrics.fromConfig();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TieredPipeline pipeline = tiered(metrics, (documentId, triples) -> {
+            running.countDown();
+            await(release);
+        });
+        try {
+            // 第一个文档占用唯一的补全线程，第二个进入队列，之后的文档队列已满被丢弃
+            pipeline.process("doc-1", TEXT, Deadline.none());
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+            pipeline.process("doc-2", TEXT, Deadline.none());
+            ProcessingResult dropped = pipeline.process("doc-3", TEXT, Deadline.none());
+            pipeline.process("doc-4", TEXT, Deadline.none());
+
+            // 补全被丢弃时快速结果不受影响
+            assertFalse(dropped.getTriples().isEmpty());
+            Map<String, Long> counters = metrics.getCounters();
+            assertEquals(2L, counters.get("pipeline.tiered.enrich.submitted"));
+            assertEquals(2L, counters.get("pipeline.tiered.enrich.dropped"));
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+        assertEquals(2L, metrics.getCounters().get("pipeline.tiered.enrich.completed"));
+    }
+
+    @Test
+    public void testBuilderRejectsEnrichmentWithStagedExecution() {
+        PipelineBuilder builder = new PipelineBuilder()
+                .withPreprocessor()
+                .withCausalExtractor()
+                .withEnrichment((documentId, triples) -> { })
+                .withStagedExecution(true);
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    private static TieredPipeline tiered(PipelineMetrics metrics, EnrichmentListener listener) {
+        return new TieredPipeline(fastPipeline(PipelineMetrics.disabled()), fastPipeline(metrics), listener);
+    }
+
+    private static DefaultPipeline fastPipeline(PipelineMetrics metrics) {
+        return new DefaultPipeline(
+                new TextPreprocessor(),
+                null,
+                new CausalRelationExtractor(),
+                new TemporalProcessor(),
+                new FinancialDomainAdapter(),
+                null,
+                null,
+                metrics,
+                new BoundedExecutor(null, 0),
+                new SentenceSplitter());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.fincausal.processor;
+
+import com.fincausal.util.ConfigLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 词典双向最大匹配分词测试
+ */
+public class DictionarySegmenterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void setUp() {
+        new ConfigLoader().loadConfig("config.properties");
+    }
+
+    @AfterEach
+    public void resetConfig() {
+        ConfigLoader.setProperty("financial.dictionary.path", DictionarySegmenter.DEFAULT_FINANCIAL_DICTIONARY);
+        ConfigLoader.setProperty("nlp.segmenter.dictionaries", DictionarySegmenter.DEFAULT_DICTIONARIES);
+    }
+
+    @Test
+    public void testForwardWinsWithFewerWords() {
+        // 正向：甲乙丙/丁（2个词），逆向：甲/乙/丙丁（3个词）
+        DictionarySegmenter segmenter = new DictionarySegmenter(List.of("甲乙丙", "丙丁"));
+        assertEquals(List.of("甲乙丙", "丁"), words(segmenter, "甲乙丙丁"));
+    }
+
+    @Test
+    public void testBackwardWinsWithFewerWords() {
+        // 正向：甲乙/丙/丁（3个词），逆向：甲/乙丙丁（2个词）
+        DictionarySegmenter segmenter = new DictionarySegmenter(List.of("甲乙", "乙丙丁"));
+        assertEquals(List.of("甲", "乙丙丁"), words(segmenter, "甲乙丙丁"));
+    }
+
+    @Test
+    public void testFewerSingleCharsWinsOnEqualWordCount() {
+        // 正向：研究生/命/起源，逆向：研究/生命/起源，词数相同，逆向的单字词较少
+        DictionarySegmenter segmenter = new DictionarySegmenter(List.of("研究", "研究生", "生命", "命", "起源"));
+        assertEquals(List.of("研究", "生命", "起源"), words(segmenter, "研究生命起源"));
+
+        // 正向：甲乙/丙丁，逆向：甲/乙丙丁，词数相同，正向没有单字词
+        segmenter = new DictionarySegmenter(List.of("甲乙", "丙丁", "乙丙丁"));
+        assertEquals(List.of("甲乙", "丙丁"), words(segmenter, "甲乙丙丁"));
+    }
+
+    @Test
+    public void testBackwardWinsOnFullTie() {
+        // 正向：甲乙/丙丁/戊，逆向：甲/乙丙/丁戊，词数和单字词数都相同时取逆向结果
+        DictionarySegmenter segmenter = new DictionarySegmenter(List.of("甲乙", "丙丁", "乙丙", "丁戊"));
+        assertEquals(List.of("甲", "乙丙", "丁戊"), words(segmenter, "甲乙丙丁戊"));
+    }
+
+    @Test
+    public void testAlphanumericPunctuationAndOffsets() {
+        DictionarySegmenter segmenter = new DictionarySegmenter(List.of("上涨"));
+        String text = "CPI 上涨2.5%。";
+        List<DictionarySegmenter.Token> tokens = segmenter.segment(text);
+
+        assertEquals(List.of("CPI", "上涨", "2.5%", "。"),
+                tokens.stream().map(DictionarySegmenter.Token::getWord).collect(Collectors.toList()));
+        for (DictionarySegmenter.Token token : tokens) {
+            assertEquals(token.getWord(), text.substring(token.getBegin(), token.getEnd()));
+        }
+    }
+
+    @Test
+    public void testLoadsFinancialDictionaryFromConfiguredPath() throws IOException {
+        Path financial = tempDir.resolve("financial.txt");
+        Files.write(financial, List.of("# 测试词典", "量化紧缩 n"), StandardCharsets.UTF_8);
+        ConfigLoader.setProperty("financial.dictionary.path", financial.toString());
+        ConfigLoader.setProperty("nlp.segmenter.dictionaries", "");
+
+        DictionarySegmenter segmenter = new DictionarySegmenter();
+        assertEquals(1, segmenter.getWordCount());
+        assertEquals(List.of("开", "始", "量化紧缩"), words(segmenter, "开始量化紧缩"));
+    }
+
+    private static List<String> words(DictionarySegmenter segmenter, String text) {
+        return segmenter.segment(text).stream()
+                .map(DictionarySegmenter.Token::getWord)
+                .collect(Collectors.toList());
+    }
+}
\ No newline at end of file
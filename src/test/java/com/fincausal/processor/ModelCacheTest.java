@@ -0,0 +1,113 @@
+package com.fincausal.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型启动缓存测试
+ */
+public class ModelCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testExtractsOnceAndReusesCachedModel() throws IOException {
+        Path model = writeModel("models/pos.tagger.gz", "词性标注模型v1", 1_000_000L);
+        ModelCache cache = new ModelCache(tempDir.resolve("cache"));
+
+        Path cached = Paths.get(cache.resolve(model.toString()));
+        assertEquals("词性标注模型v1", read(cached));
+        assertTrue(cached.startsWith(tempDir.resolve("cache").toAbsolutePath()));
+        assertTrue(Files.exists(cached.resolveSibling(cached.getFileName() + ".source")));
+
+        // 来源未变时直接使用缓存文件，不重新解压
+        FileTime extracted = FileTime.fromMillis(5_000_000L);
+        Files.setLastModifiedTime(cached, extracted);
+        assertEquals(cached.toString(), cache.resolve(model.toString()));
+        assertEquals(extracted, Files.getLastModifiedTime(cached));
+    }
+
+    @Test
+    public void testReplacedSourceInvalidatesCachedModel() throws IOException {
+        Path model = writeModel("models/pos.tagger.gz", "词性标注模型v1", 1_000_000L);
+        ModelCache cache = new ModelCache(tempDir.resolve("cache"));
+        Path cached = Paths.get(cache.resolve(model.toString()));
+
+        // 内容长度不变，只有修改时间不同
+        writeModel("models/pos.tagger.gz", "词性标注模型v2", 2_000_000L);
+        assertEquals(cached.toString(), cache.resolve(model.toString()));
+        assertEquals("词性标注模型v2", read(cached));
+
+        // 大小不同
+        writeModel("models/pos.tagger.gz", "升级后的词性标注模型v3", 2_000_000L);
+        cache.resolve(model.toString());
+        assertEquals("升级后的词性标注模型v3", read(cached));
+    }
+
+    @Test
+    public void testMissingSourceRecordForcesExtraction() throws IOException {
+        Path model = writeModel("models/ner.gz", "实体识别模型", 1_000_000L);
+        ModelCache cache = new ModelCache(tempDir.resolve("cache"));
+        Path cached = Paths.get(cache.resolve(model.toString()));
+
+        // 模拟旧版本留下的、没有来源记录的缓存文件
+        Files.delete(cached.resolveSibling(cached.getFileName() + ".source"));
+        Files.write(cached, "过期模型".getBytes(StandardCharsets.UTF_8));
+        cache.resolve(model.toString());
+        assertEquals("实体识别模型", read(cached));
+    }
+
+    @Test
+    public void testPathOutsideCacheDirectoryIsRejected() throws IOException {
+        Path cacheDirectory = tempDir.resolve("cache");
+        ModelCache cache = new ModelCache(cacheDirectory);
+        assertNull(cache.resolve("../../escape.ser.gz"));
+        assertNull(cache.resolve("models/../../../escape.ser.gz"));
+        assertFalse(Files.exists(cacheDirectory));
+    }
+
+    @Test
+    public void testApplyReplacesOnlyCompressedModels() throws IOException {
+        Path model = writeModel("models/parser.ser.gz", "句法模型", 1_000_000L);
+        Properties props = new Properties();
+        props.setProperty("parse.model", model.toString());
+        props.setProperty("pos.model", "edu/stanford/nlp/models/pos-tagger/chinese.tagger");
+        props.setProperty("ner.model", tempDir.resolve("missing.ser.gz").toString());
+
+        ModelCache cache = new ModelCache(tempDir.resolve("cache"));
+        cache.apply(props);
+
+        assertEquals("句法模型", read(Paths.get(props.getProperty("parse.model"))));
+        assertEquals("edu/stanford/nlp/models/pos-tagger/chinese.tagger", props.getProperty("pos.model"));
+        assertEquals(tempDir.resolve("missing.ser.gz").toString(), props.getProperty("ner.model"));
+        assertTrue(cache.getPrepareTimes().containsKey("parse.model"));
+        assertFalse(cache.getPrepareTimes().containsKey("ner.model"));
+    }
+
+    private Path writeModel(String name, String content, long modified) throws IOException {
+        Path path = tempDir.resolve(name);
+        Files.createDirectories(path.getParent());
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified));
+        return path;
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
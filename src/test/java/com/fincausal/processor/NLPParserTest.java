@@ -0,0 +1,116 @@
+package com.fincausal.processor;
+
+import com.fincausal.model.Document;
+import com.fincausal.model.Sentence;
+import com.fincausal.util.ConfigLoader;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NLP解析器逐句注释测试
+ * 逐句运行注释器的结果必须与对整个文档运行注释器的结果一致，
+ * 包括依赖文档原文偏移和文档日期的命名实体识别（日期、机构等）
+ */
+public class NLPParserTest {
+
+    // 逐句测试不需要成分句法树，去掉parse以缩短测试时间
+    private static final String ANNOTATORS = "tokenize, ssplit, pos, lemma, ner, depparse";
+
+    private static final String TEXT = "2023年3月15日，美联储宣布加息25个基点。"
+            + "受此影响，纳斯达克指数当天下跌2%，美元兑人民币汇率升至7.0。"
+            + "中国人民银行随后于4月1日下调存款准备金率0.25个百分点。"
+            + "上周五，沪深300指数收涨1.2%。";
+
+    private static List<SentenceResult> expected;
+
+    @BeforeAll
+    public static void setUp() {
+        new ConfigLoader().loadConfig("config.properties");
+        ConfigLoader.setProperty("nlp.annotators", ANNOTATORS);
+        ConfigLoader.setProperty("nlp.segmenter", "crf");
+        ConfigLoader.setProperty("nlp.sentence.max.tokens", "0");
+        ConfigLoader.setProperty("nlp.sentence.max.chars", "0");
+
+        Properties props = NLPParser.languageProperties("zh");
+        props.setProperty("annotators", ANNOTATORS);
+        Annotation annotation = new Annotation(TEXT);
+        new StanfordCoreNLP(props).annotate(annotation);
+        expected = new ArrayList<>();
+        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+            expected.add(SentenceResult.of(sentence));
+        }
+    }
+
+    @AfterEach
+    public void resetParallel() {
+        ConfigLoader.setProperty("nlp.parallel.enabled", "false");
+    }
+
+    @Test
+    public void testPerSentenceMatchesWholeDocument() {
+        assertMatchesWholeDocument(new NLPParser().parse(TEXT));
+    }
+
+    @Test
+    public void testParallelPerSentenceMatchesWholeDocument() {
+        ConfigLoader.setProperty("nlp.parallel.enabled", "true");
+        ConfigLoader.setProperty("nlp.parallel.min.sentences", "2");
+        ConfigLoader.setProperty("nlp.parallel.chunk.sentences", "1");
+        assertMatchesWholeDocument(new NLPParser().parse(TEXT));
+    }
+
+    private static void assertMatchesWholeDocument(Document document) {
+        assertTrue(expected.size() > 1, "测试文本应包含多个句子");
+        assertEquals(expected.size(), document.getSentences().size());
+        boolean hasDate = false;
+        for (int i = 0; i < expected.size(); i++) {
+            SentenceResult whole = expected.get(i);
+            Sentence sentence = document.getSentences().get(i);
+            assertEquals(whole.tokens, sentence.getTokens(), "句子" + i + "分词不一致");
+            assertEquals(whole.posTags, sentence.getPosTags(), "句子" + i + "词性不一致");
+            assertEquals(whole.nerTags, sentence.getNerTags(), "句子" + i + "命名实体不一致");
+            assertEquals(whole.dependencies, String.valueOf(sentence.getDependencyParse()),
+                    "句子" + i + "依存分析不一致");
+            hasDate |= sentence.getNerTags().contains("DATE");
+        }
+        assertTrue(hasDate, "测试文本应识别出日期实体");
+    }
+
+    /**
+     * 整篇注释中单个句子的结果
+     */
+    private static class SentenceResult {
+        final List<String> tokens = new ArrayList<>();
+        final List<String> posTags = new ArrayList<>();
+        final List<String> nerTags = new ArrayList<>();
+        String dependencies;
+
+        static SentenceResult of(CoreMap sentence) {
+            SentenceResult result = new SentenceResult();
+            for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class)) {
+                result.tokens.add(token.word());
+                result.posTags.add(token.tag());
+                result.nerTags.add(token.ner());
+            }
+            SemanticGraph graph = sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class);
+            result.dependencies = String.valueOf(graph);
+            return result;
+        }
+    }
+}
\ No newline at end of file
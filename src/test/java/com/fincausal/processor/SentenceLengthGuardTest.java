@@ -0,0 +1,173 @@
+package com.fincausal.processor;
+
+import com.fincausal.model.ParseRoute;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.CoreMap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 句子长度保护测试
+ */
+public class SentenceLengthGuardTest {
+
+    // 句子前的文本，保证句子的字符偏移不从0开始
+    private static final String PREFIX = "上一句。";
+
+    private static final String[] WORDS = {
+            "因为", "美联储", "连续", "加息", "，",
+            "美元", "指数", "大幅", "走强", "，",
+            "所以", "新兴", "市场", "货币", "普遍", "承压", "。"
+    };
+
+    @Test
+    public void testShortSentenceIsParsedWhole() {
+        CoreMap sentence = sentence(WORDS);
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(100, 100, SentenceLengthGuard.Policy.SPLIT).route(sentence, text(WORDS));
+
+        assertEquals(1, units.size());
+        assertSame(sentence, units.get(0).getAnnotation());
+        assertEquals(ParseRoute.FULL, units.get(0).getRoute());
+    }
+
+    @Test
+    public void testZeroLimitsDisableGuard() {
+        CoreMap sentence = sentence(WORDS);
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(0, 0, SentenceLengthGuard.Policy.SPLIT).route(sentence, text(WORDS));
+
+        assertEquals(1, units.size());
+        assertEquals(ParseRoute.FULL, units.get(0).getRoute());
+    }
+
+    @Test
+    public void testSplitMergesClausesWithinLimit() {
+        String text = text(WORDS);
+        CoreMap sentence = sentence(WORDS);
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(10, 0, SentenceLengthGuard.Policy.SPLIT).route(sentence, text);
+
+        // 前两个子句共10个词合并为一部分，第三个子句单独成为一部分
+        assertEquals(2, units.size());
+        assertEquals(List.of(ParseRoute.SPLIT, ParseRoute.SPLIT),
+                units.stream().map(SentenceLengthGuard.SentenceUnit::getRoute).collect(Collectors.toList()));
+        assertEquals("因为美联储连续加息，美元指数大幅走强，", units.get(0).getAnnotation().toString());
+        assertEquals("所以新兴市场货币普遍承压。", units.get(1).getAnnotation().toString());
+
+        for (SentenceLengthGuard.SentenceUnit unit : units) {
+            CoreMap chunk = unit.getAnnotation();
+            List<CoreLabel> tokens = chunk.get(CoreAnnotations.TokensAnnotation.class);
+            int begin = chunk.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+            int end = chunk.get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
+            // 子句的字符区间和词条偏移都相对于整个文档
+            assertEquals(chunk.toString(), text.substring(begin, end));
+            assertEquals(begin, tokens.get(0).beginPosition());
+            assertEquals(end, tokens.get(tokens.size() - 1).endPosition());
+            for (int i = 0; i < tokens.size(); i++) {
+                assertEquals(i + 1, tokens.get(i).index());
+            }
+        }
+    }
+
+    @Test
+    public void testSplitDoesNotModifyOriginalTokens() {
+        CoreMap sentence = sentence(WORDS);
+        List<CoreLabel> original = sentence.get(CoreAnnotations.TokensAnnotation.class);
+
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(6, 0, SentenceLengthGuard.Policy.SPLIT).route(sentence, text(WORDS));
+
+        assertTrue(units.size() > 1);
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(i + 1, original.get(i).index(), "原句词条序号被修改");
+        }
+        for (SentenceLengthGuard.SentenceUnit unit : units) {
+            for (CoreLabel token : unit.getAnnotation().get(CoreAnnotations.TokensAnnotation.class)) {
+                assertTrue(original.stream().noneMatch(label -> label == token), "子句与原句共享词条对象");
+            }
+        }
+    }
+
+    @Test
+    public void testSplitFallsBackToPatternForOversizedClause() {
+        String[] words = {
+                "油价", "上涨", "，",
+                "导致", "运输", "成本", "和", "生产", "成本", "大幅", "上升", "。"
+        };
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(5, 0, SentenceLengthGuard.Policy.SPLIT).route(sentence(words), text(words));
+
+        assertEquals(2, units.size());
+        assertEquals(ParseRoute.SPLIT, units.get(0).getRoute());
+        assertEquals("油价上涨，", units.get(0).getAnnotation().toString());
+        // 单个子句仍超过上限，只做模式匹配
+        assertEquals(ParseRoute.PATTERN_ONLY, units.get(1).getRoute());
+        assertEquals("导致运输成本和生产成本大幅上升。", units.get(1).getAnnotation().toString());
+    }
+
+    @Test
+    public void testCharLimitAppliesIndependently() {
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(0, 13, SentenceLengthGuard.Policy.SPLIT).route(sentence(WORDS), text(WORDS));
+
+        assertEquals(3, units.size());
+        for (SentenceLengthGuard.SentenceUnit unit : units) {
+            assertTrue(unit.getAnnotation().toString().length() <= 13);
+            assertEquals(ParseRoute.SPLIT, unit.getRoute());
+        }
+    }
+
+    @Test
+    public void testPatternPolicyKeepsSentenceWhole() {
+        CoreMap sentence = sentence(WORDS);
+        List<SentenceLengthGuard.SentenceUnit> units =
+                new SentenceLengthGuard(5, 0, SentenceLengthGuard.Policy.PATTERN).route(sentence, text(WORDS));
+
+        assertEquals(1, units.size());
+        assertSame(sentence, units.get(0).getAnnotation());
+        assertEquals(ParseRoute.PATTERN_ONLY, units.get(0).getRoute());
+    }
+
+    @Test
+    public void testPolicyFromString() {
+        assertEquals(SentenceLengthGuard.Policy.PATTERN, SentenceLengthGuard.Policy.fromString(" Pattern "));
+        assertEquals(SentenceLengthGuard.Policy.SPLIT, SentenceLengthGuard.Policy.fromString("split"));
+        assertEquals(SentenceLengthGuard.Policy.SPLIT, SentenceLengthGuard.Policy.fromString("unknown"));
+    }
+
+    private static String text(String... words) {
+        return PREFIX + String.join("", words);
+    }
+
+    /**
+     * 构造已分词的句子注释，词条偏移相对于 PREFIX 开头的整个文档
+     */
+    private static CoreMap sentence(String... words) {
+        List<CoreLabel> tokens = new ArrayList<>();
+        int position = PREFIX.length();
+        for (int i = 0; i < words.length; i++) {
+            CoreLabel token = new CoreLabel();
+            token.setWord(words[i]);
+            token.setValue(words[i]);
+            token.setOriginalText(words[i]);
+            token.setBeginPosition(position);
+            position += words[i].length();
+            token.setEndPosition(position);
+            token.setIndex(i + 1);
+            tokens.add(token);
+        }
+        Annotation sentence = new Annotation(String.join("", words));
+        sentence.set(CoreAnnotations.TokensAnnotation.class, tokens);
+        return sentence;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.fincausal.storage;
+
+import com.fincausal.model.CausalTriple;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式三元组文件读写测试
+ */
+public class ColumnarTripleReaderTest {
+
+    private static final int BLOCK_SIZE = 3;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTripAcrossBlocksKeepsAllFields() throws IOException {
+        List<CausalTriple> triples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            triples.add(triple(i, "货币政策"));
+        }
+        // 每个可为null的列都为null
+        triples.add(new CausalTriple(null, null, null, 0.5));
+        Path file = write(triples);
+
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(file)) {
+            assertEquals(4, reader.getBlocks().size());
+            assertEquals(triples.size(), reader.getRecordCount());
+            List<CausalTriple> read = reader.readAll(TripleFilter.all());
+            assertEquals(triples.size(), read.size());
+            for (int i = 0; i < triples.size(); i++) {
+                assertSameTriple(triples.get(i), read.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testFilterSkipsBlocksByStatistics() throws IOException {
+        List<CausalTriple> triples = new ArrayList<>();
+        // 第1块低置信度的货币政策，第2块高置信度的大宗商品，第3块两者混合
+        for (int i = 0; i < 3; i++) {
+            triples.add(triple(i, "货币政策", 0.2 + i * 0.01));
+        }
+        for (int i = 3; i < 6; i++) {
+            triples.add(triple(i, "大宗商品", 0.9));
+        }
+        triples.add(triple(6, "货币政策", 0.95));
+        triples.add(triple(7, "大宗商品", 0.3));
+        Path file = write(triples);
+
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(file)) {
+            List<BlockStats> blocks = reader.getBlocks();
+            TripleFilter highConfidence = TripleFilter.all().withMinConfidence(0.8);
+            assertFalse(highConfidence.mightMatch(blocks.get(0)));
+            assertTrue(highConfidence.mightMatch(blocks.get(1)));
+            TripleFilter commodities = TripleFilter.all().withCategories("大宗商品");
+            assertFalse(commodities.mightMatch(blocks.get(0)));
+            assertTrue(commodities.mightMatch(blocks.get(2)));
+
+            assertEquals(Arrays.asList("原因3", "原因4", "原因5", "原因6"), causes(reader.readAll(highConfidence)));
+            assertEquals(Arrays.asList("原因6"),
+                    causes(reader.readAll(highConfidence.withCategories("货币政策"))));
+        }
+
+        // 被跳过的块即使已损坏也不会被读取
+        corrupt(file, reader -> reader.getBlocks().get(0).getOffset() + Integer.BYTES + BLOCK_SIZE * Float.BYTES,
+                Integer.MAX_VALUE);
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(file)) {
+            assertEquals(4, reader.readAll(TripleFilter.all().withMinConfidence(0.8)).size());
+            assertThrows(IOException.class, () -> reader.readAll(TripleFilter.all()));
+        }
+    }
+
+    @Test
+    public void testCorruptDictionaryIsRejected() throws IOException {
+        Path file = write(Arrays.asList(triple(0, "货币政策"), triple(1, "货币政策")));
+        long column;
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(file)) {
+            column = reader.getBlocks().get(0).getOffset() + Integer.BYTES + 2 * Float.BYTES;
+        }
+        byte[] original = Files.readAllBytes(file);
+
+        // 字典大小远超列长度
+        byte[] bytes = original.clone();
+        bytes[(int) column + Integer.BYTES] = (byte) 0xff;
+        bytes[(int) column + Integer.BYTES + 1] = (byte) 0xff;
+        bytes[(int) column + Integer.BYTES + 2] = (byte) 0x7f;
+        assertScanFails(bytes);
+
+        // 编码超出字典大小：领域分类列为 [长度][字典大小1][词条][编码1][编码1]
+        bytes = original.clone();
+        int columnLength = ByteBuffer.wrap(bytes, (int) column, Integer.BYTES).getInt();
+        bytes[(int) column + Integer.BYTES + columnLength - 1] = 5;
+        assertScanFails(bytes);
+    }
+
+    @Test
+    public void testCorruptTrailerAndFooterAreRejected() throws IOException {
+        Path file = write(Arrays.asList(triple(0, "货币政策"), triple(1, "大宗商品")));
+        byte[] original = Files.readAllBytes(file);
+        long footerOffset = ByteBuffer.wrap(original, original.length - 12, Long.BYTES).getLong();
+
+        // 文件尾魔数错误（如文件未正常关闭）
+        byte[] bytes = original.clone();
+        bytes[bytes.length - 1] ^= 0x5a;
+        assertOpenFails(bytes);
+
+        // 文件尾偏移超出文件
+        bytes = original.clone();
+        ByteBuffer.wrap(bytes).putLong(bytes.length - 12, bytes.length * 2L);
+        assertOpenFails(bytes);
+
+        // 截断
+        assertOpenFails(Arrays.copyOf(original, original.length - 5));
+
+        // 块数过大
+        bytes = original.clone();
+        ByteBuffer.wrap(bytes).putInt((int) footerOffset, Integer.MAX_VALUE);
+        assertOpenFails(bytes);
+
+        // 分类数过大：块数之后依次为 offset、length、recordCount、置信度范围，再是分类数
+        bytes = original.clone();
+        ByteBuffer.wrap(bytes).putInt((int) footerOffset + Integer.BYTES + Long.BYTES + 4 * Integer.BYTES,
+                Integer.MAX_VALUE);
+        assertOpenFails(bytes);
+
+        // 块长度与文件尾位置不符
+        bytes = original.clone();
+        ByteBuffer.wrap(bytes).putInt((int) footerOffset + Integer.BYTES + Long.BYTES, 1 << 20);
+        assertOpenFails(bytes);
+    }
+
+    @Test
+    public void testVersion1FileReadsNewFieldsAsNull() throws IOException {
+        // 按版本1的布局手工写出一个只有一条记录的文件
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        DataOutputStream blockOut = new DataOutputStream(block);
+        blockOut.writeInt(1);
+        blockOut.writeFloat(0.75f);
+        for (String value : new String[]{"货币政策", "加息", "汇率承压", "因果", "before"}) {
+            ByteArrayOutputStream column = new ByteArrayOutputStream();
+            ColumnarFormat.writeVarInt(column, 1);
+            ColumnarFormat.writeString(column, value);
+            ColumnarFormat.writeVarInt(column, 1);
+            blockOut.writeInt(column.size());
+            column.writeTo(blockOut);
+        }
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        out.writeInt(ColumnarFormat.MAGIC);
+        out.writeInt(1);
+        block.writeTo(out);
+        long footerOffset = out.size();
+        out.writeInt(1);
+        out.writeLong(2 * Integer.BYTES);
+        out.writeInt(block.size());
+        out.writeInt(1);
+        out.writeFloat(0.75f);
+        out.writeFloat(0.75f);
+        out.writeInt(1);
+        out.writeBoolean(true);
+        ColumnarFormat.writeString(file, "货币政策");
+        out.writeLong(footerOffset);
+        out.writeInt(ColumnarFormat.MAGIC);
+        Path path = tempDir.resolve("v1.fctc");
+        Files.write(path, file.toByteArray());
+
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(path)) {
+            List<CausalTriple> triples = reader.readAll(TripleFilter.all());
+            assertEquals(1, triples.size());
+            CausalTriple triple = triples.get(0);
+            assertEquals("加息", triple.getCause());
+            assertEquals("汇率承压", triple.getEffect());
+            assertEquals("before", triple.getTemporalRelation());
+            assertEquals("货币政策", triple.getDomainCategory());
+            assertNull(triple.getExtractionMode());
+            assertNull(triple.getSourceSentence());
+            assertNull(triple.getSentenceIndex());
+            assertNull(triple.getCauseCluster());
+            assertNull(triple.getEffectCluster());
+        }
+
+        // 更新的未知版本被拒绝
+        byte[] bytes = file.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, ColumnarFormat.VERSION + 1);
+        assertOpenFails(bytes);
+    }
+
+    private static CausalTriple triple(int i, String category) {
+        return triple(i, category, 0.5 + i * 0.01);
+    }
+
+    private static CausalTriple triple(int i, String category, double confidence) {
+        CausalTriple triple = new CausalTriple("原因" + i, "结果" + i, i % 2 == 0 ? "因果" : "导致", confidence);
+        triple.setTemporalRelation(i % 3 == 0 ? null : "before");
+        triple.setDomainCategory(category);
+        triple.setSourceSentence("第" + i + "句：原因" + i + "导致结果" + i + "。");
+        triple.setSentenceIndex(i);
+        triple.setExtractionMode(i % 2 == 0 ? "fast" : null);
+        triple.setCauseCluster(i + 1);
+        triple.setEffectCluster(i % 4 == 0 ? null : 1000 + i);
+        return triple;
+    }
+
+    private Path write(List<CausalTriple> triples) throws IOException {
+        Path file = tempDir.resolve("triples.fctc");
+        try (OutputStream stream = Files.newOutputStream(file);
+             ColumnarTripleWriter writer = new ColumnarTripleWriter(stream, BLOCK_SIZE)) {
+            writer.writeAll(triples);
+        }
+        return file;
+    }
+
+    private static void assertSameTriple(CausalTriple expected, CausalTriple actual) {
+        assertEquals(expected.getCause(), actual.getCause());
+        assertEquals(expected.getEffect(), actual.getEffect());
+        assertEquals(expected.getRelationType(), actual.getRelationType());
+        assertEquals((float) expected.getConfidence(), (float) actual.getConfidence());
+        assertEquals(expected.getTemporalRelation(), actual.getTemporalRelation());
+        assertEquals(expected.getDomainCategory(), actual.getDomainCategory());
+        assertEquals(expected.getSourceSentence(), actual.getSourceSentence());
+        assertEquals(expected.getSentenceIndex(), actual.getSentenceIndex());
+        assertEquals(expected.getExtractionMode(), actual.getExtractionMode());
+        assertEquals(expected.getCauseCluster(), actual.getCauseCluster());
+        assertEquals(expected.getEffectCluster(), actual.getEffectCluster());
+    }
+
+    private static List<String> causes(List<CausalTriple> triples) {
+        List<String> causes = new ArrayList<>();
+        for (CausalTriple triple : triples) {
+            causes.add(triple.getCause());
+        }
+        return causes;
+    }
+
+    /**
+     * 在由读取器确定的位置写入一个int
+     */
+    private static void corrupt(Path file, PositionFunction position, int value) throws IOException {
+        long offset;
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(file)) {
+            offset = position.apply(reader);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt((int) offset, value);
+        Files.write(file, bytes);
+    }
+
+    private void assertOpenFails(byte[] bytes) throws IOException {
+        Path file = tempDir.resolve("corrupt.fctc");
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> new ColumnarTripleReader(file).close());
+    }
+
+    private void assertScanFails(byte[] bytes) throws IOException {
+        Path file = tempDir.resolve("corrupt.fctc");
+        Files.write(file, bytes);
+        try (ColumnarTripleReader reader = new ColumnarTripleReader(file)) {
+            assertThrows(IOException.class, () -> reader.readAll(TripleFilter.all()));
+        }
+    }
+
+    private interface PositionFunction {
+        long apply(ColumnarTripleReader reader) throws IOException;
+    }
+}
\ No newline at end of file
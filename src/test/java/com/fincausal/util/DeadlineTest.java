@@ -0,0 +1,109 @@
+package com.fincausal.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 处理时限测试
+ */
+public class DeadlineTest {
+
+    @AfterEach
+    public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void testNoneNeverTimesOut() {
+        Deadline deadline = Deadline.none();
+        assertFalse(deadline.hasTimeLimit());
+        assertFalse(deadline.isExpired());
+        assertEquals(Long.MAX_VALUE, deadline.remainingNanos());
+        assertEquals(Long.MAX_VALUE, deadline.getTimeoutNanos());
+        assertFalse(Deadline.after(0, TimeUnit.MILLISECONDS).hasTimeLimit());
+        assertFalse(Deadline.after(-5, TimeUnit.MILLISECONDS).hasTimeLimit());
+    }
+
+    @Test
+    public void testExpiresAfterTimeout() throws InterruptedException {
+        Deadline deadline = Deadline.after(30, TimeUnit.MILLISECONDS);
+        assertTrue(deadline.hasTimeLimit());
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remainingNanos() > 0);
+        assertTrue(deadline.remainingNanos() <= TimeUnit.MILLISECONDS.toNanos(30));
+
+        Thread.sleep(50);
+        assertTrue(deadline.isTimedOut());
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.isCancelled());
+        assertEquals(0, deadline.remainingNanos());
+    }
+
+    @Test
+    public void testCancelFromAnotherThread() throws InterruptedException {
+        Deadline deadline = Deadline.none();
+        Thread canceller = new Thread(deadline::cancel);
+        canceller.start();
+        canceller.join();
+
+        assertTrue(deadline.isCancelled());
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.isTimedOut());
+    }
+
+    @Test
+    public void testInterruptedThreadIsExpired() {
+        Deadline deadline = Deadline.none();
+        Thread.currentThread().interrupt();
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.isCancelled());
+    }
+
+    @Test
+    public void testInterruptWorkersInterruptsRegisteredThreadsAndClearsFlag() throws InterruptedException {
+        Deadline deadline = Deadline.after(10, TimeUnit.SECONDS);
+        CountDownLatch registered = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean flagAfterUnregister = new AtomicBoolean(true);
+
+        Thread worker = new Thread(() -> {
+            deadline.registerWorker();
+            try {
+                registered.countDown();
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                // 模拟注释器在中断后重新设置中断标记
+                Thread.currentThread().interrupt();
+            } finally {
+                deadline.unregisterWorker();
+            }
+            flagAfterUnregister.set(Thread.currentThread().isInterrupted());
+        });
+        worker.start();
+        assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+        deadline.interruptWorkers();
+        worker.join(5000);
+
+        assertFalse(worker.isAlive());
+        assertTrue(interrupted.get());
+        assertFalse(flagAfterUnregister.get(), "取消登记后应清除中断标记");
+    }
+
+    @Test
+    public void testUnregisteredThreadsAreNotInterrupted() {
+        Deadline deadline = Deadline.after(10, TimeUnit.SECONDS);
+        deadline.registerWorker();
+        deadline.unregisterWorker();
+
+        deadline.interruptWorkers();
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.semanticweb;
 
+import com.fincausal.processor.CausalRelationExtractor;
+
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 